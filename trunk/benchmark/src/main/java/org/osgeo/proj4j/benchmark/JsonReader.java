@@ -0,0 +1,217 @@
+package org.osgeo.proj4j.benchmark;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal JSON parser, sufficient for reading JMH result files.
+ * Objects are returned as {@link Map}s (preserving the key order),
+ * arrays as {@link List}s, numbers as {@link Double}s,
+ * and <tt>true</tt>, <tt>false</tt> and <tt>null</tt>
+ * as the corresponding Java values.
+ */
+class JsonReader
+{
+  private final Reader in;
+  private int ch;
+  private int line = 1;
+
+  JsonReader(Reader in)
+    throws IOException
+  {
+    this.in = in;
+    next();
+  }
+
+  /**
+   * Reads a single JSON value, which must be followed only by whitespace.
+   *
+   * @return the value
+   * @throws IOException if the input cannot be read or is not valid JSON
+   */
+  Object read()
+    throws IOException
+  {
+    Object value = readValue();
+    skipWhitespace();
+    if (ch != -1)
+      throw error("Unexpected data after value");
+    return value;
+  }
+
+  private Object readValue()
+    throws IOException
+  {
+    skipWhitespace();
+    switch (ch) {
+    case '{':
+      return readObject();
+    case '[':
+      return readArray();
+    case '"':
+      return readString();
+    case 't':
+      readWord("true");
+      return Boolean.TRUE;
+    case 'f':
+      readWord("false");
+      return Boolean.FALSE;
+    case 'n':
+      readWord("null");
+      return null;
+    default:
+      if (ch == '-' || (ch >= '0' && ch <= '9'))
+        return readNumber();
+      throw error("Unexpected character");
+    }
+  }
+
+  private Map<String, Object> readObject()
+    throws IOException
+  {
+    Map<String, Object> map = new LinkedHashMap<String, Object>();
+    next();
+    skipWhitespace();
+    if (ch == '}') {
+      next();
+      return map;
+    }
+    while (true) {
+      skipWhitespace();
+      if (ch != '"')
+        throw error("Expected a string key");
+      String key = readString();
+      skipWhitespace();
+      expect(':');
+      map.put(key, readValue());
+      skipWhitespace();
+      if (ch == '}') {
+        next();
+        return map;
+      }
+      expect(',');
+    }
+  }
+
+  private List<Object> readArray()
+    throws IOException
+  {
+    List<Object> list = new ArrayList<Object>();
+    next();
+    skipWhitespace();
+    if (ch == ']') {
+      next();
+      return list;
+    }
+    while (true) {
+      list.add(readValue());
+      skipWhitespace();
+      if (ch == ']') {
+        next();
+        return list;
+      }
+      expect(',');
+    }
+  }
+
+  private String readString()
+    throws IOException
+  {
+    StringBuilder sb = new StringBuilder();
+    next();
+    while (ch != '"') {
+      if (ch == -1)
+        throw error("Unterminated string");
+      if (ch == '\\') {
+        next();
+        switch (ch) {
+        case 'b': sb.append('\b'); break;
+        case 'f': sb.append('\f'); break;
+        case 'n': sb.append('\n'); break;
+        case 'r': sb.append('\r'); break;
+        case 't': sb.append('\t'); break;
+        case 'u':
+          int code = 0;
+          for (int i = 0; i < 4; i++) {
+            next();
+            int digit = Character.digit((char) ch, 16);
+            if (digit < 0)
+              throw error("Invalid unicode escape");
+            code = 16 * code + digit;
+          }
+          sb.append((char) code);
+          break;
+        default:
+          // '"', '\\' and '/'
+          sb.append((char) ch);
+        }
+      }
+      else {
+        sb.append((char) ch);
+      }
+      next();
+    }
+    next();
+    return sb.toString();
+  }
+
+  private Double readNumber()
+    throws IOException
+  {
+    StringBuilder sb = new StringBuilder();
+    while (ch == '-' || ch == '+' || ch == '.' || ch == 'e' || ch == 'E'
+        || (ch >= '0' && ch <= '9')) {
+      sb.append((char) ch);
+      next();
+    }
+    try {
+      return Double.valueOf(sb.toString());
+    }
+    catch (NumberFormatException ex) {
+      throw error("Invalid number " + sb);
+    }
+  }
+
+  private void readWord(String word)
+    throws IOException
+  {
+    for (int i = 0; i < word.length(); i++) {
+      if (ch != word.charAt(i))
+        throw error("Expected " + word);
+      next();
+    }
+  }
+
+  private void expect(char c)
+    throws IOException
+  {
+    if (ch != c)
+      throw error("Expected '" + c + "'");
+    next();
+  }
+
+  private void skipWhitespace()
+    throws IOException
+  {
+    while (ch == ' ' || ch == '\t' || ch == '\r' || ch == '\n') {
+      next();
+    }
+  }
+
+  private void next()
+    throws IOException
+  {
+    ch = in.read();
+    if (ch == '\n')
+      line++;
+  }
+
+  private IOException error(String message)
+  {
+    return new IOException(message + " at line " + line);
+  }
+}
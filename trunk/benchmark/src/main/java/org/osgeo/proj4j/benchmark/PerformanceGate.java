@@ -0,0 +1,299 @@
+package org.osgeo.proj4j.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH result file in JSON format with a baseline result file,
+ * and reports the benchmarks which got slower (or faster)
+ * by more than a given tolerance.
+ * The process exits with status 1 if any benchmark got slower,
+ * and with status 2 if the baseline file does not exist.
+ * <p>
+ * Results are matched by benchmark method and parameter values,
+ * so that for instance each projection or CRS pair is compared separately.
+ * Benchmarks in only one of the files are listed but do not fail the comparison.
+ * <p>
+ * Usage:
+ * <pre>
+ * PerformanceGate [-tolerance 0.1] [-update true|false] baseline.json result.json
+ * </pre>
+ * If <tt>-update true</tt> is given,
+ * the result file is copied to the baseline instead of being compared with it;
+ * this must be done to record the first baseline.
+ * <p>
+ * The <tt>perf-gate</tt> profile of this module runs the projection
+ * and transform benchmarks in a quick mode and then this comparison,
+ * against <tt>baseline/jmh-baseline.json</tt>:
+ * <pre>
+ * mvn -P perf-gate verify
+ * mvn -P perf-gate verify -Dperf.tolerance=0.2
+ * mvn -P perf-gate verify -Dperf.update=true
+ * </pre>
+ * Benchmark times depend on the machine,
+ * so the baseline should be recorded on the machine the gate is run on.
+ */
+public class PerformanceGate
+{
+  public static final double DEFAULT_TOLERANCE = 0.10;
+
+  public static void main(String[] args)
+    throws Exception
+  {
+    double tolerance = DEFAULT_TOLERANCE;
+    boolean isUpdate = false;
+    List<String> files = new ArrayList<String>();
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-tolerance") && i + 1 < args.length)
+        tolerance = Double.parseDouble(args[++i]);
+      else if (args[i].equals("-update") && i + 1 < args.length)
+        isUpdate = Boolean.valueOf(args[++i]).booleanValue();
+      else
+        files.add(args[i]);
+    }
+    if (files.size() != 2) {
+      System.err.println("Usage: PerformanceGate [-tolerance 0.1] [-update true|false] baseline.json result.json");
+      System.exit(2);
+    }
+    File baselineFile = new File(files.get(0));
+    File resultFile = new File(files.get(1));
+
+    if (isUpdate) {
+      copy(resultFile, baselineFile);
+      System.out.println("Recorded " + resultFile + " as the baseline " + baselineFile);
+      return;
+    }
+    if (! baselineFile.exists()) {
+      System.err.println("Baseline " + baselineFile + " does not exist;"
+          + " record it with -update true (-Dperf.update=true with Maven)");
+      System.exit(2);
+    }
+
+    PerformanceGate gate = new PerformanceGate(tolerance);
+    boolean isPassed = gate.compare(readResults(baselineFile), readResults(resultFile));
+    if (! isPassed)
+      System.exit(1);
+  }
+
+  /**
+   * The score of one benchmark, with one set of parameter values
+   */
+  static class Result
+  {
+    String mode;
+    double score;
+    String unit;
+
+    /**
+     * Tests whether a lower score is better,
+     * which is the case for all modes except throughput.
+     */
+    boolean isLowerBetter()
+    {
+      return ! "thrpt".equals(mode);
+    }
+
+    String format(double value)
+    {
+      return String.format("%.3f %s", value, unit);
+    }
+  }
+
+  private final double tolerance;
+
+  public PerformanceGate(double tolerance)
+  {
+    this.tolerance = tolerance;
+  }
+
+  /**
+   * Compares results with a baseline, and prints a report.
+   *
+   * @param baseline the baseline results, keyed by benchmark and parameters
+   * @param current the current results, keyed by benchmark and parameters
+   * @return true if no benchmark got slower by more than the tolerance
+   */
+  boolean compare(Map<String, Result> baseline, Map<String, Result> current)
+  {
+    final Map<String, Double> changes = new LinkedHashMap<String, Double>();
+    List<String> slower = new ArrayList<String>();
+    List<String> faster = new ArrayList<String>();
+    List<String> missing = new ArrayList<String>();
+    List<String> incomparable = new ArrayList<String>();
+    int unchangedCount = 0;
+    for (Iterator<Map.Entry<String, Result>> i = baseline.entrySet().iterator(); i.hasNext(); ) {
+      Map.Entry<String, Result> e = i.next();
+      Result base = e.getValue();
+      Result cur = current.get(e.getKey());
+      if (cur == null) {
+        missing.add(e.getKey());
+        continue;
+      }
+      if (! base.unit.equals(cur.unit) || ! base.mode.equals(cur.mode)
+          || ! (base.score > 0) || Double.isNaN(cur.score)) {
+        incomparable.add(e.getKey());
+        continue;
+      }
+      // the relative change, positive if it got slower
+      double change = (cur.score - base.score) / base.score;
+      if (! base.isLowerBetter())
+        change = -change;
+      changes.put(e.getKey(), new Double(change));
+      if (change > tolerance)
+        slower.add(e.getKey());
+      else if (change < -tolerance)
+        faster.add(e.getKey());
+      else
+        unchangedCount++;
+    }
+    List<String> added = new ArrayList<String>();
+    for (Iterator<String> i = current.keySet().iterator(); i.hasNext(); ) {
+      String key = i.next();
+      if (! baseline.containsKey(key))
+        added.add(key);
+    }
+
+    Comparator<String> byChange = new Comparator<String>() {
+      public int compare(String key1, String key2)
+      {
+        return Double.compare(Math.abs(changes.get(key2).doubleValue()),
+            Math.abs(changes.get(key1).doubleValue()));
+      }
+    };
+    Collections.sort(slower, byChange);
+    Collections.sort(faster, byChange);
+
+    System.out.println(String.format("Compared %d benchmarks with a tolerance of %.1f%%",
+        new Integer(changes.size()), new Double(100 * tolerance)));
+    printChanges("Slower", slower, baseline, current);
+    printChanges("Faster", faster, baseline, current);
+    System.out.println();
+    System.out.println(unchangedCount + " within tolerance");
+    printKeys("Missing from results", missing);
+    printKeys("Not in baseline", added);
+    printKeys("Not comparable (different mode or unit, or no score)", incomparable);
+    if (slower.isEmpty())
+      System.out.println("PASSED");
+    else
+      System.out.println("FAILED: " + slower.size() + " benchmarks got slower");
+    return slower.isEmpty();
+  }
+
+  private static void printChanges(String title, List<String> keys,
+      Map<String, Result> baseline, Map<String, Result> current)
+  {
+    if (keys.isEmpty())
+      return;
+    System.out.println();
+    System.out.println(title + ":");
+    int width = 0;
+    for (Iterator<String> i = keys.iterator(); i.hasNext(); ) {
+      width = Math.max(width, i.next().length());
+    }
+    String format = "  %-" + width + "s  %20s  %20s  %+8.1f%%";
+    System.out.println(String.format("  %-" + width + "s  %20s  %20s  %9s",
+        "Benchmark", "Baseline", "Current", "Change"));
+    for (Iterator<String> i = keys.iterator(); i.hasNext(); ) {
+      String key = i.next();
+      Result base = baseline.get(key);
+      Result cur = current.get(key);
+      double percent = 100 * (cur.score - base.score) / base.score;
+      System.out.println(String.format(format, key,
+          base.format(base.score), cur.format(cur.score), new Double(percent)));
+    }
+  }
+
+  private static void printKeys(String title, List<String> keys)
+  {
+    if (keys.isEmpty())
+      return;
+    System.out.println(title + ":");
+    for (Iterator<String> i = keys.iterator(); i.hasNext(); ) {
+      System.out.println("  " + i.next());
+    }
+  }
+
+  /**
+   * Reads a JMH result file in JSON format.
+   *
+   * @param file the file to read
+   * @return the results, keyed by benchmark name and parameter values
+   * @throws IOException if the file cannot be read
+   */
+  static Map<String, Result> readResults(File file)
+    throws IOException
+  {
+    Reader in = new InputStreamReader(new FileInputStream(file), "UTF-8");
+    Object json;
+    try {
+      json = new JsonReader(in).read();
+    }
+    finally {
+      in.close();
+    }
+    if (! (json instanceof List))
+      throw new IOException("Not a JMH result file: " + file);
+    Map<String, Result> results = new LinkedHashMap<String, Result>();
+    for (Iterator i = ((List) json).iterator(); i.hasNext(); ) {
+      Map benchmark = (Map) i.next();
+      Map metric = (Map) benchmark.get("primaryMetric");
+      Result result = new Result();
+      result.mode = (String) benchmark.get("mode");
+      result.score = toDouble(metric.get("score"));
+      result.unit = (String) metric.get("scoreUnit");
+      results.put(key((String) benchmark.get("benchmark"), (Map) benchmark.get("params")), result);
+    }
+    return results;
+  }
+
+  /**
+   * Creates the key of a benchmark, such as
+   * <tt>ProjectionBenchmark.projectRadians figure=sphere projection=merc</tt>.
+   */
+  private static String key(String benchmark, Map params)
+  {
+    // drop the package name
+    int methodIndex = benchmark.lastIndexOf('.');
+    int classIndex = benchmark.lastIndexOf('.', methodIndex - 1);
+    StringBuilder sb = new StringBuilder(benchmark.substring(classIndex + 1));
+    if (params != null) {
+      Map sorted = new TreeMap(params);
+      for (Iterator i = sorted.entrySet().iterator(); i.hasNext(); ) {
+        Map.Entry e = (Map.Entry) i.next();
+        sb.append(' ').append(e.getKey()).append('=').append(e.getValue());
+      }
+    }
+    return sb.toString();
+  }
+
+  private static double toDouble(Object value)
+  {
+    // JMH writes non-finite scores as strings
+    if (value instanceof Double)
+      return ((Double) value).doubleValue();
+    if (value instanceof String)
+      return Double.parseDouble((String) value);
+    return Double.NaN;
+  }
+
+  private static void copy(File src, File tgt)
+    throws IOException
+  {
+    if (tgt.getParentFile() != null)
+      tgt.getParentFile().mkdirs();
+    Files.copy(src.toPath(), tgt.toPath(), StandardCopyOption.REPLACE_EXISTING);
+  }
+}
@@ -0,0 +1,187 @@
+package org.osgeo.proj4j.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.osgeo.proj4j.ProjCoordinate;
+import org.osgeo.proj4j.Registry;
+import org.osgeo.proj4j.datum.Ellipsoid;
+import org.osgeo.proj4j.proj.Projection;
+import org.osgeo.proj4j.util.WorkloadGenerator;
+
+/**
+ * Benchmarks the forward and inverse computation of each projection
+ * in the {@link Registry}, on a sphere and on the WGS84 ellipsoid.
+ * <p>
+ * Each benchmark cycles through a fixed set of points
+ * generated by a {@link WorkloadGenerator} over the domain of the projection,
+ * for which the forward projection gives a finite result.
+ * The points are distributed uniformly by default;
+ * other distributions can be chosen with the <tt>distribution</tt> parameter
+ * (e.g. <tt>-p distribution=CLUSTERED,POLAR,ANTIMERIDIAN,TRACK</tt>).
+ * The inverse benchmark uses the projected points as its input.
+ * <p>
+ * Running this class (or the <tt>benchmarks.jar</tt> built by this module)
+ * benchmarks every registered projection which can be created,
+ * and the inverse of every one which has an inverse,
+ * reporting the time per point (ns/op) and,
+ * via the JMH GC profiler, the allocation rate per point
+ * (<tt>gc.alloc.rate.norm</tt>).
+ * Other JMH options given on the command line are passed through,
+ * so that for instance <tt>-p projection=merc,tmerc</tt>
+ * restricts the run to some projections.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectionBenchmark
+{
+  static final String SPHERE = "sphere";
+  static final String ELLIPSOID = "ellipsoid";
+
+  // a power of 2, so the point index can wrap with a mask
+  static final int POINT_COUNT = 1024;
+
+  static final Registry registry = new Registry();
+
+  @Param({ "merc" })
+  public String projection;
+
+  @Param({ SPHERE, ELLIPSOID })
+  public String figure;
+
+  @Param({ "UNIFORM" })
+  public String distribution;
+
+  private Projection proj;
+  private final double[] lon = new double[POINT_COUNT];
+  private final double[] lat = new double[POINT_COUNT];
+  private final double[] x = new double[POINT_COUNT];
+  private final double[] y = new double[POINT_COUNT];
+  private final ProjCoordinate src = new ProjCoordinate();
+  private final ProjCoordinate dst = new ProjCoordinate();
+  private int index = 0;
+
+  public static void main(String[] args)
+    throws Exception
+  {
+    List<String> forward = new ArrayList<String>();
+    List<String> inverse = new ArrayList<String>();
+    String[] names = registry.getProjectionNames();
+    for (int i = 0; i < names.length; i++) {
+      Projection proj;
+      try {
+        proj = createProjection(names[i], SPHERE);
+      }
+      catch (RuntimeException ex) {
+        proj = null;
+      }
+      if (proj == null) {
+        System.err.println("Skipping projection which cannot be created: " + names[i]);
+        continue;
+      }
+      forward.add(names[i]);
+      if (proj.hasInverse())
+        inverse.add(names[i]);
+    }
+
+    Options cmdOptions = new CommandLineOptions(args);
+    run(cmdOptions, "projectRadians", forward);
+    run(cmdOptions, "inverseProjectRadians", inverse);
+  }
+
+  private static void run(Options cmdOptions, String method, List<String> names)
+    throws Exception
+  {
+    OptionsBuilder builder = new OptionsBuilder();
+    builder.parent(cmdOptions)
+      .include(ProjectionBenchmark.class.getName() + "." + method + "$")
+      .addProfiler(GCProfiler.class);
+    // projections given on the command line take precedence
+    if (! cmdOptions.getParameter("projection").hasValue())
+      builder.param("projection", names.toArray(new String[names.size()]));
+    new Runner(builder.build()).run();
+  }
+
+  /**
+   * Creates and initializes a projection from the registry.
+   *
+   * @param name the projection name
+   * @param figure {@link #SPHERE} or {@link #ELLIPSOID}
+   * @return the projection, or null if it cannot be created
+   */
+  static Projection createProjection(String name, String figure)
+  {
+    Projection proj = registry.getProjection(name);
+    if (proj == null)
+      return null;
+    proj.setEllipsoid(ELLIPSOID.equals(figure) ? Ellipsoid.WGS84 : Ellipsoid.SPHERE);
+    // standard parallels for the conic projections
+    proj.setProjectionLatitude1Degrees(30);
+    proj.setProjectionLatitude2Degrees(60);
+    // the azimuth of the centre line for the oblique projections
+    proj.setAlphaDegrees(30);
+    proj.setLonCDegrees(0);
+    proj.initialize();
+    return proj;
+  }
+
+  @Setup(Level.Trial)
+  public void setUp()
+  {
+    proj = createProjection(projection, figure);
+    if (proj == null)
+      throw new IllegalStateException("Cannot create projection: " + projection);
+
+    WorkloadGenerator generator = new WorkloadGenerator(proj, 42);
+    double[] coords = generator.generate(WorkloadGenerator.Distribution.valueOf(distribution), POINT_COUNT);
+    for (int i = 0; i < POINT_COUNT; i++) {
+      src.x = Math.toRadians(coords[2 * i]);
+      src.y = Math.toRadians(coords[2 * i + 1]);
+      proj.projectRadians(src, dst);
+      lon[i] = src.x;
+      lat[i] = src.y;
+      x[i] = dst.x;
+      y[i] = dst.y;
+    }
+  }
+
+  @Benchmark
+  public ProjCoordinate projectRadians()
+  {
+    int i = index++ & (POINT_COUNT - 1);
+    src.x = lon[i];
+    src.y = lat[i];
+    return proj.projectRadians(src, dst);
+  }
+
+  @Benchmark
+  public ProjCoordinate inverseProjectRadians()
+  {
+    int i = index++ & (POINT_COUNT - 1);
+    src.x = x[i];
+    src.y = y[i];
+    return proj.inverseProjectRadians(src, dst);
+  }
+}
@@ -0,0 +1,151 @@
+package org.osgeo.proj4j.benchmark;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.osgeo.proj4j.CRSFactory;
+import org.osgeo.proj4j.CoordinateReferenceSystem;
+import org.osgeo.proj4j.CoordinateTransform;
+import org.osgeo.proj4j.CoordinateTransformFactory;
+import org.osgeo.proj4j.ProjCoordinate;
+import org.osgeo.proj4j.Registry;
+import org.osgeo.proj4j.io.Proj4FileReader;
+
+/**
+ * Benchmarks the cold paths which are run when an application starts:
+ * the first lookup of a CRS in each authority,
+ * creating every CRS in the <tt>epsg</tt> and <tt>esri</tt> files,
+ * constructing the projection {@link Registry},
+ * creating transforms between common pairs of CRSs,
+ * and the time from a fresh JVM to the first transformed point.
+ * <p>
+ * Each benchmark runs once in each of a number of freshly forked JVMs,
+ * so the times include class loading, static initialization
+ * and interpreted execution.
+ * The number of forks can be changed with the JMH <tt>-f</tt> option.
+ * Run them with:
+ * <pre>
+ * java -cp target/benchmarks.jar org.openjdk.jmh.Main StartupBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class StartupBenchmark
+{
+  @State(Scope.Benchmark)
+  public static class AuthorityName
+  {
+    // a CRS from each authority file
+    @Param({ "EPSG:4326", "ESRI:4326", "NAD27:2001", "NAD83:2001", "WORLD:CH1903" })
+    public String name;
+  }
+
+  @State(Scope.Benchmark)
+  public static class AuthorityFile
+  {
+    @Param({ "EPSG", "ESRI" })
+    public String authority;
+  }
+
+  @State(Scope.Benchmark)
+  public static class TransformPair
+  {
+    // source and target CRS names, separated by a space
+    @Param({
+      "EPSG:4326 EPSG:3857",
+      "EPSG:4326 EPSG:32633",
+      "EPSG:4267 EPSG:4326",
+      "EPSG:4326 EPSG:3035",
+      "EPSG:2154 EPSG:4326"
+    })
+    public String pair;
+
+    CoordinateReferenceSystem srcCRS;
+    CoordinateReferenceSystem tgtCRS;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+      String[] names = pair.split(" ");
+      CRSFactory crsFactory = new CRSFactory();
+      srcCRS = crsFactory.createFromName(names[0]);
+      tgtCRS = crsFactory.createFromName(names[1]);
+    }
+  }
+
+  @Benchmark
+  public Registry createRegistry()
+  {
+    return new Registry();
+  }
+
+  @Benchmark
+  public CoordinateReferenceSystem createFirstFromName(AuthorityName state)
+  {
+    return new CRSFactory().createFromName(state.name);
+  }
+
+  /**
+   * Creates every CRS in an authority file.
+   * CRSs which cannot be created are counted rather than
+   * stopping the benchmark.
+   *
+   * @return the number of CRSs which could not be created
+   */
+  @Benchmark
+  public int createAllInAuthority(AuthorityFile state, Blackhole bh)
+    throws Exception
+  {
+    CRSFactory crsFactory = new CRSFactory();
+    Map<String, String[]> defs = new Proj4FileReader().readAllParametersFromFile(state.authority);
+    int failCount = 0;
+    for (Iterator<Map.Entry<String, String[]>> i = defs.entrySet().iterator(); i.hasNext(); ) {
+      Map.Entry<String, String[]> def = i.next();
+      try {
+        bh.consume(crsFactory.createFromParameters(state.authority + ":" + def.getKey(), def.getValue()));
+      }
+      catch (RuntimeException ex) {
+        failCount++;
+      }
+    }
+    return failCount;
+  }
+
+  @Benchmark
+  public CoordinateTransform createFirstTransform(TransformPair state)
+  {
+    return new CoordinateTransformFactory().createTransform(state.srcCRS, state.tgtCRS);
+  }
+
+  /**
+   * Measures everything needed to transform a single point
+   * in a JVM which has not yet used the library.
+   */
+  @Benchmark
+  public ProjCoordinate firstTransform()
+  {
+    CRSFactory crsFactory = new CRSFactory();
+    CoordinateReferenceSystem srcCRS = crsFactory.createFromName("EPSG:4326").createGeographic();
+    CoordinateReferenceSystem tgtCRS = crsFactory.createFromName("EPSG:3857");
+    CoordinateTransform trans = new CoordinateTransformFactory().createTransform(srcCRS, tgtCRS);
+    ProjCoordinate tgt = new ProjCoordinate();
+    return trans.transform(new ProjCoordinate(-1.5, 53.0), tgt);
+  }
+}
@@ -0,0 +1,111 @@
+package org.osgeo.proj4j.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgeo.proj4j.BasicCoordinateTransform;
+import org.osgeo.proj4j.BatchCoordinateTransform;
+import org.osgeo.proj4j.CRSFactory;
+import org.osgeo.proj4j.CoordinateReferenceSystem;
+import org.osgeo.proj4j.CoordinateTransform;
+import org.osgeo.proj4j.ProjCoordinate;
+import org.osgeo.proj4j.proj.Projection;
+
+/**
+ * Benchmarks transforming points between common pairs of CRSs,
+ * including datum conversions,
+ * one point at a time and in batches.
+ * <p>
+ * The points lie within 2 degrees of the origin of the target projection
+ * (or of 10E 50N, for a geographic target).
+ * Times are reported per point.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformBenchmark
+{
+  // a power of 2, so the point index can wrap with a mask
+  static final int POINT_COUNT = 1024;
+
+  // source and target CRS names, separated by a space
+  @Param({
+    "EPSG:4326 EPSG:3857",
+    "EPSG:4326 EPSG:32633",
+    "EPSG:4326 EPSG:3035",
+    "EPSG:4326 EPSG:2154",
+    "EPSG:4326 EPSG:31467",
+    "EPSG:3395 EPSG:4326",
+    "EPSG:4267 EPSG:26717"
+  })
+  public String pair;
+
+  private CoordinateTransform trans;
+  private BatchCoordinateTransform batch;
+  private final double[] coords = new double[2 * POINT_COUNT];
+  private final double[] out = new double[2 * POINT_COUNT];
+  private final ProjCoordinate src = new ProjCoordinate();
+  private final ProjCoordinate dst = new ProjCoordinate();
+  private int index = 0;
+
+  @Setup(Level.Trial)
+  public void setUp()
+  {
+    String[] names = pair.split(" ");
+    CRSFactory crsFactory = new CRSFactory();
+    CoordinateReferenceSystem srcCRS = crsFactory.createFromName(names[0]);
+    CoordinateReferenceSystem tgtCRS = crsFactory.createFromName(names[1]);
+    trans = new BasicCoordinateTransform(srcCRS, tgtCRS);
+    batch = new BatchCoordinateTransform(trans);
+
+    double lon0 = 10.0;
+    double lat0 = 50.0;
+    Projection proj = tgtCRS.getProjection();
+    if (proj.getProjectionLongitude() != 0) {
+      lon0 = proj.getProjectionLongitudeDegrees();
+      lat0 = Math.max(-60, Math.min(60, proj.getProjectionLatitudeDegrees()));
+    }
+    CoordinateTransform toSrc = new BasicCoordinateTransform(tgtCRS.createGeographic(), srcCRS);
+    ProjCoordinate geo = new ProjCoordinate();
+    Random random = new Random(42);
+    for (int i = 0; i < POINT_COUNT; i++) {
+      geo.x = lon0 + (2 * random.nextDouble() - 1) * 2;
+      geo.y = lat0 + (2 * random.nextDouble() - 1) * 2;
+      toSrc.transform(geo, src);
+      coords[2 * i] = src.x;
+      coords[2 * i + 1] = src.y;
+    }
+  }
+
+  @Benchmark
+  public ProjCoordinate transform()
+  {
+    int i = 2 * (index++ & (POINT_COUNT - 1));
+    src.x = coords[i];
+    src.y = coords[i + 1];
+    return trans.transform(src, dst);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(POINT_COUNT)
+  public int transformBatch()
+  {
+    return batch.transform(coords, 0, out, 0, POINT_COUNT, 2);
+  }
+}
@@ -0,0 +1,33 @@
+package org.osgeo.proj4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Records the creation of a coordinate reference system.
+ */
+@Name("org.osgeo.proj4j.CRSCreation")
+@Label("CRS Creation")
+@Category("Proj4J")
+@Description("A coordinate reference system was created")
+@StackTrace(false)
+public class CRSCreationEvent
+  extends Event
+{
+  @Label("Name")
+  String name;
+
+  @Label("Catalog Scan Time")
+  @Description("The time taken to find the definition in an authority file")
+  @Timespan(Timespan.NANOSECONDS)
+  long catalogTime;
+
+  @Label("Parse Time")
+  @Timespan(Timespan.NANOSECONDS)
+  long parseTime;
+}
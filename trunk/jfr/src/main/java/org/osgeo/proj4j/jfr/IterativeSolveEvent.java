@@ -0,0 +1,32 @@
+package org.osgeo.proj4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Records an iterative computation which took many iterations,
+ * or failed to converge.
+ */
+@Name("org.osgeo.proj4j.IterativeSolve")
+@Label("Slow Iterative Solve")
+@Category("Proj4J")
+@Description("An iterative computation took many iterations or failed to converge")
+public class IterativeSolveEvent
+  extends Event
+{
+  @Label("Solver")
+  String solver;
+
+  @Label("Iterations")
+  int iterations;
+
+  @Label("Iteration Limit")
+  int maxIterations;
+
+  @Label("Converged")
+  boolean converged;
+}
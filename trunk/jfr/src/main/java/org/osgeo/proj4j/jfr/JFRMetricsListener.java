@@ -0,0 +1,196 @@
+package org.osgeo.proj4j.jfr;
+
+import jdk.jfr.EventType;
+
+import org.osgeo.proj4j.CoordinateReferenceSystem;
+import org.osgeo.proj4j.Proj4jException;
+import org.osgeo.proj4j.metrics.Metrics;
+import org.osgeo.proj4j.metrics.MetricsListener;
+
+/**
+ * A {@link MetricsListener} which emits Java Flight Recorder events.
+ * The events are:
+ * <ul>
+ * <li>{@link CRSCreationEvent} for each CRS created
+ * taking at least the CRS creation threshold (0 by default)
+ * <li>{@link TransformBatchEvent} for each batch taking
+ * at least the batch threshold (1 ms by default)
+ * <li>{@link IterativeSolveEvent} for each iterative computation
+ * which fails to converge, or which uses at least
+ * the solve threshold fraction of its iteration limit (0.5 by default)
+ * <li>{@link TransformFailureEvent} for each exception thrown by a transform
+ * </ul>
+ * Events are only created when their type is enabled in a running recording,
+ * and are subject to the usual JFR event settings as well.
+ * Individual point transforms, cache lookups and catalog lookups
+ * are too frequent to record as events,
+ * and are only passed on to the next listener, if any.
+ * <p>
+ * Typical use is:
+ * <pre>
+ * JFRMetricsListener.install();
+ * </pre>
+ */
+public class JFRMetricsListener
+  implements MetricsListener
+{
+  public static final long DEFAULT_CRS_CREATION_THRESHOLD = 0;
+  public static final long DEFAULT_BATCH_THRESHOLD = 1000000;
+  public static final double DEFAULT_SOLVE_THRESHOLD = 0.5;
+
+  private static final EventType crsCreationType = EventType.getEventType(CRSCreationEvent.class);
+  private static final EventType batchType = EventType.getEventType(TransformBatchEvent.class);
+  private static final EventType solveType = EventType.getEventType(IterativeSolveEvent.class);
+  private static final EventType failureType = EventType.getEventType(TransformFailureEvent.class);
+
+  /**
+   * Creates a listener which passes on all notifications
+   * to the currently installed listener (if any),
+   * and installs it in its place.
+   *
+   * @return the listener
+   */
+  public static JFRMetricsListener install()
+  {
+    JFRMetricsListener listener = new JFRMetricsListener(Metrics.getListener());
+    Metrics.setListener(listener);
+    return listener;
+  }
+
+  private final MetricsListener next;
+  private volatile long crsCreationThreshold = DEFAULT_CRS_CREATION_THRESHOLD;
+  private volatile long batchThreshold = DEFAULT_BATCH_THRESHOLD;
+  private volatile double solveThreshold = DEFAULT_SOLVE_THRESHOLD;
+
+  /**
+   * Creates a listener.
+   */
+  public JFRMetricsListener()
+  {
+    this(null);
+  }
+
+  /**
+   * Creates a listener which passes on all notifications to another listener,
+   * such as a {@link org.osgeo.proj4j.metrics.TransformMetrics}.
+   *
+   * @param next the listener to notify as well (may be null)
+   */
+  public JFRMetricsListener(MetricsListener next)
+  {
+    this.next = next;
+  }
+
+  /**
+   * Sets the total creation time above which CRS creation is recorded.
+   *
+   * @param nanos the threshold, in nanoseconds
+   */
+  public void setCRSCreationThreshold(long nanos)
+  {
+    crsCreationThreshold = nanos;
+  }
+
+  /**
+   * Sets the batch duration above which batches are recorded.
+   *
+   * @param nanos the threshold, in nanoseconds
+   */
+  public void setBatchThreshold(long nanos)
+  {
+    batchThreshold = nanos;
+  }
+
+  /**
+   * Sets the fraction of the iteration limit above which
+   * iterative computations are recorded.
+   * Computations which fail to converge are always recorded.
+   *
+   * @param fraction the threshold, between 0 and 1
+   */
+  public void setSolveThreshold(double fraction)
+  {
+    solveThreshold = fraction;
+  }
+
+  public void transformed(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS, long nanos)
+  {
+    if (next != null)
+      next.transformed(srcCRS, tgtCRS, nanos);
+  }
+
+  public void transformFailed(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS, Proj4jException ex)
+  {
+    if (failureType.isEnabled()) {
+      TransformFailureEvent event = new TransformFailureEvent();
+      event.sourceCRS = srcCRS.getName();
+      event.targetCRS = tgtCRS.getName();
+      event.exceptionClass = ex.getClass();
+      event.message = ex.getMessage();
+      event.commit();
+    }
+    if (next != null)
+      next.transformFailed(srcCRS, tgtCRS, ex);
+  }
+
+  public void batchTransformed(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS,
+      int pointCount, int failCount, long nanos)
+  {
+    if (nanos >= batchThreshold && batchType.isEnabled()) {
+      TransformBatchEvent event = new TransformBatchEvent();
+      event.sourceCRS = srcCRS.getName();
+      event.targetCRS = tgtCRS.getName();
+      event.pointCount = pointCount;
+      event.failCount = failCount;
+      event.batchDuration = nanos;
+      event.commit();
+    }
+    if (next != null)
+      next.batchTransformed(srcCRS, tgtCRS, pointCount, failCount, nanos);
+  }
+
+  public void crsCreated(String name, long catalogNanos, long parseNanos)
+  {
+    if (catalogNanos + parseNanos >= crsCreationThreshold && crsCreationType.isEnabled()) {
+      CRSCreationEvent event = new CRSCreationEvent();
+      event.name = name;
+      event.catalogTime = catalogNanos;
+      event.parseTime = parseNanos;
+      event.commit();
+    }
+    if (next != null)
+      next.crsCreated(name, catalogNanos, parseNanos);
+  }
+
+  public void iterativeSolve(String solver, int iterations, int maxIterations, boolean isConverged)
+  {
+    if ((! isConverged || iterations >= solveThreshold * maxIterations) && solveType.isEnabled()) {
+      IterativeSolveEvent event = new IterativeSolveEvent();
+      event.solver = solver;
+      event.iterations = iterations;
+      event.maxIterations = maxIterations;
+      event.converged = isConverged;
+      event.commit();
+    }
+    if (next != null)
+      next.iterativeSolve(solver, iterations, maxIterations, isConverged);
+  }
+
+  public void cacheLookup(String name, boolean isHit)
+  {
+    if (next != null)
+      next.cacheLookup(name, isHit);
+  }
+
+  public void cacheLoaded(String name, long nanos)
+  {
+    if (next != null)
+      next.cacheLoaded(name, nanos);
+  }
+
+  public void catalogLookup(String authority, String code, boolean isFound, long nanos)
+  {
+    if (next != null)
+      next.catalogLookup(authority, code, isFound, nanos);
+  }
+}
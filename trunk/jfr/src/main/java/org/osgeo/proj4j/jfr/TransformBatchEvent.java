@@ -0,0 +1,39 @@
+package org.osgeo.proj4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Records a batch of points transformed
+ * by a {@link org.osgeo.proj4j.BatchCoordinateTransform}.
+ */
+@Name("org.osgeo.proj4j.TransformBatch")
+@Label("Transform Batch")
+@Category("Proj4J")
+@Description("A batch of points was transformed")
+@StackTrace(false)
+public class TransformBatchEvent
+  extends Event
+{
+  @Label("Source CRS")
+  String sourceCRS;
+
+  @Label("Target CRS")
+  String targetCRS;
+
+  @Label("Point Count")
+  int pointCount;
+
+  @Label("Failure Count")
+  @Description("The number of points which could not be transformed")
+  int failCount;
+
+  @Label("Batch Duration")
+  @Timespan(Timespan.NANOSECONDS)
+  long batchDuration;
+}
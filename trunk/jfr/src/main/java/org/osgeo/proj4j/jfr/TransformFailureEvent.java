@@ -0,0 +1,32 @@
+package org.osgeo.proj4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Records an exception thrown while transforming a point,
+ * such as a {@link org.osgeo.proj4j.ProjectionException}
+ * or {@link org.osgeo.proj4j.ConvergenceFailureException}.
+ */
+@Name("org.osgeo.proj4j.TransformFailure")
+@Label("Transform Failure")
+@Category("Proj4J")
+@Description("Transforming a point threw an exception")
+public class TransformFailureEvent
+  extends Event
+{
+  @Label("Source CRS")
+  String sourceCRS;
+
+  @Label("Target CRS")
+  String targetCRS;
+
+  @Label("Exception Class")
+  Class<?> exceptionClass;
+
+  @Label("Message")
+  String message;
+}
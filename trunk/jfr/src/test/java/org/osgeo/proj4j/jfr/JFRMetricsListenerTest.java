@@ -0,0 +1,94 @@
+package org.osgeo.proj4j.jfr;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+import org.osgeo.proj4j.*;
+import org.osgeo.proj4j.metrics.Metrics;
+
+public class JFRMetricsListenerTest extends TestCase
+{
+  public static void main(String args[]) {
+    TestRunner.run(JFRMetricsListenerTest.class);
+  }
+
+  static CRSFactory csFactory = new CRSFactory();
+
+  public JFRMetricsListenerTest(String name) {
+    super(name);
+  }
+
+  protected void tearDown()
+  {
+    Metrics.setListener(null);
+  }
+
+  public void testEvents()
+    throws Exception
+  {
+    File file = File.createTempFile("proj4j", ".jfr");
+    Recording recording = new Recording();
+    try {
+      recording.enable(CRSCreationEvent.class);
+      recording.enable(TransformBatchEvent.class);
+      recording.enable(IterativeSolveEvent.class);
+      recording.enable(TransformFailureEvent.class);
+      recording.start();
+
+      JFRMetricsListener listener = JFRMetricsListener.install();
+      listener.setBatchThreshold(0);
+      listener.setSolveThreshold(0);
+
+      CoordinateReferenceSystem geo = csFactory.createFromName("EPSG:4326").createGeographic();
+      CoordinateReferenceSystem merc = csFactory.createFromName("EPSG:3395");
+      // the inverse of the ellipsoidal Mercator projection is iterative
+      BatchCoordinateTransform batch = new BatchCoordinateTransform(merc, geo);
+      double[] pts = { 100000.0, 6000000.0 };
+      assertEquals(0, batch.transform(pts, 1));
+
+      CoordinateReferenceSystem stere = csFactory.createFromParameters(null, "+proj=stere +lat_0=0 +lon_0=0 +a=6371000 +b=6371000");
+      try {
+        new BasicCoordinateTransform(geo, stere).transform(new ProjCoordinate(180.0, 0.0), new ProjCoordinate());
+        fail();
+      }
+      catch (ProjectionException ex) {
+        // expected
+      }
+
+      recording.stop();
+      recording.dump(file.toPath());
+    }
+    finally {
+      recording.close();
+    }
+
+    Map<String, RecordedEvent> events = new HashMap<String, RecordedEvent>();
+    List<RecordedEvent> recorded = RecordingFile.readAllEvents(file.toPath());
+    for (Iterator<RecordedEvent> i = recorded.iterator(); i.hasNext(); ) {
+      RecordedEvent event = i.next();
+      events.put(event.getEventType().getName(), event);
+    }
+    file.delete();
+
+    RecordedEvent creation = events.get("org.osgeo.proj4j.CRSCreation");
+    assertNotNull(creation);
+    RecordedEvent batchEvent = events.get("org.osgeo.proj4j.TransformBatch");
+    assertEquals(1, batchEvent.getInt("pointCount"));
+    assertEquals("EPSG:3395", batchEvent.getString("sourceCRS"));
+    RecordedEvent solve = events.get("org.osgeo.proj4j.IterativeSolve");
+    assertEquals("phi2", solve.getString("solver"));
+    assertTrue(solve.getBoolean("converged"));
+    RecordedEvent failure = events.get("org.osgeo.proj4j.TransformFailure");
+    assertEquals(ProjectionException.class.getName(), failure.getClass("exceptionClass").getName());
+  }
+}
@@ -0,0 +1,624 @@
+package org.osgeo.proj4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transforms small sets of points asynchronously,
+ * coalescing the requests for each pair of
+ * {@link CoordinateReferenceSystem}s into batches.
+ * This suits servers which handle many concurrent requests
+ * (for instance on virtual threads), each transforming a few points:
+ * the cost of dispatching work to a thread,
+ * and of finding a transform for the pair, is paid once per batch
+ * rather than once per request.
+ * <p>
+ * Requests for a pair are queued until the number of points waiting
+ * reaches the batch size, or until the batch delay has passed
+ * since the first of them was queued.
+ * The batch is then transformed with a {@link BatchCoordinateTransform}
+ * on a small pool of threads,
+ * and the {@link TransformFuture} of each request is completed.
+ * Each pool thread keeps its own transforms, since they are not thread-safe.
+ * <p>
+ * As with {@link BatchCoordinateTransform}, the X and Y ordinates of each point
+ * are transformed in place, and points which cannot be transformed
+ * are set to <tt>NaN</tt> and counted, rather than failing the request.
+ * <p>
+ * Callers can block on the returned future, or pass a {@link Callback},
+ * which is called on a pool thread when the request is complete
+ * (and can be used to complete a <tt>CompletableFuture</tt>, for instance).
+ * Waiting uses <tt>java.util.concurrent</tt> synchronizers,
+ * so it does not pin the carrier thread of a virtual thread.
+ * <p>
+ * Pairs are identified by the definitions of their CRSs
+ * (their names and parameters),
+ * so requests for equal CRSs are batched together
+ * even if they use different CRS instances.
+ * The queue (and the transforms) kept for a pair are discarded
+ * once no requests have been submitted for it for a minute.
+ * A service is safe for use by any number of threads.
+ */
+public class AsyncCoordinateTransformService
+{
+  /**
+   * The default maximum number of points in a batch.
+   */
+  public static final int DEFAULT_BATCH_SIZE = 1024;
+
+  /**
+   * The default time in microseconds that a request waits for a batch to fill.
+   */
+  public static final long DEFAULT_BATCH_DELAY_MICROS = 200;
+
+  /**
+   * Receives the outcome of a request.
+   * The methods are called on a pool thread,
+   * so they should hand any lengthy work on to another thread.
+   */
+  public interface Callback
+  {
+    /**
+     * Called when the points of a request have been transformed.
+     *
+     * @param coords the transformed ordinates
+     * @param failCount the number of points which could not be transformed
+     * (whose transformed X ordinate is <tt>NaN</tt>)
+     */
+    void completed(double[] coords, int failCount);
+
+    /**
+     * Called when a request cannot be carried out.
+     *
+     * @param ex the cause of the failure
+     */
+    void failed(Throwable ex);
+  }
+
+  // the time after which the queue of a pair with no requests is discarded
+  private static final long IDLE_QUEUE_SECONDS = 60;
+
+  private static final CoordinateTransformFactory ctFactory = new CoordinateTransformFactory();
+  private static final AtomicInteger serviceCount = new AtomicInteger();
+
+  private final int batchSize;
+  private final long batchDelayNanos;
+  private final ScheduledThreadPoolExecutor executor;
+  private final ConcurrentMap<PairKey, PairQueue> queues = new ConcurrentHashMap<PairKey, PairQueue>();
+  private volatile boolean isShutdown = false;
+
+  private final AtomicLong requestCount = new AtomicLong();
+  private final AtomicLong batchCount = new AtomicLong();
+
+  /**
+   * Creates a service using one thread per available processor,
+   * and the default batch size and delay.
+   */
+  public AsyncCoordinateTransformService()
+  {
+    this(0, DEFAULT_BATCH_SIZE, DEFAULT_BATCH_DELAY_MICROS, TimeUnit.MICROSECONDS);
+  }
+
+  /**
+   * Creates a service.
+   *
+   * @param threadCount the number of threads which transform batches
+   * (if &lt;= 0, the number of available processors is used)
+   * @param batchSize the number of points which causes a batch to be transformed at once
+   * @param batchDelay the longest time a request waits for its batch to fill
+   * @param unit the unit of the batch delay
+   */
+  public AsyncCoordinateTransformService(int threadCount, int batchSize, long batchDelay, TimeUnit unit)
+  {
+    if (batchSize < 1)
+      throw new IllegalArgumentException("Batch size must be at least 1: " + batchSize);
+    if (batchDelay < 0)
+      throw new IllegalArgumentException("Batch delay must not be negative: " + batchDelay);
+    if (threadCount <= 0)
+      threadCount = Runtime.getRuntime().availableProcessors();
+    this.batchSize = batchSize;
+    this.batchDelayNanos = unit.toNanos(batchDelay);
+    executor = new ScheduledThreadPoolExecutor(threadCount, new PoolThreadFactory());
+    executor.scheduleWithFixedDelay(new Runnable() {
+      public void run()
+      {
+        evictIdleQueues();
+      }
+    }, IDLE_QUEUE_SECONDS, IDLE_QUEUE_SECONDS, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Gets the number of requests submitted so far.
+   */
+  public long getRequestCount()
+  {
+    return requestCount.get();
+  }
+
+  /**
+   * Gets the number of batches transformed so far.
+   * Comparing this with the number of requests
+   * shows how well requests are being coalesced.
+   */
+  public long getBatchCount()
+  {
+    return batchCount.get();
+  }
+
+  /**
+   * Submits an array of 2D points to be transformed in place.
+   *
+   * @param srcCRS the source CRS
+   * @param tgtCRS the target CRS
+   * @param coords the X and Y ordinates of the points
+   * @return a future which is completed when the points have been transformed
+   */
+  public TransformFuture submit(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS,
+      double[] coords)
+  {
+    return submit(srcCRS, tgtCRS, coords, coords.length / 2, 2, null);
+  }
+
+  /**
+   * Submits points to be transformed in place.
+   * The array must not be used by the caller until the request is complete.
+   *
+   * @param srcCRS the source CRS
+   * @param tgtCRS the target CRS
+   * @param coords the ordinates of the points
+   * @param count the number of points
+   * @param dim the number of ordinates per point (at least 2)
+   * @param callback the callback to notify when the request is complete, or null
+   * @return a future which is completed when the points have been transformed
+   * @throws IllegalStateException if the service has been shut down
+   */
+  public TransformFuture submit(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS,
+      double[] coords, int count, int dim, Callback callback)
+  {
+    if (dim < 2)
+      throw new IllegalArgumentException("Dimension must be at least 2: " + dim);
+    if (count < 0 || count * dim > coords.length)
+      throw new IllegalArgumentException("Invalid point count: " + count);
+    if (isShutdown)
+      throw new IllegalStateException("Service has been shut down");
+    requestCount.incrementAndGet();
+    TransformFuture request = new TransformFuture(coords, count, dim, callback);
+    if (count == 0) {
+      request.complete(0);
+      return request;
+    }
+    PairKey key = new PairKey(srcCRS, tgtCRS);
+    while (true) {
+      PairQueue queue = queues.get(key);
+      if (queue == null) {
+        PairQueue newQueue = new PairQueue(srcCRS, tgtCRS);
+        queue = queues.putIfAbsent(key, newQueue);
+        if (queue == null)
+          queue = newQueue;
+      }
+      if (queue.add(request))
+        return request;
+      // the queue was discarded as idle
+      queues.remove(key, queue);
+    }
+  }
+
+  /**
+   * Discards the queues of pairs for which no requests
+   * have been submitted recently.
+   */
+  private void evictIdleQueues()
+  {
+    long idleSince = System.nanoTime() - TimeUnit.SECONDS.toNanos(IDLE_QUEUE_SECONDS);
+    for (Map.Entry<PairKey, PairQueue> e : queues.entrySet()) {
+      PairQueue queue = e.getValue();
+      if (queue.lastUsedNanos - idleSince < 0 && queue.retire())
+        queues.remove(e.getKey(), queue);
+    }
+  }
+
+  /**
+   * Transforms the requests which are waiting (in the calling thread),
+   * and stops the threads of the service once the batches they are running are complete.
+   * Requests cannot be submitted after the service has been shut down.
+   */
+  public void shutdown()
+  {
+    isShutdown = true;
+    // the delayed flushes are replaced by draining the queues here
+    executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    executor.shutdown();
+    for (PairQueue queue : queues.values()) {
+      queue.drain();
+    }
+  }
+
+  /**
+   * Waits for the requests submitted before {@link #shutdown()} to complete.
+   *
+   * @param timeout the longest time to wait
+   * @param unit the unit of the timeout
+   * @return true if the service has terminated, false if the timeout elapsed first
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  public boolean awaitTermination(long timeout, TimeUnit unit)
+    throws InterruptedException
+  {
+    return executor.awaitTermination(timeout, unit);
+  }
+
+  /**
+   * The requests waiting to be transformed for a pair of CRSs.
+   */
+  private class PairQueue
+  {
+    private final CoordinateReferenceSystem srcCRS;
+    private final CoordinateReferenceSystem tgtCRS;
+    private final ConcurrentLinkedQueue<TransformFuture> pending = new ConcurrentLinkedQueue<TransformFuture>();
+    private final AtomicInteger pendingPoints = new AtomicInteger();
+    // true while a delayed flush is scheduled and has not yet started
+    private final AtomicBoolean isScheduled = new AtomicBoolean(false);
+    // the batch transforms which are not in use by a thread
+    private final ConcurrentLinkedQueue<Worker> idleWorkers = new ConcurrentLinkedQueue<Worker>();
+    // the number of requests being added, or -1 once the queue has been retired
+    private final AtomicInteger addCount = new AtomicInteger();
+    volatile long lastUsedNanos = System.nanoTime();
+
+    private final Runnable delayedFlushTask = new Runnable() {
+      public void run()
+      {
+        // requests added after this are covered by a new delayed flush
+        isScheduled.set(false);
+        drain();
+      }
+    };
+
+    private final Runnable flushTask = new Runnable() {
+      public void run()
+      {
+        drain();
+      }
+    };
+
+    PairQueue(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS)
+    {
+      this.srcCRS = srcCRS;
+      this.tgtCRS = tgtCRS;
+    }
+
+    /**
+     * Adds a request to the queue, and schedules it to be transformed.
+     *
+     * @return false if the queue has been retired, and the request was not added
+     */
+    boolean add(TransformFuture request)
+    {
+      int adding;
+      do {
+        adding = addCount.get();
+        if (adding < 0)
+          return false;
+      } while (! addCount.compareAndSet(adding, adding + 1));
+      try {
+        lastUsedNanos = System.nanoTime();
+        pending.add(request);
+        int points = pendingPoints.addAndGet(request.count);
+        try {
+          if (points >= batchSize && points - request.count < batchSize) {
+            // this request filled a batch
+            executor.execute(flushTask);
+          }
+          else if (isScheduled.compareAndSet(false, true)) {
+            executor.schedule(delayedFlushTask, batchDelayNanos, TimeUnit.NANOSECONDS);
+          }
+        }
+        catch (RejectedExecutionException ex) {
+          // the service has been shut down
+        }
+      }
+      finally {
+        addCount.decrementAndGet();
+      }
+      // a request added while the service is shut down may not be seen by shutdown()
+      if (isShutdown)
+        drain();
+      return true;
+    }
+
+    /**
+     * Stops requests being added to the queue, if none are waiting.
+     *
+     * @return true if the queue has been retired
+     */
+    boolean retire()
+    {
+      if (! addCount.compareAndSet(0, -1))
+        return false;
+      if (pending.isEmpty())
+        return true;
+      addCount.set(0);
+      return false;
+    }
+
+    /**
+     * Transforms every waiting request, in batches of up to the batch size.
+     * Several threads may drain a queue at once,
+     * since each request is taken from the queue by only one of them.
+     */
+    void drain()
+    {
+      Worker worker = idleWorkers.poll();
+      if (worker == null)
+        worker = new Worker(srcCRS, tgtCRS);
+      try {
+        TransformFuture request = pending.poll();
+        while (request != null) {
+          worker.clear();
+          while (request != null && (worker.count == 0 || worker.count + request.count <= batchSize)) {
+            pendingPoints.addAndGet(-request.count);
+            worker.add(request);
+            request = pending.poll();
+          }
+          batchCount.incrementAndGet();
+          worker.run();
+        }
+      }
+      finally {
+        idleWorkers.add(worker);
+      }
+    }
+  }
+
+  /**
+   * Transforms batches of requests for a pair of CRSs,
+   * using a buffer of the X and Y ordinates of their points.
+   */
+  private static class Worker
+  {
+    private BatchCoordinateTransform batch;
+    private Throwable initFailure = null;
+    private double[] buffer = new double[2 * 64];
+    private TransformFuture[] requests = new TransformFuture[16];
+    private int requestCount = 0;
+    int count = 0;
+
+    Worker(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS)
+    {
+      try {
+        batch = new BatchCoordinateTransform(ctFactory.createTransform(srcCRS, tgtCRS));
+      }
+      catch (RuntimeException ex) {
+        initFailure = ex;
+      }
+    }
+
+    void clear()
+    {
+      requestCount = 0;
+      count = 0;
+    }
+
+    void add(TransformFuture request)
+    {
+      if (requestCount == requests.length) {
+        TransformFuture[] newRequests = new TransformFuture[2 * requests.length];
+        System.arraycopy(requests, 0, newRequests, 0, requestCount);
+        requests = newRequests;
+      }
+      requests[requestCount++] = request;
+      if (2 * (count + request.count) > buffer.length) {
+        double[] newBuffer = new double[Math.max(2 * buffer.length, 2 * (count + request.count))];
+        System.arraycopy(buffer, 0, newBuffer, 0, 2 * count);
+        buffer = newBuffer;
+      }
+      double[] coords = request.coords;
+      int k = 2 * count;
+      for (int i = 0; i < request.count; i++) {
+        buffer[k++] = coords[i * request.dim];
+        buffer[k++] = coords[i * request.dim + 1];
+      }
+      count += request.count;
+    }
+
+    void run()
+    {
+      Throwable failure = initFailure;
+      if (failure == null) {
+        try {
+          batch.transform(buffer, 0, buffer, 0, count, 2);
+        }
+        catch (RuntimeException ex) {
+          failure = ex;
+        }
+      }
+      int k = 0;
+      for (int r = 0; r < requestCount; r++) {
+        TransformFuture request = requests[r];
+        requests[r] = null;
+        if (failure != null) {
+          request.fail(failure);
+          continue;
+        }
+        double[] coords = request.coords;
+        int failCount = 0;
+        for (int i = 0; i < request.count; i++) {
+          double x = buffer[k++];
+          double y = buffer[k++];
+          coords[i * request.dim] = x;
+          coords[i * request.dim + 1] = y;
+          if (Double.isNaN(x))
+            failCount++;
+        }
+        request.complete(failCount);
+      }
+    }
+  }
+
+  /**
+   * The result of a request to transform points.
+   * The value of the future is the array of ordinates, transformed in place.
+   * Requests cannot be cancelled.
+   */
+  public static class TransformFuture
+    implements Future<double[]>
+  {
+    final double[] coords;
+    final int count;
+    final int dim;
+    private final Callback callback;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile int failCount = 0;
+    private volatile Throwable failure = null;
+
+    TransformFuture(double[] coords, int count, int dim, Callback callback)
+    {
+      this.coords = coords;
+      this.count = count;
+      this.dim = dim;
+      this.callback = callback;
+    }
+
+    void complete(int failCount)
+    {
+      this.failCount = failCount;
+      done.countDown();
+      if (callback != null) {
+        try {
+          callback.completed(coords, failCount);
+        }
+        catch (RuntimeException ex) {
+          // a failing callback must not affect the other requests in the batch
+        }
+      }
+    }
+
+    void fail(Throwable ex)
+    {
+      failure = ex;
+      done.countDown();
+      if (callback != null) {
+        try {
+          callback.failed(ex);
+        }
+        catch (RuntimeException cbEx) {
+          // a failing callback must not affect the other requests in the batch
+        }
+      }
+    }
+
+    /**
+     * Gets the number of points which could not be transformed
+     * (whose transformed X ordinate is <tt>NaN</tt>).
+     * This is only meaningful once the request is done.
+     */
+    public int getFailureCount()
+    {
+      return failCount;
+    }
+
+    public boolean cancel(boolean mayInterruptIfRunning)
+    {
+      return false;
+    }
+
+    public boolean isCancelled()
+    {
+      return false;
+    }
+
+    public boolean isDone()
+    {
+      return done.getCount() == 0;
+    }
+
+    public double[] get()
+      throws InterruptedException, ExecutionException
+    {
+      done.await();
+      return result();
+    }
+
+    public double[] get(long timeout, TimeUnit unit)
+      throws InterruptedException, ExecutionException, TimeoutException
+    {
+      if (! done.await(timeout, unit))
+        throw new TimeoutException();
+      return result();
+    }
+
+    private double[] result()
+      throws ExecutionException
+    {
+      if (failure != null)
+        throw new ExecutionException(failure);
+      return coords;
+    }
+  }
+
+  /**
+   * Identifies a pair of CRSs by their definitions.
+   */
+  private static class PairKey
+  {
+    private final Object srcKey;
+    private final Object tgtKey;
+
+    PairKey(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS)
+    {
+      srcKey = crsKey(srcCRS);
+      tgtKey = crsKey(tgtCRS);
+    }
+
+    /**
+     * Gets a key for the definition of a CRS.
+     * CRSs created without parameters (e.g. by {@link CoordinateReferenceSystem#createGeographic()})
+     * are described by their components instead.
+     */
+    private static Object crsKey(CoordinateReferenceSystem crs)
+    {
+      if (crs.getParameters() == null)
+        return new CRSDescriptor(crs);
+      return crs.getName() + "\n" + crs.getParameterString();
+    }
+
+    public boolean equals(Object obj)
+    {
+      if (! (obj instanceof PairKey))
+        return false;
+      PairKey key = (PairKey) obj;
+      return srcKey.equals(key.srcKey) && tgtKey.equals(key.tgtKey);
+    }
+
+    public int hashCode()
+    {
+      return 31 * srcKey.hashCode() + tgtKey.hashCode();
+    }
+  }
+
+  private static class PoolThreadFactory
+    implements ThreadFactory
+  {
+    private final int serviceId = serviceCount.incrementAndGet();
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    public Thread newThread(Runnable r)
+    {
+      Thread thread = new Thread(r, "proj4j-transform-" + serviceId + "-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -1,6 +1,10 @@
 package org.osgeo.proj4j;
 
+import java.io.Serializable;
+
 import org.osgeo.proj4j.datum.*;
+import org.osgeo.proj4j.metrics.Metrics;
+import org.osgeo.proj4j.metrics.MetricsListener;
 
 /**
  * Represents the operation of transforming
@@ -28,6 +32,13 @@ import org.osgeo.proj4j.datum.*;
  * and thus are not thread-safe.
  * However, they may be reused any number of times within a single thread.
  * <p>
+ * Transforms are {@link Serializable}.
+ * Only the source and target coordinate systems are serialized
+ * (as {@link CRSDescriptor}s), and the transformation information 
+ * is recomputed when a transform is deserialized.
+ * Each deserialized transform is a new instance, 
+ * but the coordinate systems it uses are shared.
+ * <p>
  * Information about the transformation procedure is pre-computed
  * and cached in this object for efficient computation.
  *
@@ -36,8 +47,10 @@ import org.osgeo.proj4j.datum.*;
  *
  */
 public class BasicCoordinateTransform
-implements CoordinateTransform
+implements CoordinateTransform, Serializable
 {
+  private static final long serialVersionUID = 1L;
+
 	private CoordinateReferenceSystem srcCRS;
 	private CoordinateReferenceSystem tgtCRS;
 
@@ -113,6 +126,23 @@ implements CoordinateTransform
 	public ProjCoordinate transform( ProjCoordinate src, ProjCoordinate tgt )
   throws Proj4jException
 	{
+    MetricsListener listener = Metrics.getListener();
+    if (listener == null)
+      return transformPoint(src, tgt);
+    long start = System.nanoTime();
+    try {
+      transformPoint(src, tgt);
+    }
+    catch (Proj4jException ex) {
+      listener.transformFailed(srcCRS, tgtCRS, ex);
+      throw ex;
+    }
+    listener.transformed(srcCRS, tgtCRS, System.nanoTime() - start);
+    return tgt;
+  }
+
+  private ProjCoordinate transformPoint( ProjCoordinate src, ProjCoordinate tgt )
+	{
     if (srcCRS == tgtCRS) {
       tgt.setValue(src);
       return tgt;
@@ -194,4 +224,34 @@ implements CoordinateTransform
 
   }
 
+  private Object writeReplace()
+  {
+    return new SerializedForm(this);
+  }
+
+  /**
+   * The serialized form of a transform
+   */
+  private static class SerializedForm implements Serializable
+  {
+    private static final long serialVersionUID = 1L;
+
+    private CRSDescriptor src;
+    private CRSDescriptor tgt;
+
+    SerializedForm(BasicCoordinateTransform trans)
+    {
+      if (trans.srcCRS != null)
+        src = new CRSDescriptor(trans.srcCRS);
+      if (trans.tgtCRS != null)
+        tgt = new CRSDescriptor(trans.tgtCRS);
+    }
+
+    private Object readResolve()
+    {
+      return new BasicCoordinateTransform(
+          src == null ? null : src.getCRS(), 
+          tgt == null ? null : tgt.getCRS());
+    }
+  }
 }
@@ -0,0 +1,253 @@
+package org.osgeo.proj4j;
+
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+
+import org.osgeo.proj4j.metrics.Metrics;
+import org.osgeo.proj4j.metrics.MetricsListener;
+
+/**
+ * Transforms arrays of coordinates using a {@link CoordinateTransform}.
+ * Coordinates are stored interleaved in <tt>double</tt> arrays or NIO buffers,
+ * with a fixed number of ordinates per point
+ * (e.g. <tt>x0, y0, x1, y1, ...</tt> for a dimension of 2,
+ * or <tt>x0, y0, z0, x1, ...</tt> for a dimension of 3).
+ * Only the X and Y ordinates are transformed;
+ * any further ordinates are copied unchanged.
+ * <p>
+ * Points which cannot be transformed do not stop the batch.
+ * Their X and Y ordinates are set to <tt>NaN</tt>,
+ * and they are counted in the value returned by the transform methods.
+ * <p>
+ * The transform does not allocate any memory per point.
+ * Like {@link BasicCoordinateTransform}, instances are not thread-safe,
+ * so each thread should use its own instance.
+ *
+ * @see CoordinateTransformFactory
+ */
+public class BatchCoordinateTransform
+{
+  private CoordinateTransform trans;
+
+  // the point being transformed (shared with subclasses in this package)
+  ProjCoordinate srcPt = new ProjCoordinate();
+  ProjCoordinate tgtPt = new ProjCoordinate();
+
+  /**
+   * Creates a batch transform which uses a given transform.
+   *
+   * @param trans the transform to apply to each point
+   */
+  public BatchCoordinateTransform(CoordinateTransform trans)
+  {
+    this.trans = trans;
+  }
+
+  /**
+   * Creates a batch transform from a source {@link CoordinateReferenceSystem}
+   * to a target one.
+   *
+   * @param srcCRS the source CRS
+   * @param tgtCRS the target CRS
+   */
+  public BatchCoordinateTransform(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS)
+  {
+    this(new BasicCoordinateTransform(srcCRS, tgtCRS));
+  }
+
+  /**
+   * Gets the transform applied to each point.
+   *
+   * @return the point transform
+   */
+  public CoordinateTransform getTransform()
+  {
+    return trans;
+  }
+
+  /**
+   * Transforms an array of 2D points in place.
+   *
+   * @param coords the X and Y ordinates of the points
+   * @param count the number of points to transform
+   * @return the number of points which could not be transformed
+   */
+  public int transform(double[] coords, int count)
+  {
+    return transform(coords, 0, coords, 0, count, 2);
+  }
+
+  /**
+   * Transforms points from one array into another.
+   * The arrays may be the same,
+   * in which case the points are transformed in place.
+   *
+   * @param src the source ordinates
+   * @param srcOff the index of the first source ordinate
+   * @param tgt the array to store the transformed ordinates in
+   * @param tgtOff the index of the first target ordinate
+   * @param count the number of points to transform
+   * @param dim the number of ordinates per point (at least 2)
+   * @return the number of points which could not be transformed
+   */
+  public int transform(double[] src, int srcOff, double[] tgt, int tgtOff, int count, int dim)
+  {
+    if (dim < 2)
+      throw new IllegalArgumentException("Dimension must be at least 2: " + dim);
+    MetricsListener listener = Metrics.getListener();
+    long start = listener == null ? 0 : System.nanoTime();
+    int failCount = 0;
+    int si = srcOff;
+    int ti = tgtOff;
+    for (int i = 0; i < count; i++) {
+      srcPt.x = src[si];
+      srcPt.y = src[si + 1];
+      srcPt.z = Double.NaN;
+      if (transformPoint()) {
+        tgt[ti] = tgtPt.x;
+        tgt[ti + 1] = tgtPt.y;
+      }
+      else {
+        tgt[ti] = Double.NaN;
+        tgt[ti + 1] = Double.NaN;
+        failCount++;
+      }
+      if (dim > 2 && (src != tgt || si != ti)) {
+        for (int d = 2; d < dim; d++) {
+          tgt[ti + d] = src[si + d];
+        }
+      }
+      si += dim;
+      ti += dim;
+    }
+    if (listener != null)
+      reportBatch(listener, start, count, failCount);
+    return failCount;
+  }
+
+  /**
+   * Transforms points from one buffer into another.
+   * The buffers may be the same, in which case the points are transformed in place.
+   * The points start at the current position of each buffer;
+   * the buffer positions are not changed.
+   * Direct and memory-mapped buffers are accessed without copying them to the heap.
+   *
+   * @param src the source ordinates
+   * @param tgt the buffer to store the transformed ordinates in
+   * @param count the number of points to transform
+   * @param dim the number of ordinates per point (at least 2)
+   * @return the number of points which could not be transformed
+   */
+  public int transform(DoubleBuffer src, DoubleBuffer tgt, int count, int dim)
+  {
+    if (dim < 2)
+      throw new IllegalArgumentException("Dimension must be at least 2: " + dim);
+    MetricsListener listener = Metrics.getListener();
+    long start = listener == null ? 0 : System.nanoTime();
+    boolean copyExtra = dim > 2 && src != tgt;
+    int failCount = 0;
+    int si = src.position();
+    int ti = tgt.position();
+    for (int i = 0; i < count; i++) {
+      srcPt.x = src.get(si);
+      srcPt.y = src.get(si + 1);
+      srcPt.z = Double.NaN;
+      if (transformPoint()) {
+        tgt.put(ti, tgtPt.x);
+        tgt.put(ti + 1, tgtPt.y);
+      }
+      else {
+        tgt.put(ti, Double.NaN);
+        tgt.put(ti + 1, Double.NaN);
+        failCount++;
+      }
+      if (copyExtra) {
+        for (int d = 2; d < dim; d++) {
+          tgt.put(ti + d, src.get(si + d));
+        }
+      }
+      si += dim;
+      ti += dim;
+    }
+    if (listener != null)
+      reportBatch(listener, start, count, failCount);
+    return failCount;
+  }
+
+  /**
+   * Transforms single-precision points from one buffer into another.
+   * The computation is carried out in double precision,
+   * and the result is rounded to single precision.
+   * The buffers may be the same, in which case the points are transformed in place.
+   * The points start at the current position of each buffer;
+   * the buffer positions are not changed.
+   *
+   * @param src the source ordinates
+   * @param tgt the buffer to store the transformed ordinates in
+   * @param count the number of points to transform
+   * @param dim the number of ordinates per point (at least 2)
+   * @return the number of points which could not be transformed
+   */
+  public int transform(FloatBuffer src, FloatBuffer tgt, int count, int dim)
+  {
+    if (dim < 2)
+      throw new IllegalArgumentException("Dimension must be at least 2: " + dim);
+    MetricsListener listener = Metrics.getListener();
+    long start = listener == null ? 0 : System.nanoTime();
+    boolean copyExtra = dim > 2 && src != tgt;
+    int failCount = 0;
+    int si = src.position();
+    int ti = tgt.position();
+    for (int i = 0; i < count; i++) {
+      srcPt.x = src.get(si);
+      srcPt.y = src.get(si + 1);
+      srcPt.z = Double.NaN;
+      if (transformPoint()) {
+        tgt.put(ti, (float) tgtPt.x);
+        tgt.put(ti + 1, (float) tgtPt.y);
+      }
+      else {
+        tgt.put(ti, Float.NaN);
+        tgt.put(ti + 1, Float.NaN);
+        failCount++;
+      }
+      if (copyExtra) {
+        for (int d = 2; d < dim; d++) {
+          tgt.put(ti + d, src.get(si + d));
+        }
+      }
+      si += dim;
+      ti += dim;
+    }
+    if (listener != null)
+      reportBatch(listener, start, count, failCount);
+    return failCount;
+  }
+
+  /**
+   * Reports a transformed batch to a metrics listener.
+   */
+  void reportBatch(MetricsListener listener, long start, int count, int failCount)
+  {
+    listener.batchTransformed(trans.getSourceCRS(), trans.getTargetCRS(),
+        count, failCount, System.nanoTime() - start);
+  }
+
+  /**
+   * Transforms {@link #srcPt} into {@link #tgtPt}.
+   *
+   * @return true if the point was transformed
+   */
+  boolean transformPoint()
+  {
+    if (Double.isNaN(srcPt.x) || Double.isNaN(srcPt.y))
+      return false;
+    try {
+      trans.transform(srcPt, tgtPt);
+    }
+    catch (Proj4jException ex) {
+      return false;
+    }
+    return ! (Double.isNaN(tgtPt.x) || Double.isNaN(tgtPt.y));
+  }
+}
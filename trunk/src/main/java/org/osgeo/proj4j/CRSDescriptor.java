@@ -0,0 +1,431 @@
+package org.osgeo.proj4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.osgeo.proj4j.datum.Datum;
+import org.osgeo.proj4j.datum.Ellipsoid;
+import org.osgeo.proj4j.proj.Projection;
+import org.osgeo.proj4j.proj.ProjectionCodec;
+
+/**
+ * A compact binary description of a fully initialized
+ * {@link CoordinateReferenceSystem}.
+ * A descriptor can be sent to another JVM (e.g. a distributed worker)
+ * and turned back into a coordinate system there
+ * without parsing its PROJ.4 definition.
+ * The projection, datum and ellipsoid parameters are recorded exactly,
+ * and the standard datums, ellipsoids and units of the {@link Registry}
+ * are recorded by name, so that they are shared on the receiving side.
+ * <p>
+ * Coordinate systems created from descriptors are interned:
+ * within a JVM, descriptors with the same content
+ * return the same {@link CoordinateReferenceSystem} instance.
+ * This means that each worker builds a coordinate system only once,
+ * however many times it is deserialized.
+ * Interned coordinate systems are held weakly,
+ * and are discarded once they are no longer used.
+ * <p>
+ * {@link CoordinateReferenceSystem} and {@link BasicCoordinateTransform}
+ * are {@link java.io.Serializable}, and use this encoding as their serialized form.
+ */
+public final class CRSDescriptor
+implements Externalizable
+{
+  private static final long serialVersionUID = 1L;
+
+  private static final int VERSION = 1;
+
+  private static final int KIND_CRS = 0;
+  private static final int KIND_CS_GEO = 1;
+
+  private static final int REF_NONE = 0;
+  private static final int REF_STANDARD = 1;
+  private static final int REF_CUSTOM = 2;
+  // projection ellipsoid is the datum ellipsoid
+  private static final int REF_DATUM = 3;
+
+  private static ConcurrentHashMap<CRSDescriptor, InternedReference> interned = new ConcurrentHashMap<CRSDescriptor, InternedReference>();
+  private static ReferenceQueue<CoordinateReferenceSystem> collected = new ReferenceQueue<CoordinateReferenceSystem>();
+  private static volatile boolean isInterning = true;
+
+  /**
+   * Sets whether coordinate systems created from descriptors are interned.
+   * Interning is enabled by default.
+   *
+   * @param isEnabled true if coordinate systems should be interned
+   */
+  public static void setInterning(boolean isEnabled)
+  {
+    isInterning = isEnabled;
+  }
+
+  /**
+   * Removes all interned coordinate systems.
+   */
+  public static void clearInterned()
+  {
+    interned.clear();
+  }
+
+  /**
+   * Gets the number of interned coordinate systems.
+   *
+   * @return the number of interned coordinate systems
+   */
+  public static int getInternedCount()
+  {
+    removeCollected();
+    return interned.size();
+  }
+
+  private byte[] data;
+  private int hash = 0;
+
+  /**
+   * Creates an empty descriptor.
+   * This is only for use by {@link Externalizable} deserialization.
+   */
+  public CRSDescriptor()
+  {
+  }
+
+  /**
+   * Creates a descriptor for a coordinate system.
+   *
+   * @param crs the coordinate system to describe
+   * @throws IllegalArgumentException if the coordinate system cannot be encoded
+   */
+  public CRSDescriptor(CoordinateReferenceSystem crs)
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      write(crs, out);
+      out.flush();
+    }
+    catch (IOException ex) {
+      throw new IllegalArgumentException("Cannot encode " + crs + ": " + ex.getMessage());
+    }
+    data = bytes.toByteArray();
+  }
+
+  /**
+   * Creates a descriptor from its encoded form.
+   *
+   * @param data the encoded descriptor, as returned by {@link #toByteArray()}
+   */
+  public CRSDescriptor(byte[] data)
+  {
+    this.data = data.clone();
+  }
+
+  /**
+   * Gets the encoded form of this descriptor.
+   *
+   * @return the encoded descriptor
+   */
+  public byte[] toByteArray()
+  {
+    return data.clone();
+  }
+
+  /**
+   * Gets the coordinate system described by this descriptor.
+   * If interning is enabled, the same instance is returned
+   * for every descriptor with the same content.
+   *
+   * @return the coordinate system
+   * @throws IllegalStateException if the descriptor cannot be decoded
+   */
+  public CoordinateReferenceSystem getCRS()
+  {
+    if (! isInterning)
+      return decode();
+
+    removeCollected();
+    while (true) {
+      InternedReference ref = interned.get(this);
+      CoordinateReferenceSystem crs = ref == null ? null : ref.get();
+      if (crs != null)
+        return crs;
+      crs = decode();
+      InternedReference newRef = new InternedReference(this, crs);
+      if (ref == null ? interned.putIfAbsent(this, newRef) == null : interned.replace(this, ref, newRef))
+        return crs;
+      // another thread interned the coordinate system first
+    }
+  }
+
+  /**
+   * Removes the entries of interned coordinate systems
+   * which have been garbage collected.
+   */
+  private static void removeCollected()
+  {
+    Reference<? extends CoordinateReferenceSystem> ref;
+    while ((ref = collected.poll()) != null) {
+      InternedReference internedRef = (InternedReference) ref;
+      interned.remove(internedRef.key, internedRef);
+    }
+  }
+
+  public void writeExternal(ObjectOutput out)
+  throws IOException
+  {
+    out.writeInt(data.length);
+    out.write(data);
+  }
+
+  public void readExternal(ObjectInput in)
+  throws IOException
+  {
+    data = new byte[in.readInt()];
+    in.readFully(data);
+    hash = 0;
+  }
+
+  public boolean equals(Object o)
+  {
+    if (! (o instanceof CRSDescriptor))
+      return false;
+    return Arrays.equals(data, ((CRSDescriptor) o).data);
+  }
+
+  public int hashCode()
+  {
+    if (hash == 0)
+      hash = Arrays.hashCode(data);
+    return hash;
+  }
+
+  public String toString()
+  {
+    return "[CRSDescriptor-" + data.length + " bytes]";
+  }
+
+  private CoordinateReferenceSystem decode()
+  {
+    DataInput in = new DataInputStream(new ByteArrayInputStream(data));
+    try {
+      return read(in);
+    }
+    catch (IOException ex) {
+      throw new IllegalStateException("Invalid CRS descriptor: " + ex.getMessage());
+    }
+  }
+
+  private static void write(CoordinateReferenceSystem crs, DataOutput out)
+  throws IOException
+  {
+    out.writeByte(VERSION);
+    if (crs == CoordinateReferenceSystem.CS_GEO) {
+      out.writeByte(KIND_CS_GEO);
+      return;
+    }
+    out.writeByte(KIND_CRS);
+    ProjectionCodec.writeString(crs.getName(), out);
+
+    String[] params = crs.getParameters();
+    out.writeInt(params == null ? -1 : params.length);
+    if (params != null) {
+      for (int i = 0; i < params.length; i++) {
+        out.writeUTF(params[i]);
+      }
+    }
+
+    Datum datum = crs.getDatum();
+    writeDatum(datum, out);
+
+    Projection proj = crs.getProjection();
+    out.writeBoolean(proj != null);
+    if (proj != null) {
+      Ellipsoid ellipsoid = proj.getEllipsoid();
+      if (datum != null && ellipsoid == datum.getEllipsoid())
+        out.writeByte(REF_DATUM);
+      else
+        writeEllipsoid(ellipsoid, out);
+      ProjectionCodec.write(proj, out);
+    }
+  }
+
+  private static CoordinateReferenceSystem read(DataInput in)
+  throws IOException
+  {
+    int version = in.readByte();
+    if (version != VERSION)
+      throw new IOException("Unsupported version " + version);
+    if (in.readByte() == KIND_CS_GEO)
+      return CoordinateReferenceSystem.CS_GEO;
+
+    String name = ProjectionCodec.readString(in);
+
+    int paramCount = in.readInt();
+    String[] params = null;
+    if (paramCount >= 0) {
+      params = new String[paramCount];
+      for (int i = 0; i < paramCount; i++) {
+        params[i] = in.readUTF();
+      }
+    }
+
+    Datum datum = readDatum(in);
+
+    Projection proj = null;
+    if (in.readBoolean()) {
+      Ellipsoid ellipsoid;
+      int ref = in.readByte();
+      if (ref == REF_DATUM)
+        ellipsoid = datum.getEllipsoid();
+      else
+        ellipsoid = readEllipsoid(ref, in);
+      proj = ProjectionCodec.read(in, ellipsoid);
+    }
+    return new CoordinateReferenceSystem(name, params, datum, proj);
+  }
+
+  private static void writeDatum(Datum datum, DataOutput out)
+  throws IOException
+  {
+    if (datum == null) {
+      out.writeByte(REF_NONE);
+      return;
+    }
+    if (findDatum(datum.getCode()) == datum) {
+      out.writeByte(REF_STANDARD);
+      out.writeUTF(datum.getCode());
+      return;
+    }
+    out.writeByte(REF_CUSTOM);
+    ProjectionCodec.writeString(datum.getCode(), out);
+    ProjectionCodec.writeString(datum.getName(), out);
+    double[] transform = datum.getTransformToWGS84();
+    out.writeInt(transform == null ? -1 : transform.length);
+    if (transform != null) {
+      for (int i = 0; i < transform.length; i++) {
+        out.writeDouble(transform[i]);
+      }
+    }
+    Ellipsoid ellipsoid = datum.getEllipsoid();
+    writeEllipsoid(ellipsoid, out);
+  }
+
+  private static Datum readDatum(DataInput in)
+  throws IOException
+  {
+    int ref = in.readByte();
+    if (ref == REF_NONE)
+      return null;
+    if (ref == REF_STANDARD) {
+      String code = in.readUTF();
+      Datum datum = findDatum(code);
+      if (datum == null)
+        throw new IOException("Unknown datum: " + code);
+      return datum;
+    }
+    String code = ProjectionCodec.readString(in);
+    String name = ProjectionCodec.readString(in);
+    int transformLen = in.readInt();
+    double[] transform = null;
+    if (transformLen >= 0) {
+      transform = new double[transformLen];
+      for (int i = 0; i < transformLen; i++) {
+        transform[i] = in.readDouble();
+      }
+    }
+    Ellipsoid ellipsoid = readEllipsoid(in.readByte(), in);
+    return new Datum(code, transform, ellipsoid, name);
+  }
+
+  private static void writeEllipsoid(Ellipsoid ellipsoid, DataOutput out)
+  throws IOException
+  {
+    if (ellipsoid == null) {
+      out.writeByte(REF_NONE);
+      return;
+    }
+    if (ellipsoid.shortName != null && findEllipsoid(ellipsoid.shortName) == ellipsoid) {
+      out.writeByte(REF_STANDARD);
+      out.writeUTF(ellipsoid.shortName);
+      return;
+    }
+    out.writeByte(REF_CUSTOM);
+    ProjectionCodec.writeString(ellipsoid.shortName, out);
+    ProjectionCodec.writeString(ellipsoid.name, out);
+    out.writeDouble(ellipsoid.equatorRadius);
+    out.writeDouble(ellipsoid.poleRadius);
+    out.writeDouble(ellipsoid.eccentricity);
+    out.writeDouble(ellipsoid.eccentricity2);
+  }
+
+  private static Ellipsoid readEllipsoid(int ref, DataInput in)
+  throws IOException
+  {
+    if (ref == REF_NONE)
+      return null;
+    if (ref == REF_STANDARD) {
+      String shortName = in.readUTF();
+      Ellipsoid ellipsoid = findEllipsoid(shortName);
+      if (ellipsoid == null)
+        throw new IOException("Unknown ellipsoid: " + shortName);
+      return ellipsoid;
+    }
+    Ellipsoid ellipsoid = new Ellipsoid();
+    ellipsoid.shortName = ProjectionCodec.readString(in);
+    ellipsoid.name = ProjectionCodec.readString(in);
+    ellipsoid.equatorRadius = in.readDouble();
+    ellipsoid.poleRadius = in.readDouble();
+    ellipsoid.eccentricity = in.readDouble();
+    ellipsoid.eccentricity2 = in.readDouble();
+    return ellipsoid;
+  }
+
+  private static Datum findDatum(String code)
+  {
+    if (code == null)
+      return null;
+    for (int i = 0; i < Registry.datums.length; i++) {
+      if (Registry.datums[i].getCode().equals(code))
+        return Registry.datums[i];
+    }
+    return null;
+  }
+
+  private static Ellipsoid findEllipsoid(String shortName)
+  {
+    for (int i = 0; i < Registry.ellipsoids.length; i++) {
+      if (Registry.ellipsoids[i].shortName.equals(shortName))
+        return Registry.ellipsoids[i];
+    }
+    return null;
+  }
+
+  /**
+   * A weak reference to an interned coordinate system,
+   * which records its descriptor so that the entry can be removed
+   * once the coordinate system is no longer used.
+   */
+  private static class InternedReference extends WeakReference<CoordinateReferenceSystem>
+  {
+    private CRSDescriptor key;
+
+    InternedReference(CRSDescriptor key, CoordinateReferenceSystem crs)
+    {
+      super(crs, collected);
+      this.key = key;
+    }
+  }
+}
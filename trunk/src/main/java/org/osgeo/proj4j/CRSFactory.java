@@ -1,7 +1,14 @@
 package org.osgeo.proj4j;
 
+import java.util.Map;
+
 import org.osgeo.proj4j.io.Proj4FileReader;
+import org.osgeo.proj4j.metrics.Metrics;
+import org.osgeo.proj4j.metrics.MetricsListener;
 import org.osgeo.proj4j.parser.Proj4Parser;
+import org.osgeo.proj4j.util.CRSCache;
+import org.osgeo.proj4j.util.CRSWarmUp;
+import org.osgeo.proj4j.util.CRSWarmUpReport;
 
 /**
  * A factory which can create {@link CoordinateReferenceSystem}s
@@ -72,10 +79,17 @@ public class CRSFactory
   public CoordinateReferenceSystem createFromName(String name)
   throws UnsupportedParameterException, InvalidValueException, UnknownAuthorityCodeException
   {
+    MetricsListener listener = Metrics.getListener();
+    long start = listener == null ? 0 : System.nanoTime();
     String[] params = csReader.getParameters(name);
     if (params == null)
       throw new UnknownAuthorityCodeException(name);
-    return createFromParameters(name, params);
+    if (listener == null)
+      return new Proj4Parser(registry).parse(name, params);
+    long parseStart = System.nanoTime();
+    CoordinateReferenceSystem crs = new Proj4Parser(registry).parse(name, params);
+    listener.crsCreated(name, parseStart - start, System.nanoTime() - parseStart);
+    return crs;
   }
   
   /**
@@ -95,7 +109,16 @@ public class CRSFactory
   public CoordinateReferenceSystem createFromParameters(String name, String paramStr)
   throws UnsupportedParameterException, InvalidValueException
   {
-    return createFromParameters(name, splitParameters(paramStr));
+    if (paramStr == null)
+      return null;
+    
+    MetricsListener listener = Metrics.getListener();
+    long start = listener == null ? 0 : System.nanoTime();
+    Proj4Parser parser = new Proj4Parser(registry);
+    CoordinateReferenceSystem crs = parser.parse(name, paramStr);
+    if (listener != null)
+      listener.crsCreated(name, 0, System.nanoTime() - start);
+    return crs;
   }
   
   /**
@@ -116,14 +139,58 @@ public class CRSFactory
     if (params == null)
       return null;
     
+    MetricsListener listener = Metrics.getListener();
+    long start = listener == null ? 0 : System.nanoTime();
     Proj4Parser parser = new Proj4Parser(registry);
-    return parser.parse(name, params);
+    CoordinateReferenceSystem crs = parser.parse(name, params);
+    if (listener != null)
+      listener.crsCreated(name, 0, System.nanoTime() - start);
+    return crs;
   }
 
-  private static String[] splitParameters(String paramStr)
+  /**
+   * Creates a set of {@link CoordinateReferenceSystem}s in parallel,
+   * storing them in the shared {@link CRSCache}.
+   * This allows the cost of reading and parsing the definitions
+   * to be paid up front (e.g. at application startup),
+   * rather than when the coordinate systems are first used.
+   * The file of each authority named is read only once.
+   * 
+   * @param names the names of the coordinate systems (e.g. <tt>EPSG:4326</tt>)
+   * @param threadCount the number of threads to use (if &lt;= 0, the number of available processors is used)
+   * @param isTransformExercised true if a short burst of transformations 
+   * should be run for each projection type, to allow the JIT to compile it
+   * @return a report of the time taken to create each CRS and any failures
+   */
+  public CRSWarmUpReport warmUp(String[] names, int threadCount, boolean isTransformExercised)
   {
-    String[] params = paramStr.split("\\s+");
-    return params;
+    CRSWarmUp warmUp = new CRSWarmUp(this, threadCount);
+    warmUp.setTransformExercised(isTransformExercised);
+    return warmUp.warmUp(names);
   }
   
+  /**
+   * Creates every {@link CoordinateReferenceSystem} defined by an authority
+   * in parallel, storing them in the shared {@link CRSCache}
+   * under names of the form "<tt>authority:code</tt>".
+   * The authority file is read only once.
+   * 
+   * @param authority the authority name (e.g. <tt>EPSG</tt>)
+   * @param threadCount the number of threads to use (if &lt;= 0, the number of available processors is used)
+   * @param isTransformExercised true if a short burst of transformations 
+   * should be run for each projection type, to allow the JIT to compile it
+   * @return a report of the time taken to create each CRS and any failures
+   * @throws UnknownAuthorityCodeException if the authority is not known
+   * 
+   * @see #warmUp(String[], int, boolean)
+   */
+  public CRSWarmUpReport warmUpAuthority(String authority, int threadCount, boolean isTransformExercised)
+  throws UnknownAuthorityCodeException
+  {
+    Map<String, String[]> namedDefs = csReader.getAllNamedParameters(authority);
+    CRSWarmUp warmUp = new CRSWarmUp(this, threadCount);
+    warmUp.setTransformExercised(isTransformExercised);
+    return warmUp.warmUp(namedDefs);
+  }
+
 }
@@ -1,5 +1,7 @@
 package org.osgeo.proj4j;
 
+import java.io.Serializable;
+
 import org.osgeo.proj4j.datum.Datum;
 import org.osgeo.proj4j.datum.Ellipsoid;
 import org.osgeo.proj4j.proj.LongLatProjection;
@@ -20,6 +22,9 @@ import org.osgeo.proj4j.units.Units;
  * <li>a {@link Unit} indicates how the ordinate values 
  * of coordinates are interpreted
  * </ul>
+ * Coordinate systems are {@link Serializable}.
+ * They are serialized in the compact form provided by {@link CRSDescriptor},
+ * and are interned when deserialized.
  * 
  * @author Martin Davis
  * 
@@ -27,7 +32,10 @@ import org.osgeo.proj4j.units.Units;
  *
  */
 public class CoordinateReferenceSystem 
+implements Serializable
 {
+  private static final long serialVersionUID = 1L;
+
   // allows specifying transformations which convert to/from Geographic coordinates on the same datum
   public static final CoordinateReferenceSystem CS_GEO = new CoordinateReferenceSystem("CS_GEO", null, null, null);
 
@@ -106,4 +114,29 @@ public class CoordinateReferenceSystem
   }
 
 	public String toString() { return name; }
+
+  private Object writeReplace()
+  {
+    return new SerializedForm(new CRSDescriptor(this));
+  }
+
+  /**
+   * The serialized form of a coordinate system
+   */
+  private static class SerializedForm implements Serializable
+  {
+    private static final long serialVersionUID = 1L;
+
+    private CRSDescriptor descriptor;
+
+    SerializedForm(CRSDescriptor descriptor)
+    {
+      this.descriptor = descriptor;
+    }
+
+    private Object readResolve()
+    {
+      return descriptor.getCRS();
+    }
+  }
 }
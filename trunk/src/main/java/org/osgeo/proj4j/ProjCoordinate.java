@@ -2,6 +2,8 @@ package org.osgeo.proj4j;
 
 import java.text.DecimalFormat;
 
+import org.osgeo.proj4j.util.DoubleFormatter;
+
 
 /**
  * Stores a the coordinates for a position  
@@ -17,8 +19,25 @@ import java.text.DecimalFormat;
 public class ProjCoordinate 
 {
   public static String DECIMAL_FORMAT_PATTERN = "0.0###############";
+  /**
+   * @deprecated a shared DecimalFormat is not thread-safe.
+   * Use a {@link DoubleFormatter} instead.
+   */
+  @Deprecated
   public static DecimalFormat DECIMAL_FORMAT = new DecimalFormat(DECIMAL_FORMAT_PATTERN);
 
+  /**
+   * The maximum number of decimal places in {@link #toShortString()}
+   */
+  private static final int SHORT_STRING_DECIMALS = 16;
+
+  // formatters are not thread-safe, so each thread has its own
+  private static final ThreadLocal<DoubleFormatter> shortFormat = new ThreadLocal<DoubleFormatter>() {
+    protected DoubleFormatter initialValue() {
+      return new DoubleFormatter(SHORT_STRING_DECIMALS, false);
+    }
+  };
+
 	/**
 	 * The X ordinate for this point. 
 	 * <p>
@@ -393,11 +412,12 @@ public class ProjCoordinate
 	 */
 	public String toShortString()
 	{
+		DoubleFormatter format = shortFormat.get();
 		StringBuilder builder = new StringBuilder();
 		builder.append("[");
-		builder.append(DECIMAL_FORMAT.format(x));
+		format.append(builder, x);
 		builder.append(", ");
-		builder.append(DECIMAL_FORMAT.format(y));
+		format.append(builder, y);
 		if (! Double.isNaN(z)) {
 			builder.append(", ");
 			builder.append(this.z);
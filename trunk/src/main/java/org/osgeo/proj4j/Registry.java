@@ -1,5 +1,6 @@
 package org.osgeo.proj4j;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -110,6 +111,18 @@ public class Registry {
     projRegistry.put( name, cls );
   }
 
+  /**
+   * Gets the names of all registered projections,
+   * in alphabetical order.
+   * 
+   * @return the projection names
+   */
+  public String[] getProjectionNames() {
+    String[] names = projRegistry.keySet().toArray(new String[projRegistry.size()]);
+    Arrays.sort(names);
+    return names;
+  }
+
   public Projection getProjection( String name ) {
 //    if ( projRegistry == null )
 //      initialize();
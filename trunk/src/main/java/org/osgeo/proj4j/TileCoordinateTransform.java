@@ -0,0 +1,240 @@
+package org.osgeo.proj4j;
+
+import org.osgeo.proj4j.metrics.Metrics;
+import org.osgeo.proj4j.metrics.MetricsListener;
+
+/**
+ * Transforms arrays of coordinates directly into the integer coordinates
+ * of a vector tile, such as a Mapbox Vector Tile (MVT).
+ * <p>
+ * Each point is transformed into the target CRS,
+ * scaled to the tile extent (4096 by default)
+ * and rounded to an integer, in a single pass.
+ * Tile coordinates have their origin at the top-left corner of the tile,
+ * with Y increasing downwards.
+ * The tile bounds are given in the target CRS,
+ * or as the <tt>z/x/y</tt> address of a Web Mercator (EPSG:3857) tile.
+ * <p>
+ * Optionally, consecutive points which quantize to the same tile coordinates
+ * are dropped, and points are written as zig-zag encoded deltas
+ * from the previous point, as used in MVT geometry commands.
+ * The delta cursor carries over from one transform call to the next
+ * (as it does across the parts of an MVT feature),
+ * and is reset by {@link #resetCursor()}.
+ * Points which cannot be transformed are dropped.
+ * <p>
+ * Like {@link BatchCoordinateTransform}, instances are not thread-safe.
+ */
+public class TileCoordinateTransform
+  extends BatchCoordinateTransform
+{
+  /**
+   * The default tile extent
+   */
+  public static final int DEFAULT_EXTENT = 4096;
+
+  /**
+   * The half-width of the Web Mercator (EPSG:3857) world
+   */
+  public static final double WEB_MERCATOR_MAX = 20037508.342789244;
+
+  private int extent = DEFAULT_EXTENT;
+  private double minX = -WEB_MERCATOR_MAX;
+  private double minY = -WEB_MERCATOR_MAX;
+  private double maxX = WEB_MERCATOR_MAX;
+  private double maxY = WEB_MERCATOR_MAX;
+  private double scaleX = extent / (2 * WEB_MERCATOR_MAX);
+  private double scaleY = extent / (2 * WEB_MERCATOR_MAX);
+  private boolean isDeltaEncoded = false;
+  private boolean isDropDuplicates = false;
+
+  private int cursorX = 0;
+  private int cursorY = 0;
+  private int failCount = 0;
+
+  /**
+   * Creates a tile transform which uses a given transform.
+   *
+   * @param trans the transform to apply to each point
+   */
+  public TileCoordinateTransform(CoordinateTransform trans)
+  {
+    super(trans);
+  }
+
+  /**
+   * Creates a tile transform from a source {@link CoordinateReferenceSystem}
+   * to a target one.
+   *
+   * @param srcCRS the source CRS
+   * @param tgtCRS the target CRS
+   */
+  public TileCoordinateTransform(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS)
+  {
+    super(srcCRS, tgtCRS);
+  }
+
+  /**
+   * Sets the extent of a tile (the tile coordinate of its right and bottom edges).
+   *
+   * @param extent the tile extent
+   */
+  public void setExtent(int extent)
+  {
+    this.extent = extent;
+    updateScale();
+  }
+
+  /**
+   * Sets the bounds of the tile in the target CRS.
+   *
+   * @param minX the minimum X ordinate
+   * @param minY the minimum Y ordinate
+   * @param maxX the maximum X ordinate
+   * @param maxY the maximum Y ordinate
+   */
+  public void setBounds(double minX, double minY, double maxX, double maxY)
+  {
+    this.minX = minX;
+    this.minY = minY;
+    this.maxX = maxX;
+    this.maxY = maxY;
+    updateScale();
+  }
+
+  private void updateScale()
+  {
+    scaleX = extent / (maxX - minX);
+    scaleY = extent / (maxY - minY);
+  }
+
+  /**
+   * Sets the bounds to those of a Web Mercator tile.
+   * The target CRS should be EPSG:3857.
+   *
+   * @param z the zoom level
+   * @param x the tile column
+   * @param y the tile row (from the top)
+   */
+  public void setTile(int z, int x, int y)
+  {
+    double size = 2 * WEB_MERCATOR_MAX / (1L << z);
+    double tileMinX = -WEB_MERCATOR_MAX + x * size;
+    double tileMaxY = WEB_MERCATOR_MAX - y * size;
+    setBounds(tileMinX, tileMaxY - size, tileMinX + size, tileMaxY);
+  }
+
+  /**
+   * Sets whether points are written as zig-zag encoded deltas.
+   *
+   * @param isDeltaEncoded true if points are delta-encoded
+   */
+  public void setDeltaEncoded(boolean isDeltaEncoded)
+  {
+    this.isDeltaEncoded = isDeltaEncoded;
+  }
+
+  /**
+   * Sets whether consecutive points with the same tile coordinates
+   * are reduced to a single point.
+   *
+   * @param isDropDuplicates true if duplicate points are dropped
+   */
+  public void setDropDuplicates(boolean isDropDuplicates)
+  {
+    this.isDropDuplicates = isDropDuplicates;
+  }
+
+  /**
+   * Resets the delta cursor to the tile origin,
+   * as at the start of an MVT feature.
+   */
+  public void resetCursor()
+  {
+    cursorX = 0;
+    cursorY = 0;
+  }
+
+  /**
+   * Gets the X tile coordinate of the last point written.
+   */
+  public int getCursorX()
+  {
+    return cursorX;
+  }
+
+  /**
+   * Gets the Y tile coordinate of the last point written.
+   */
+  public int getCursorY()
+  {
+    return cursorY;
+  }
+
+  /**
+   * Gets the number of points which could not be transformed
+   * by the last call to {@link #transformToTile}.
+   */
+  public int getFailCount()
+  {
+    return failCount;
+  }
+
+  /**
+   * Transforms a sequence of points into tile coordinates.
+   * Duplicate points are detected within a single sequence,
+   * so a sequence should be a single line or ring.
+   *
+   * @param src the source ordinates
+   * @param srcOff the index of the first source ordinate
+   * @param count the number of points to transform
+   * @param dim the number of ordinates per source point (at least 2)
+   * @param tgt the array to store the tile coordinates (or deltas) in, as X, Y pairs
+   * @param tgtOff the index of the first target value
+   * @return the number of points written
+   */
+  public int transformToTile(double[] src, int srcOff, int count, int dim, int[] tgt, int tgtOff)
+  {
+    if (dim < 2)
+      throw new IllegalArgumentException("Dimension must be at least 2: " + dim);
+    MetricsListener listener = Metrics.getListener();
+    long start = listener == null ? 0 : System.nanoTime();
+    failCount = 0;
+    int written = 0;
+    int si = srcOff;
+    int ti = tgtOff;
+    for (int i = 0; i < count; i++, si += dim) {
+      srcPt.x = src[si];
+      srcPt.y = src[si + 1];
+      srcPt.z = Double.NaN;
+      if (! transformPoint()) {
+        failCount++;
+        continue;
+      }
+      int x = (int) Math.floor((tgtPt.x - minX) * scaleX + 0.5);
+      int y = (int) Math.floor((maxY - tgtPt.y) * scaleY + 0.5);
+      if (isDropDuplicates && written > 0 && x == cursorX && y == cursorY)
+        continue;
+      if (isDeltaEncoded) {
+        tgt[ti] = zigZag(x - cursorX);
+        tgt[ti + 1] = zigZag(y - cursorY);
+      }
+      else {
+        tgt[ti] = x;
+        tgt[ti + 1] = y;
+      }
+      cursorX = x;
+      cursorY = y;
+      ti += 2;
+      written++;
+    }
+    if (listener != null)
+      reportBatch(listener, start, count, failCount);
+    return written;
+  }
+
+  private static int zigZag(int n)
+  {
+    return (n << 1) ^ (n >> 31);
+  }
+}
@@ -3,27 +3,33 @@ package org.osgeo.proj4j.cmd;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import org.osgeo.proj4j.*;
 import org.osgeo.proj4j.io.*;
 import org.osgeo.proj4j.util.*;
 
 /**
- * A command-line application which runs test files 
+ * A command-line application which runs test files
  * in MetaCRS Transformation Test format.
  * <p>
+ * Tests are read and run one at a time,
+ * optionally by several threads sharing a single CRS cache.
+ * Results are always reported in the order of the tests in the file.
+ * A report of the status and timing of each test and each pair of coordinate systems
+ * can be written in JSON or CSV format (chosen by the file extension).
+ * <p>
  * Usage:
  * <pre>
- *   MetaCRSTestCmd <test-file-name>
+ *   MetaCRSTestCmd [-verbose] [-threads &lt;n&gt;] [-report &lt;file.json|file.csv&gt;] { &lt;test-file-name&gt; }
  * </pre>
- * 
+ *
  * @author Martin Davis
  *
  */
-public class MetaCRSTestCmd 
+public class MetaCRSTestCmd
 {
-  // TODO: display line numbers of tests in verbose mode
-  public static void main(String args[]) 
+  public static void main(String args[])
   {
     MetaCRSTestCmd cmd = new MetaCRSTestCmd();
     cmd.parseArgs(args);
@@ -37,108 +43,280 @@ public class MetaCRSTestCmd
 
   private static String usage()
   {
-    return "Usage: MetaCRSTestCmd [-verbose] { <test-file-name> }";
+    return "Usage: MetaCRSTestCmd [-verbose] [-threads <n>] [-report <file.json|file.csv>] { <test-file-name> }";
   }
   private static final int TESTS_PER_LINE = 50;
-  
+
   private static CRSFactory csFactory = new CRSFactory();
 
   private List<String> filenames = new ArrayList<String>();
   private boolean verbose = false;
-  
+  private int threadCount = 1;
+  private String reportFilename = null;
+  private MetaCRSTestReport report = null;
+  private PrintStream out = System.out;
+
   int count = 0;
   int failCount = 0;
   int errCount = 0;
 
   private CRSCache crsCache = new CRSCache();
-  
-  public MetaCRSTestCmd() 
+
+  public MetaCRSTestCmd()
+  {
+  }
+
+  /**
+   * Sets the number of threads used to run tests.
+   *
+   * @param threadCount the number of threads (if &lt;= 0, the number of available processors is used)
+   */
+  public void setThreadCount(int threadCount)
+  {
+    if (threadCount <= 0)
+      threadCount = Runtime.getRuntime().availableProcessors();
+    this.threadCount = threadCount;
+  }
+
+  /**
+   * Sets the report to which test results are added.
+   *
+   * @param report the report
+   */
+  public void setReport(MetaCRSTestReport report)
   {
+    this.report = report;
   }
-  
+
+  /**
+   * Sets the stream to which progress and failures are printed.
+   *
+   * @param out the output stream
+   */
+  public void setOutput(PrintStream out)
+  {
+    this.out = out;
+  }
+
+  public int getCount() { return count; }
+
+  public int getFailCount() { return failCount; }
+
+  public int getErrorCount() { return errCount; }
+
   private void parseArgs(String[] args)
   {
-    //TODO: error handling
     if (args.length <= 0) {
       System.err.println(usage());
       System.exit(1);
     }
-    parseFlags(args);
-    
-    parseFiles(args);
+    try {
+      parseFlags(args);
+    }
+    catch (IllegalArgumentException ex) {
+      System.err.println(ex.getMessage());
+      System.err.println(usage());
+      System.exit(1);
+    }
   }
 
   private void parseFlags(String[] args)
   {
-    for (String arg : args) {
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
       if (arg.startsWith("-")) {
         if (arg.equalsIgnoreCase("-verbose")) {
           verbose = true;
         }
+        else if (arg.equalsIgnoreCase("-threads") || arg.equalsIgnoreCase("-report")) {
+          if (i + 1 >= args.length)
+            throw new IllegalArgumentException("Missing value for " + arg);
+          String value = args[++i];
+          if (arg.equalsIgnoreCase("-report"))
+            reportFilename = value;
+          else
+            setThreadCount(parseInt(arg, value));
+        }
+        else {
+          throw new IllegalArgumentException("Unknown option: " + arg);
+        }
+      }
+      else {
+        filenames.add(arg);
       }
     }
   }
-  private void parseFiles(String[] args)
+
+  private static int parseInt(String flag, String value)
   {
-    for (String arg : args) {
-      if (! arg.startsWith("-")) {
-        filenames.add(arg);
-      }
+    try {
+      return Integer.parseInt(value);
+    }
+    catch (NumberFormatException ex) {
+      throw new IllegalArgumentException("Invalid value for " + flag + ": " + value);
     }
   }
+
   private void execute()
   throws IOException
   {
     long timeInMillis = System.currentTimeMillis();
+    if (reportFilename != null) {
+      boolean isCSV = reportFilename.toLowerCase().endsWith(".csv");
+      report = new MetaCRSTestReport(
+          new BufferedWriter(new OutputStreamWriter(new FileOutputStream(reportFilename), "UTF-8")), isCSV);
+    }
     for (String filename : filenames) {
       execute(filename);
     }
-    
-    System.out.println();
-    System.out.println("Tests run: " + count
+
+    out.println();
+    out.println("Tests run: " + count
         + ",  Failures: " + failCount
         + ",  Errors: " + errCount);
 
     long timeMS = System.currentTimeMillis() - timeInMillis;
-    System.out.println("Time: " + (timeMS / 1000.0) + " s");
+    out.println("Time: " + (timeMS / 1000.0) + " s");
+    if (report != null)
+      report.close(threadCount, timeMS);
+  }
+
+  /**
+   * Runs the tests in a file.
+   *
+   * @param filename the name of the test file
+   * @throws IOException if an I/O error occurs
+   */
+  public void execute(String filename)
+  throws IOException
+  {
+    out.println("File: " + filename);
+
+    MetaCRSTestFileReader reader = new MetaCRSTestFileReader(new File(filename));
+    try {
+      if (threadCount <= 1)
+        executeSerial(filename, reader);
+      else
+        executeParallel(filename, reader);
+    }
+    finally {
+      reader.close();
+    }
+    out.println();
+  }
+
+  private void executeSerial(String filename, MetaCRSTestFileReader reader)
+  throws IOException
+  {
+    while (true) {
+      MetaCRSTestCase test = reader.readTest();
+      if (test == null)
+        break;
+      TestRun run = new TestRun(test);
+      run.call();
+      report(filename, run);
+    }
+  }
+
+  private void executeParallel(String filename, MetaCRSTestFileReader reader)
+  throws IOException
+  {
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    // results are reported in the order the tests were read
+    LinkedList<Future<TestRun>> pending = new LinkedList<Future<TestRun>>();
+    try {
+      while (true) {
+        MetaCRSTestCase test = reader.readTest();
+        if (test == null)
+          break;
+        pending.add(executor.submit(new TestRun(test)));
+        // limit the number of tests held in memory
+        if (pending.size() >= 64 * threadCount)
+          reportNext(filename, pending);
+      }
+      while (! pending.isEmpty()) {
+        reportNext(filename, pending);
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void reportNext(String filename, LinkedList<Future<TestRun>> pending)
+  throws IOException
+  {
+    TestRun run;
+    try {
+      run = pending.removeFirst().get();
+    }
+    catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Tests interrupted");
+    }
+    catch (ExecutionException ex) {
+      if (ex.getCause() instanceof RuntimeException)
+        throw (RuntimeException) ex.getCause();
+      throw new IOException("Test failed: " + ex.getCause());
+    }
+    report(filename, run);
   }
-  
-  private void execute(String filename)
+
+  private void report(String filename, TestRun run)
   throws IOException
   {
-    System.out.println("File: " + filename);
-    
-    File file = new File(filename);
-    MetaCRSTestFileReader reader = new MetaCRSTestFileReader(file);
-    List<MetaCRSTestCase> tests = reader.readTests();
-    
-    for (MetaCRSTestCase test : tests) 
+    MetaCRSTestCase test = run.test;
+    count++;
+    out.print(".");
+    String status;
+    if (run.error != null) {
+      out.println(run.error);
+      errCount++;
+      status = MetaCRSTestReport.STATUS_ERROR;
+    }
+    else {
+      status = run.isOk ? MetaCRSTestReport.STATUS_PASS : MetaCRSTestReport.STATUS_FAIL;
+      if (! run.isOk) {
+        failCount++;
+        out.print("F");
+      }
+      if (verbose || ! run.isOk) {
+        out.println();
+        out.println("Line " + test.getLineNumber());
+        test.print(out);
+      }
+    }
+    if (report != null)
+      report.add(filename, test, status);
+
+    if (count % TESTS_PER_LINE == 0)
+      out.println();
+  }
+
+  /**
+   * Runs a single test, recording its result.
+   */
+  private class TestRun implements Callable<TestRun>
+  {
+    MetaCRSTestCase test;
+    boolean isOk = false;
+    Proj4jException error = null;
+
+    TestRun(MetaCRSTestCase test)
+    {
+      this.test = test;
+    }
+
+    public TestRun call()
     {
       test.setCache(crsCache);
-      count++;
-      System.out.print(".");
-      boolean isOk;
       try {
         isOk = test.execute(csFactory);
       }
       catch (Proj4jException ex) {
-        System.out.println(ex);
-        errCount++;
-        continue;
+        error = ex;
       }
-      if (! isOk) {
-        failCount++;
-        System.out.print("F");
-      }
-      if (verbose || ! isOk) {
-        System.out.println();
-        test.print(System.out);
-      }
-
-      if (count % TESTS_PER_LINE == 0)
-        System.out.println();
+      return this;
     }
-    System.out.println();   
   }
-
 }
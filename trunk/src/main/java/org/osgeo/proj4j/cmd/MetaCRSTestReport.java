@@ -0,0 +1,224 @@
+package org.osgeo.proj4j.cmd;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.osgeo.proj4j.ProjCoordinate;
+import org.osgeo.proj4j.io.MetaCRSTestCase;
+
+/**
+ * Writes a machine-readable report of the results of running MetaCRS tests,
+ * in either JSON or CSV format.
+ * The report contains a record for each test (with its status and timing),
+ * followed by summary records for each pair of source and target CRS,
+ * and (in JSON) an overall summary.
+ * <p>
+ * Test records are written as they are added,
+ * so the report can be used for test files of any size.
+ * All times are in nanoseconds.
+ *
+ * @see MetaCRSTestCmd
+ */
+public class MetaCRSTestReport
+{
+  public static final String STATUS_PASS = "pass";
+  public static final String STATUS_FAIL = "fail";
+  public static final String STATUS_ERROR = "error";
+
+  private static final String CSV_HEADER =
+    "record,file,line,name,source,target,status,count,failures,errors,createNanos,transformNanos,maxTransformNanos,dx,dy";
+
+  private Writer out;
+  private boolean isCSV;
+  private boolean isFirstTest = true;
+  private Map<String, PairSummary> pairs = new LinkedHashMap<String, PairSummary>();
+  private int count = 0;
+  private int failCount = 0;
+  private int errCount = 0;
+
+  /**
+   * Creates a report.
+   *
+   * @param out the writer to write the report to
+   * @param isCSV true if the report is written in CSV format, false for JSON
+   * @throws IOException if an I/O error occurs
+   */
+  public MetaCRSTestReport(Writer out, boolean isCSV)
+  throws IOException
+  {
+    this.out = out;
+    this.isCSV = isCSV;
+    if (isCSV)
+      out.write(CSV_HEADER + "\n");
+    else
+      out.write("{\n\"tests\": [");
+  }
+
+  /**
+   * Adds the result of executing a test to the report.
+   *
+   * @param filename the name of the file the test was read from
+   * @param test the executed test
+   * @param status the status of the test ({@link #STATUS_PASS}, {@link #STATUS_FAIL} or {@link #STATUS_ERROR})
+   * @throws IOException if an I/O error occurs
+   */
+  public void add(String filename, MetaCRSTestCase test, String status)
+  throws IOException
+  {
+    count++;
+    if (STATUS_FAIL.equals(status)) failCount++;
+    if (STATUS_ERROR.equals(status)) errCount++;
+
+    String pairKey = test.getSourceCrsName() + " " + test.getTargetCrsName();
+    PairSummary pair = pairs.get(pairKey);
+    if (pair == null) {
+      pair = new PairSummary(test.getSourceCrsName(), test.getTargetCrsName());
+      pairs.put(pairKey, pair);
+    }
+    pair.add(test, status);
+
+    double dx = Double.NaN;
+    double dy = Double.NaN;
+    if (! STATUS_ERROR.equals(status)) {
+      ProjCoordinate result = test.getResultCoordinate();
+      ProjCoordinate expected = test.getTargetCoordinate();
+      dx = result.x - expected.x;
+      dy = result.y - expected.y;
+    }
+
+    if (isCSV) {
+      out.write("test," + csv(filename) + "," + test.getLineNumber() + "," + csv(test.getName())
+          + "," + csv(test.getSourceCrsName()) + "," + csv(test.getTargetCrsName())
+          + "," + status + ",1," + (STATUS_FAIL.equals(status) ? 1 : 0) + "," + (STATUS_ERROR.equals(status) ? 1 : 0)
+          + "," + test.getCreateNanos() + "," + test.getTransformNanos() + "," + test.getTransformNanos()
+          + "," + number(dx, "") + "," + number(dy, "") + "\n");
+    }
+    else {
+      out.write(isFirstTest ? "\n" : ",\n");
+      out.write("  {\"file\": " + json(filename) + ", \"line\": " + test.getLineNumber()
+          + ", \"name\": " + json(test.getName())
+          + ", \"source\": " + json(test.getSourceCrsName()) + ", \"target\": " + json(test.getTargetCrsName())
+          + ", \"status\": \"" + status + "\""
+          + ", \"createNanos\": " + test.getCreateNanos() + ", \"transformNanos\": " + test.getTransformNanos()
+          + ", \"dx\": " + number(dx, "null") + ", \"dy\": " + number(dy, "null") + "}");
+    }
+    isFirstTest = false;
+  }
+
+  /**
+   * Writes the summary records and closes the report.
+   *
+   * @param threadCount the number of threads used to run the tests
+   * @param timeMS the elapsed time of the run, in milliseconds
+   * @throws IOException if an I/O error occurs
+   */
+  public void close(int threadCount, long timeMS)
+  throws IOException
+  {
+    if (! isCSV)
+      out.write("\n],\n\"pairs\": [");
+    boolean isFirst = true;
+    for (PairSummary pair : pairs.values()) {
+      if (isCSV) {
+        out.write("pair,,,," + csv(pair.source) + "," + csv(pair.target)
+            + "," + pair.status() + "," + pair.count + "," + pair.failCount + "," + pair.errCount
+            + "," + pair.createNanos + "," + pair.transformNanos + "," + pair.maxTransformNanos + ",,\n");
+      }
+      else {
+        out.write(isFirst ? "\n" : ",\n");
+        out.write("  {\"source\": " + json(pair.source) + ", \"target\": " + json(pair.target)
+            + ", \"status\": \"" + pair.status() + "\""
+            + ", \"count\": " + pair.count + ", \"failures\": " + pair.failCount + ", \"errors\": " + pair.errCount
+            + ", \"createNanos\": " + pair.createNanos + ", \"transformNanos\": " + pair.transformNanos
+            + ", \"meanTransformNanos\": " + (pair.transformNanos / pair.count)
+            + ", \"maxTransformNanos\": " + pair.maxTransformNanos + "}");
+      }
+      isFirst = false;
+    }
+    if (! isCSV) {
+      out.write("\n],\n\"summary\": {\"tests\": " + count + ", \"failures\": " + failCount
+          + ", \"errors\": " + errCount + ", \"threads\": " + threadCount
+          + ", \"timeMillis\": " + timeMS
+          + ", \"testsPerSecond\": " + (timeMS > 0 ? count * 1000L / timeMS : 0) + "}\n}\n");
+    }
+    out.close();
+  }
+
+  private static String number(double d, String missing)
+  {
+    if (Double.isNaN(d) || Double.isInfinite(d))
+      return missing;
+    return String.valueOf(d);
+  }
+
+  private static String csv(String s)
+  {
+    if (s == null)
+      return "";
+    if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0)
+      return s;
+    return "\"" + s.replaceAll("\"", "\"\"") + "\"";
+  }
+
+  private static String json(String s)
+  {
+    if (s == null)
+      return "null";
+    StringBuilder buf = new StringBuilder(s.length() + 2);
+    buf.append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') {
+        buf.append('\\').append(c);
+      }
+      else if (c < ' ') {
+        String hex = Integer.toHexString(c);
+        buf.append("\\u0000", 0, 6 - hex.length()).append(hex);
+      }
+      else {
+        buf.append(c);
+      }
+    }
+    return buf.append('"').toString();
+  }
+
+  /**
+   * The accumulated results of the tests for a pair of coordinate systems.
+   */
+  private static class PairSummary
+  {
+    String source;
+    String target;
+    int count = 0;
+    int failCount = 0;
+    int errCount = 0;
+    long createNanos = 0;
+    long transformNanos = 0;
+    long maxTransformNanos = 0;
+
+    PairSummary(String source, String target)
+    {
+      this.source = source;
+      this.target = target;
+    }
+
+    void add(MetaCRSTestCase test, String status)
+    {
+      count++;
+      if (STATUS_FAIL.equals(status)) failCount++;
+      if (STATUS_ERROR.equals(status)) errCount++;
+      createNanos += test.getCreateNanos();
+      transformNanos += test.getTransformNanos();
+      maxTransformNanos = Math.max(maxTransformNanos, test.getTransformNanos());
+    }
+
+    String status()
+    {
+      if (errCount > 0) return STATUS_ERROR;
+      if (failCount > 0) return STATUS_FAIL;
+      return STATUS_PASS;
+    }
+  }
+}
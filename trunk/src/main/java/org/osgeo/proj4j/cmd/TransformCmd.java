@@ -0,0 +1,732 @@
+package org.osgeo.proj4j.cmd;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.osgeo.proj4j.*;
+import org.osgeo.proj4j.io.GeoJSONTransform;
+import org.osgeo.proj4j.io.LASTransform;
+import org.osgeo.proj4j.io.MappedFileTransform;
+import org.osgeo.proj4j.io.ShapefileTransform;
+import org.osgeo.proj4j.proj.LongLatProjection;
+import org.osgeo.proj4j.util.DoubleFormatter;
+import org.osgeo.proj4j.util.DoubleParser;
+
+/**
+ * A command-line application which transforms coordinates
+ * from one coordinate system to another,
+ * in the style of the PROJ.4 <tt>cs2cs</tt> program.
+ * <p>
+ * Coordinates are read from files or standard input,
+ * one point per line.
+ * The first two fields of each line are the X and Y ordinates
+ * (longitude and latitude for geographic coordinate systems),
+ * separated by whitespace or a comma.
+ * The ordinates are replaced by the transformed values,
+ * and the rest of the line (e.g. a Z value or other CSV fields) is copied unchanged.
+ * Lines which do not start with two numbers (such as comments or CSV headers)
+ * are copied unchanged.
+ * Points which cannot be transformed are written as <tt>*</tt>.
+ * <p>
+ * Lines are processed in large batches,
+ * optionally by several threads.
+ * The output is always in the same order as the input.
+ * <p>
+ * With <tt>-binary double</tt> or <tt>-binary float</tt>,
+ * the input is a file of little-endian binary ordinates
+ * (with <tt>-dim</tt> ordinates per point, 2 by default),
+ * which is memory-mapped and transformed into the <tt>-o</tt> file,
+ * or in place if <tt>-inplace</tt> is given.
+ * See {@link MappedFileTransform}.
+ * <p>
+ * With <tt>-geojson</tt>, the input is a GeoJSON document,
+ * whose coordinates are transformed as a stream
+ * (see {@link GeoJSONTransform}).
+ * The number of decimal places is then a maximum, and trailing zeros are omitted.
+ * <p>
+ * With <tt>-shapefile</tt>, the input is an ESRI Shapefile (<tt>.shp</tt>),
+ * which is memory-mapped and transformed into the <tt>-o</tt> file,
+ * or in place if <tt>-inplace</tt> is given.
+ * See {@link ShapefileTransform}.
+ * Similarly, <tt>-las</tt> transforms an ASPRS LAS point cloud file
+ * (see {@link LASTransform}).
+ * <p>
+ * Usage:
+ * <pre>
+ *   TransformCmd [options] &lt;src-crs&gt; &lt;tgt-crs&gt; { &lt;input-file&gt; }
+ *   TransformCmd [options] +proj=... +to +proj=... { &lt;input-file&gt; }
+ * </pre>
+ * A CRS is either a name (e.g. <tt>EPSG:4326</tt>)
+ * or a quoted PROJ.4 parameter string.
+ * As in <tt>cs2cs</tt>, geographic coordinates are always in degrees.
+ */
+public class TransformCmd
+{
+  public static void main(String args[])
+  {
+    TransformCmd cmd = new TransformCmd();
+    try {
+      cmd.parseArgs(args);
+    }
+    catch (IllegalArgumentException ex) {
+      System.err.println(ex.getMessage());
+      System.err.println(usage());
+      System.exit(1);
+    }
+    try {
+      cmd.execute();
+    }
+    catch (Exception ex) {
+      System.err.println("Error: " + ex.getMessage());
+      System.exit(1);
+    }
+  }
+
+  private static String usage()
+  {
+    return "Usage: TransformCmd [-threads <n>] [-batch <lines>] [-d <decimals>] [-o <output-file>] [-verbose]\n"
+      + "                    [-binary double|float [-dim <n>] [-inplace] | -shapefile|-las [-inplace] | -geojson]\n"
+      + "                    ( <src-crs> <tgt-crs> | +<param> ... +to +<param> ... ) { <input-file> }";
+  }
+
+  /**
+   * The default number of lines processed in a batch
+   */
+  public static final int DEFAULT_BATCH_SIZE = 16384;
+
+  /**
+   * The default number of decimal places for projected coordinates (millimetres)
+   */
+  public static final int DEFAULT_PROJECTED_DECIMALS = 3;
+
+  /**
+   * The default number of decimal places for geographic coordinates (about 1 millimetre)
+   */
+  public static final int DEFAULT_GEOGRAPHIC_DECIMALS = 8;
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final String FAILED = "*";
+
+  private static CRSFactory csFactory = new CRSFactory();
+
+  private CoordinateReferenceSystem srcCRS;
+  private CoordinateReferenceSystem tgtCRS;
+  private List<String> filenames = new ArrayList<String>();
+  private String outputFilename = null;
+  private int threadCount = 1;
+  private int batchSize = DEFAULT_BATCH_SIZE;
+  private int decimals = -1;
+  private boolean verbose = false;
+  private String binaryType = null;
+  private int dimension = 2;
+  private boolean inPlace = false;
+  private boolean isGeoJSON = false;
+  // the format of a binary input file (-shapefile or -las)
+  private String fileFormat = null;
+
+  private long pointCount = 0;
+  private long failCount = 0;
+
+  public TransformCmd()
+  {
+  }
+
+  /**
+   * Creates a command which transforms between two coordinate systems.
+   *
+   * @param srcCRS the source CRS
+   * @param tgtCRS the target CRS
+   */
+  public TransformCmd(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS)
+  {
+    this.srcCRS = srcCRS;
+    this.tgtCRS = tgtCRS;
+  }
+
+  /**
+   * Sets the number of threads used to transform batches.
+   *
+   * @param threadCount the number of threads (if &lt;= 0, the number of available processors is used)
+   */
+  public void setThreadCount(int threadCount)
+  {
+    if (threadCount <= 0)
+      threadCount = Runtime.getRuntime().availableProcessors();
+    this.threadCount = threadCount;
+  }
+
+  /**
+   * Sets the number of lines processed in a batch.
+   *
+   * @param batchSize the number of lines in a batch
+   */
+  public void setBatchSize(int batchSize)
+  {
+    this.batchSize = Math.max(1, batchSize);
+  }
+
+  /**
+   * Sets the number of decimal places written for transformed ordinates.
+   * By default this depends on whether the target CRS is geographic.
+   *
+   * @param decimals the number of decimal places
+   */
+  public void setDecimals(int decimals)
+  {
+    this.decimals = decimals;
+  }
+
+  /**
+   * Sets whether the input is read as a GeoJSON document.
+   *
+   * @param isGeoJSON true if the input is GeoJSON
+   */
+  public void setGeoJSON(boolean isGeoJSON)
+  {
+    this.isGeoJSON = isGeoJSON;
+  }
+
+  /**
+   * Gets the number of points read by this command.
+   */
+  public long getPointCount()
+  {
+    return pointCount;
+  }
+
+  /**
+   * Gets the number of points which could not be transformed.
+   */
+  public long getFailCount()
+  {
+    return failCount;
+  }
+
+  /**
+   * Parses the command-line arguments.
+   *
+   * @param args the arguments
+   * @throws IllegalArgumentException if the arguments are invalid or a CRS cannot be created
+   */
+  void parseArgs(String[] args)
+  {
+    List<String> crsArgs = new ArrayList<String>();
+    List<String> srcParams = new ArrayList<String>();
+    List<String> tgtParams = new ArrayList<String>();
+    List<String> params = srcParams;
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (arg.equals("+to")) {
+        params = tgtParams;
+      }
+      else if (arg.startsWith("+")) {
+        params.add(arg);
+      }
+      else if (arg.equals("-")) {
+        filenames.add(arg);
+      }
+      else if (arg.startsWith("-")) {
+        i = parseFlag(args, i);
+      }
+      else if (srcParams.isEmpty() && crsArgs.size() < 2) {
+        crsArgs.add(arg);
+      }
+      else {
+        filenames.add(arg);
+      }
+    }
+    if (! srcParams.isEmpty()) {
+      if (tgtParams.isEmpty())
+        throw new IllegalArgumentException("No target parameters given after +to");
+      // any names given are input files
+      filenames.addAll(0, crsArgs);
+      srcCRS = createCRS(srcParams);
+      tgtCRS = createCRS(tgtParams);
+    }
+    else {
+      if (crsArgs.size() < 2)
+        throw new IllegalArgumentException("Source and target CRS must be given");
+      srcCRS = createCRS(crsArgs.get(0));
+      tgtCRS = createCRS(crsArgs.get(1));
+    }
+    if (binaryType != null || fileFormat != null) {
+      if (binaryType != null && fileFormat != null)
+        throw new IllegalArgumentException(fileFormat + " cannot be used with -binary");
+      if (filenames.size() != 1 || filenames.get(0).equals("-"))
+        throw new IllegalArgumentException("Binary mode requires a single input file");
+      if (inPlace == (outputFilename != null))
+        throw new IllegalArgumentException("Binary mode requires exactly one of -o or -inplace");
+    }
+    if (isGeoJSON) {
+      if (binaryType != null || fileFormat != null)
+        throw new IllegalArgumentException("-geojson cannot be used with binary input");
+      if (filenames.size() > 1)
+        throw new IllegalArgumentException("GeoJSON mode requires a single input");
+    }
+  }
+
+  private int parseFlag(String[] args, int i)
+  {
+    String flag = args[i];
+    if (flag.equalsIgnoreCase("-verbose")) {
+      verbose = true;
+      return i;
+    }
+    if (flag.equalsIgnoreCase("-inplace")) {
+      inPlace = true;
+      return i;
+    }
+    if (flag.equalsIgnoreCase("-geojson")) {
+      isGeoJSON = true;
+      return i;
+    }
+    if (flag.equalsIgnoreCase("-shapefile") || flag.equalsIgnoreCase("-las")) {
+      if (fileFormat != null && ! fileFormat.equalsIgnoreCase(flag))
+        throw new IllegalArgumentException(flag + " cannot be used with " + fileFormat);
+      fileFormat = flag.toLowerCase();
+      return i;
+    }
+    if (i + 1 >= args.length)
+      throw new IllegalArgumentException("Missing value for " + flag);
+    String value = args[i + 1];
+    if (flag.equalsIgnoreCase("-o")) {
+      outputFilename = value;
+    }
+    else if (flag.equalsIgnoreCase("-threads")) {
+      setThreadCount(parseInt(flag, value));
+    }
+    else if (flag.equalsIgnoreCase("-batch")) {
+      setBatchSize(parseInt(flag, value));
+    }
+    else if (flag.equalsIgnoreCase("-d")) {
+      setDecimals(parseInt(flag, value));
+    }
+    else if (flag.equalsIgnoreCase("-binary")) {
+      if (! value.equalsIgnoreCase("double") && ! value.equalsIgnoreCase("float"))
+        throw new IllegalArgumentException("Invalid value for " + flag + ": " + value);
+      binaryType = value;
+    }
+    else if (flag.equalsIgnoreCase("-dim")) {
+      dimension = parseInt(flag, value);
+      if (dimension < 2)
+        throw new IllegalArgumentException("Invalid value for " + flag + ": " + value);
+    }
+    else {
+      throw new IllegalArgumentException("Unknown option: " + flag);
+    }
+    return i + 1;
+  }
+
+  private static int parseInt(String flag, String value)
+  {
+    try {
+      return Integer.parseInt(value);
+    }
+    catch (NumberFormatException ex) {
+      throw new IllegalArgumentException("Invalid value for " + flag + ": " + value);
+    }
+  }
+
+  private static CoordinateReferenceSystem createCRS(List<String> params)
+  {
+    try {
+      return csFactory.createFromParameters(null, params.toArray(new String[params.size()]));
+    }
+    catch (Proj4jException ex) {
+      throw invalidCRS(params.toString(), ex);
+    }
+  }
+
+  private static CoordinateReferenceSystem createCRS(String spec)
+  {
+    try {
+      if (spec.trim().startsWith("+"))
+        return csFactory.createFromParameters(null, spec.trim());
+      return csFactory.createFromName(spec);
+    }
+    catch (Proj4jException ex) {
+      throw invalidCRS(spec, ex);
+    }
+  }
+
+  /**
+   * Reports a CRS which cannot be created as an invalid argument,
+   * so that the usage is printed.
+   */
+  private static IllegalArgumentException invalidCRS(String spec, Proj4jException ex)
+  {
+    if (ex instanceof UnknownAuthorityCodeException)
+      return new IllegalArgumentException("Unknown CRS: " + spec);
+    return new IllegalArgumentException("Invalid CRS " + spec + ": " + ex.getMessage());
+  }
+
+  private void execute()
+  throws IOException
+  {
+    long startTime = System.currentTimeMillis();
+    if (binaryType != null)
+      executeBinary();
+    else if ("-shapefile".equals(fileFormat))
+      executeShapefile();
+    else if ("-las".equals(fileFormat))
+      executeLAS();
+    else
+      executeText();
+    if (verbose) {
+      long timeMS = System.currentTimeMillis() - startTime;
+      System.err.println("Points: " + pointCount + ",  Failures: " + failCount);
+      System.err.println("Time: " + (timeMS / 1000.0) + " s"
+          + (timeMS > 0 ? ",  " + (pointCount * 1000 / timeMS) + " points/s" : ""));
+    }
+  }
+
+  private void executeBinary()
+  throws IOException
+  {
+    MappedFileTransform fileTrans = new MappedFileTransform(srcCRS, tgtCRS);
+    fileTrans.setFloat(binaryType.equalsIgnoreCase("float"));
+    fileTrans.setDimension(dimension);
+    fileTrans.setThreadCount(threadCount);
+    File input = new File(filenames.get(0));
+    fileTrans.transform(input, inPlace ? input : new File(outputFilename));
+    pointCount = fileTrans.getPointCount();
+    failCount = fileTrans.getFailCount();
+  }
+
+  private void executeShapefile()
+  throws IOException
+  {
+    ShapefileTransform shpTrans = new ShapefileTransform(srcCRS, tgtCRS);
+    shpTrans.setThreadCount(threadCount);
+    File input = new File(filenames.get(0));
+    shpTrans.transform(input, inPlace ? input : new File(outputFilename));
+    pointCount = shpTrans.getPointCount();
+    failCount = shpTrans.getFailCount();
+  }
+
+  private void executeLAS()
+  throws IOException
+  {
+    LASTransform lasTrans = new LASTransform(srcCRS, tgtCRS);
+    lasTrans.setThreadCount(threadCount);
+    File input = new File(filenames.get(0));
+    lasTrans.transform(input, inPlace ? input : new File(outputFilename));
+    pointCount = lasTrans.getPointCount();
+    failCount = lasTrans.getFailCount();
+  }
+
+  private void executeText()
+  throws IOException
+  {
+    OutputStream out = System.out;
+    if (outputFilename != null)
+      out = new FileOutputStream(outputFilename);
+    try {
+      if (filenames.isEmpty())
+        filenames.add("-");
+      for (String filename : filenames) {
+        InputStream in;
+        if (filename.equals("-"))
+          in = System.in;
+        else
+          in = new FileInputStream(filename);
+        try {
+          if (isGeoJSON)
+            transformGeoJSON(in, out);
+          else
+            transform(new InputStreamReader(in, UTF8), out);
+        }
+        finally {
+          if (in != System.in)
+            in.close();
+        }
+      }
+    }
+    finally {
+      if (out == System.out)
+        out.flush();
+      else
+        out.close();
+    }
+  }
+
+  /**
+   * Transforms the coordinates read from a stream,
+   * writing the result to an output stream.
+   *
+   * @param input the input text
+   * @param output the stream to write the transformed text to
+   * @throws IOException if an I/O error occurs
+   */
+  public void transform(Reader input, OutputStream output)
+  throws IOException
+  {
+    BufferedReader reader = new BufferedReader(input, 1 << 16);
+    WritableByteChannel channel;
+    if (output instanceof FileOutputStream)
+      channel = ((FileOutputStream) output).getChannel();
+    else
+      channel = Channels.newChannel(output);
+
+    int outDecimals = getOutputDecimals();
+    if (threadCount <= 1) {
+      BatchCoordinateTransform trans = new BatchCoordinateTransform(srcCRS, tgtCRS);
+      while (true) {
+        Batch batch = readBatch(reader, trans, outDecimals);
+        if (batch == null) break;
+        write(batch.call(), channel);
+        addCounts(batch);
+      }
+    }
+    else {
+      transformParallel(reader, channel, outDecimals);
+    }
+    output.flush();
+  }
+
+  /**
+   * Transforms the coordinates of a GeoJSON document read from a stream,
+   * writing the result to an output stream.
+   *
+   * @param input the GeoJSON document
+   * @param output the stream to write the transformed document to
+   * @throws IOException if an I/O error occurs or the document is malformed
+   */
+  public void transformGeoJSON(InputStream input, OutputStream output)
+  throws IOException
+  {
+    GeoJSONTransform geoJSONTrans = new GeoJSONTransform(srcCRS, tgtCRS);
+    geoJSONTrans.setDecimals(getOutputDecimals());
+    geoJSONTrans.setBatchSize(batchSize);
+    geoJSONTrans.transform(input, output);
+    pointCount += geoJSONTrans.getPointCount();
+    failCount += geoJSONTrans.getFailCount();
+  }
+
+  private int getOutputDecimals()
+  {
+    if (decimals >= 0)
+      return decimals;
+    boolean isGeographic = tgtCRS.getProjection() instanceof LongLatProjection;
+    return isGeographic ? DEFAULT_GEOGRAPHIC_DECIMALS : DEFAULT_PROJECTED_DECIMALS;
+  }
+
+  private void transformParallel(BufferedReader reader, WritableByteChannel channel, int outDecimals)
+  throws IOException
+  {
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    final ThreadLocal<BatchCoordinateTransform> transforms = new ThreadLocal<BatchCoordinateTransform>() {
+      protected BatchCoordinateTransform initialValue() {
+        return new BatchCoordinateTransform(srcCRS, tgtCRS);
+      }
+    };
+    // batches are written in the order they were read
+    LinkedList<Future<Batch>> pending = new LinkedList<Future<Batch>>();
+    try {
+      while (true) {
+        final Batch batch = readBatch(reader, null, outDecimals);
+        if (batch == null) break;
+        pending.add(executor.submit(new Callable<Batch>() {
+          public Batch call() {
+            batch.trans = transforms.get();
+            batch.call();
+            return batch;
+          }
+        }));
+        // limit the number of batches held in memory
+        if (pending.size() >= 2 * threadCount)
+          writeNext(pending, channel);
+      }
+      while (! pending.isEmpty()) {
+        writeNext(pending, channel);
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void writeNext(LinkedList<Future<Batch>> pending, WritableByteChannel channel)
+  throws IOException
+  {
+    Batch batch;
+    try {
+      batch = pending.removeFirst().get();
+    }
+    catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Transform interrupted");
+    }
+    catch (ExecutionException ex) {
+      throw new IOException("Transform failed: " + ex.getCause());
+    }
+    write(batch.output, channel);
+    addCounts(batch);
+  }
+
+  private void addCounts(Batch batch)
+  {
+    pointCount += batch.pointCount;
+    failCount += batch.failCount;
+  }
+
+  private static void write(ByteBuffer buf, WritableByteChannel channel)
+  throws IOException
+  {
+    while (buf.hasRemaining()) {
+      channel.write(buf);
+    }
+  }
+
+  private Batch readBatch(BufferedReader reader, BatchCoordinateTransform trans, int outDecimals)
+  throws IOException
+  {
+    String[] lines = new String[batchSize];
+    int n = 0;
+    while (n < batchSize) {
+      String line = reader.readLine();
+      if (line == null) break;
+      lines[n++] = line;
+    }
+    if (n == 0)
+      return null;
+    return new Batch(lines, n, trans, outDecimals);
+  }
+
+  /**
+   * A batch of input lines, which is transformed into a buffer of output bytes.
+   */
+  private static class Batch
+  {
+    String[] lines;
+    int count;
+    BatchCoordinateTransform trans;
+    int decimals;
+
+    ByteBuffer output;
+    int pointCount = 0;
+    int failCount = 0;
+
+    Batch(String[] lines, int count, BatchCoordinateTransform trans, int decimals)
+    {
+      this.lines = lines;
+      this.count = count;
+      this.trans = trans;
+      this.decimals = decimals;
+    }
+
+    ByteBuffer call()
+    {
+      // field positions: xStart, xEnd, yStart, yEnd (xStart < 0 for lines which are copied)
+      int[] fields = new int[4 * count];
+      double[] coords = new double[2 * count];
+      int[] pointLine = new int[count];
+      int outLen = 0;
+      for (int i = 0; i < count; i++) {
+        String line = lines[i];
+        outLen += line.length() + 20;
+        if (parseLine(line, fields, 4 * i, coords, 2 * pointCount)) {
+          pointLine[pointCount++] = i;
+        }
+        else {
+          fields[4 * i] = -1;
+        }
+      }
+
+      trans.transform(coords, 0, coords, 0, pointCount, 2);
+
+      StringBuilder buf = new StringBuilder(outLen);
+      DoubleFormatter format = new DoubleFormatter(decimals, true);
+      int pt = 0;
+      for (int i = 0; i < count; i++) {
+        String line = lines[i];
+        int f = 4 * i;
+        if (fields[f] < 0) {
+          buf.append(line);
+        }
+        else {
+          double x = coords[2 * pt];
+          double y = coords[2 * pt + 1];
+          pt++;
+          buf.append(line, 0, fields[f]);
+          if (Double.isNaN(x)) {
+            failCount++;
+            buf.append(FAILED);
+            buf.append(line, fields[f + 1], fields[f + 2]);
+            buf.append(FAILED);
+          }
+          else {
+            format.append(buf, x);
+            buf.append(line, fields[f + 1], fields[f + 2]);
+            format.append(buf, y);
+          }
+          buf.append(line, fields[f + 3], line.length());
+        }
+        buf.append('\n');
+      }
+      output = UTF8.encode(CharBuffer.wrap(buf));
+      lines = null;
+      return output;
+    }
+  }
+
+  /**
+   * Finds the first two fields of a line, and parses them as numbers.
+   *
+   * @return true if the line starts with two numbers
+   */
+  private static boolean parseLine(String line, int[] fields, int f, double[] coords, int c)
+  {
+    int len = line.length();
+    int i = skipSpace(line, 0);
+    if (i >= len || line.charAt(i) == '#')
+      return false;
+    int xStart = i;
+    int xEnd = fieldEnd(line, xStart);
+    i = skipSpace(line, xEnd);
+    if (i < len && line.charAt(i) == ',')
+      i = skipSpace(line, i + 1);
+    int yStart = i;
+    int yEnd = fieldEnd(line, yStart);
+    if (xEnd == xStart || yEnd == yStart)
+      return false;
+    try {
+      coords[c] = DoubleParser.parse(line, xStart, xEnd);
+      coords[c + 1] = DoubleParser.parse(line, yStart, yEnd);
+    }
+    catch (NumberFormatException ex) {
+      return false;
+    }
+    fields[f] = xStart;
+    fields[f + 1] = xEnd;
+    fields[f + 2] = yStart;
+    fields[f + 3] = yEnd;
+    return true;
+  }
+
+  private static int skipSpace(String line, int i)
+  {
+    int len = line.length();
+    while (i < len && Character.isWhitespace(line.charAt(i)))
+      i++;
+    return i;
+  }
+
+  private static int fieldEnd(String line, int i)
+  {
+    int len = line.length();
+    while (i < len) {
+      char c = line.charAt(i);
+      if (c == ',' || Character.isWhitespace(c))
+        break;
+      i++;
+    }
+    return i;
+  }
+}
@@ -0,0 +1,373 @@
+package org.osgeo.proj4j.cmd;
+
+import java.io.*;
+import java.util.*;
+
+import org.osgeo.proj4j.*;
+import org.osgeo.proj4j.io.*;
+
+/**
+ * A command-line application which replays logs of transformed points
+ * recorded by {@link RecordingCoordinateTransform}s.
+ * <p>
+ * Each point is transformed again, and its output is compared
+ * bit for bit with the recorded output.
+ * Points whose output differs, or which now fail (or no longer fail)
+ * to transform, are counted and reported for each CRS pair.
+ * <p>
+ * Optionally the log is then replayed a number of times as a benchmark,
+ * in the order the points were recorded,
+ * and the time per point is reported overall and for each CRS pair.
+ * The whole log is held in memory while it is replayed.
+ * <p>
+ * Usage:
+ * <pre>
+ *   TransformReplayCmd [-verbose] [-benchmark &lt;iterations&gt;] { &lt;log-file-name&gt; }
+ * </pre>
+ * The exit status is 1 if any point gave a different result.
+ */
+public class TransformReplayCmd
+{
+  public static void main(String args[])
+  {
+    TransformReplayCmd cmd = new TransformReplayCmd();
+    cmd.parseArgs(args);
+    try {
+      cmd.execute();
+    }
+    catch (Exception ex) {
+      ex.printStackTrace();
+      System.exit(2);
+    }
+    if (cmd.getDifferenceCount() > 0)
+      System.exit(1);
+  }
+
+  private static String usage()
+  {
+    return "Usage: TransformReplayCmd [-verbose] [-benchmark <iterations>] { <log-file-name> }";
+  }
+
+  // the number of differences printed for each pair, unless verbose
+  private static final int MAX_PRINTED = 10;
+
+  private List<String> filenames = new ArrayList<String>();
+  private boolean verbose = false;
+  private int benchmarkIterations = 0;
+  private PrintStream out = System.out;
+
+  private long count = 0;
+  private long diffCount = 0;
+
+  public TransformReplayCmd()
+  {
+  }
+
+  /**
+   * Sets the number of times the log is replayed as a benchmark.
+   *
+   * @param iterations the number of iterations (0 for none)
+   */
+  public void setBenchmarkIterations(int iterations)
+  {
+    benchmarkIterations = iterations;
+  }
+
+  /**
+   * Sets whether every difference is printed.
+   *
+   * @param verbose true if every difference is printed
+   */
+  public void setVerbose(boolean verbose)
+  {
+    this.verbose = verbose;
+  }
+
+  /**
+   * Sets the stream to which results are printed.
+   *
+   * @param out the output stream
+   */
+  public void setOutput(PrintStream out)
+  {
+    this.out = out;
+  }
+
+  /**
+   * Gets the number of points replayed.
+   */
+  public long getCount() { return count; }
+
+  /**
+   * Gets the number of points which gave a different result from the recorded one.
+   */
+  public long getDifferenceCount() { return diffCount; }
+
+  private void parseArgs(String[] args)
+  {
+    if (args.length <= 0) {
+      System.err.println(usage());
+      System.exit(1);
+    }
+    try {
+      parseFlags(args);
+    }
+    catch (IllegalArgumentException ex) {
+      System.err.println(ex.getMessage());
+      System.err.println(usage());
+      System.exit(1);
+    }
+  }
+
+  private void parseFlags(String[] args)
+  {
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (arg.startsWith("-")) {
+        if (arg.equalsIgnoreCase("-verbose")) {
+          verbose = true;
+        }
+        else if (arg.equalsIgnoreCase("-benchmark")) {
+          if (i + 1 >= args.length)
+            throw new IllegalArgumentException("Missing value for " + arg);
+          try {
+            benchmarkIterations = Integer.parseInt(args[++i]);
+          }
+          catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid value for " + arg + ": " + args[i]);
+          }
+        }
+        else {
+          throw new IllegalArgumentException("Unknown option: " + arg);
+        }
+      }
+      else {
+        filenames.add(arg);
+      }
+    }
+  }
+
+  private void execute()
+  throws IOException
+  {
+    for (String filename : filenames) {
+      execute(filename);
+    }
+  }
+
+  /**
+   * Replays a log file.
+   *
+   * @param filename the name of the log file
+   * @throws IOException if the log cannot be read
+   */
+  public void execute(String filename)
+  throws IOException
+  {
+    out.println("File: " + filename);
+    ReplayLog log = new ReplayLog();
+    TransformLogReader reader = new TransformLogReader(new FileInputStream(filename));
+    try {
+      log.read(reader);
+    }
+    finally {
+      reader.close();
+    }
+    compare(log);
+    if (benchmarkIterations > 0)
+      benchmark(log);
+    out.println();
+  }
+
+  private void compare(ReplayLog log)
+  {
+    int pairCount = log.transforms.length;
+    long[] pairCounts = new long[pairCount];
+    long[] pairDiffs = new long[pairCount];
+    double[] maxDelta = new double[pairCount];
+    ProjCoordinate src = new ProjCoordinate();
+    ProjCoordinate tgt = new ProjCoordinate();
+    for (int i = 0; i < log.size; i++) {
+      int pair = log.pairIds[i];
+      int k = 6 * i;
+      src.setValue(log.coords[k], log.coords[k + 1], log.coords[k + 2]);
+      boolean isFailed = false;
+      try {
+        log.transforms[pair].transform(src, tgt);
+      }
+      catch (Proj4jException ex) {
+        isFailed = true;
+      }
+      pairCounts[pair]++;
+
+      String diff = null;
+      if (isFailed != log.isFailed[i]) {
+        diff = isFailed ? "now fails" : "no longer fails";
+      }
+      else if (! isFailed && log.hasOutput[i]) {
+        if (! sameBits(tgt.x, log.coords[k + 3]) || ! sameBits(tgt.y, log.coords[k + 4])
+            || ! sameBits(tgt.z, log.coords[k + 5])) {
+          double delta = Math.max(Math.abs(tgt.x - log.coords[k + 3]), Math.abs(tgt.y - log.coords[k + 4]));
+          if (delta > maxDelta[pair] || Double.isNaN(delta))
+            maxDelta[pair] = delta;
+          diff = "output " + tgt + " was ProjCoordinate["
+            + log.coords[k + 3] + " " + log.coords[k + 4] + " " + log.coords[k + 5] + "]";
+        }
+      }
+      if (diff != null) {
+        pairDiffs[pair]++;
+        if (verbose || pairDiffs[pair] <= MAX_PRINTED)
+          out.println(log.names[pair] + ": point " + i + " "
+              + new ProjCoordinate(log.coords[k], log.coords[k + 1], log.coords[k + 2]) + " " + diff);
+      }
+    }
+
+    long total = 0;
+    long totalDiffs = 0;
+    for (int p = 0; p < pairCount; p++) {
+      total += pairCounts[p];
+      totalDiffs += pairDiffs[p];
+      out.println(log.names[p] + ": points: " + pairCounts[p] + ",  differences: " + pairDiffs[p]
+          + (pairDiffs[p] > 0 ? ",  max output difference: " + maxDelta[p] : ""));
+    }
+    out.println("Points: " + total + ",  Differences: " + totalDiffs);
+    count += total;
+    diffCount += totalDiffs;
+  }
+
+  private void benchmark(ReplayLog log)
+  {
+    int pairCount = log.transforms.length;
+    // the points of each pair, so that pairs can be timed separately
+    int[][] pairPoints = new int[pairCount][];
+    int[] pairSizes = new int[pairCount];
+    for (int i = 0; i < log.size; i++) {
+      pairSizes[log.pairIds[i]]++;
+    }
+    for (int p = 0; p < pairCount; p++) {
+      pairPoints[p] = new int[pairSizes[p]];
+      pairSizes[p] = 0;
+    }
+    for (int i = 0; i < log.size; i++) {
+      int p = log.pairIds[i];
+      pairPoints[p][pairSizes[p]++] = i;
+    }
+
+    ProjCoordinate src = new ProjCoordinate();
+    ProjCoordinate tgt = new ProjCoordinate();
+    long bestNanos = Long.MAX_VALUE;
+    long[] bestPairNanos = new long[pairCount];
+    Arrays.fill(bestPairNanos, Long.MAX_VALUE);
+    for (int iter = 0; iter < benchmarkIterations; iter++) {
+      long start = System.nanoTime();
+      for (int i = 0; i < log.size; i++) {
+        replay(log, i, src, tgt);
+      }
+      bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+
+      for (int p = 0; p < pairCount; p++) {
+        int[] points = pairPoints[p];
+        start = System.nanoTime();
+        for (int j = 0; j < points.length; j++) {
+          replay(log, points[j], src, tgt);
+        }
+        bestPairNanos[p] = Math.min(bestPairNanos[p], System.nanoTime() - start);
+      }
+    }
+
+    out.println("Benchmark (best of " + benchmarkIterations + " iterations):");
+    for (int p = 0; p < pairCount; p++) {
+      out.println(log.names[p] + ": " + formatNanosPerPoint(bestPairNanos[p], pairSizes[p]));
+    }
+    out.println("All points in recorded order: " + formatNanosPerPoint(bestNanos, log.size));
+  }
+
+  private static void replay(ReplayLog log, int i, ProjCoordinate src, ProjCoordinate tgt)
+  {
+    int k = 6 * i;
+    src.setValue(log.coords[k], log.coords[k + 1], log.coords[k + 2]);
+    try {
+      log.transforms[log.pairIds[i]].transform(src, tgt);
+    }
+    catch (Proj4jException ex) {
+      // failures are part of the recorded traffic
+    }
+  }
+
+  private static String formatNanosPerPoint(long nanos, int pointCount)
+  {
+    if (pointCount == 0)
+      return "no points";
+    return (Math.round(10.0 * nanos / pointCount) / 10.0) + " ns/point (" + pointCount + " points)";
+  }
+
+  private static boolean sameBits(double d1, double d2)
+  {
+    return Double.doubleToLongBits(d1) == Double.doubleToLongBits(d2);
+  }
+
+  /**
+   * The contents of a log, held in arrays
+   */
+  private static class ReplayLog
+  {
+    CoordinateTransform[] transforms;
+    String[] names;
+    int size = 0;
+    int[] pairIds = new int[1024];
+    // the input and recorded output ordinates of each point
+    double[] coords = new double[6 * 1024];
+    boolean[] isFailed = new boolean[1024];
+    boolean[] hasOutput = new boolean[1024];
+
+    void read(TransformLogReader reader)
+    throws IOException
+    {
+      ProjCoordinate p = new ProjCoordinate();
+      while (reader.next()) {
+        if (size == pairIds.length)
+          grow();
+        pairIds[size] = reader.getPairId();
+        reader.getInput(p);
+        coords[6 * size] = p.x;
+        coords[6 * size + 1] = p.y;
+        coords[6 * size + 2] = p.z;
+        reader.getOutput(p);
+        coords[6 * size + 3] = p.x;
+        coords[6 * size + 4] = p.y;
+        coords[6 * size + 5] = p.z;
+        isFailed[size] = reader.isFailed();
+        hasOutput[size] = reader.hasOutput();
+        size++;
+      }
+
+      CoordinateTransformFactory ctFactory = new CoordinateTransformFactory();
+      int pairCount = reader.getPairCount();
+      transforms = new CoordinateTransform[pairCount];
+      names = new String[pairCount];
+      for (int i = 0; i < pairCount; i++) {
+        CoordinateReferenceSystem srcCRS = reader.getSourceCRS(i);
+        CoordinateReferenceSystem tgtCRS = reader.getTargetCRS(i);
+        transforms[i] = ctFactory.createTransform(srcCRS, tgtCRS);
+        names[i] = srcCRS.getName() + " -> " + tgtCRS.getName();
+      }
+    }
+
+    private void grow()
+    {
+      int n = 2 * pairIds.length;
+      int[] newPairIds = new int[n];
+      System.arraycopy(pairIds, 0, newPairIds, 0, size);
+      pairIds = newPairIds;
+      double[] newCoords = new double[6 * n];
+      System.arraycopy(coords, 0, newCoords, 0, 6 * size);
+      coords = newCoords;
+      boolean[] newFailed = new boolean[n];
+      System.arraycopy(isFailed, 0, newFailed, 0, size);
+      isFailed = newFailed;
+      boolean[] newHasOutput = new boolean[n];
+      System.arraycopy(hasOutput, 0, newHasOutput, 0, size);
+      hasOutput = newHasOutput;
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package org.osgeo.proj4j.datum;
 
 import org.osgeo.proj4j.ProjCoordinate;
+import org.osgeo.proj4j.metrics.Metrics;
 import org.osgeo.proj4j.util.ProjectionMath;
 
 /**
@@ -209,6 +210,7 @@ public class GeocentricConverter
       SPHI0 = SPHI;
     }
     while (SDPHI*SDPHI > genau2 && iter < maxiter);
+    Metrics.reportSolve("geocentric", iter, maxiter, SDPHI*SDPHI <= genau2);
 
   	/*      ellipsoidal (geodetic) latitude */
     Latitude=Math.atan(SPHI/Math.abs(CPHI));
@@ -1,11 +1,23 @@
 package org.osgeo.proj4j.io;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.CharBuffer;
+
+import org.osgeo.proj4j.util.DoubleParser;
 
 /**
  * Parses a single record in a CSV file into an array of {@link String}s.
- * 
+ * <p>
+ * For high-volume input, a record can also be parsed
+ * directly from a <tt>char</tt> array or {@link CharBuffer}
+ * with {@link #parse(char[], int, int)} or {@link #parse(CharBuffer)}.
+ * This records the location of each field in the input,
+ * without creating any objects.
+ * The fields can then be accessed as numbers with {@link #getDouble(int)}
+ * (which does not create intermediate Strings),
+ * as Strings with {@link #getString(int)},
+ * or by their location with {@link #getFieldStart(int)} and {@link #getFieldLength(int)}.
+ * A parser can be reused for any number of records,
+ * but is not thread-safe.
  * 
  * @author Martin Davis
  *
@@ -24,7 +36,7 @@ public class CSVRecordParser
   private static final int STATE_SEEN_QUOTE = 4;
   private static final int STATE_AFTER = 5;
   
-  private static final String[] strArrayType = new String[0];
+  private static final int INITIAL_FIELD_CAPACITY = 32;
   
   private char quote = '"';
   private char separator = ',';
@@ -40,6 +52,18 @@ public class CSVRecordParser
    */
   private boolean isStrictMode = false;
   
+  // the record being parsed
+  private char[] chars;
+  private int base;
+  // holds the contents of CharBuffers which are not backed by an array
+  private char[] copyBuf = new char[0];
+
+  // the location of each field
+  private int fieldCount = 0;
+  private int[] fieldStart = new int[INITIAL_FIELD_CAPACITY];
+  private int[] fieldEnd = new int[INITIAL_FIELD_CAPACITY];
+  private boolean[] hasEscapedQuote = new boolean[INITIAL_FIELD_CAPACITY];
+
   /**
    * Creates a new parser.
    *
@@ -47,6 +71,17 @@ public class CSVRecordParser
   public CSVRecordParser() {
   }
 
+  /**
+   * Sets whether parsing strictly follows the CSV specification.
+   * The default is non-strict.
+   *
+   * @param isStrictMode true if parsing is strict
+   */
+  public void setStrictMode(boolean isStrictMode)
+  {
+    this.isStrictMode = isStrictMode;
+  }
+
   /**
    * Parses a single record of a CSV file.
    * 
@@ -56,24 +91,186 @@ public class CSVRecordParser
    */
   public String[] parse(String record)
   {
-    loc = 0;
-    List vals = new ArrayList();
-    int lineLen = record.length();
-    while (loc < lineLen) {
-      vals.add(parseField(record));
+    char[] recordChars = record.toCharArray();
+    int count = parse(recordChars, 0, recordChars.length);
+    String[] vals = new String[count];
+    for (int i = 0; i < count; i++) {
+      vals[i] = getString(i);
     }
-    return (String[]) vals.toArray(strArrayType);
+    return vals;
   }
   
-  private String parseField(String line)
+  /**
+   * Parses a single record of a CSV file held in a range of a <tt>char</tt> array.
+   * The locations of the fields are given as indexes in the array.
+   * The array must not be modified while the fields are being accessed.
+   *
+   * @param record the array containing the record
+   * @param start the index of the first character of the record
+   * @param end the index after the last character of the record
+   * @return the number of fields in the record
+   * @throws IllegalArgumentException if the parsing of a field fails
+   */
+  public int parse(char[] record, int start, int end)
+  {
+    chars = record;
+    base = 0;
+    fieldCount = 0;
+    loc = start;
+    while (loc < end) {
+      parseField(end);
+    }
+    return fieldCount;
+  }
+
+  /**
+   * Parses a single record of a CSV file held in the remaining characters of a buffer.
+   * The locations of the fields are given relative to the buffer position.
+   * The buffer position is not changed.
+   *
+   * @param record the buffer containing the record
+   * @return the number of fields in the record
+   * @throws IllegalArgumentException if the parsing of a field fails
+   */
+  public int parse(CharBuffer record)
+  {
+    int len = record.remaining();
+    if (record.hasArray()) {
+      int start = record.arrayOffset() + record.position();
+      parse(record.array(), start, start + len);
+      base = start;
+    }
+    else {
+      if (copyBuf.length < len)
+        copyBuf = new char[Math.max(len, 2 * copyBuf.length)];
+      record.duplicate().get(copyBuf, 0, len);
+      parse(copyBuf, 0, len);
+    }
+    return fieldCount;
+  }
+
+  /**
+   * Gets the number of fields in the last record parsed.
+   *
+   * @return the number of fields
+   */
+  public int getFieldCount()
+  {
+    return fieldCount;
+  }
+
+  /**
+   * Gets the location of the first character of a field in the last record parsed.
+   * For quoted fields, this is the first character inside the quotes.
+   *
+   * @param i the index of the field
+   * @return the location of the field, or -1 if the field is missing at the end of the record
+   */
+  public int getFieldStart(int i)
+  {
+    checkField(i);
+    if (fieldStart[i] < 0)
+      return -1;
+    return fieldStart[i] - base;
+  }
+
+  /**
+   * Gets the number of characters in a field of the last record parsed.
+   * For quoted fields, this excludes the enclosing quotes
+   * but includes both characters of any escaped (doubled) quotes.
+   *
+   * @param i the index of the field
+   * @return the length of the field, or -1 if the field is missing at the end of the record
+   */
+  public int getFieldLength(int i)
+  {
+    checkField(i);
+    if (fieldStart[i] < 0)
+      return -1;
+    return fieldEnd[i] - fieldStart[i];
+  }
+
+  /**
+   * Gets the value of a field of the last record parsed as a String.
+   *
+   * @param i the index of the field
+   * @return the value of the field, or null if the field is missing at the end of the record
+   */
+  public String getString(int i)
+  {
+    checkField(i);
+    int start = fieldStart[i];
+    if (start < 0)
+      return null;
+    if (! hasEscapedQuote[i])
+      return new String(chars, start, fieldEnd[i] - start);
+    StringBuffer data = new StringBuffer(fieldEnd[i] - start);
+    for (int j = start; j < fieldEnd[i]; j++) {
+      data.append(chars[j]);
+      // skip the second quote of an escaped pair
+      if (chars[j] == quote)
+        j++;
+    }
+    return data.toString();
+  }
+
+  /**
+   * Gets the value of a field of the last record parsed as a number,
+   * without creating a String.
+   *
+   * @param i the index of the field
+   * @return the value of the field, or NaN if the field is empty or missing
+   * @throws NumberFormatException if the field is not a valid number
+   */
+  public double getDouble(int i)
+  {
+    checkField(i);
+    int start = fieldStart[i];
+    int end = fieldEnd[i];
+    if (start < 0 || start == end)
+      return Double.NaN;
+    if (hasEscapedQuote[i])
+      return Double.parseDouble(getString(i));
+    return DoubleParser.parse(chars, start, end);
+  }
+
+  private void checkField(int i)
+  {
+    if (i < 0 || i >= fieldCount)
+      throw new IndexOutOfBoundsException("Field " + i + " of " + fieldCount);
+  }
+
+  private void addField(int start, int end, boolean isEscaped)
+  {
+    if (fieldCount == fieldStart.length) {
+      int[] newStart = new int[2 * fieldCount];
+      int[] newEnd = new int[2 * fieldCount];
+      boolean[] newEscaped = new boolean[2 * fieldCount];
+      System.arraycopy(fieldStart, 0, newStart, 0, fieldCount);
+      System.arraycopy(fieldEnd, 0, newEnd, 0, fieldCount);
+      System.arraycopy(hasEscapedQuote, 0, newEscaped, 0, fieldCount);
+      fieldStart = newStart;
+      fieldEnd = newEnd;
+      hasEscapedQuote = newEscaped;
+    }
+    fieldStart[fieldCount] = start;
+    fieldEnd[fieldCount] = end;
+    hasEscapedQuote[fieldCount] = isEscaped;
+    fieldCount++;
+  }
+
+  private void parseField(int end)
   {
-    StringBuffer data = new StringBuffer();
+    // the field contents are the characters from start to dataEnd
+    int start = loc;
+    int dataEnd = loc;
+    boolean isEscaped = false;
     
     int state = STATE_BEFORE;
     while (true) {
       int category = CH_EOL;
-      if (loc < line.length())
-        category = categorize(line.charAt(loc));
+      if (loc < end)
+        category = categorize(chars[loc]);
       
       switch (state) {
       case STATE_BEFORE:
@@ -83,38 +280,40 @@ public class CSVRecordParser
           break;
         case CH_QUOTE:
           loc++;
+          start = loc;
           state = STATE_QUOTED_DATA;
           break;
         case CH_SEPARATOR:
           loc++;
-          return "";
+          addField(loc, loc, false);
+          return;
         case CH_DATA:
-          data.append(line.charAt(loc));
+          start = loc;
           state = STATE_DATA;
           loc++;
           break;
         case CH_EOL:
-          return null;
+          addField(-1, -1, false);
+          return;
         }
         break;
       case STATE_DATA:
         switch (category) {
         case CH_SEPARATOR:
         case CH_EOL:
+          addField(start, loc, false);
           loc++;
-          return data.toString();
+          return;
         case CH_QUOTE:
           if (isStrictMode) {
             throw new IllegalArgumentException("Malformed field - quote not at beginning of field");
           }
           else {
-            data.append(line.charAt(loc));
             loc++;
           }
           break;
         case CH_WHITESPACE:
         case CH_DATA:
-          data.append(line.charAt(loc));
           loc++;
           break;
         }
@@ -122,32 +321,34 @@ public class CSVRecordParser
       case STATE_QUOTED_DATA:
         switch (category) {
         case CH_QUOTE:
+          dataEnd = loc;
           loc++;
           state = STATE_SEEN_QUOTE;
           break;
         case CH_SEPARATOR:
         case CH_WHITESPACE:
         case CH_DATA:
-          data.append(line.charAt(loc));
           loc++;
           break;
         case CH_EOL:
-          return data.toString();
+          addField(start, loc, isEscaped);
+          return;
         }
         break;
       case STATE_SEEN_QUOTE:
         switch (category) {
         case CH_QUOTE:
-          // double quote - add to value
+          // double quote - part of value
           loc++;
-          data.append('"');
+          isEscaped = true;
           state = STATE_QUOTED_DATA;
           break;
         case CH_SEPARATOR:
         case CH_EOL:
           // at end of field
+          addField(start, dataEnd, isEscaped);
           loc++;
-          return data.toString();
+          return;
         case CH_WHITESPACE:
           loc++;
           state = STATE_AFTER;
@@ -163,8 +364,9 @@ public class CSVRecordParser
         case CH_EOL:
         case CH_SEPARATOR:
           // at end of field
+          addField(start, dataEnd, isEscaped);
           loc++;
-          return data.toString();
+          return;
         case CH_WHITESPACE:
           // skip trailing whitespace
           loc++;
@@ -0,0 +1,91 @@
+package org.osgeo.proj4j.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.osgeo.proj4j.BatchCoordinateTransform;
+import org.osgeo.proj4j.CoordinateReferenceSystem;
+
+/**
+ * Transforms the chunks of a memory-mapped file,
+ * either in sequence or in parallel by a pool of threads.
+ * Each thread uses its own {@link BatchCoordinateTransform},
+ * since transforms are not thread-safe.
+ */
+final class ChunkRunner
+{
+  /**
+   * A part of a file which can be transformed independently of the others.
+   */
+  interface Chunk
+  {
+    void transform(BatchCoordinateTransform trans)
+    throws IOException;
+  }
+
+  private ChunkRunner()
+  {
+  }
+
+  /**
+   * Transforms a list of chunks, returning when all have been transformed.
+   *
+   * @param chunks the chunks to transform
+   * @param srcCRS the source CRS
+   * @param tgtCRS the target CRS
+   * @param threadCount the number of threads to use
+   * @throws IOException if a chunk cannot be transformed or the transform is interrupted
+   */
+  static void run(List<? extends Chunk> chunks,
+      final CoordinateReferenceSystem srcCRS, final CoordinateReferenceSystem tgtCRS, int threadCount)
+  throws IOException
+  {
+    if (threadCount <= 1 || chunks.size() <= 1) {
+      BatchCoordinateTransform trans = new BatchCoordinateTransform(srcCRS, tgtCRS);
+      for (Chunk chunk : chunks) {
+        chunk.transform(trans);
+      }
+      return;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    final ThreadLocal<BatchCoordinateTransform> transforms = new ThreadLocal<BatchCoordinateTransform>() {
+      protected BatchCoordinateTransform initialValue() {
+        return new BatchCoordinateTransform(srcCRS, tgtCRS);
+      }
+    };
+    try {
+      List<Future<Object>> results = new ArrayList<Future<Object>>();
+      for (final Chunk chunk : chunks) {
+        results.add(executor.submit(new Callable<Object>() {
+          public Object call() throws IOException {
+            chunk.transform(transforms.get());
+            return null;
+          }
+        }));
+      }
+      for (Future<Object> result : results) {
+        result.get();
+      }
+    }
+    catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Transform interrupted");
+    }
+    catch (ExecutionException ex) {
+      if (ex.getCause() instanceof IOException)
+        throw (IOException) ex.getCause();
+      throw new IOException("Transform failed: " + ex.getCause());
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+}
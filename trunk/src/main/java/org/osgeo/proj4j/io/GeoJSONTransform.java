@@ -0,0 +1,474 @@
+package org.osgeo.proj4j.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.osgeo.proj4j.BatchCoordinateTransform;
+import org.osgeo.proj4j.CoordinateReferenceSystem;
+import org.osgeo.proj4j.util.DoubleFormatter;
+import org.osgeo.proj4j.util.DoubleParser;
+
+/**
+ * Transforms the coordinates of a GeoJSON document as a stream,
+ * without building an object model of the document.
+ * <p>
+ * The input is scanned as UTF-8 bytes.
+ * The value of every <tt>coordinates</tt> member is rewritten
+ * by transforming the X and Y ordinates of each position;
+ * any further ordinates (e.g. elevation) and every other byte of the input
+ * (including whitespace, <tt>properties</tt>, <tt>bbox</tt> and <tt>crs</tt> members)
+ * are copied unchanged.
+ * <tt>coordinates</tt> members inside <tt>properties</tt> are not transformed.
+ * Positions which cannot be transformed are written with <tt>null</tt> ordinates.
+ * <p>
+ * Positions are transformed in batches using a {@link BatchCoordinateTransform},
+ * and numbers are parsed and formatted in fixed buffers,
+ * so memory use is constant regardless of the size of the document
+ * or of individual geometries,
+ * and no objects are created for each coordinate.
+ * <p>
+ * A transform can be reused for any number of documents,
+ * but is not thread-safe.
+ */
+public class GeoJSONTransform
+{
+  /**
+   * The default number of positions transformed in a batch
+   */
+  public static final int DEFAULT_BATCH_SIZE = 4096;
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  // the maximum length of a double written in plain notation (excluding decimals)
+  private static final int MAX_NUMBER_LENGTH = 320;
+
+  private static final int KEY_NONE = 0;
+  private static final int KEY_COORDINATES = 1;
+  private static final int KEY_PROPERTIES = 2;
+
+  private static final byte[] COORDINATES = toBytes("coordinates");
+  private static final byte[] PROPERTIES = toBytes("properties");
+  private static final byte[] NULL = toBytes("null");
+
+  private CoordinateReferenceSystem srcCRS;
+  private CoordinateReferenceSystem tgtCRS;
+  private int decimals = -1;
+  private int batchSize = DEFAULT_BATCH_SIZE;
+
+  private long pointCount = 0;
+  private long failCount = 0;
+
+  // the state of the document being transformed
+  private BatchCoordinateTransform trans;
+  private DoubleFormatter format;
+  private int formatDecimals;
+  private OutputStream out;
+  private byte[] inBuf;
+  private byte[] outBuf;
+  private int outLen;
+
+  private boolean inString;
+  private boolean isEscape;
+  private byte[] keyBuf = new byte[16];
+  // the length of the current string, or -1 if it cannot be a key of interest
+  private int keyLen;
+  // the key just read, until the following ':'
+  private int key;
+  // the key whose value is expected next
+  private int expected;
+  private int depth;
+  private int propertiesDepth;
+
+  // the state of the coordinates value being transformed
+  private boolean inCoords;
+  private int coordDepth;
+  private int elemIndex;
+  private int posOrdinates;
+  private char[] numBuf = new char[32];
+  private int numLen;
+  // the bytes of the coordinates value, excluding the X and Y ordinates
+  private byte[] pending;
+  private int pendingLen;
+  // the X and Y ordinates of the batch, and their locations in the pending bytes
+  private double[] coords;
+  private int[] insertAt;
+  private int ordinateCount;
+
+  /**
+   * Creates a GeoJSON transform from a source {@link CoordinateReferenceSystem}
+   * to a target one.
+   * Geographic coordinate systems should be in degrees
+   * (see {@link CoordinateReferenceSystem#createGeographic()}).
+   *
+   * @param srcCRS the source CRS
+   * @param tgtCRS the target CRS
+   */
+  public GeoJSONTransform(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS)
+  {
+    this.srcCRS = srcCRS;
+    this.tgtCRS = tgtCRS;
+  }
+
+  /**
+   * Sets the maximum number of decimal places written for transformed ordinates
+   * (trailing zeros are omitted).
+   * By default the shortest representation which reads back as the same
+   * <tt>double</tt> value is written.
+   *
+   * @param decimals the maximum number of decimal places, or -1 for the default
+   */
+  public void setDecimals(int decimals)
+  {
+    this.decimals = decimals;
+  }
+
+  /**
+   * Sets the number of positions transformed in a batch.
+   *
+   * @param batchSize the number of positions in a batch
+   */
+  public void setBatchSize(int batchSize)
+  {
+    this.batchSize = Math.max(1, batchSize);
+  }
+
+  /**
+   * Gets the number of positions read by the last transform.
+   */
+  public long getPointCount()
+  {
+    return pointCount;
+  }
+
+  /**
+   * Gets the number of positions which could not be transformed by the last transform.
+   */
+  public long getFailCount()
+  {
+    return failCount;
+  }
+
+  /**
+   * Transforms a GeoJSON document read from a stream,
+   * writing the result to an output stream.
+   * The streams are not closed.
+   *
+   * @param input the document to transform
+   * @param output the stream to write the transformed document to
+   * @return the number of positions which could not be transformed
+   * @throws IOException if an I/O error occurs or the coordinates are malformed
+   */
+  public long transform(InputStream input, OutputStream output)
+  throws IOException
+  {
+    start(output);
+    while (true) {
+      int n = input.read(inBuf);
+      if (n < 0) break;
+      for (int i = 0; i < n; i++) {
+        scan(inBuf[i]);
+      }
+    }
+    if (inCoords)
+      throw new IOException("Unexpected end of input in coordinates");
+    flushOutput();
+    output.flush();
+    out = null;
+    return failCount;
+  }
+
+  private void start(OutputStream output)
+  {
+    if (trans == null)
+      trans = new BatchCoordinateTransform(srcCRS, tgtCRS);
+    if (format == null || formatDecimals != decimals) {
+      format = decimals < 0 ? new DoubleFormatter() : new DoubleFormatter(decimals, false);
+      formatDecimals = decimals;
+    }
+    out = output;
+    if (outBuf == null) {
+      inBuf = new byte[BUFFER_SIZE];
+      outBuf = new byte[BUFFER_SIZE];
+      pending = new byte[BUFFER_SIZE];
+    }
+    if (coords == null || coords.length != 2 * batchSize) {
+      coords = new double[2 * batchSize];
+      insertAt = new int[2 * batchSize];
+    }
+    outLen = 0;
+    pendingLen = 0;
+    ordinateCount = 0;
+    numLen = 0;
+    inString = false;
+    isEscape = false;
+    key = KEY_NONE;
+    expected = KEY_NONE;
+    depth = 0;
+    propertiesDepth = -1;
+    inCoords = false;
+    pointCount = 0;
+    failCount = 0;
+  }
+
+  private void scan(byte b)
+  throws IOException
+  {
+    if (inString) {
+      scanString(b);
+      return;
+    }
+    if (numLen > 0) {
+      if (isNumberChar(b)) {
+        addNumberChar(b);
+        return;
+      }
+      endNumber();
+    }
+    if (b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+      put(b);
+      return;
+    }
+    if (inCoords) {
+      scanCoordinates(b);
+      return;
+    }
+
+    if (b == ':') {
+      if (propertiesDepth < 0)
+        expected = key;
+      key = KEY_NONE;
+      put(b);
+      return;
+    }
+    int expectedKey = expected;
+    key = KEY_NONE;
+    expected = KEY_NONE;
+    switch (b) {
+    case '"':
+      inString = true;
+      keyLen = 0;
+      break;
+    case '{':
+    case '[':
+      depth++;
+      if (expectedKey == KEY_PROPERTIES) {
+        propertiesDepth = depth;
+      }
+      else if (b == '[' && expectedKey == KEY_COORDINATES) {
+        inCoords = true;
+        coordDepth = 1;
+        elemIndex = 0;
+        posOrdinates = 0;
+      }
+      break;
+    case '}':
+    case ']':
+      if (depth == propertiesDepth)
+        propertiesDepth = -1;
+      depth--;
+      break;
+    }
+    put(b);
+  }
+
+  private void scanString(byte b)
+  throws IOException
+  {
+    put(b);
+    if (isEscape) {
+      isEscape = false;
+    }
+    else if (b == '\\') {
+      // keys containing escapes are not recognized
+      isEscape = true;
+      keyLen = -1;
+    }
+    else if (b == '"') {
+      inString = false;
+      key = KEY_NONE;
+      if (matchesKey(COORDINATES))
+        key = KEY_COORDINATES;
+      else if (matchesKey(PROPERTIES))
+        key = KEY_PROPERTIES;
+    }
+    else if (keyLen >= 0) {
+      if (keyLen < keyBuf.length)
+        keyBuf[keyLen++] = b;
+      else
+        keyLen = -1;
+    }
+  }
+
+  private boolean matchesKey(byte[] name)
+  {
+    if (keyLen != name.length)
+      return false;
+    for (int i = 0; i < keyLen; i++) {
+      if (keyBuf[i] != name[i])
+        return false;
+    }
+    return true;
+  }
+
+  private void scanCoordinates(byte b)
+  throws IOException
+  {
+    switch (b) {
+    case '[':
+      coordDepth++;
+      elemIndex = 0;
+      posOrdinates = 0;
+      put(b);
+      break;
+    case ']':
+      if (posOrdinates == 1)
+        throw new IOException("Position has only one ordinate");
+      // any numbers following a nested array are copied
+      posOrdinates = 2;
+      put(b);
+      coordDepth--;
+      if (coordDepth == 0) {
+        flushBatch();
+        inCoords = false;
+        depth--;
+      }
+      break;
+    case ',':
+      elemIndex++;
+      put(b);
+      break;
+    case '"':
+    case '{':
+      throw new IOException("Invalid coordinates");
+    default:
+      if (b == '-' || (b >= '0' && b <= '9'))
+        addNumberChar(b);
+      else
+        put(b);
+    }
+  }
+
+  private static boolean isNumberChar(byte b)
+  {
+    return (b >= '0' && b <= '9') || b == '.' || b == '-' || b == '+' || b == 'e' || b == 'E';
+  }
+
+  private void addNumberChar(byte b)
+  {
+    if (numLen == numBuf.length) {
+      char[] newBuf = new char[2 * numLen];
+      System.arraycopy(numBuf, 0, newBuf, 0, numLen);
+      numBuf = newBuf;
+    }
+    numBuf[numLen++] = (char) b;
+  }
+
+  private void endNumber()
+  throws IOException
+  {
+    boolean isOrdinate = posOrdinates < 2 && elemIndex == posOrdinates;
+    if (isOrdinate) {
+      double value;
+      try {
+        value = DoubleParser.parse(numBuf, 0, numLen);
+      }
+      catch (NumberFormatException ex) {
+        throw new IOException("Invalid number: " + new String(numBuf, 0, numLen));
+      }
+      insertAt[ordinateCount] = pendingLen;
+      coords[ordinateCount++] = value;
+      posOrdinates++;
+    }
+    else {
+      for (int i = 0; i < numLen; i++) {
+        put((byte) numBuf[i]);
+      }
+    }
+    numLen = 0;
+    if (isOrdinate && posOrdinates == 2 && ordinateCount == coords.length)
+      flushBatch();
+  }
+
+  /**
+   * Transforms the buffered positions,
+   * and writes them together with the pending bytes of the coordinates.
+   */
+  private void flushBatch()
+  throws IOException
+  {
+    int count = ordinateCount / 2;
+    failCount += trans.transform(coords, count);
+    pointCount += count;
+
+    int start = 0;
+    for (int i = 0; i < ordinateCount; i++) {
+      write(pending, start, insertAt[i] - start);
+      start = insertAt[i];
+      writeNumber(coords[i]);
+    }
+    write(pending, start, pendingLen - start);
+    pendingLen = 0;
+    ordinateCount = 0;
+  }
+
+  private void put(byte b)
+  throws IOException
+  {
+    if (inCoords) {
+      if (pendingLen == pending.length) {
+        byte[] newPending = new byte[2 * pendingLen];
+        System.arraycopy(pending, 0, newPending, 0, pendingLen);
+        pending = newPending;
+      }
+      pending[pendingLen++] = b;
+    }
+    else {
+      if (outLen == outBuf.length)
+        flushOutput();
+      outBuf[outLen++] = b;
+    }
+  }
+
+  private void write(byte[] b, int off, int len)
+  throws IOException
+  {
+    if (outLen + len > outBuf.length) {
+      flushOutput();
+      if (len > outBuf.length) {
+        out.write(b, off, len);
+        return;
+      }
+    }
+    System.arraycopy(b, off, outBuf, outLen, len);
+    outLen += len;
+  }
+
+  private void writeNumber(double value)
+  throws IOException
+  {
+    if (Double.isNaN(value)) {
+      write(NULL, 0, NULL.length);
+      return;
+    }
+    if (outLen + MAX_NUMBER_LENGTH + Math.max(decimals, 0) > outBuf.length)
+      flushOutput();
+    outLen = format.write(outBuf, outLen, value);
+  }
+
+  private void flushOutput()
+  throws IOException
+  {
+    out.write(outBuf, 0, outLen);
+    outLen = 0;
+  }
+
+  private static byte[] toBytes(String s)
+  {
+    byte[] b = new byte[s.length()];
+    for (int i = 0; i < b.length; i++) {
+      b[i] = (byte) s.charAt(i);
+    }
+    return b;
+  }
+}
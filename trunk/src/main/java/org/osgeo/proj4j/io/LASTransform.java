@@ -0,0 +1,490 @@
+package org.osgeo.proj4j.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.osgeo.proj4j.BatchCoordinateTransform;
+import org.osgeo.proj4j.CoordinateReferenceSystem;
+import org.osgeo.proj4j.proj.LongLatProjection;
+
+/**
+ * Transforms the points of an ASPRS LAS point cloud file using memory-mapped I/O.
+ * <p>
+ * LAS files store X, Y and Z as 32-bit integers,
+ * which are scaled and offset by values given in the file header.
+ * The X and Y integers of every point are decoded directly into batches,
+ * transformed, and re-quantized with a new scale and offset,
+ * which are written to the header together with the new X and Y bounds.
+ * Z values and all other point attributes are left unchanged.
+ * All point data record formats (0 to 10) of LAS versions 1.0 to 1.4 are supported;
+ * compressed (LAZ) files are not.
+ * <p>
+ * Points which cannot be transformed (or whose transformed coordinates
+ * cannot be represented with the new scale and offset)
+ * are marked as withheld, and placed at the coordinate offset.
+ * They are not included in the bounds.
+ * <p>
+ * The point data is mapped with {@link FileChannel#map} in chunks,
+ * which can be transformed by several threads.
+ * When writing to a new file, the input is first copied to it.
+ * The coordinate system description in the variable length records
+ * is not changed.
+ */
+public class LASTransform
+{
+  /**
+   * The default size of the chunks mapped and transformed, in bytes
+   */
+  public static final int DEFAULT_CHUNK_SIZE = 1 << 24;
+
+  /**
+   * The default scale for geographic coordinates (about 1 centimetre)
+   */
+  public static final double DEFAULT_GEOGRAPHIC_SCALE = 1e-7;
+
+  /**
+   * The default scale for projected coordinates transformed from geographic ones
+   */
+  public static final double DEFAULT_PROJECTED_SCALE = 0.001;
+
+  private static final int BATCH_SIZE = 4096;
+
+  // header field locations
+  private static final int VERSION_MINOR = 25;
+  private static final int HEADER_SIZE = 94;
+  private static final int POINT_DATA_OFFSET = 96;
+  private static final int POINT_FORMAT = 104;
+  private static final int POINT_RECORD_LENGTH = 105;
+  private static final int LEGACY_POINT_COUNT = 107;
+  private static final int SCALE = 131;
+  private static final int OFFSET = 155;
+  private static final int BOUNDS = 179;
+  private static final int POINT_COUNT = 247;
+  private static final int HEADER_FIELDS_END = 227;
+
+  private CoordinateReferenceSystem srcCRS;
+  private CoordinateReferenceSystem tgtCRS;
+  private double scale = Double.NaN;
+  private double offsetX = Double.NaN;
+  private double offsetY = Double.NaN;
+  private int threadCount = 1;
+  private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+  private long pointCount = 0;
+  private long failCount = 0;
+
+  /**
+   * Creates a LAS transform from a source {@link CoordinateReferenceSystem}
+   * to a target one.
+   * Geographic coordinate systems should be in degrees
+   * (see {@link CoordinateReferenceSystem#createGeographic()}).
+   *
+   * @param srcCRS the source CRS
+   * @param tgtCRS the target CRS
+   */
+  public LASTransform(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS)
+  {
+    this.srcCRS = srcCRS;
+    this.tgtCRS = tgtCRS;
+  }
+
+  /**
+   * Sets the scale of the transformed X and Y integers.
+   * By default this is {@link #DEFAULT_GEOGRAPHIC_SCALE} for a geographic target,
+   * {@link #DEFAULT_PROJECTED_SCALE} for a projected target with a geographic source,
+   * and otherwise the scale of the input file.
+   *
+   * @param scale the scale for X and Y
+   */
+  public void setScale(double scale)
+  {
+    this.scale = scale;
+  }
+
+  /**
+   * Sets the offset of the transformed X and Y integers.
+   * By default the offset is computed from the transformed header bounds.
+   *
+   * @param offsetX the X offset
+   * @param offsetY the Y offset
+   */
+  public void setOffset(double offsetX, double offsetY)
+  {
+    this.offsetX = offsetX;
+    this.offsetY = offsetY;
+  }
+
+  /**
+   * Sets the number of threads used to transform chunks.
+   *
+   * @param threadCount the number of threads (if &lt;= 0, the number of available processors is used)
+   */
+  public void setThreadCount(int threadCount)
+  {
+    if (threadCount <= 0)
+      threadCount = Runtime.getRuntime().availableProcessors();
+    this.threadCount = threadCount;
+  }
+
+  /**
+   * Sets the approximate size of the chunks which are mapped and transformed.
+   * A chunk always holds whole points.
+   *
+   * @param chunkSize the chunk size in bytes
+   */
+  public void setChunkSize(int chunkSize)
+  {
+    this.chunkSize = Math.max(1, chunkSize);
+  }
+
+  /**
+   * Gets the number of points read by the last transform.
+   */
+  public long getPointCount()
+  {
+    return pointCount;
+  }
+
+  /**
+   * Gets the number of points which could not be transformed by the last transform.
+   */
+  public long getFailCount()
+  {
+    return failCount;
+  }
+
+  /**
+   * Transforms a LAS file in place.
+   *
+   * @param file the file to transform
+   * @return the number of points which could not be transformed
+   * @throws IOException if an I/O error occurs or the file is not a supported LAS file
+   */
+  public long transform(File file)
+  throws IOException
+  {
+    return transform(file, file);
+  }
+
+  /**
+   * Transforms a LAS file, writing it to another file.
+   * The output file is created or overwritten.
+   * If the files are the same, the file is transformed in place.
+   *
+   * @param input the file to read
+   * @param output the file to write
+   * @return the number of points which could not be transformed
+   * @throws IOException if an I/O error occurs or the file is not a supported LAS file
+   */
+  public long transform(File input, File output)
+  throws IOException
+  {
+    if (! input.getCanonicalFile().equals(output.getCanonicalFile()))
+      copy(input, output);
+    RandomAccessFile file = new RandomAccessFile(output, "rw");
+    try {
+      FileChannel channel = file.getChannel();
+      Header header = new Header(channel);
+      Header target = header.createTarget();
+      pointCount = header.pointCount;
+      double[] bounds = transform(channel, header, target);
+      if (! Double.isNaN(bounds[0]))
+        target.setBounds(bounds);
+      else
+        target.setBounds(new double[] { target.offsetX, target.offsetY, target.offsetX, target.offsetY });
+      target.write(channel);
+      return failCount;
+    }
+    finally {
+      file.close();
+    }
+  }
+
+  private static void copy(File src, File dest)
+  throws IOException
+  {
+    RandomAccessFile in = new RandomAccessFile(src, "r");
+    RandomAccessFile out = new RandomAccessFile(dest, "rw");
+    try {
+      FileChannel inChannel = in.getChannel();
+      FileChannel outChannel = out.getChannel();
+      long size = inChannel.size();
+      out.setLength(size);
+      long pos = 0;
+      while (pos < size) {
+        pos += inChannel.transferTo(pos, size - pos, outChannel);
+      }
+    }
+    finally {
+      in.close();
+      out.close();
+    }
+  }
+
+  private double[] transform(FileChannel channel, final Header header, final Header target)
+  throws IOException
+  {
+    long length = header.pointCount * header.recordLength;
+    if (header.pointOffset + length > channel.size())
+      throw new IOException("LAS file is shorter than its point count");
+    long chunkBytes = Math.max(1, chunkSize / header.recordLength) * header.recordLength;
+
+    List<Chunk> chunks = new ArrayList<Chunk>();
+    for (long pos = 0; pos < length; pos += chunkBytes) {
+      chunks.add(new Chunk(channel, header, target,
+          header.pointOffset + pos, Math.min(chunkBytes, length - pos)));
+    }
+
+    ChunkRunner.run(chunks, srcCRS, tgtCRS, threadCount);
+    return combine(chunks);
+  }
+
+  private double[] combine(List<Chunk> chunks)
+  {
+    double[] bounds = { Double.NaN, Double.NaN, Double.NaN, Double.NaN };
+    failCount = 0;
+    for (Chunk chunk : chunks) {
+      failCount += chunk.failCount;
+      if (chunk.minX > chunk.maxX)
+        continue;
+      if (Double.isNaN(bounds[0])) {
+        bounds[0] = chunk.minX;
+        bounds[1] = chunk.minY;
+        bounds[2] = chunk.maxX;
+        bounds[3] = chunk.maxY;
+      }
+      else {
+        bounds[0] = Math.min(bounds[0], chunk.minX);
+        bounds[1] = Math.min(bounds[1], chunk.minY);
+        bounds[2] = Math.max(bounds[2], chunk.maxX);
+        bounds[3] = Math.max(bounds[3], chunk.maxY);
+      }
+    }
+    return bounds;
+  }
+
+  /**
+   * The fields of a LAS file header which describe the point data.
+   */
+  private class Header
+  {
+    ByteBuffer fields;
+    long pointOffset;
+    int recordLength;
+    int withheldByte;
+    int withheldMask;
+    long pointCount;
+    double scaleX, scaleY;
+    double offsetX, offsetY;
+
+    Header(FileChannel channel)
+    throws IOException
+    {
+      ByteBuffer buf = ByteBuffer.allocate(POINT_COUNT + 8).order(ByteOrder.LITTLE_ENDIAN);
+      while (buf.hasRemaining()) {
+        if (channel.read(buf, buf.position()) < 0)
+          break;
+      }
+      if (buf.position() < HEADER_FIELDS_END
+          || buf.get(0) != 'L' || buf.get(1) != 'A' || buf.get(2) != 'S' || buf.get(3) != 'F')
+        throw new IOException("Not a LAS file");
+      int headerSize = buf.getShort(HEADER_SIZE) & 0xffff;
+      pointOffset = buf.getInt(POINT_DATA_OFFSET) & 0xffffffffL;
+      int format = buf.get(POINT_FORMAT) & 0xff;
+      if ((format & 0xc0) != 0)
+        throw new IOException("Compressed LAS files are not supported");
+      if (format > 10)
+        throw new IOException("Unsupported LAS point format " + format);
+      recordLength = buf.getShort(POINT_RECORD_LENGTH) & 0xffff;
+      // the withheld flag is in the classification byte for formats 0-5,
+      // and in the classification flags for formats 6-10
+      withheldByte = 15;
+      withheldMask = format < 6 ? 0x80 : 0x04;
+      if (recordLength < 16)
+        throw new IOException("Invalid LAS point record length " + recordLength);
+      pointCount = buf.getInt(LEGACY_POINT_COUNT) & 0xffffffffL;
+      if (buf.get(VERSION_MINOR) >= 4 && headerSize >= POINT_COUNT + 8 && buf.position() >= POINT_COUNT + 8)
+        pointCount = buf.getLong(POINT_COUNT);
+      scaleX = buf.getDouble(SCALE);
+      scaleY = buf.getDouble(SCALE + 8);
+      offsetX = buf.getDouble(OFFSET);
+      offsetY = buf.getDouble(OFFSET + 8);
+      if (scaleX == 0 || scaleY == 0)
+        throw new IOException("Invalid LAS scale");
+      buf.limit(HEADER_FIELDS_END);
+      fields = buf;
+    }
+
+    private Header(Header header)
+    {
+      fields = header.fields;
+      pointOffset = header.pointOffset;
+      recordLength = header.recordLength;
+      withheldByte = header.withheldByte;
+      withheldMask = header.withheldMask;
+      pointCount = header.pointCount;
+    }
+
+    /**
+     * Creates the header for the transformed points,
+     * with the new scale and offset.
+     */
+    Header createTarget()
+    {
+      Header target = new Header(this);
+      double newScale = scale;
+      if (Double.isNaN(newScale)) {
+        if (tgtCRS.getProjection() instanceof LongLatProjection)
+          newScale = DEFAULT_GEOGRAPHIC_SCALE;
+        else if (srcCRS.getProjection() instanceof LongLatProjection)
+          newScale = DEFAULT_PROJECTED_SCALE;
+        else
+          newScale = scaleX;
+      }
+      target.scaleX = newScale;
+      target.scaleY = newScale;
+      target.offsetX = LASTransform.this.offsetX;
+      target.offsetY = LASTransform.this.offsetY;
+      if (Double.isNaN(target.offsetX) || Double.isNaN(target.offsetY)) {
+        double[] center = transformedCenter();
+        target.offsetX = Math.floor(center[0]);
+        target.offsetY = Math.floor(center[1]);
+      }
+      return target;
+    }
+
+    /**
+     * Estimates the center of the transformed points
+     * from a grid of points over the header bounds.
+     */
+    private double[] transformedCenter()
+    {
+      double maxX = fields.getDouble(BOUNDS);
+      double minX = fields.getDouble(BOUNDS + 8);
+      double maxY = fields.getDouble(BOUNDS + 16);
+      double minY = fields.getDouble(BOUNDS + 24);
+      int n = 5;
+      double[] grid = new double[2 * n * n];
+      for (int i = 0; i < n; i++) {
+        for (int j = 0; j < n; j++) {
+          grid[2 * (i * n + j)] = minX + (maxX - minX) * i / (n - 1);
+          grid[2 * (i * n + j) + 1] = minY + (maxY - minY) * j / (n - 1);
+        }
+      }
+      new BatchCoordinateTransform(srcCRS, tgtCRS).transform(grid, n * n);
+      double loX = Double.POSITIVE_INFINITY, hiX = Double.NEGATIVE_INFINITY;
+      double loY = Double.POSITIVE_INFINITY, hiY = Double.NEGATIVE_INFINITY;
+      for (int i = 0; i < grid.length; i += 2) {
+        if (Double.isNaN(grid[i]))
+          continue;
+        loX = Math.min(loX, grid[i]);
+        hiX = Math.max(hiX, grid[i]);
+        loY = Math.min(loY, grid[i + 1]);
+        hiY = Math.max(hiY, grid[i + 1]);
+      }
+      if (loX > hiX)
+        return new double[] { 0, 0 };
+      return new double[] { (loX + hiX) / 2, (loY + hiY) / 2 };
+    }
+
+    void setBounds(double[] bounds)
+    {
+      fields.putDouble(BOUNDS, bounds[2]);
+      fields.putDouble(BOUNDS + 8, bounds[0]);
+      fields.putDouble(BOUNDS + 16, bounds[3]);
+      fields.putDouble(BOUNDS + 24, bounds[1]);
+    }
+
+    void write(FileChannel channel)
+    throws IOException
+    {
+      fields.putDouble(SCALE, scaleX);
+      fields.putDouble(SCALE + 8, scaleY);
+      fields.putDouble(OFFSET, offsetX);
+      fields.putDouble(OFFSET + 8, offsetY);
+      ByteBuffer buf = fields.duplicate();
+      buf.position(SCALE);
+      buf.limit(HEADER_FIELDS_END);
+      while (buf.hasRemaining()) {
+        channel.write(buf, buf.position());
+      }
+    }
+  }
+
+  /**
+   * A region of the point data, transformed in a mapping of the file.
+   */
+  private static class Chunk implements ChunkRunner.Chunk
+  {
+    private FileChannel channel;
+    private Header header;
+    private Header target;
+    private long position;
+    private long size;
+
+    long failCount = 0;
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+
+    Chunk(FileChannel channel, Header header, Header target, long position, long size)
+    {
+      this.channel = channel;
+      this.header = header;
+      this.target = target;
+      this.position = position;
+      this.size = size;
+    }
+
+    public void transform(BatchCoordinateTransform trans)
+    throws IOException
+    {
+      MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+      buf.order(ByteOrder.LITTLE_ENDIAN);
+      int recordLength = header.recordLength;
+      int n = (int) (size / recordLength);
+      double[] coords = new double[2 * Math.min(n, BATCH_SIZE)];
+      for (int done = 0; done < n; done += BATCH_SIZE) {
+        int count = Math.min(BATCH_SIZE, n - done);
+        int pos = done * recordLength;
+        for (int i = 0; i < count; i++, pos += recordLength) {
+          coords[2 * i] = buf.getInt(pos) * header.scaleX + header.offsetX;
+          coords[2 * i + 1] = buf.getInt(pos + 4) * header.scaleY + header.offsetY;
+        }
+        trans.transform(coords, count);
+        pos = done * recordLength;
+        for (int i = 0; i < count; i++, pos += recordLength) {
+          double qx = Math.rint((coords[2 * i] - target.offsetX) / target.scaleX);
+          double qy = Math.rint((coords[2 * i + 1] - target.offsetY) / target.scaleY);
+          // NaN values fail these comparisons
+          if (qx >= Integer.MIN_VALUE && qx <= Integer.MAX_VALUE
+              && qy >= Integer.MIN_VALUE && qy <= Integer.MAX_VALUE) {
+            buf.putInt(pos, (int) qx);
+            buf.putInt(pos + 4, (int) qy);
+            double x = qx * target.scaleX + target.offsetX;
+            double y = qy * target.scaleY + target.offsetY;
+            if (x < minX) minX = x;
+            if (x > maxX) maxX = x;
+            if (y < minY) minY = y;
+            if (y > maxY) maxY = y;
+          }
+          else {
+            failCount++;
+            buf.putInt(pos, 0);
+            buf.putInt(pos + 4, 0);
+            int flags = pos + header.withheldByte;
+            buf.put(flags, (byte) (buf.get(flags) | header.withheldMask));
+          }
+        }
+      }
+    }
+  }
+}
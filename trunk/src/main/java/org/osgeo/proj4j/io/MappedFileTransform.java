@@ -0,0 +1,256 @@
+package org.osgeo.proj4j.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.osgeo.proj4j.BatchCoordinateTransform;
+import org.osgeo.proj4j.CoordinateReferenceSystem;
+
+/**
+ * Transforms files of binary coordinates using memory-mapped I/O.
+ * A file holds a flat sequence of little-endian <tt>double</tt>
+ * (or <tt>float</tt>) values, with a fixed number of ordinates per point
+ * (e.g. <tt>x0, y0, x1, y1, ...</tt>).
+ * Only the X and Y ordinates are transformed;
+ * any further ordinates are copied unchanged.
+ * Points which cannot be transformed are written as <tt>NaN</tt>.
+ * <p>
+ * The files are mapped with {@link FileChannel#map} in chunks,
+ * and each chunk is transformed directly in the mapped memory,
+ * either in place or into a mapping of the output file.
+ * No coordinates are copied to the heap,
+ * so files of any size can be transformed at close to disk bandwidth.
+ * Chunks can be transformed by several threads.
+ *
+ * @see BatchCoordinateTransform
+ */
+public class MappedFileTransform
+{
+  /**
+   * The default size of the chunks mapped and transformed, in bytes
+   */
+  public static final int DEFAULT_CHUNK_SIZE = 1 << 24;
+
+  // chunks are a whole number of pages
+  private static final int PAGE_SIZE = 4096;
+
+  private CoordinateReferenceSystem srcCRS;
+  private CoordinateReferenceSystem tgtCRS;
+  private int dimension = 2;
+  private boolean isFloat = false;
+  private int threadCount = 1;
+  private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+  private long pointCount = 0;
+  private long failCount = 0;
+
+  /**
+   * Creates a file transform from a source {@link CoordinateReferenceSystem}
+   * to a target one.
+   *
+   * @param srcCRS the source CRS
+   * @param tgtCRS the target CRS
+   */
+  public MappedFileTransform(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS)
+  {
+    this.srcCRS = srcCRS;
+    this.tgtCRS = tgtCRS;
+  }
+
+  /**
+   * Sets the number of ordinates stored for each point.
+   * The default is 2.
+   *
+   * @param dimension the number of ordinates per point (at least 2)
+   */
+  public void setDimension(int dimension)
+  {
+    if (dimension < 2)
+      throw new IllegalArgumentException("Dimension must be at least 2: " + dimension);
+    this.dimension = dimension;
+  }
+
+  /**
+   * Sets whether ordinates are stored as <tt>float</tt> values
+   * rather than <tt>double</tt> values.
+   *
+   * @param isFloat true if ordinates are single precision
+   */
+  public void setFloat(boolean isFloat)
+  {
+    this.isFloat = isFloat;
+  }
+
+  /**
+   * Sets the number of threads used to transform chunks.
+   *
+   * @param threadCount the number of threads (if &lt;= 0, the number of available processors is used)
+   */
+  public void setThreadCount(int threadCount)
+  {
+    if (threadCount <= 0)
+      threadCount = Runtime.getRuntime().availableProcessors();
+    this.threadCount = threadCount;
+  }
+
+  /**
+   * Sets the size of the chunks which are mapped and transformed.
+   * The size is rounded to a whole number of pages.
+   *
+   * @param chunkSize the chunk size in bytes
+   */
+  public void setChunkSize(int chunkSize)
+  {
+    this.chunkSize = Math.max(PAGE_SIZE, chunkSize - chunkSize % PAGE_SIZE);
+  }
+
+  /**
+   * Gets the number of points read by the last transform.
+   */
+  public long getPointCount()
+  {
+    return pointCount;
+  }
+
+  /**
+   * Gets the number of points which could not be transformed by the last transform.
+   */
+  public long getFailCount()
+  {
+    return failCount;
+  }
+
+  /**
+   * Transforms the points in a file in place.
+   *
+   * @param file the file to transform
+   * @return the number of points which could not be transformed
+   * @throws IOException if an I/O error occurs or the file size is not a whole number of points
+   */
+  public long transform(File file)
+  throws IOException
+  {
+    return transform(file, file);
+  }
+
+  /**
+   * Transforms the points in a file, writing them to another file.
+   * The output file is created or overwritten.
+   * If the files are the same, the points are transformed in place.
+   *
+   * @param input the file to read
+   * @param output the file to write
+   * @return the number of points which could not be transformed
+   * @throws IOException if an I/O error occurs or the input size is not a whole number of points
+   */
+  public long transform(File input, File output)
+  throws IOException
+  {
+    boolean inPlace = input.getCanonicalFile().equals(output.getCanonicalFile());
+    RandomAccessFile in = new RandomAccessFile(input, inPlace ? "rw" : "r");
+    RandomAccessFile out = null;
+    try {
+      long length = in.length();
+      int pointSize = dimension * (isFloat ? 4 : 8);
+      if (length % pointSize != 0)
+        throw new IOException("File size " + length + " of " + input
+            + " is not a multiple of the point size " + pointSize);
+      FileChannel inChannel = in.getChannel();
+      FileChannel outChannel = inChannel;
+      if (! inPlace) {
+        out = new RandomAccessFile(output, "rw");
+        out.setLength(length);
+        outChannel = out.getChannel();
+      }
+      pointCount = length / pointSize;
+      failCount = transform(inChannel, outChannel, length, pointSize, inPlace);
+      return failCount;
+    }
+    finally {
+      in.close();
+      if (out != null)
+        out.close();
+    }
+  }
+
+  private long transform(FileChannel inChannel, FileChannel outChannel,
+      long length, int pointSize, boolean inPlace)
+  throws IOException
+  {
+    // chunks hold whole points and start on page boundaries,
+    // so they are a multiple of the least common multiple of the point and page sizes
+    long unit = (long) pointSize * PAGE_SIZE / gcd(pointSize, PAGE_SIZE);
+    long chunkBytes = Math.max(1, chunkSize / unit) * unit;
+
+    List<Chunk> chunks = new ArrayList<Chunk>();
+    for (long pos = 0; pos < length; pos += chunkBytes) {
+      chunks.add(new Chunk(inChannel, outChannel, pos, Math.min(chunkBytes, length - pos), inPlace));
+    }
+
+    ChunkRunner.run(chunks, srcCRS, tgtCRS, threadCount);
+    long fails = 0;
+    for (Chunk chunk : chunks) {
+      fails += chunk.failCount;
+    }
+    return fails;
+  }
+
+  private static int gcd(int a, int b)
+  {
+    while (b != 0) {
+      int r = a % b;
+      a = b;
+      b = r;
+    }
+    return a;
+  }
+
+  /**
+   * A region of the input file, transformed into the same region of the output file.
+   */
+  private class Chunk implements ChunkRunner.Chunk
+  {
+    private FileChannel inChannel;
+    private FileChannel outChannel;
+    private long position;
+    private long size;
+    private boolean inPlace;
+
+    int failCount = 0;
+
+    Chunk(FileChannel inChannel, FileChannel outChannel, long position, long size, boolean inPlace)
+    {
+      this.inChannel = inChannel;
+      this.outChannel = outChannel;
+      this.position = position;
+      this.size = size;
+      this.inPlace = inPlace;
+    }
+
+    public void transform(BatchCoordinateTransform trans)
+    throws IOException
+    {
+      MappedByteBuffer src = inChannel.map(
+          inPlace ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, position, size);
+      MappedByteBuffer tgt = inPlace ? src : outChannel.map(FileChannel.MapMode.READ_WRITE, position, size);
+      src.order(ByteOrder.LITTLE_ENDIAN);
+      tgt.order(ByteOrder.LITTLE_ENDIAN);
+      int count = (int) (size / (dimension * (isFloat ? 4 : 8)));
+      if (isFloat) {
+        FloatBuffer srcFloats = src.asFloatBuffer();
+        failCount = trans.transform(srcFloats, inPlace ? srcFloats : tgt.asFloatBuffer(), count, dimension);
+        return;
+      }
+      DoubleBuffer srcDoubles = src.asDoubleBuffer();
+      failCount = trans.transform(srcDoubles, inPlace ? srcDoubles : tgt.asDoubleBuffer(), count, dimension);
+    }
+  }
+}
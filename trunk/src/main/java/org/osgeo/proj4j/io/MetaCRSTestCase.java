@@ -45,6 +45,10 @@ public class MetaCRSTestCase
   private boolean isInTol;
   private CRSCache crsCache = null;
   
+  private int lineNumber = 0;
+  private long createNanos = 0;
+  private long transformNanos = 0;
+  
   public MetaCRSTestCase(
       String testName,
       String testMethod,
@@ -118,12 +122,52 @@ public class MetaCRSTestCase
     this.crsCache = crsCache;
   }
   
+  public void setLineNumber(int lineNumber) { this.lineNumber = lineNumber; }
+  
+  /**
+   * Gets the line number of the test in the file it was read from.
+   * 
+   * @return the line number, or 0 if not known
+   */
+  public int getLineNumber() { return lineNumber; }
+  
+  /**
+   * Tests whether the result of the last execution was within the test tolerance.
+   */
+  public boolean isInTolerance() { return isInTol; }
+  
+  /**
+   * Gets the time taken to create (or look up) the coordinate systems
+   * in the last execution.
+   * 
+   * @return the time in nanoseconds
+   */
+  public long getCreateNanos() { return createNanos; }
+  
+  /**
+   * Gets the time taken to create and run the transform
+   * in the last execution.
+   * 
+   * @return the time in nanoseconds
+   */
+  public long getTransformNanos() { return transformNanos; }
+  
   public boolean execute(CRSFactory csFactory)
   {
     boolean isOK = false;
+    createNanos = 0;
+    transformNanos = 0;
+    long startTime = System.nanoTime();
     srcCS = createCS(csFactory, srcCrsAuth, srcCrs);
     tgtCS = createCS(csFactory, tgtCrsAuth, tgtCrs);
-    isOK = executeTransform(srcCS, tgtCS);
+    long createTime = System.nanoTime();
+    createNanos = createTime - startTime;
+    try {
+      isOK = executeTransform(srcCS, tgtCS);
+    }
+    finally {
+      transformNanos = System.nanoTime() - createTime;
+    }
     return isOK;
   }
   
@@ -167,19 +211,19 @@ public class MetaCRSTestCase
 
   public void print(PrintStream os)
   {
-      System.out.println(testName);
-      System.out.println(ProjectionUtil.toString(srcPt) 
+      os.println(testName);
+      os.println(ProjectionUtil.toString(srcPt) 
           + " -> " + ProjectionUtil.toString(resultPt)
           + " ( expected: " + tgtOrd1 + ", " + tgtOrd2 + " )"
           );
 
     
     if (! isInTol) {
-      System.out.println("FAIL");
-      System.out.println("Src CRS: (" 
+      os.println("FAIL");
+      os.println("Src CRS: (" 
           + srcCrsAuth + ":" + srcCrs + ") " 
           + srcCS.getParameterString());
-      System.out.println("Tgt CRS: ("
+      os.println("Tgt CRS: ("
           + tgtCrsAuth + ":" + tgtCrs + ") " 
           + tgtCS.getParameterString());
     }
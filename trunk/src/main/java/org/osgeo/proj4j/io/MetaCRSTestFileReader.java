@@ -4,12 +4,15 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.LineNumberReader;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Reads a file in MetaCRS Test format
  * into a list of {@link MetaCRSTestCase}.
+ * Tests can also be read one at a time with {@link #readTest()},
+ * so that large files can be processed without loading them into memory.
  * This format is a CSV file with a standard set of columns.
  * Each record defines a transformation from one coordinate system
  * to another.
@@ -23,36 +26,60 @@ public class MetaCRSTestFileReader
   public static final int COL_COUNT = 19;
   
   private File file;
+  private Reader reader;
+  private LineNumberReader lineReader = null;
+  private boolean isHeaderRead = false;
   private CSVRecordParser lineParser = new CSVRecordParser();
+  private char[] lineBuf = new char[256];
   
   public MetaCRSTestFileReader(File file) 
   {
     this.file = file;
   }
 
+  /**
+   * Creates a reader for tests in MetaCRS Test format read from a stream.
+   *
+   * @param reader the stream to read
+   */
+  public MetaCRSTestFileReader(Reader reader) 
+  {
+    this.reader = reader;
+  }
+
   public List<MetaCRSTestCase> readTests()
   throws IOException
   {
-    LineNumberReader lineReader = new LineNumberReader(new FileReader(file));
-    List<MetaCRSTestCase> tests = null;
+    List<MetaCRSTestCase> tests = new ArrayList<MetaCRSTestCase>();
     try {
-       tests = parseFile(lineReader);
+      while (true) {
+        MetaCRSTestCase test = readTest();
+        if (test == null)
+          break;
+        tests.add(test);
+      }
     } 
     finally {
-      lineReader.close();
+      close();
     }
     return tests;
   }
   
-  private List<MetaCRSTestCase> parseFile(LineNumberReader lineReader)
+  /**
+   * Reads the next test from the file.
+   * 
+   * @return the next test, or null if there are no more tests
+   * @throws IOException if an I/O error occurs
+   */
+  public MetaCRSTestCase readTest()
   throws IOException
   {
-    List<MetaCRSTestCase> tests = new ArrayList<MetaCRSTestCase>();
-    boolean isHeaderRead = false;
+    if (lineReader == null)
+      lineReader = new LineNumberReader(reader != null ? reader : new FileReader(file));
     while (true) {
       String line = lineReader.readLine();
       if (line == null)
-        break;
+        return null;
       // skip comments
       if (line.startsWith("#"))
         continue;
@@ -62,53 +89,53 @@ public class MetaCRSTestFileReader
         isHeaderRead = true;
         continue;
       }
-      tests.add(parseTest(line));
+      MetaCRSTestCase test = parseTest(line);
+      test.setLineNumber(lineReader.getLineNumber());
+      return test;
     }
-    return tests;
+  }
+
+  /**
+   * Closes the file being read.
+   * 
+   * @throws IOException if an I/O error occurs
+   */
+  public void close()
+  throws IOException
+  {
+    if (lineReader != null)
+      lineReader.close();
   }
   
   private MetaCRSTestCase parseTest(String line)
   {
-    String[] cols = lineParser.parse(line);
-    if (cols.length != COL_COUNT)
-      throw new IllegalStateException("Expected " + COL_COUNT+ " columns in file, but found " + cols.length);
-    String testName    = cols[0];
-    String testMethod  = cols[1];
-    String srcCrsAuth  = cols[2];
-    String srcCrs      = cols[3];
-    String tgtCrsAuth  = cols[4];
-    String tgtCrs      = cols[5];
-    double srcOrd1     = parseNumber(cols[6]);
-    double srcOrd2     = parseNumber(cols[7]);
-    double srcOrd3     = parseNumber(cols[8]);
-    double tgtOrd1     = parseNumber(cols[9]);
-    double tgtOrd2     = parseNumber(cols[10]);
-    double tgtOrd3     = parseNumber(cols[11]);
-    double tolOrd1     = parseNumber(cols[12]);
-    double tolOrd2     = parseNumber(cols[13]);
-    double tolOrd3     = parseNumber(cols[14]);
-    String using       = cols[15];
-    String dataSource  = cols[16];
-    String dataCmnts   = cols[17];
-    String maintenanceCmnts = cols[18];
+    // parse from a reused buffer, so numeric fields are read without creating Strings
+    if (lineBuf.length < line.length())
+      lineBuf = new char[Math.max(line.length(), 2 * lineBuf.length)];
+    line.getChars(0, line.length(), lineBuf, 0);
+    int colCount = lineParser.parse(lineBuf, 0, line.length());
+    if (colCount != COL_COUNT)
+      throw new IllegalStateException("Expected " + COL_COUNT+ " columns in file, but found " + colCount);
+    String testName    = lineParser.getString(0);
+    String testMethod  = lineParser.getString(1);
+    String srcCrsAuth  = lineParser.getString(2);
+    String srcCrs      = lineParser.getString(3);
+    String tgtCrsAuth  = lineParser.getString(4);
+    String tgtCrs      = lineParser.getString(5);
+    double srcOrd1     = lineParser.getDouble(6);
+    double srcOrd2     = lineParser.getDouble(7);
+    double srcOrd3     = lineParser.getDouble(8);
+    double tgtOrd1     = lineParser.getDouble(9);
+    double tgtOrd2     = lineParser.getDouble(10);
+    double tgtOrd3     = lineParser.getDouble(11);
+    double tolOrd1     = lineParser.getDouble(12);
+    double tolOrd2     = lineParser.getDouble(13);
+    double tolOrd3     = lineParser.getDouble(14);
+    String using       = lineParser.getString(15);
+    String dataSource  = lineParser.getString(16);
+    String dataCmnts   = lineParser.getString(17);
+    String maintenanceCmnts = lineParser.getString(18);
     
     return new MetaCRSTestCase(testName,testMethod,srcCrsAuth,srcCrs,tgtCrsAuth,tgtCrs,srcOrd1,srcOrd2,srcOrd3,tgtOrd1,tgtOrd2,tgtOrd3,tolOrd1,tolOrd2,tolOrd3,using,dataSource,dataCmnts,maintenanceCmnts);
   }
-  
-  /**
-   * Parses a number from a String.
-   * If the string is empty returns {@link Double.Nan}.
-   * 
-   * @param numStr
-   * @return the number as a double
-   * @return Double.NaN if the string is null or empty
-   * @throws NumberFormatException if the number is ill-formed
-   */
-  private static double parseNumber(String numStr)
-  {
-    if (numStr == null || numStr.length() == 0) {
-      return Double.NaN;
-    }
-    return Double.parseDouble(numStr);
-  }
 }
@@ -6,7 +6,13 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.StreamTokenizer;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+
+import org.osgeo.proj4j.UnknownAuthorityCodeException;
+import org.osgeo.proj4j.metrics.Metrics;
+import org.osgeo.proj4j.metrics.MetricsListener;
 
 public class Proj4FileReader 
 {
@@ -22,24 +28,58 @@ public class Proj4FileReader
     // TODO: use simpler parser than StreamTokenizer for speed and flexibility
     // TODO: parse CSes line-at-a-time (this allows preserving CS param string for later access)
     
-  	String filename = "/nad/" + authorityCode.toLowerCase();
-  	InputStream inStr = Proj4FileReader.class.getResourceAsStream( filename );
-  	if (inStr == null) {
-  		throw new IllegalStateException("Unable to access CRS file: " + filename);
-  	}
-    BufferedReader reader = new BufferedReader( 
-          new InputStreamReader(inStr) );
+    MetricsListener listener = Metrics.getListener();
+    long start = listener == null ? 0 : System.nanoTime();
+    BufferedReader reader = openFile(authorityCode);
     String[] args;
     try {
-      args = readFile(reader, name);
+      args = readFile(reader, name, null);
     }
     finally {
       if (reader != null)
         reader.close();
     }
+    if (listener != null)
+      listener.catalogLookup(authorityCode, name, args != null, System.nanoTime() - start);
     return args;
   }
   
+  /**
+   * Reads all the coordinate system definitions
+   * in the file for an authority.
+   * This is much faster than looking up each code individually,
+   * since the file is scanned only once.
+   * 
+   * @param authorityCode the authority (e.g. <tt>EPSG</tt>)
+   * @return a map from CRS code to PROJ.4 parameters, in file order
+   * @throws IOException if the file cannot be read
+   * @throws IllegalStateException if the authority file cannot be found
+   */
+  public Map<String, String[]> readAllParametersFromFile( String authorityCode ) 
+  throws IOException 
+  {
+    BufferedReader reader = openFile(authorityCode);
+    Map<String, String[]> defs = new LinkedHashMap<String, String[]>();
+    try {
+      readFile(reader, null, defs);
+    }
+    finally {
+      if (reader != null)
+        reader.close();
+    }
+    return defs;
+  }
+  
+  private static BufferedReader openFile( String authorityCode )
+  {
+    String filename = "/nad/" + authorityCode.toLowerCase();
+    InputStream inStr = Proj4FileReader.class.getResourceAsStream( filename );
+    if (inStr == null) {
+      throw new IllegalStateException("Unable to access CRS file: " + filename);
+    }
+    return new BufferedReader( new InputStreamReader(inStr) );
+  }
+  
   private StreamTokenizer createTokenizer(BufferedReader reader)
   {
     StreamTokenizer t = new StreamTokenizer( reader );
@@ -60,7 +100,11 @@ public class Proj4FileReader
     return t;
   }
   
-  private String[] readFile( BufferedReader reader, String name) 
+  /**
+   * Scans a CRS file for the definition named <tt>name</tt>.
+   * If <tt>name</tt> is null every definition is added to <tt>defs</tt> instead.
+   */
+  private String[] readFile( BufferedReader reader, String name, Map<String, String[]> defs) 
   throws IOException 
   {
     StreamTokenizer t = createTokenizer(reader);
@@ -75,7 +119,7 @@ public class Proj4FileReader
       if ( t.ttype != '>' )
         throw new IOException( t.lineno()+": '>' expected" );
       t.nextToken();
-      List v = new ArrayList();
+      List<String> v = new ArrayList<String>();
 
       while ( t.ttype != '<' ) {
         if ( t.ttype == '+' )
@@ -107,15 +151,18 @@ public class Proj4FileReader
       t.nextToken();
       
       // found requested CRS?
-      if ( crsName.equals( name ) ) {
-        String[] args = (String[]) v.toArray( new String[0] );
+      if ( name == null ) {
+        defs.put( crsName, v.toArray( new String[0] ) );
+      }
+      else if ( crsName.equals( name ) ) {
+        String[] args = v.toArray( new String[0] );
         return args;
       }
     }
     return null;
   }
   
-  private static void addParam(List v, String key, String value)
+  private static void addParam(List<String> v, String key, String value)
   {
     String plusKey = key;
     if ( ! key.startsWith("+") )
@@ -149,4 +196,33 @@ public class Proj4FileReader
     return null;
   }
 
+  /**
+   * Gets the PROJ.4 parameters of every coordinate system
+   * defined by an authority, keyed by names of the form
+   * "<tt>authority:code</tt>".
+   *
+   * @param authority the authority name (e.g. <tt>EPSG</tt>)
+   * @return a map from CRS name to PROJ.4 parameters, in file order
+   * @throws UnknownAuthorityCodeException if the authority file cannot be found or read
+   */
+  public Map<String, String[]> getAllNamedParameters(String authority)
+  throws UnknownAuthorityCodeException
+  {
+    Map<String, String[]> defs;
+    try {
+      defs = readAllParametersFromFile(authority);
+    }
+    catch (IOException ex) {
+      throw new UnknownAuthorityCodeException(authority);
+    }
+    catch (IllegalStateException ex) {
+      throw new UnknownAuthorityCodeException(authority);
+    }
+    Map<String, String[]> namedDefs = new LinkedHashMap<String, String[]>();
+    for (Map.Entry<String, String[]> def : defs.entrySet()) {
+      namedDefs.put(authority + ":" + def.getKey(), def.getValue());
+    }
+    return namedDefs;
+  }
+
 }
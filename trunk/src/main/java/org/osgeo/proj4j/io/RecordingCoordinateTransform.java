@@ -0,0 +1,138 @@
+package org.osgeo.proj4j.io;
+
+import java.io.IOException;
+
+import org.osgeo.proj4j.CoordinateReferenceSystem;
+import org.osgeo.proj4j.CoordinateTransform;
+import org.osgeo.proj4j.Proj4jException;
+import org.osgeo.proj4j.ProjCoordinate;
+
+/**
+ * A {@link CoordinateTransform} which records the points it transforms
+ * in a {@link TransformLogWriter}, and passes them on to another transform.
+ * The log can be replayed with {@link org.osgeo.proj4j.cmd.TransformReplayCmd},
+ * to benchmark or check another version of the library
+ * against real transform traffic.
+ * <p>
+ * Every point can be recorded, or a sample of one point in every <i>n</i>.
+ * The output of each recorded point is logged as well (unless disabled),
+ * and so is the failure of a transform.
+ * <p>
+ * An I/O error while writing the log does not affect the transform:
+ * recording stops, and the error is available from {@link #getIOException()}.
+ * <p>
+ * Like {@link org.osgeo.proj4j.BasicCoordinateTransform},
+ * a recording transform is not thread-safe,
+ * but any number of transforms can share a log.
+ */
+public class RecordingCoordinateTransform
+  implements CoordinateTransform
+{
+  private CoordinateTransform trans;
+  private TransformLogWriter log;
+  private int pairId;
+  private int sampleInterval = 1;
+  private boolean isOutputRecorded = true;
+  private long count = 0;
+  private ProjCoordinate input = new ProjCoordinate();
+  private IOException ioException = null;
+
+  /**
+   * Creates a transform which records every point.
+   *
+   * @param trans the transform to record
+   * @param log the log to record points in
+   * @throws IOException if the CRS pair cannot be written to the log
+   */
+  public RecordingCoordinateTransform(CoordinateTransform trans, TransformLogWriter log)
+    throws IOException
+  {
+    this.trans = trans;
+    this.log = log;
+    pairId = log.addPair(trans.getSourceCRS(), trans.getTargetCRS());
+  }
+
+  /**
+   * Sets the sampling interval.
+   * The first point, and one in every <tt>interval</tt> after it, is recorded.
+   *
+   * @param interval the sampling interval (1 to record every point)
+   */
+  public void setSampleInterval(int interval)
+  {
+    if (interval < 1)
+      throw new IllegalArgumentException("Sample interval must be at least 1: " + interval);
+    sampleInterval = interval;
+  }
+
+  /**
+   * Sets whether the output of the transform is recorded,
+   * as well as its input.
+   * This is enabled by default, and allows replays
+   * to check that their outputs are identical.
+   *
+   * @param isOutputRecorded true if outputs are recorded
+   */
+  public void setOutputRecorded(boolean isOutputRecorded)
+  {
+    this.isOutputRecorded = isOutputRecorded;
+  }
+
+  /**
+   * Gets the transform which is recorded.
+   */
+  public CoordinateTransform getTransform()
+  {
+    return trans;
+  }
+
+  /**
+   * Gets the error which stopped recording, if any.
+   *
+   * @return the error, or null if recording has not failed
+   */
+  public IOException getIOException()
+  {
+    return ioException;
+  }
+
+  public CoordinateReferenceSystem getSourceCRS()
+  {
+    return trans.getSourceCRS();
+  }
+
+  public CoordinateReferenceSystem getTargetCRS()
+  {
+    return trans.getTargetCRS();
+  }
+
+  public ProjCoordinate transform(ProjCoordinate src, ProjCoordinate tgt)
+    throws Proj4jException
+  {
+    boolean isRecorded = ioException == null && count++ % sampleInterval == 0;
+    if (! isRecorded)
+      return trans.transform(src, tgt);
+
+    // the source may be the same object as the target
+    input.setValue(src);
+    try {
+      trans.transform(src, tgt);
+    }
+    catch (Proj4jException ex) {
+      record(null, true);
+      throw ex;
+    }
+    record(isOutputRecorded ? tgt : null, false);
+    return tgt;
+  }
+
+  private void record(ProjCoordinate output, boolean isFailed)
+  {
+    try {
+      log.writePoint(pairId, input, output, isFailed);
+    }
+    catch (IOException ex) {
+      ioException = ex;
+    }
+  }
+}
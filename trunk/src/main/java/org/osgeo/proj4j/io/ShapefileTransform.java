@@ -0,0 +1,520 @@
+package org.osgeo.proj4j.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.osgeo.proj4j.BatchCoordinateTransform;
+import org.osgeo.proj4j.CoordinateReferenceSystem;
+
+/**
+ * Transforms the geometries of an ESRI Shapefile using memory-mapped I/O.
+ * <p>
+ * The X and Y ordinates of every record in the <tt>.shp</tt> file are transformed,
+ * either in place or into a new file.
+ * The bounding box of each record and the bounding box in the file headers
+ * (of both the <tt>.shp</tt> and <tt>.shx</tt> files)
+ * are recomputed in the same pass.
+ * Z and M values are left unchanged.
+ * Points which cannot be transformed are written as <tt>NaN</tt>,
+ * and are not included in bounding boxes.
+ * <p>
+ * The record offsets are read from the <tt>.shx</tt> index file
+ * (or by scanning the record headers if there is no index).
+ * Ranges of records are mapped with {@link FileChannel#map}
+ * and transformed directly in the mapped memory,
+ * optionally by several threads.
+ * <p>
+ * When writing to a new file, the <tt>.shx</tt> and <tt>.dbf</tt> files
+ * are copied alongside it.
+ * A <tt>.prj</tt> file is not written
+ * (and when transforming in place, any existing <tt>.prj</tt> file
+ * no longer describes the coordinates).
+ */
+public class ShapefileTransform
+{
+  /**
+   * The default size of the regions of the file mapped and transformed, in bytes
+   */
+  public static final int DEFAULT_CHUNK_SIZE = 1 << 24;
+
+  private static final int HEADER_SIZE = 100;
+  private static final int FILE_CODE = 9994;
+  private static final int HEADER_BOUNDS = 36;
+  private static final int BATCH_SIZE = 4096;
+
+  private static final int SHAPE_NULL = 0;
+  private static final int SHAPE_POINT = 1;
+  private static final int SHAPE_POLYLINE = 3;
+  private static final int SHAPE_POLYGON = 5;
+  private static final int SHAPE_MULTIPOINT = 8;
+  private static final int SHAPE_POINTZ = 11;
+  private static final int SHAPE_POLYLINEZ = 13;
+  private static final int SHAPE_POLYGONZ = 15;
+  private static final int SHAPE_MULTIPOINTZ = 18;
+  private static final int SHAPE_POINTM = 21;
+  private static final int SHAPE_POLYLINEM = 23;
+  private static final int SHAPE_POLYGONM = 25;
+  private static final int SHAPE_MULTIPOINTM = 28;
+  private static final int SHAPE_MULTIPATCH = 31;
+
+  private CoordinateReferenceSystem srcCRS;
+  private CoordinateReferenceSystem tgtCRS;
+  private int threadCount = 1;
+  private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+  private int recordCount = 0;
+  private long pointCount = 0;
+  private long failCount = 0;
+
+  /**
+   * Creates a Shapefile transform from a source {@link CoordinateReferenceSystem}
+   * to a target one.
+   *
+   * @param srcCRS the source CRS
+   * @param tgtCRS the target CRS
+   */
+  public ShapefileTransform(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS)
+  {
+    this.srcCRS = srcCRS;
+    this.tgtCRS = tgtCRS;
+  }
+
+  /**
+   * Sets the number of threads used to transform records.
+   *
+   * @param threadCount the number of threads (if &lt;= 0, the number of available processors is used)
+   */
+  public void setThreadCount(int threadCount)
+  {
+    if (threadCount <= 0)
+      threadCount = Runtime.getRuntime().availableProcessors();
+    this.threadCount = threadCount;
+  }
+
+  /**
+   * Sets the approximate size of the regions of the file which are mapped and transformed.
+   * A region always holds whole records.
+   *
+   * @param chunkSize the region size in bytes
+   */
+  public void setChunkSize(int chunkSize)
+  {
+    this.chunkSize = Math.max(1, chunkSize);
+  }
+
+  /**
+   * Gets the number of records read by the last transform.
+   */
+  public int getRecordCount()
+  {
+    return recordCount;
+  }
+
+  /**
+   * Gets the number of points read by the last transform.
+   */
+  public long getPointCount()
+  {
+    return pointCount;
+  }
+
+  /**
+   * Gets the number of points which could not be transformed by the last transform.
+   */
+  public long getFailCount()
+  {
+    return failCount;
+  }
+
+  /**
+   * Transforms a Shapefile in place.
+   *
+   * @param shp the <tt>.shp</tt> file to transform
+   * @return the number of points which could not be transformed
+   * @throws IOException if an I/O error occurs or the file is not a valid Shapefile
+   */
+  public long transform(File shp)
+  throws IOException
+  {
+    return transform(shp, shp);
+  }
+
+  /**
+   * Transforms a Shapefile, writing it to another file.
+   * The output files are created or overwritten.
+   * If the files are the same, the Shapefile is transformed in place.
+   *
+   * @param input the <tt>.shp</tt> file to read
+   * @param output the <tt>.shp</tt> file to write
+   * @return the number of points which could not be transformed
+   * @throws IOException if an I/O error occurs or the file is not a valid Shapefile
+   */
+  public long transform(File input, File output)
+  throws IOException
+  {
+    if (! input.getCanonicalFile().equals(output.getCanonicalFile())) {
+      copy(input, output);
+      File shx = sidecar(input, "shx");
+      if (shx.exists())
+        copy(shx, sidecar(output, "shx"));
+      File dbf = sidecar(input, "dbf");
+      if (dbf.exists())
+        copy(dbf, sidecar(output, "dbf"));
+    }
+    RandomAccessFile file = new RandomAccessFile(output, "rw");
+    try {
+      File shx = sidecar(output, "shx");
+      long[] offsets = shx.exists() ? readIndex(shx) : scanIndex(file);
+      recordCount = offsets.length - 1;
+      double[] bounds = transform(file.getChannel(), offsets);
+      if (! Double.isNaN(bounds[0])) {
+        writeHeaderBounds(file, bounds);
+        if (shx.exists()) {
+          RandomAccessFile index = new RandomAccessFile(shx, "rw");
+          try {
+            writeHeaderBounds(index, bounds);
+          }
+          finally {
+            index.close();
+          }
+        }
+      }
+      return failCount;
+    }
+    finally {
+      file.close();
+    }
+  }
+
+  /**
+   * Finds the file for another component of a Shapefile,
+   * matching the case of the extension.
+   */
+  private static File sidecar(File shp, String ext)
+  {
+    String name = shp.getPath();
+    int dot = name.lastIndexOf('.');
+    if (dot < 0)
+      return new File(name + "." + ext);
+    String shpExt = name.substring(dot + 1);
+    if (shpExt.equals(shpExt.toUpperCase()))
+      ext = ext.toUpperCase();
+    return new File(name.substring(0, dot + 1) + ext);
+  }
+
+  private static void copy(File src, File dest)
+  throws IOException
+  {
+    RandomAccessFile in = new RandomAccessFile(src, "r");
+    RandomAccessFile out = new RandomAccessFile(dest, "rw");
+    try {
+      FileChannel inChannel = in.getChannel();
+      FileChannel outChannel = out.getChannel();
+      long size = inChannel.size();
+      out.setLength(size);
+      long pos = 0;
+      while (pos < size) {
+        pos += inChannel.transferTo(pos, size - pos, outChannel);
+      }
+    }
+    finally {
+      in.close();
+      out.close();
+    }
+  }
+
+  private static ByteBuffer readHeader(FileChannel channel)
+  throws IOException
+  {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    while (header.hasRemaining()) {
+      if (channel.read(header, header.position()) < 0)
+        throw new IOException("Shapefile header is truncated");
+    }
+    if (header.getInt(0) != FILE_CODE)
+      throw new IOException("Not a Shapefile (file code " + header.getInt(0) + ")");
+    return header;
+  }
+
+  /**
+   * Reads the record offsets from an index file.
+   *
+   * @return the byte offsets of the records, followed by the end of the last record
+   */
+  private static long[] readIndex(File shx)
+  throws IOException
+  {
+    RandomAccessFile index = new RandomAccessFile(shx, "r");
+    try {
+      FileChannel channel = index.getChannel();
+      readHeader(channel);
+      int n = (int) ((channel.size() - HEADER_SIZE) / 8);
+      ByteBuffer entries = ByteBuffer.allocate(8 * n);
+      while (entries.hasRemaining()) {
+        if (channel.read(entries, HEADER_SIZE + entries.position()) < 0)
+          break;
+      }
+      long[] offsets = new long[n + 1];
+      offsets[0] = HEADER_SIZE;
+      for (int i = 0; i < n; i++) {
+        offsets[i] = 2L * entries.getInt(8 * i);
+        offsets[i + 1] = offsets[i] + 8 + 2L * entries.getInt(8 * i + 4);
+      }
+      return offsets;
+    }
+    finally {
+      index.close();
+    }
+  }
+
+  /**
+   * Finds the record offsets by reading the record headers of the main file.
+   */
+  private static long[] scanIndex(RandomAccessFile file)
+  throws IOException
+  {
+    FileChannel channel = file.getChannel();
+    readHeader(channel);
+    long size = channel.size();
+    long[] offsets = new long[1024];
+    int n = 0;
+    long pos = HEADER_SIZE;
+    ByteBuffer recordHeader = ByteBuffer.allocate(8);
+    while (pos + 8 <= size) {
+      recordHeader.clear();
+      while (recordHeader.hasRemaining()) {
+        if (channel.read(recordHeader, pos + recordHeader.position()) < 0)
+          throw new IOException("Record header is truncated");
+      }
+      if (n + 1 >= offsets.length) {
+        long[] newOffsets = new long[2 * offsets.length];
+        System.arraycopy(offsets, 0, newOffsets, 0, n);
+        offsets = newOffsets;
+      }
+      offsets[n++] = pos;
+      pos += 8 + 2L * recordHeader.getInt(4);
+    }
+    long[] result = new long[n + 1];
+    System.arraycopy(offsets, 0, result, 0, n);
+    result[n] = pos;
+    return result;
+  }
+
+  private static void writeHeaderBounds(RandomAccessFile file, double[] bounds)
+  throws IOException
+  {
+    ByteBuffer buf = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+    for (int i = 0; i < 4; i++) {
+      buf.putDouble(bounds[i]);
+    }
+    buf.flip();
+    file.getChannel().write(buf, HEADER_BOUNDS);
+  }
+
+  private double[] transform(final FileChannel channel, long[] offsets)
+  throws IOException
+  {
+    if (offsets[offsets.length - 1] > channel.size())
+      throw new IOException("Shapefile is shorter than its index");
+
+    // group the records into chunks of about the chunk size
+    List<Chunk> chunks = new ArrayList<Chunk>();
+    int start = 0;
+    for (int i = 1; i < offsets.length; i++) {
+      if (i == offsets.length - 1 || offsets[i] - offsets[start] >= chunkSize) {
+        chunks.add(new Chunk(channel, offsets, start, i));
+        start = i;
+      }
+    }
+
+    ChunkRunner.run(chunks, srcCRS, tgtCRS, threadCount);
+    return combine(chunks);
+  }
+
+  private double[] combine(List<Chunk> chunks)
+  {
+    double[] bounds = emptyBounds();
+    pointCount = 0;
+    failCount = 0;
+    for (Chunk chunk : chunks) {
+      pointCount += chunk.pointCount;
+      failCount += chunk.failCount;
+      expand(bounds, chunk.bounds);
+    }
+    return bounds;
+  }
+
+  private static double[] emptyBounds()
+  {
+    return new double[] { Double.NaN, Double.NaN, Double.NaN, Double.NaN };
+  }
+
+  private static void expand(double[] bounds, double[] other)
+  {
+    if (Double.isNaN(other[0]))
+      return;
+    if (Double.isNaN(bounds[0])) {
+      System.arraycopy(other, 0, bounds, 0, 4);
+      return;
+    }
+    bounds[0] = Math.min(bounds[0], other[0]);
+    bounds[1] = Math.min(bounds[1], other[1]);
+    bounds[2] = Math.max(bounds[2], other[2]);
+    bounds[3] = Math.max(bounds[3], other[3]);
+  }
+
+  /**
+   * A range of records, which are transformed in a mapping of their region of the file.
+   */
+  private static class Chunk implements ChunkRunner.Chunk
+  {
+    private FileChannel channel;
+    private long[] offsets;
+    private int start;
+    private int end;
+
+    long pointCount = 0;
+    long failCount = 0;
+    double[] bounds = emptyBounds();
+
+    private double[] coords;
+    private double[] recordBounds = new double[4];
+
+    Chunk(FileChannel channel, long[] offsets, int start, int end)
+    {
+      this.channel = channel;
+      this.offsets = offsets;
+      this.start = start;
+      this.end = end;
+    }
+
+    public void transform(BatchCoordinateTransform trans)
+    throws IOException
+    {
+      long base = offsets[start];
+      MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_WRITE, base, offsets[end] - base);
+      buf.order(ByteOrder.LITTLE_ENDIAN);
+      coords = new double[2 * BATCH_SIZE];
+      for (int i = start; i < end; i++) {
+        int pos = (int) (offsets[i] - base);
+        // record headers are big-endian
+        int contentLength = 2 * Integer.reverseBytes(buf.getInt(pos + 4));
+        if (pos + 8 + contentLength > buf.limit())
+          throw new IOException("Record " + (i + 1) + " extends past the end of the file");
+        transformRecord(buf, pos + 8, contentLength, trans, i);
+      }
+      coords = null;
+    }
+
+    private void transformRecord(ByteBuffer buf, int pos, int length, BatchCoordinateTransform trans, int record)
+    throws IOException
+    {
+      if (length < 4)
+        return;
+      int type = buf.getInt(pos);
+      int numPoints;
+      int pointsPos;
+      switch (type) {
+      case SHAPE_NULL:
+        return;
+      case SHAPE_POINT:
+      case SHAPE_POINTZ:
+      case SHAPE_POINTM:
+        // points have no record bounding box
+        checkLength(pos + 20, pos, length, record);
+        transformPoints(buf, pos + 4, 1, trans);
+        expand(bounds, recordBounds);
+        return;
+      case SHAPE_MULTIPOINT:
+      case SHAPE_MULTIPOINTZ:
+      case SHAPE_MULTIPOINTM:
+        checkLength(pos + 40, pos, length, record);
+        numPoints = buf.getInt(pos + 36);
+        pointsPos = pos + 40;
+        break;
+      case SHAPE_POLYLINE:
+      case SHAPE_POLYLINEZ:
+      case SHAPE_POLYLINEM:
+      case SHAPE_POLYGON:
+      case SHAPE_POLYGONZ:
+      case SHAPE_POLYGONM:
+      case SHAPE_MULTIPATCH:
+        checkLength(pos + 44, pos, length, record);
+        int numParts = buf.getInt(pos + 36);
+        numPoints = buf.getInt(pos + 40);
+        // multipatches also have an array of part types
+        int partsSize = 4 * numParts * (type == SHAPE_MULTIPATCH ? 2 : 1);
+        if (numParts < 0 || partsSize > length)
+          throw new IOException("Invalid part count in record " + (record + 1));
+        pointsPos = pos + 44 + partsSize;
+        break;
+      default:
+        throw new IOException("Unsupported shape type " + type + " in record " + (record + 1));
+      }
+      if (numPoints < 0 || numPoints > length / 16)
+        throw new IOException("Invalid point count in record " + (record + 1));
+      checkLength(pointsPos + 16 * numPoints, pos, length, record);
+      if (numPoints == 0)
+        return;
+      transformPoints(buf, pointsPos, numPoints, trans);
+      for (int i = 0; i < 4; i++) {
+        buf.putDouble(pos + 4 + 8 * i, recordBounds[i]);
+      }
+      expand(bounds, recordBounds);
+    }
+
+    private static void checkLength(int requiredEnd, int pos, int length, int record)
+    throws IOException
+    {
+      if (requiredEnd > pos + length)
+        throw new IOException("Record " + (record + 1) + " is truncated");
+    }
+
+    /**
+     * Transforms a sequence of XY points in batches,
+     * computing their bounding box.
+     */
+    private void transformPoints(ByteBuffer buf, int pos, int n, BatchCoordinateTransform trans)
+    {
+      double minX = Double.POSITIVE_INFINITY;
+      double minY = Double.POSITIVE_INFINITY;
+      double maxX = Double.NEGATIVE_INFINITY;
+      double maxY = Double.NEGATIVE_INFINITY;
+      for (int done = 0; done < n; done += BATCH_SIZE) {
+        int count = Math.min(BATCH_SIZE, n - done);
+        int batchPos = pos + 16 * done;
+        for (int i = 0; i < 2 * count; i++) {
+          coords[i] = buf.getDouble(batchPos + 8 * i);
+        }
+        failCount += trans.transform(coords, count);
+        for (int i = 0; i < 2 * count; i += 2) {
+          double x = coords[i];
+          double y = coords[i + 1];
+          buf.putDouble(batchPos + 8 * i, x);
+          buf.putDouble(batchPos + 8 * i + 8, y);
+          // failed points are NaN, and fail the comparisons
+          if (x < minX) minX = x;
+          if (x > maxX) maxX = x;
+          if (y < minY) minY = y;
+          if (y > maxY) maxY = y;
+        }
+      }
+      pointCount += n;
+      if (minX > maxX) {
+        recordBounds[0] = recordBounds[1] = recordBounds[2] = recordBounds[3] = Double.NaN;
+        return;
+      }
+      recordBounds[0] = minX;
+      recordBounds[1] = minY;
+      recordBounds[2] = maxX;
+      recordBounds[3] = maxY;
+    }
+  }
+}
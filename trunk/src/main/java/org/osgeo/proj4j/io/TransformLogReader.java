@@ -0,0 +1,247 @@
+package org.osgeo.proj4j.io;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.osgeo.proj4j.CRSDescriptor;
+import org.osgeo.proj4j.CRSFactory;
+import org.osgeo.proj4j.CoordinateReferenceSystem;
+import org.osgeo.proj4j.ProjCoordinate;
+import org.osgeo.proj4j.proj.ProjectionCodec;
+
+/**
+ * Reads a log of transformed points written by a {@link TransformLogWriter}.
+ * <p>
+ * The CRSs of each pair are recreated from their PROJ.4 parameters,
+ * so that a log recorded with one version of the library
+ * exercises the parsing and initialization of another version.
+ * CRSs without parameters (such as those created by
+ * {@link CoordinateReferenceSystem#createGeographic()})
+ * are recreated from their {@link CRSDescriptor}s.
+ * <p>
+ * Typical use is:
+ * <pre>
+ * TransformLogReader reader = new TransformLogReader(in);
+ * while (reader.next()) {
+ *   reader.getInput(src);
+ *   ...
+ * }
+ * </pre>
+ */
+public class TransformLogReader
+{
+  private static CRSFactory csFactory = new CRSFactory();
+
+  private DataInputStream in;
+  private List<CoordinateReferenceSystem[]> pairs = new ArrayList<CoordinateReferenceSystem[]>();
+
+  // the current point
+  private int pairId;
+  private int flags;
+  private double x, y, z;
+  private double outX, outY, outZ;
+
+  /**
+   * Creates a reader, and reads the log header.
+   *
+   * @param in the stream to read from
+   * @throws IOException if the stream does not contain a transform log
+   */
+  public TransformLogReader(InputStream in)
+    throws IOException
+  {
+    this.in = new DataInputStream(new BufferedInputStream(in));
+    byte[] magic = new byte[TransformLogWriter.MAGIC.length];
+    try {
+      this.in.readFully(magic);
+    }
+    catch (EOFException ex) {
+      throw new IOException("Not a transform log");
+    }
+    for (int i = 0; i < magic.length; i++) {
+      if (magic[i] != TransformLogWriter.MAGIC[i])
+        throw new IOException("Not a transform log");
+    }
+    int version = this.in.readByte();
+    if (version != TransformLogWriter.VERSION)
+      throw new IOException("Unsupported transform log version " + version);
+  }
+
+  /**
+   * Reads the next point in the log.
+   *
+   * @return false if the end of the log has been reached
+   * @throws IOException if the log cannot be read or is invalid
+   */
+  public boolean next()
+    throws IOException
+  {
+    while (true) {
+      int type = in.read();
+      if (type < 0)
+        return false;
+      if (type == TransformLogWriter.RECORD_PAIR) {
+        readPair();
+        continue;
+      }
+      if ((type & TransformLogWriter.RECORD_POINT) == 0)
+        throw new IOException("Invalid record type " + type);
+      readPoint(type & ~TransformLogWriter.RECORD_POINT);
+      return true;
+    }
+  }
+
+  /**
+   * Gets the number of CRS pairs read so far.
+   */
+  public int getPairCount()
+  {
+    return pairs.size();
+  }
+
+  /**
+   * Gets the source CRS of a pair.
+   *
+   * @param pairId the pair id
+   */
+  public CoordinateReferenceSystem getSourceCRS(int pairId)
+  {
+    return pairs.get(pairId)[0];
+  }
+
+  /**
+   * Gets the target CRS of a pair.
+   *
+   * @param pairId the pair id
+   */
+  public CoordinateReferenceSystem getTargetCRS(int pairId)
+  {
+    return pairs.get(pairId)[1];
+  }
+
+  /**
+   * Gets the pair id of the current point.
+   */
+  public int getPairId()
+  {
+    return pairId;
+  }
+
+  /**
+   * Gets the input coordinate of the current point.
+   * The Z ordinate is <tt>NaN</tt> if none was recorded.
+   *
+   * @param src the coordinate to set
+   * @return the coordinate which was passed in
+   */
+  public ProjCoordinate getInput(ProjCoordinate src)
+  {
+    src.x = x;
+    src.y = y;
+    src.z = z;
+    return src;
+  }
+
+  /**
+   * Tests whether the transform of the current point failed when it was recorded.
+   */
+  public boolean isFailed()
+  {
+    return (flags & TransformLogWriter.FLAG_FAILED) != 0;
+  }
+
+  /**
+   * Tests whether the output of the current point was recorded.
+   */
+  public boolean hasOutput()
+  {
+    return (flags & TransformLogWriter.FLAG_OUTPUT) != 0;
+  }
+
+  /**
+   * Gets the recorded output coordinate of the current point.
+   *
+   * @param tgt the coordinate to set
+   * @return the coordinate which was passed in
+   */
+  public ProjCoordinate getOutput(ProjCoordinate tgt)
+  {
+    tgt.x = outX;
+    tgt.y = outY;
+    tgt.z = outZ;
+    return tgt;
+  }
+
+  public void close()
+    throws IOException
+  {
+    in.close();
+  }
+
+  private void readPoint(int flags)
+    throws IOException
+  {
+    this.flags = flags;
+    pairId = readVarInt();
+    if (pairId >= pairs.size())
+      throw new IOException("Unknown pair id " + pairId);
+    x = in.readDouble();
+    y = in.readDouble();
+    z = (flags & TransformLogWriter.FLAG_Z) != 0 ? in.readDouble() : Double.NaN;
+    outX = outY = outZ = Double.NaN;
+    if ((flags & TransformLogWriter.FLAG_OUTPUT) != 0) {
+      outX = in.readDouble();
+      outY = in.readDouble();
+      if ((flags & TransformLogWriter.FLAG_OUTPUT_Z) != 0)
+        outZ = in.readDouble();
+    }
+  }
+
+  private void readPair()
+    throws IOException
+  {
+    int id = readVarInt();
+    if (id != pairs.size())
+      throw new IOException("Unexpected pair id " + id);
+    CoordinateReferenceSystem srcCRS = readCRS();
+    CoordinateReferenceSystem tgtCRS = readCRS();
+    pairs.add(new CoordinateReferenceSystem[] { srcCRS, tgtCRS });
+  }
+
+  private CoordinateReferenceSystem readCRS()
+    throws IOException
+  {
+    String name = ProjectionCodec.readString(in);
+    int paramCount = readVarInt() - 1;
+    String[] params = null;
+    if (paramCount >= 0) {
+      params = new String[paramCount];
+      for (int i = 0; i < paramCount; i++) {
+        params[i] = in.readUTF();
+      }
+    }
+    byte[] descriptor = new byte[readVarInt()];
+    in.readFully(descriptor);
+    if (params != null)
+      return csFactory.createFromParameters(name, params);
+    return new CRSDescriptor(descriptor).getCRS();
+  }
+
+  private int readVarInt()
+    throws IOException
+  {
+    int n = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      int b = in.readUnsignedByte();
+      n |= (b & 0x7f) << shift;
+      if ((b & 0x80) == 0)
+        return n;
+    }
+    throw new IOException("Invalid variable-length integer");
+  }
+}
@@ -0,0 +1,192 @@
+package org.osgeo.proj4j.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.osgeo.proj4j.CRSDescriptor;
+import org.osgeo.proj4j.CoordinateReferenceSystem;
+import org.osgeo.proj4j.ProjCoordinate;
+import org.osgeo.proj4j.proj.ProjectionCodec;
+
+/**
+ * Writes a log of transformed points in a compact binary format,
+ * which can be read by {@link TransformLogReader}.
+ * Logs are usually written by {@link RecordingCoordinateTransform}s.
+ * <p>
+ * A log starts with the bytes <tt>P4JL</tt> and a version byte,
+ * followed by a sequence of records.
+ * Each distinct pair of CRSs is written once, in a pair record,
+ * when it is added to the log:
+ * <pre>
+ * 0x01 pairId(varint) sourceCRS targetCRS
+ * </pre>
+ * where each CRS is written as its name,
+ * its PROJ.4 parameters (if it has any)
+ * and its {@link CRSDescriptor}.
+ * Each point is written as a point record:
+ * <pre>
+ * 0x80|flags pairId(varint) x y [z] [x' y' [z']]
+ * </pre>
+ * where the flags say whether the point has a Z ordinate,
+ * whether the transform failed, and whether the output is recorded.
+ * Ordinates are written as the exact bits of their <tt>double</tt> values.
+ * <p>
+ * The methods of a writer are synchronized,
+ * so that a single log can be shared by transforms used in different threads.
+ */
+public class TransformLogWriter
+{
+  static final byte[] MAGIC = { 'P', '4', 'J', 'L' };
+  static final int VERSION = 1;
+
+  static final int RECORD_PAIR = 0x01;
+  static final int RECORD_POINT = 0x80;
+
+  static final int FLAG_Z = 0x01;
+  static final int FLAG_FAILED = 0x02;
+  static final int FLAG_OUTPUT = 0x04;
+  static final int FLAG_OUTPUT_Z = 0x08;
+
+  private DataOutputStream out;
+  // the id of each pair, keyed by the source and target CRS keys
+  private Map<List<Object>, Integer> pairIds = new HashMap<List<Object>, Integer>();
+  private long pointCount = 0;
+
+  /**
+   * Creates a writer, and writes the log header.
+   *
+   * @param out the stream to write to
+   * @throws IOException if the header cannot be written
+   */
+  public TransformLogWriter(OutputStream out)
+    throws IOException
+  {
+    this.out = new DataOutputStream(new BufferedOutputStream(out));
+    this.out.write(MAGIC);
+    this.out.writeByte(VERSION);
+  }
+
+  /**
+   * Gets the id of a pair of CRSs, writing a pair record the first time
+   * the pair is seen.
+   * Pairs are identified by the names and parameters of their CRSs,
+   * so separately created CRSs with the same definitions share a pair.
+   * CRSs without parameters are identified by their {@link CRSDescriptor}.
+   *
+   * @param srcCRS the source CRS
+   * @param tgtCRS the target CRS
+   * @return the pair id
+   * @throws IOException if the pair record cannot be written
+   */
+  public synchronized int addPair(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS)
+    throws IOException
+  {
+    List<Object> key = Arrays.asList(crsKey(srcCRS), crsKey(tgtCRS));
+    Integer pairId = pairIds.get(key);
+    if (pairId != null)
+      return pairId.intValue();
+    int id = pairIds.size();
+    pairIds.put(key, Integer.valueOf(id));
+    out.writeByte(RECORD_PAIR);
+    writeVarInt(id);
+    writeCRS(srcCRS);
+    writeCRS(tgtCRS);
+    return id;
+  }
+
+  /**
+   * Writes a point record.
+   *
+   * @param pairId the id of the CRS pair, as returned by {@link #addPair}
+   * @param src the input coordinate
+   * @param tgt the output coordinate, or null if it is not recorded
+   * @param isFailed true if the transform failed
+   * @throws IOException if the record cannot be written
+   */
+  public synchronized void writePoint(int pairId, ProjCoordinate src, ProjCoordinate tgt, boolean isFailed)
+    throws IOException
+  {
+    if (pairId < 0 || pairId >= pairIds.size())
+      throw new IllegalArgumentException("Unknown pair id: " + pairId);
+    boolean hasZ = ! Double.isNaN(src.z);
+    boolean hasOutput = tgt != null && ! isFailed;
+    boolean hasOutputZ = hasOutput && ! Double.isNaN(tgt.z);
+    int flags = (hasZ ? FLAG_Z : 0) | (isFailed ? FLAG_FAILED : 0)
+      | (hasOutput ? FLAG_OUTPUT : 0) | (hasOutputZ ? FLAG_OUTPUT_Z : 0);
+    out.writeByte(RECORD_POINT | flags);
+    writeVarInt(pairId);
+    out.writeDouble(src.x);
+    out.writeDouble(src.y);
+    if (hasZ)
+      out.writeDouble(src.z);
+    if (hasOutput) {
+      out.writeDouble(tgt.x);
+      out.writeDouble(tgt.y);
+      if (hasOutputZ)
+        out.writeDouble(tgt.z);
+    }
+    pointCount++;
+  }
+
+  /**
+   * Gets the number of points written so far.
+   */
+  public synchronized long getPointCount()
+  {
+    return pointCount;
+  }
+
+  public synchronized void flush()
+    throws IOException
+  {
+    out.flush();
+  }
+
+  public synchronized void close()
+    throws IOException
+  {
+    out.close();
+  }
+
+  /**
+   * Gets a key which identifies the definition of a CRS.
+   */
+  private static Object crsKey(CoordinateReferenceSystem crs)
+  {
+    if (crs.getParameters() == null)
+      return new CRSDescriptor(crs);
+    return crs.getName() + "\n" + crs.getParameterString();
+  }
+
+  private void writeCRS(CoordinateReferenceSystem crs)
+    throws IOException
+  {
+    ProjectionCodec.writeString(crs.getName(), out);
+    String[] params = crs.getParameters();
+    writeVarInt(params == null ? 0 : params.length + 1);
+    if (params != null) {
+      for (int i = 0; i < params.length; i++) {
+        out.writeUTF(params[i]);
+      }
+    }
+    byte[] descriptor = new CRSDescriptor(crs).toByteArray();
+    writeVarInt(descriptor.length);
+    out.write(descriptor);
+  }
+
+  private void writeVarInt(int n)
+    throws IOException
+  {
+    while ((n & ~0x7f) != 0) {
+      out.writeByte((n & 0x7f) | 0x80);
+      n >>>= 7;
+    }
+    out.writeByte(n);
+  }
+}
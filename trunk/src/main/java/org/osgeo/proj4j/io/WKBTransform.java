@@ -0,0 +1,272 @@
+package org.osgeo.proj4j.io;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.osgeo.proj4j.BatchCoordinateTransform;
+import org.osgeo.proj4j.CoordinateReferenceSystem;
+
+/**
+ * Transforms geometries in Well-Known Binary (WKB) format in place.
+ * <p>
+ * Geometries are read directly from a {@link ByteBuffer}.
+ * All geometry types are supported
+ * (points, line strings, polygons, their multi-part forms and geometry collections),
+ * in either byte order, with or without Z and M ordinates,
+ * in both the ISO (type codes 1001-3007) and PostGIS EWKB forms.
+ * Only the X and Y ordinates are transformed;
+ * Z and M values are left unchanged.
+ * Points which cannot be transformed are written as <tt>NaN</tt>,
+ * and empty points (with <tt>NaN</tt> ordinates) are left as they are.
+ * If a target SRID is set, the SRID of EWKB geometries is rewritten.
+ * <p>
+ * No geometry objects are created.
+ * The X and Y ordinates of consecutive coordinate sequences are collected
+ * into batches (across geometries, if a buffer holds several),
+ * transformed with a {@link BatchCoordinateTransform},
+ * and written back to the same locations.
+ * <p>
+ * A transform can be reused for any number of buffers,
+ * but is not thread-safe.
+ */
+public class WKBTransform
+{
+  /**
+   * The default number of points transformed in a batch
+   */
+  public static final int DEFAULT_BATCH_SIZE = 1024;
+
+  private static final int WKB_POINT = 1;
+  private static final int WKB_LINESTRING = 2;
+  private static final int WKB_POLYGON = 3;
+  private static final int WKB_MULTIPOINT = 4;
+  private static final int WKB_MULTILINESTRING = 5;
+  private static final int WKB_MULTIPOLYGON = 6;
+  private static final int WKB_GEOMETRYCOLLECTION = 7;
+
+  // EWKB type flags
+  private static final int EWKB_Z = 0x80000000;
+  private static final int EWKB_M = 0x40000000;
+  private static final int EWKB_SRID = 0x20000000;
+  private static final int EWKB_FLAGS = EWKB_Z | EWKB_M | EWKB_SRID;
+
+  private BatchCoordinateTransform trans;
+  private int srid = 0;
+
+  // the batch of points, and their locations in the buffer
+  private double[] coords;
+  private int[] offsets;
+  private boolean[] isBigEndian;
+  private int count = 0;
+
+  private long pointCount = 0;
+  private long failCount = 0;
+
+  /**
+   * Creates a WKB transform from a source {@link CoordinateReferenceSystem}
+   * to a target one.
+   *
+   * @param srcCRS the source CRS
+   * @param tgtCRS the target CRS
+   */
+  public WKBTransform(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS)
+  {
+    trans = new BatchCoordinateTransform(srcCRS, tgtCRS);
+    setBatchSize(DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * Sets the number of points transformed in a batch.
+   *
+   * @param batchSize the number of points in a batch
+   */
+  public void setBatchSize(int batchSize)
+  {
+    batchSize = Math.max(1, batchSize);
+    coords = new double[2 * batchSize];
+    offsets = new int[batchSize];
+    isBigEndian = new boolean[batchSize];
+  }
+
+  /**
+   * Sets the SRID written to EWKB geometries which include an SRID.
+   * By default the SRID is not changed.
+   *
+   * @param srid the target SRID, or 0 to leave SRIDs unchanged
+   */
+  public void setSRID(int srid)
+  {
+    this.srid = srid;
+  }
+
+  /**
+   * Gets the number of points transformed by the last transform.
+   * Empty points are not included.
+   */
+  public long getPointCount()
+  {
+    return pointCount;
+  }
+
+  /**
+   * Gets the number of points which could not be transformed by the last transform.
+   */
+  public long getFailCount()
+  {
+    return failCount;
+  }
+
+  /**
+   * Transforms a WKB geometry held in a byte array in place.
+   *
+   * @param wkb the geometry
+   * @return the number of points which could not be transformed
+   * @throws IllegalArgumentException if the WKB is invalid
+   */
+  public long transform(byte[] wkb)
+  {
+    return transform(ByteBuffer.wrap(wkb));
+  }
+
+  /**
+   * Transforms the WKB geometries held in the remaining bytes of a buffer in place.
+   * The buffer may hold a single geometry or several consecutive geometries.
+   * The buffer position is advanced to the limit,
+   * and the byte order of the buffer is not changed.
+   * If the WKB is invalid, the contents of the buffer are undefined.
+   *
+   * @param wkb the buffer holding the geometries
+   * @return the number of points which could not be transformed
+   * @throws IllegalArgumentException if the WKB is invalid
+   */
+  public long transform(ByteBuffer wkb)
+  {
+    ByteOrder order = wkb.order();
+    pointCount = 0;
+    failCount = 0;
+    count = 0;
+    try {
+      while (wkb.hasRemaining()) {
+        readGeometry(wkb);
+      }
+      flush(wkb);
+    }
+    catch (BufferUnderflowException ex) {
+      throw new IllegalArgumentException("Invalid WKB: unexpected end of geometry");
+    }
+    catch (IndexOutOfBoundsException ex) {
+      throw new IllegalArgumentException("Invalid WKB: unexpected end of geometry");
+    }
+    finally {
+      wkb.order(order);
+    }
+    return failCount;
+  }
+
+  private void readGeometry(ByteBuffer buf)
+  {
+    byte byteOrder = buf.get();
+    if (byteOrder == 0)
+      buf.order(ByteOrder.BIG_ENDIAN);
+    else if (byteOrder == 1)
+      buf.order(ByteOrder.LITTLE_ENDIAN);
+    else
+      throw new IllegalArgumentException("Invalid WKB byte order: " + byteOrder);
+
+    int typeWord = buf.getInt();
+    boolean hasZ = (typeWord & EWKB_Z) != 0;
+    boolean hasM = (typeWord & EWKB_M) != 0;
+    if ((typeWord & EWKB_SRID) != 0) {
+      if (srid != 0)
+        buf.putInt(buf.position(), srid);
+      buf.getInt();
+    }
+    int type = typeWord & ~EWKB_FLAGS;
+    if (type >= 1000 && type < 4000) {
+      int dims = type / 1000;
+      hasZ |= dims == 1 || dims == 3;
+      hasM |= dims == 2 || dims == 3;
+      type %= 1000;
+    }
+    int dim = 2 + (hasZ ? 1 : 0) + (hasM ? 1 : 0);
+
+    switch (type) {
+    case WKB_POINT:
+      readPoints(buf, 1, dim);
+      break;
+    case WKB_LINESTRING:
+      readPoints(buf, readCount(buf, 8 * dim), dim);
+      break;
+    case WKB_POLYGON:
+      int ringCount = readCount(buf, 4);
+      for (int i = 0; i < ringCount; i++) {
+        readPoints(buf, readCount(buf, 8 * dim), dim);
+      }
+      break;
+    case WKB_MULTIPOINT:
+    case WKB_MULTILINESTRING:
+    case WKB_MULTIPOLYGON:
+    case WKB_GEOMETRYCOLLECTION:
+      int geomCount = readCount(buf, 5);
+      for (int i = 0; i < geomCount; i++) {
+        readGeometry(buf);
+      }
+      break;
+    default:
+      throw new IllegalArgumentException("Unsupported WKB geometry type: " + type);
+    }
+  }
+
+  /**
+   * Reads a count of elements, checking that the elements can fit in the buffer.
+   */
+  private static int readCount(ByteBuffer buf, int minElementSize)
+  {
+    int n = buf.getInt();
+    if (n < 0 || n > buf.remaining() / minElementSize)
+      throw new IllegalArgumentException("Invalid WKB element count: " + n);
+    return n;
+  }
+
+  private void readPoints(ByteBuffer buf, int n, int dim)
+  {
+    boolean isBig = buf.order() == ByteOrder.BIG_ENDIAN;
+    int pos = buf.position();
+    int end = pos + 8 * dim * n;
+    if (end > buf.limit())
+      throw new BufferUnderflowException();
+    for (; pos < end; pos += 8 * dim) {
+      double x = buf.getDouble(pos);
+      double y = buf.getDouble(pos + 8);
+      // empty points are left unchanged
+      if (Double.isNaN(x) && Double.isNaN(y))
+        continue;
+      if (count == offsets.length)
+        flush(buf);
+      offsets[count] = pos;
+      isBigEndian[count] = isBig;
+      coords[2 * count] = x;
+      coords[2 * count + 1] = y;
+      count++;
+    }
+    buf.position(end);
+  }
+
+  /**
+   * Transforms the points in the batch and writes them back to the buffer.
+   */
+  private void flush(ByteBuffer buf)
+  {
+    failCount += trans.transform(coords, count);
+    pointCount += count;
+    ByteOrder order = buf.order();
+    for (int i = 0; i < count; i++) {
+      buf.order(isBigEndian[i] ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+      buf.putDouble(offsets[i], coords[2 * i]);
+      buf.putDouble(offsets[i] + 8, coords[2 * i + 1]);
+    }
+    buf.order(order);
+    count = 0;
+  }
+}
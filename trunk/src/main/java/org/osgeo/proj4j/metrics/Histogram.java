@@ -0,0 +1,147 @@
+package org.osgeo.proj4j.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative values, with buckets at powers of 2.
+ * Bucket <tt>b</tt> counts the values from <tt>2<sup>b-1</sup></tt>
+ * to <tt>2<sup>b</sup>-1</tt>, and bucket 0 counts zeroes.
+ * Recording a value does not allocate memory or take a lock,
+ * so histograms may be updated by many threads at once.
+ */
+public class Histogram
+{
+  /**
+   * The number of buckets
+   */
+  public static final int BUCKET_COUNT = 64;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  public Histogram()
+  {
+  }
+
+  /**
+   * Records a value.
+   * Negative values are recorded as 0.
+   *
+   * @param value the value to record
+   */
+  public void record(long value)
+  {
+    if (value < 0)
+      value = 0;
+    buckets.incrementAndGet(bucket(value));
+    count.incrementAndGet();
+    sum.addAndGet(value);
+    long m = max.get();
+    while (value > m && ! max.compareAndSet(m, value))
+      m = max.get();
+  }
+
+  private static int bucket(long value)
+  {
+    int b = 64 - Long.numberOfLeadingZeros(value);
+    return b < BUCKET_COUNT ? b : BUCKET_COUNT - 1;
+  }
+
+  /**
+   * Gets the number of values recorded.
+   */
+  public long getCount()
+  {
+    return count.get();
+  }
+
+  /**
+   * Gets the sum of the values recorded.
+   */
+  public long getSum()
+  {
+    return sum.get();
+  }
+
+  /**
+   * Gets the largest value recorded.
+   */
+  public long getMax()
+  {
+    return max.get();
+  }
+
+  /**
+   * Gets the mean of the values recorded.
+   *
+   * @return the mean value, or 0 if no values have been recorded
+   */
+  public double getMean()
+  {
+    long n = count.get();
+    return n == 0 ? 0 : sum.get() / (double) n;
+  }
+
+  /**
+   * Gets the number of values recorded in a bucket.
+   *
+   * @param b the bucket index
+   * @return the bucket count
+   */
+  public long getBucketCount(int b)
+  {
+    return buckets.get(b);
+  }
+
+  /**
+   * Gets an upper bound for a quantile of the values recorded,
+   * which is the upper limit of the bucket the quantile lies in
+   * (or the maximum value, if that is smaller).
+   *
+   * @param q the quantile, between 0 and 1 (e.g. 0.99 for the 99th percentile)
+   * @return the quantile bound, or 0 if no values have been recorded
+   */
+  public long getQuantile(double q)
+  {
+    long n = count.get();
+    if (n == 0)
+      return 0;
+    long rank = (long) Math.ceil(q * n);
+    long seen = 0;
+    for (int b = 0; b < BUCKET_COUNT; b++) {
+      seen += buckets.get(b);
+      if (seen >= rank && seen > 0) {
+        long upper = b == 0 ? 0 : (1L << b) - 1;
+        return Math.min(upper, max.get());
+      }
+    }
+    return max.get();
+  }
+
+  /**
+   * Adds the values recorded in another histogram to this one.
+   *
+   * @param other the histogram to add
+   */
+  public void add(Histogram other)
+  {
+    for (int b = 0; b < BUCKET_COUNT; b++) {
+      buckets.addAndGet(b, other.buckets.get(b));
+    }
+    count.addAndGet(other.count.get());
+    sum.addAndGet(other.sum.get());
+    long m = max.get();
+    long value = other.max.get();
+    while (value > m && ! max.compareAndSet(m, value))
+      m = max.get();
+  }
+
+  public String toString()
+  {
+    return "count=" + getCount() + " mean=" + Math.round(getMean())
+      + " p50=" + getQuantile(0.5) + " p99=" + getQuantile(0.99) + " max=" + getMax();
+  }
+}
@@ -0,0 +1,48 @@
+package org.osgeo.proj4j.metrics;
+
+/**
+ * Holds the {@link MetricsListener} which the library reports to.
+ * By default no listener is installed, and the only cost
+ * of the instrumentation is a test for a <tt>null</tt> listener.
+ */
+public class Metrics
+{
+  private static volatile MetricsListener listener = null;
+
+  private Metrics()
+  {
+  }
+
+  /**
+   * Installs a listener, replacing any existing one.
+   *
+   * @param listener the listener to report to, or null to disable reporting
+   */
+  public static void setListener(MetricsListener listener)
+  {
+    Metrics.listener = listener;
+  }
+
+  /**
+   * Gets the installed listener.
+   *
+   * @return the listener, or null if none is installed
+   */
+  public static MetricsListener getListener()
+  {
+    return listener;
+  }
+
+  /**
+   * Reports the completion of an iterative computation
+   * to the installed listener, if any.
+   *
+   * @see MetricsListener#iterativeSolve(String, int, int, boolean)
+   */
+  public static void reportSolve(String solver, int iterations, int maxIterations, boolean isConverged)
+  {
+    MetricsListener l = listener;
+    if (l != null)
+      l.iterativeSolve(solver, iterations, maxIterations, isConverged);
+  }
+}
@@ -0,0 +1,103 @@
+package org.osgeo.proj4j.metrics;
+
+import org.osgeo.proj4j.CoordinateReferenceSystem;
+import org.osgeo.proj4j.Proj4jException;
+
+/**
+ * Receives notification of the work done by the library,
+ * for the purpose of collecting metrics.
+ * A listener is installed with {@link Metrics#setListener(MetricsListener)}.
+ * <p>
+ * Listeners are called synchronously, on the thread doing the work,
+ * and possibly from many threads at once.
+ * They must be thread-safe, and should return quickly,
+ * since they are called once for every point transformed.
+ * Listeners must not throw exceptions.
+ *
+ * @see TransformMetrics
+ */
+public interface MetricsListener
+{
+  /**
+   * Reports that a point was transformed.
+   *
+   * @param srcCRS the source CRS
+   * @param tgtCRS the target CRS
+   * @param nanos the time taken, in nanoseconds
+   */
+  public void transformed(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS, long nanos);
+
+  /**
+   * Reports that transforming a point threw an exception.
+   *
+   * @param srcCRS the source CRS
+   * @param tgtCRS the target CRS
+   * @param ex the exception thrown
+   */
+  public void transformFailed(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS, Proj4jException ex);
+
+  /**
+   * Reports that a batch of points was transformed by a
+   * {@link org.osgeo.proj4j.BatchCoordinateTransform}.
+   * The points in the batch are also reported individually.
+   *
+   * @param srcCRS the source CRS
+   * @param tgtCRS the target CRS
+   * @param pointCount the number of points in the batch
+   * @param failCount the number of points which could not be transformed
+   * @param nanos the time taken, in nanoseconds
+   */
+  public void batchTransformed(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS,
+      int pointCount, int failCount, long nanos);
+
+  /**
+   * Reports that a {@link CoordinateReferenceSystem} was created
+   * by a {@link org.osgeo.proj4j.CRSFactory}.
+   *
+   * @param name the CRS name (which may be null)
+   * @param catalogNanos the time taken to find the definition in an authority file,
+   * in nanoseconds (0 if the CRS was created from parameters)
+   * @param parseNanos the time taken to parse the parameters and create the CRS,
+   * in nanoseconds
+   */
+  public void crsCreated(String name, long catalogNanos, long parseNanos);
+
+  /**
+   * Reports the completion of an iterative computation,
+   * such as the inverse of a projection with no closed form.
+   *
+   * @param solver the name of the computation
+   * @param iterations the number of iterations carried out
+   * @param maxIterations the iteration limit of the computation
+   * @param isConverged false if the limit was reached without converging
+   */
+  public void iterativeSolve(String solver, int iterations, int maxIterations, boolean isConverged);
+
+  /**
+   * Reports a lookup in the {@link org.osgeo.proj4j.util.CRSCache}.
+   *
+   * @param name the CRS name
+   * @param isHit true if the CRS was found in the cache
+   */
+  public void cacheLookup(String name, boolean isHit);
+
+  /**
+   * Reports that a CRS was created and loaded into the
+   * {@link org.osgeo.proj4j.util.CRSCache} after a cache miss.
+   *
+   * @param name the CRS name
+   * @param nanos the time taken to create the CRS, in nanoseconds
+   */
+  public void cacheLoaded(String name, long nanos);
+
+  /**
+   * Reports a lookup of a CRS definition in an authority file
+   * by {@link org.osgeo.proj4j.io.Proj4FileReader}.
+   *
+   * @param authority the authority (e.g. <tt>EPSG</tt>)
+   * @param code the CRS code
+   * @param isFound true if the code was found
+   * @param nanos the time taken, in nanoseconds
+   */
+  public void catalogLookup(String authority, String code, boolean isFound, long nanos);
+}
@@ -0,0 +1,469 @@
+package org.osgeo.proj4j.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.osgeo.proj4j.CoordinateReferenceSystem;
+import org.osgeo.proj4j.Proj4jException;
+
+/**
+ * A {@link MetricsListener} which accumulates metrics in memory,
+ * and exposes them as a JMX MBean.
+ * The metrics collected are:
+ * <ul>
+ * <li>the count and latency histogram of the transforms between each pair of CRSs
+ * <li>the number of exceptions thrown by transforms, by exception type
+ * <li>the number of points per batch
+ * <li>the time taken to parse CRS definitions
+ * <li>the number of iterative computations which failed to converge
+ * <li>the iteration counts of each iterative solver,
+ * and the number of times it reached its iteration limit
+ * <li>the hits, misses and load times of the CRS cache
+ * <li>the lookup times in each authority file
+ * </ul>
+ * Recording a metric does not take a lock,
+ * and only allocates memory the first time a CRS pair,
+ * exception type, solver or authority is seen.
+ * <p>
+ * Typical use is:
+ * <pre>
+ * TransformMetrics metrics = TransformMetrics.install();
+ * </pre>
+ * which registers the MBean under {@link #OBJECT_NAME}
+ * and starts collecting metrics.
+ */
+public class TransformMetrics
+  implements MetricsListener, TransformMetricsMBean
+{
+  /**
+   * The name the MBean is registered under
+   */
+  public static final String OBJECT_NAME = "org.osgeo.proj4j:type=TransformMetrics";
+
+  /**
+   * Creates a metrics collector, registers it as an MBean
+   * and installs it as the {@link Metrics} listener.
+   *
+   * @return the metrics collector
+   * @throws JMException if the MBean cannot be registered
+   */
+  public static TransformMetrics install()
+    throws JMException
+  {
+    TransformMetrics metrics = new TransformMetrics();
+    metrics.registerMBean();
+    Metrics.setListener(metrics);
+    return metrics;
+  }
+
+  /**
+   * The metrics collected since the last reset.
+   * Resetting replaces the whole object,
+   * so that the metrics remain consistent with each other.
+   */
+  private static class Counts
+  {
+    // keyed by source and target CRS names, so CRS objects are not retained
+    ConcurrentMap<String, ConcurrentMap<String, Histogram>> pairs
+      = new ConcurrentHashMap<String, ConcurrentMap<String, Histogram>>();
+    AtomicLong transformFailures = new AtomicLong();
+    ConcurrentMap<Class<?>, AtomicLong> exceptions = new ConcurrentHashMap<Class<?>, AtomicLong>();
+    Histogram batchSizes = new Histogram();
+    AtomicLong batchFailures = new AtomicLong();
+    Histogram crsParses = new Histogram();
+    AtomicLong convergenceFailures = new AtomicLong();
+    ConcurrentMap<String, Histogram> solves = new ConcurrentHashMap<String, Histogram>();
+    ConcurrentMap<String, AtomicLong> limitHits = new ConcurrentHashMap<String, AtomicLong>();
+    AtomicLong cacheHits = new AtomicLong();
+    AtomicLong cacheMisses = new AtomicLong();
+    Histogram cacheLoads = new Histogram();
+    ConcurrentMap<String, Histogram> catalogLookups = new ConcurrentHashMap<String, Histogram>();
+    AtomicLong catalogMisses = new AtomicLong();
+  }
+
+  private volatile Counts counts = new Counts();
+
+  public TransformMetrics()
+  {
+  }
+
+  /**
+   * Registers this object with the platform MBean server,
+   * replacing any MBean already registered under {@link #OBJECT_NAME}.
+   *
+   * @throws JMException if the MBean cannot be registered
+   */
+  public void registerMBean()
+    throws JMException
+  {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName(OBJECT_NAME);
+    if (server.isRegistered(name))
+      server.unregisterMBean(name);
+    server.registerMBean(this, name);
+  }
+
+  /**
+   * Unregisters the MBean registered under {@link #OBJECT_NAME}, if any.
+   *
+   * @throws JMException if the MBean cannot be unregistered
+   */
+  public void unregisterMBean()
+    throws JMException
+  {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName(OBJECT_NAME);
+    if (server.isRegistered(name))
+      server.unregisterMBean(name);
+  }
+
+  //------------------  MetricsListener  ----------------------
+
+  public void transformed(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS, long nanos)
+  {
+    pairHistogram(counts, srcCRS, tgtCRS).record(nanos);
+  }
+
+  public void transformFailed(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS, Proj4jException ex)
+  {
+    Counts c = counts;
+    c.transformFailures.incrementAndGet();
+    Class<?> type = ex.getClass();
+    AtomicLong n = c.exceptions.get(type);
+    if (n == null) {
+      c.exceptions.putIfAbsent(type, new AtomicLong());
+      n = c.exceptions.get(type);
+    }
+    n.incrementAndGet();
+  }
+
+  public void batchTransformed(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS,
+      int pointCount, int failCount, long nanos)
+  {
+    Counts c = counts;
+    c.batchSizes.record(pointCount);
+    c.batchFailures.addAndGet(failCount);
+  }
+
+  public void crsCreated(String name, long catalogNanos, long parseNanos)
+  {
+    counts.crsParses.record(parseNanos);
+  }
+
+  public void iterativeSolve(String solver, int iterations, int maxIterations, boolean isConverged)
+  {
+    Counts c = counts;
+    Histogram h = c.solves.get(solver);
+    if (h == null) {
+      c.solves.putIfAbsent(solver, new Histogram());
+      h = c.solves.get(solver);
+    }
+    h.record(iterations);
+    if (! isConverged)
+      c.convergenceFailures.incrementAndGet();
+    if (! isConverged || iterations >= maxIterations) {
+      AtomicLong n = c.limitHits.get(solver);
+      if (n == null) {
+        c.limitHits.putIfAbsent(solver, new AtomicLong());
+        n = c.limitHits.get(solver);
+      }
+      n.incrementAndGet();
+    }
+  }
+
+  public void cacheLookup(String name, boolean isHit)
+  {
+    if (isHit)
+      counts.cacheHits.incrementAndGet();
+    else
+      counts.cacheMisses.incrementAndGet();
+  }
+
+  public void cacheLoaded(String name, long nanos)
+  {
+    counts.cacheLoads.record(nanos);
+  }
+
+  public void catalogLookup(String authority, String code, boolean isFound, long nanos)
+  {
+    Counts c = counts;
+    Histogram h = c.catalogLookups.get(authority);
+    if (h == null) {
+      c.catalogLookups.putIfAbsent(authority, new Histogram());
+      h = c.catalogLookups.get(authority);
+    }
+    h.record(nanos);
+    if (! isFound)
+      c.catalogMisses.incrementAndGet();
+  }
+
+  private static Histogram pairHistogram(Counts c, CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS)
+  {
+    String srcName = srcCRS.getName();
+    String tgtName = tgtCRS.getName();
+    ConcurrentMap<String, Histogram> tgtMap = c.pairs.get(srcName);
+    if (tgtMap == null) {
+      c.pairs.putIfAbsent(srcName, new ConcurrentHashMap<String, Histogram>());
+      tgtMap = c.pairs.get(srcName);
+    }
+    Histogram h = tgtMap.get(tgtName);
+    if (h == null) {
+      tgtMap.putIfAbsent(tgtName, new Histogram());
+      h = tgtMap.get(tgtName);
+    }
+    return h;
+  }
+
+  //------------------  Metrics access  ----------------------
+
+  /**
+   * Gets the latency histograms of the transforms between each pair of CRSs,
+   * keyed by <tt>source -&gt; target</tt> CRS names.
+   * Transforms between distinct CRS objects with the same names are counted together.
+   * The pairs with the most transforms come first.
+   *
+   * @return the latency histograms, in nanoseconds
+   */
+  public Map<String, Histogram> getTransformLatencies()
+  {
+    Map<String, Histogram> byName = new LinkedHashMap<String, Histogram>();
+    for (Iterator<Map.Entry<String, ConcurrentMap<String, Histogram>>> i
+        = counts.pairs.entrySet().iterator(); i.hasNext(); ) {
+      Map.Entry<String, ConcurrentMap<String, Histogram>> src = i.next();
+      for (Iterator<Map.Entry<String, Histogram>> j = src.getValue().entrySet().iterator(); j.hasNext(); ) {
+        Map.Entry<String, Histogram> tgt = j.next();
+        byName.put(src.getKey() + " -> " + tgt.getKey(), tgt.getValue());
+      }
+    }
+    List<Map.Entry<String, Histogram>> entries = new ArrayList<Map.Entry<String, Histogram>>(byName.entrySet());
+    Collections.sort(entries, new Comparator<Map.Entry<String, Histogram>>() {
+      public int compare(Map.Entry<String, Histogram> e1, Map.Entry<String, Histogram> e2)
+      {
+        long n1 = e1.getValue().getCount();
+        long n2 = e2.getValue().getCount();
+        return n1 > n2 ? -1 : (n1 < n2 ? 1 : 0);
+      }
+    });
+    Map<String, Histogram> sorted = new LinkedHashMap<String, Histogram>();
+    for (Iterator<Map.Entry<String, Histogram>> i = entries.iterator(); i.hasNext(); ) {
+      Map.Entry<String, Histogram> e = i.next();
+      sorted.put(e.getKey(), e.getValue());
+    }
+    return sorted;
+  }
+
+  /**
+   * Gets the number of exceptions thrown by transforms,
+   * keyed by the simple name of the exception class.
+   *
+   * @return the exception counts
+   */
+  public Map<String, Long> getExceptionCountsByType()
+  {
+    Map<String, Long> result = new LinkedHashMap<String, Long>();
+    for (Iterator<Map.Entry<Class<?>, AtomicLong>> i = counts.exceptions.entrySet().iterator(); i.hasNext(); ) {
+      Map.Entry<Class<?>, AtomicLong> e = i.next();
+      result.put(e.getKey().getSimpleName(), Long.valueOf(e.getValue().get()));
+    }
+    return result;
+  }
+
+  /**
+   * Gets the histogram of the number of points per batch.
+   */
+  public Histogram getBatchSizeHistogram()
+  {
+    return counts.batchSizes;
+  }
+
+  /**
+   * Gets the histogram of the times taken to load CRSs into the cache,
+   * in nanoseconds.
+   */
+  public Histogram getCacheLoadHistogram()
+  {
+    return counts.cacheLoads;
+  }
+
+  /**
+   * Gets the histograms of the lookup times in each authority file,
+   * in nanoseconds.
+   *
+   * @return the histograms, keyed by authority
+   */
+  public Map<String, Histogram> getCatalogLookupHistograms()
+  {
+    return new LinkedHashMap<String, Histogram>(counts.catalogLookups);
+  }
+
+  /**
+   * Gets the histograms of the number of iterations used by each iterative solver.
+   * Solvers are named after the projection using them,
+   * or after the shared routine (such as <tt>phi2</tt>).
+   *
+   * @return the histograms, keyed by solver
+   */
+  public Map<String, Histogram> getIterationHistograms()
+  {
+    return new LinkedHashMap<String, Histogram>(counts.solves);
+  }
+
+  /**
+   * Gets the number of times each iterative solver reached its iteration limit,
+   * whether or not it had converged by then.
+   * Solvers which never reached their limit are omitted.
+   *
+   * @return the counts, keyed by solver
+   */
+  public Map<String, Long> getIterationLimitCounts()
+  {
+    Map<String, Long> result = new LinkedHashMap<String, Long>();
+    for (Iterator<Map.Entry<String, AtomicLong>> i = counts.limitHits.entrySet().iterator(); i.hasNext(); ) {
+      Map.Entry<String, AtomicLong> e = i.next();
+      result.put(e.getKey(), Long.valueOf(e.getValue().get()));
+    }
+    return result;
+  }
+
+  //------------------  TransformMetricsMBean  ----------------------
+
+  public long getTransformCount()
+  {
+    long n = 0;
+    for (Iterator<Histogram> i = getTransformLatencies().values().iterator(); i.hasNext(); ) {
+      n += i.next().getCount();
+    }
+    return n;
+  }
+
+  public long getTransformFailureCount()
+  {
+    return counts.transformFailures.get();
+  }
+
+  public String[] getTransformPairs()
+  {
+    return summarize(getTransformLatencies());
+  }
+
+  public String[] getExceptionCounts()
+  {
+    Map<String, Long> exceptions = getExceptionCountsByType();
+    List<String> lines = new ArrayList<String>();
+    for (Iterator<Map.Entry<String, Long>> i = exceptions.entrySet().iterator(); i.hasNext(); ) {
+      Map.Entry<String, Long> e = i.next();
+      lines.add(e.getKey() + ": " + e.getValue());
+    }
+    return lines.toArray(new String[lines.size()]);
+  }
+
+  public long getBatchCount()
+  {
+    return counts.batchSizes.getCount();
+  }
+
+  public long getBatchFailureCount()
+  {
+    return counts.batchFailures.get();
+  }
+
+  public String getBatchSizes()
+  {
+    return counts.batchSizes.toString();
+  }
+
+  public long getCRSCreationCount()
+  {
+    return counts.crsParses.getCount();
+  }
+
+  public double getCRSParseMeanMillis()
+  {
+    return counts.crsParses.getMean() / 1e6;
+  }
+
+  public long getConvergenceFailureCount()
+  {
+    return counts.convergenceFailures.get();
+  }
+
+  public String[] getIterativeSolves()
+  {
+    Map<String, Histogram> histograms = getIterationHistograms();
+    Map<String, Long> limits = getIterationLimitCounts();
+    List<String> lines = new ArrayList<String>();
+    for (Iterator<Map.Entry<String, Histogram>> i = histograms.entrySet().iterator(); i.hasNext(); ) {
+      Map.Entry<String, Histogram> e = i.next();
+      Long n = limits.get(e.getKey());
+      lines.add(e.getKey() + ": " + e.getValue() + " limitHits=" + (n == null ? 0 : n.longValue()));
+    }
+    return lines.toArray(new String[lines.size()]);
+  }
+
+  public long getCacheHitCount()
+  {
+    return counts.cacheHits.get();
+  }
+
+  public long getCacheMissCount()
+  {
+    return counts.cacheMisses.get();
+  }
+
+  public long getCacheLoadCount()
+  {
+    return counts.cacheLoads.getCount();
+  }
+
+  public double getCacheLoadMeanMillis()
+  {
+    return counts.cacheLoads.getMean() / 1e6;
+  }
+
+  public long getCatalogLookupCount()
+  {
+    long n = 0;
+    for (Iterator<Histogram> i = counts.catalogLookups.values().iterator(); i.hasNext(); ) {
+      n += i.next().getCount();
+    }
+    return n;
+  }
+
+  public long getCatalogLookupMissCount()
+  {
+    return counts.catalogMisses.get();
+  }
+
+  public String[] getCatalogLookups()
+  {
+    return summarize(getCatalogLookupHistograms());
+  }
+
+  public void reset()
+  {
+    counts = new Counts();
+  }
+
+  private static String[] summarize(Map<String, Histogram> histograms)
+  {
+    List<String> lines = new ArrayList<String>();
+    for (Iterator<Map.Entry<String, Histogram>> i = histograms.entrySet().iterator(); i.hasNext(); ) {
+      Map.Entry<String, Histogram> e = i.next();
+      lines.add(e.getKey() + ": " + e.getValue());
+    }
+    return lines.toArray(new String[lines.size()]);
+  }
+}
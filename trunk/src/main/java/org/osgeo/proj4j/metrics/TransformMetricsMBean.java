@@ -0,0 +1,79 @@
+package org.osgeo.proj4j.metrics;
+
+/**
+ * The JMX management interface of {@link TransformMetrics}.
+ * Times are reported in nanoseconds,
+ * except where the attribute name says otherwise.
+ */
+public interface TransformMetricsMBean
+{
+  public long getTransformCount();
+
+  public long getTransformFailureCount();
+
+  /**
+   * Gets a summary of the latency of the transforms between each pair of CRSs,
+   * with the most frequently used pairs first.
+   *
+   * @return a line for each CRS pair
+   */
+  public String[] getTransformPairs();
+
+  /**
+   * Gets the number of exceptions thrown by transforms, by exception type.
+   *
+   * @return a line for each exception type
+   */
+  public String[] getExceptionCounts();
+
+  public long getBatchCount();
+
+  public long getBatchFailureCount();
+
+  /**
+   * Gets a summary of the number of points per batch.
+   */
+  public String getBatchSizes();
+
+  public long getCRSCreationCount();
+
+  public double getCRSParseMeanMillis();
+
+  /**
+   * Gets the number of iterative computations
+   * which reached their iteration limit without converging.
+   */
+  public long getConvergenceFailureCount();
+
+  /**
+   * Gets a summary of the number of iterations used by each iterative solver,
+   * and the number of times it reached its iteration limit.
+   *
+   * @return a line for each solver
+   */
+  public String[] getIterativeSolves();
+
+  public long getCacheHitCount();
+
+  public long getCacheMissCount();
+
+  public long getCacheLoadCount();
+
+  public double getCacheLoadMeanMillis();
+
+  public long getCatalogLookupCount();
+
+  public long getCatalogLookupMissCount();
+
+  /**
+   * Gets a summary of the lookup times for each authority file.
+   *
+   * @return a line for each authority
+   */
+  public String[] getCatalogLookups();
+
+  /**
+   * Discards all the metrics collected so far.
+   */
+  public void reset();
+}
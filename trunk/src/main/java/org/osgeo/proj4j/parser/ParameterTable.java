@@ -0,0 +1,173 @@
+package org.osgeo.proj4j.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.osgeo.proj4j.UnsupportedParameterException;
+import org.osgeo.proj4j.units.Angle;
+import org.osgeo.proj4j.util.DoubleParser;
+
+/**
+ * The values of a set of PROJ.4 parameters,
+ * indexed by {@link Proj4Param}.
+ * Numeric and angle values are parsed when the table is built,
+ * so a table can be reused to create any number of coordinate systems
+ * without re-parsing.
+ * Tables are immutable once built.
+ */
+final class ParameterTable
+{
+  private static final int COUNT = Proj4Param.values().length;
+
+  /**
+   * Builds a table from a PROJ.4 parameter string,
+   * in a single pass over the characters.
+   *
+   * @param paramStr a PROJ.4 parameter string
+   * @return the parameter table
+   * @throws UnsupportedParameterException if a parameter is not supported
+   * @throws NumberFormatException if a numeric value is malformed
+   */
+  static ParameterTable parse(CharSequence paramStr)
+  {
+    ParameterTable table = new ParameterTable();
+    List<String> args = new ArrayList<String>();
+    int len = paramStr.length();
+    int i = 0;
+    while (i < len) {
+      while (i < len && isWhitespace(paramStr.charAt(i)))
+        i++;
+      int start = i;
+      while (i < len && ! isWhitespace(paramStr.charAt(i)))
+        i++;
+      if (i > start) {
+        String arg = paramStr.subSequence(start, i).toString();
+        table.add(arg);
+        args.add(arg);
+      }
+    }
+    table.args = args.toArray(new String[args.size()]);
+    return table;
+  }
+
+  /**
+   * Builds a table from an array of PROJ.4 parameters.
+   *
+   * @param args an array of PROJ.4 parameters, each of the form <tt>+key=value</tt>
+   * @return the parameter table
+   * @throws UnsupportedParameterException if a parameter is not supported
+   * @throws NumberFormatException if a numeric value is malformed
+   */
+  static ParameterTable parse(String[] args)
+  {
+    ParameterTable table = new ParameterTable();
+    table.args = args.clone();
+    for (int i = 0; i < args.length; i++) {
+      table.add(args[i]);
+    }
+    return table;
+  }
+
+  private static boolean isWhitespace(char c)
+  {
+    return c <= ' ' || Character.isWhitespace(c);
+  }
+
+  private String[] args;
+  private final boolean[] isPresent = new boolean[COUNT];
+  private final String[] text = new String[COUNT];
+  private final double[] number = new double[COUNT];
+
+  private ParameterTable()
+  {
+    Arrays.fill(number, Double.NaN);
+  }
+
+  private void add(String arg)
+  {
+    int len = arg.length();
+    // strip leading "+" if any
+    int keyStart = (len > 0 && arg.charAt(0) == '+') ? 1 : 0;
+    int eq = arg.indexOf('=', keyStart);
+    int keyEnd = eq < 0 ? len : eq;
+
+    Proj4Param param = Proj4Param.find(arg, keyStart, keyEnd);
+    if (param == null || ! param.isSupported())
+      throw new UnsupportedParameterException(arg.substring(keyStart, keyEnd) + " parameter is not supported");
+
+    int index = param.ordinal();
+    isPresent[index] = true;
+    text[index] = null;
+    number[index] = Double.NaN;
+    if (eq < 0)
+      return;
+
+    int valStart = eq + 1;
+    switch (param.getType()) {
+    case NUMBER:
+      number[index] = DoubleParser.parse(arg, valStart, len);
+      break;
+    case ANGLE:
+      number[index] = parseAngle(arg, valStart, len);
+      break;
+    default:
+      text[index] = arg.substring(valStart);
+    }
+  }
+
+  private static double parseAngle(String s, int start, int end)
+  {
+    // only DMS angles (or ones with a hemisphere suffix) need the full angle parser
+    for (int i = start; i < end; i++) {
+      char c = s.charAt(i);
+      if (! ((c >= '0' && c <= '9') || c == '.' || c == '-' || c == '+'))
+        return Angle.parse(s.substring(start, end));
+    }
+    return DoubleParser.parse(s, start, end);
+  }
+
+  /**
+   * Gets a copy of the parameters the table was built from.
+   */
+  String[] getArgs()
+  {
+    return args.clone();
+  }
+
+  /**
+   * Tests whether a parameter was specified (with or without a value).
+   */
+  boolean contains(Proj4Param param)
+  {
+    return isPresent[param.ordinal()];
+  }
+
+  /**
+   * Tests whether a numeric or angle parameter has a value.
+   */
+  boolean hasNumber(Proj4Param param)
+  {
+    return ! Double.isNaN(number[param.ordinal()]);
+  }
+
+  /**
+   * Gets the value of a numeric or angle parameter (angles are in degrees).
+   *
+   * @return the value, or NaN if the parameter has no value
+   */
+  double getNumber(Proj4Param param)
+  {
+    return number[param.ordinal()];
+  }
+
+  /**
+   * Gets the value of a text parameter.
+   *
+   * @return the value, or null if the parameter has no value
+   */
+  String getText(Proj4Param param)
+  {
+    return text[param.ordinal()];
+  }
+}
@@ -0,0 +1,127 @@
+package org.osgeo.proj4j.parser;
+
+/**
+ * The PROJ.4 parameters recognized by {@link Proj4Parser},
+ * along with the kind of value each one takes.
+ * The constant names are the PROJ.4 keywords (see {@link Proj4Keyword}).
+ * <p>
+ * Parameters which are recognized but not supported
+ * are rejected by the parser.
+ *
+ * @see Proj4Keyword
+ */
+public enum Proj4Param
+{
+  a(Type.NUMBER),
+  b(Type.NUMBER),
+  f(Type.NUMBER),
+  alpha(Type.NUMBER),
+  datum(Type.TEXT),
+  ellps(Type.TEXT),
+  es(Type.NUMBER),
+
+  k(Type.NUMBER),
+  k_0(Type.NUMBER),
+  lat_ts(Type.ANGLE),
+  lat_0(Type.ANGLE),
+  lat_1(Type.ANGLE),
+  lat_2(Type.ANGLE),
+  lon_0(Type.ANGLE),
+  lonc(Type.NUMBER),
+
+  proj(Type.TEXT),
+
+  R_A(Type.FLAG),
+  rf(Type.NUMBER),
+
+  south(Type.FLAG),
+  to_meter(Type.NUMBER),
+  towgs84(Type.TEXT),
+  units(Type.TEXT),
+  x_0(Type.NUMBER),
+  y_0(Type.NUMBER),
+  zone(Type.TEXT),
+
+  // no-ops
+  title(Type.TEXT),
+  no_defs(Type.FLAG),
+  wktext(Type.FLAG),
+  nadgrids(Type.TEXT),
+
+  // not supported
+  azi(null),
+  pm(null),
+  R(null),
+  R_a(null),
+  R_V(null),
+  R_g(null),
+  R_h(null),
+  R_lat_a(null),
+  R_lat_g(null);
+
+  /**
+   * The kinds of parameter values.
+   */
+  public enum Type {
+    /** a decimal number */
+    NUMBER,
+    /** an angle in decimal degrees or DMS format */
+    ANGLE,
+    /** a string which is interpreted by the parser */
+    TEXT,
+    /** a parameter which takes no value */
+    FLAG
+  }
+
+  private static final Proj4Param[] VALUES = values();
+
+  private final Type type;
+
+  private Proj4Param(Type type)
+  {
+    this.type = type;
+  }
+
+  /**
+   * Gets the kind of value this parameter takes.
+   *
+   * @return the value type, or null if the parameter is not supported
+   */
+  public Type getType()
+  {
+    return type;
+  }
+
+  /**
+   * Tests whether this parameter is supported by the parser.
+   *
+   * @return true if the parameter is supported
+   */
+  public boolean isSupported()
+  {
+    return type != null;
+  }
+
+  /**
+   * Finds the parameter whose keyword is a range of a character sequence.
+   *
+   * @param s the characters to search
+   * @param start the index of the first character of the keyword
+   * @param end the index after the last character of the keyword
+   * @return the matching parameter, or null if the keyword is not recognized
+   */
+  public static Proj4Param find(CharSequence s, int start, int end)
+  {
+    int len = end - start;
+    for (int i = 0; i < VALUES.length; i++) {
+      String keyword = VALUES[i].name();
+      if (keyword.length() != len) continue;
+      int j = 0;
+      while (j < len && keyword.charAt(j) == s.charAt(start + j))
+        j++;
+      if (j == len)
+        return VALUES[i];
+    }
+    return null;
+  }
+}
@@ -1,6 +1,7 @@
 package org.osgeo.proj4j.parser;
 
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.osgeo.proj4j.*;
@@ -8,14 +9,34 @@ import org.osgeo.proj4j.datum.Datum;
 import org.osgeo.proj4j.datum.Ellipsoid;
 import org.osgeo.proj4j.proj.Projection;
 import org.osgeo.proj4j.proj.TransverseMercatorProjection;
-import org.osgeo.proj4j.units.Angle;
-import org.osgeo.proj4j.units.AngleFormat;
 import org.osgeo.proj4j.units.Unit;
 import org.osgeo.proj4j.units.Units;
 import org.osgeo.proj4j.util.ProjectionMath;
 
 public class Proj4Parser 
 {
+  /**
+   * The maximum number of parameter strings memoized by {@link #parse(String, String)}
+   */
+  private static final int MAX_CACHED_TABLES = 1000;
+  
+  // the least recently used table is evicted when the cache is full
+  private static Map<String, ParameterTable> tableCache = Collections.synchronizedMap(
+      new LinkedHashMap<String, ParameterTable>(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<String, ParameterTable> eldest)
+        {
+          return size() > MAX_CACHED_TABLES;
+        }
+      });
+  
+  /**
+   * Clears the memo cache of parsed parameter strings.
+   */
+  public static void clearCache()
+  {
+    tableCache.clear();
+  }
+  
   private Registry registry;
   
   public Proj4Parser(Registry registry) {
@@ -27,8 +48,35 @@ public class Proj4Parser
     if (args == null)
       return null;
     
-    Map params = createParameterMap(args);
-    Proj4Keyword.checkUnsupported(params.keySet());
+    return parse(name, ParameterTable.parse(args));
+  }
+  
+  /**
+   * Parses a PROJ.4 parameter string into a {@link CoordinateReferenceSystem}.
+   * The string is tokenized in a single pass.
+   * The parsed values of recently seen strings are memoized,
+   * so repeated requests for the same definition 
+   * skip tokenizing and number parsing entirely.
+   * 
+   * @param name the name of the coordinate system (may be null)
+   * @param paramStr a PROJ.4 parameter string
+   * @return the parsed coordinate system
+   */
+  public CoordinateReferenceSystem parse(String name, String paramStr)
+  {
+    if (paramStr == null)
+      return null;
+    
+    ParameterTable params = tableCache.get(paramStr);
+    if (params == null) {
+      params = ParameterTable.parse(paramStr);
+      tableCache.put(paramStr, params);
+    }
+    return parse(name, params);
+  }
+  
+  private CoordinateReferenceSystem parse(String name, ParameterTable params)
+  {
     DatumParameters datumParam = new DatumParameters();
     parseDatum(params, datumParam);
     parseEllipsoid(params, datumParam);
@@ -38,18 +86,18 @@ public class Proj4Parser
     // which is better?
 //    Ellipsoid ellipsoid = datumParam.getEllipsoid(); 
     Projection proj = parseProjection(params, ellipsoid);
-    return new CoordinateReferenceSystem(name, args, datum, proj);
+    return new CoordinateReferenceSystem(name, params.getArgs(), datum, proj);
   }
   
  /**
   * Creates a {@link Projection}
   * initialized from a PROJ.4 argument list.
   */
- private Projection parseProjection( Map params, Ellipsoid ellipsoid ) {
+ private Projection parseProjection( ParameterTable params, Ellipsoid ellipsoid ) {
    Projection projection = null;
 
    String s;
-   s = (String)params.get( Proj4Keyword.proj );
+   s = params.getText( Proj4Param.proj );
    if ( s != null ) {
      projection = registry.getProjection( s );
      if ( projection == null )
@@ -62,49 +110,39 @@ public class Proj4Parser
    // Should be able to report the original param string in the error message
    // Should the exception be lib-specific?  (e.g. ParseException)
    
-   s = (String)params.get( Proj4Keyword.alpha );
-   if ( s != null ) 
-     projection.setAlphaDegrees( Double.parseDouble( s ) );
+   if ( params.hasNumber( Proj4Param.alpha ) ) 
+     projection.setAlphaDegrees( params.getNumber( Proj4Param.alpha ) );
    
-   s = (String)params.get( Proj4Keyword.lonc );
-   if ( s != null ) 
-     projection.setLonCDegrees( Double.parseDouble( s ) );
+   if ( params.hasNumber( Proj4Param.lonc ) ) 
+     projection.setLonCDegrees( params.getNumber( Proj4Param.lonc ) );
    
-   s = (String)params.get( Proj4Keyword.lat_0 );
-   if ( s != null ) 
-     projection.setProjectionLatitudeDegrees( parseAngle( s ) );
+   if ( params.hasNumber( Proj4Param.lat_0 ) ) 
+     projection.setProjectionLatitudeDegrees( params.getNumber( Proj4Param.lat_0 ) );
    
-   s = (String)params.get( Proj4Keyword.lon_0 );
-   if ( s != null ) 
-     projection.setProjectionLongitudeDegrees( parseAngle( s ) );
+   if ( params.hasNumber( Proj4Param.lon_0 ) ) 
+     projection.setProjectionLongitudeDegrees( params.getNumber( Proj4Param.lon_0 ) );
    
-   s = (String)params.get( Proj4Keyword.lat_1 );
-   if ( s != null ) 
-     projection.setProjectionLatitude1Degrees( parseAngle( s ) );
+   if ( params.hasNumber( Proj4Param.lat_1 ) ) 
+     projection.setProjectionLatitude1Degrees( params.getNumber( Proj4Param.lat_1 ) );
    
-   s = (String)params.get( Proj4Keyword.lat_2 );
-   if ( s != null ) 
-     projection.setProjectionLatitude2Degrees( parseAngle( s ) );
+   if ( params.hasNumber( Proj4Param.lat_2 ) ) 
+     projection.setProjectionLatitude2Degrees( params.getNumber( Proj4Param.lat_2 ) );
    
-   s = (String)params.get( Proj4Keyword.lat_ts );
-   if ( s != null ) 
-     projection.setTrueScaleLatitudeDegrees( parseAngle( s ) );
+   if ( params.hasNumber( Proj4Param.lat_ts ) ) 
+     projection.setTrueScaleLatitudeDegrees( params.getNumber( Proj4Param.lat_ts ) );
    
-   s = (String)params.get( Proj4Keyword.x_0 );
-   if ( s != null ) 
-     projection.setFalseEasting( Double.parseDouble( s ) );
+   if ( params.hasNumber( Proj4Param.x_0 ) ) 
+     projection.setFalseEasting( params.getNumber( Proj4Param.x_0 ) );
    
-   s = (String)params.get( Proj4Keyword.y_0 );
-   if ( s != null ) 
-     projection.setFalseNorthing( Double.parseDouble( s ) );
+   if ( params.hasNumber( Proj4Param.y_0 ) ) 
+     projection.setFalseNorthing( params.getNumber( Proj4Param.y_0 ) );
 
-   s = (String)params.get( Proj4Keyword.k_0 );
-   if ( s == null ) 
-     s = (String)params.get( Proj4Keyword.k );
-   if ( s != null ) 
-     projection.setScaleFactor( Double.parseDouble( s ) );
+   if ( params.hasNumber( Proj4Param.k_0 ) ) 
+     projection.setScaleFactor( params.getNumber( Proj4Param.k_0 ) );
+   else if ( params.hasNumber( Proj4Param.k ) ) 
+     projection.setScaleFactor( params.getNumber( Proj4Param.k ) );
 
-   s = (String)params.get( Proj4Keyword.units );
+   s = params.getText( Proj4Param.units );
    if ( s != null ) {
      Unit unit = Units.findUnits( s );
      // TODO: report unknown units name as error
@@ -114,18 +152,17 @@ public class Proj4Parser
      }
    }
    
-   s = (String)params.get( Proj4Keyword.to_meter );
-   if ( s != null ) 
-     projection.setFromMetres( 1.0/Double.parseDouble( s ) );
+   if ( params.hasNumber( Proj4Param.to_meter ) ) 
+     projection.setFromMetres( 1.0/params.getNumber( Proj4Param.to_meter ) );
 
-   if ( params.containsKey( Proj4Keyword.south ) ) 
+   if ( params.contains( Proj4Param.south ) ) 
      projection.setSouthernHemisphere(true);
 
    //TODO: implement some of these parameters ?
      
    // this must be done last, since behaviour depends on other params being set (eg +south)
    if (projection instanceof TransverseMercatorProjection) {
-     s = (String) params.get(Proj4Keyword.zone);
+     s = params.getText(Proj4Param.zone);
      if (s != null)
        ((TransverseMercatorProjection) projection).setUTMZone(Integer
            .parseInt(s));
@@ -136,15 +173,15 @@ public class Proj4Parser
    return projection;
  }
 
- private void parseDatum(Map params, DatumParameters datumParam) 
+ private void parseDatum(ParameterTable params, DatumParameters datumParam) 
  {
-   String towgs84 = (String) params.get(Proj4Keyword.towgs84);
+   String towgs84 = params.getText(Proj4Param.towgs84);
    if (towgs84 != null) {
      double[] datumConvParams = parseToWGS84(towgs84); 
      datumParam.setDatumTransform(datumConvParams);
    }
 
-   String code = (String) params.get(Proj4Keyword.datum);
+   String code = params.getText(Proj4Param.datum);
    if (code != null) {
      Datum datum = registry.getDatum(code);
      if (datum == null)
@@ -193,17 +230,16 @@ public class Proj4Parser
    return param;
  }
  
- private void parseEllipsoid(Map params, DatumParameters datumParam) 
+ private void parseEllipsoid(ParameterTable params, DatumParameters datumParam) 
  {
    double b = 0;
-   String s;
 
    /*
     * // not supported by PROJ4 s = (String) params.get(Proj4Param.R); if (s !=
     * null) a = Double.parseDouble(s);
     */
 
-   String code = (String) params.get(Proj4Keyword.ellps);
+   String code = params.getText(Proj4Param.ellps);
    if (code != null) {
      Ellipsoid ellipsoid = registry.getEllipsoid(code);
      if (ellipsoid == null)
@@ -214,33 +250,28 @@ public class Proj4Parser
    /*
     * Explicit parameters override ellps and datum settings
     */
-   s = (String) params.get(Proj4Keyword.a);
-   if (s != null) {
-     double a = Double.parseDouble(s);
+   if (params.hasNumber(Proj4Param.a)) {
+     double a = params.getNumber(Proj4Param.a);
      datumParam.setA(a);
    }
    
-   s = (String) params.get(Proj4Keyword.es);
-   if (s != null) {
-     double es = Double.parseDouble(s);
+   if (params.hasNumber(Proj4Param.es)) {
+     double es = params.getNumber(Proj4Param.es);
      datumParam.setES(es);
    }
 
-   s = (String) params.get(Proj4Keyword.rf);
-   if (s != null) {
-     double rf = Double.parseDouble(s);
+   if (params.hasNumber(Proj4Param.rf)) {
+     double rf = params.getNumber(Proj4Param.rf);
      datumParam.setRF(rf);
    }
 
-   s = (String) params.get(Proj4Keyword.f);
-   if (s != null) {
-     double f = Double.parseDouble(s);
+   if (params.hasNumber(Proj4Param.f)) {
+     double f = params.getNumber(Proj4Param.f);
      datumParam.setF(f);
    }
 
-   s = (String) params.get(Proj4Keyword.b);
-   if (s != null) {
-     b = Double.parseDouble(s);
+   if (params.hasNumber(Proj4Param.b)) {
+     b = params.getNumber(Proj4Param.b);
      datumParam.setB(b);
    }
 
@@ -280,43 +311,16 @@ public class Proj4Parser
   * @param params
   * @param datumParam
   */
- private void parseEllipsoidModifiers(Map params, DatumParameters datumParam) 
+ private void parseEllipsoidModifiers(ParameterTable params, DatumParameters datumParam) 
  {
    /**
     * Modifiers are mutually exclusive, so when one is detected method returns
     */
-   if ( params.containsKey( Proj4Keyword.R_A ) ) {
+   if ( params.contains( Proj4Param.R_A ) ) {
      datumParam.setR_A();
      return;
    }
 
  }
- 
- private Map createParameterMap(String[] args) {
-   Map params = new HashMap();
-   for (int i = 0; i < args.length; i++) {
-     String arg = args[i];
-     // strip leading "+" if any
-     if (arg.startsWith("+")) {
-       arg = arg.substring(1);
-     }
-     int index = arg.indexOf('=');
-     if (index != -1) {
-       // param of form pppp=vvvv
-       String key = arg.substring(0, index);
-       String value = arg.substring(index + 1);
-       params.put(key, value);
-     } else {
-       // param of form ppppp
-       //String key = arg.substring(1);
-       params.put(arg, null);
-     }
-   }
-   return params;
- }
-
- private static double parseAngle( String s ) {
-   return Angle.parse(s);
- }
 
 }
@@ -21,6 +21,7 @@ package org.osgeo.proj4j.proj;
 
 import org.osgeo.proj4j.ProjCoordinate;
 import org.osgeo.proj4j.ProjectionException;
+import org.osgeo.proj4j.metrics.Metrics;
 import org.osgeo.proj4j.util.ProjectionMath;
 
 public class AlbersProjection extends Projection {
@@ -70,6 +71,7 @@ public class AlbersProjection extends Projection {
 			   (1. + con)));
 			Phi += dphi;
 		} while (Math.abs(dphi) > TOL && --i != 0);
+		Metrics.reportSolve("aea", i != 0 ? N_ITER - i + 1 : N_ITER, N_ITER, i != 0);
 		return( i != 0 ? Phi : Double.MAX_VALUE );
 	}
 
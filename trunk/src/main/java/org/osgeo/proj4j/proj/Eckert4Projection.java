@@ -20,6 +20,7 @@ limitations under the License.
 package org.osgeo.proj4j.proj;
 
 import org.osgeo.proj4j.ProjCoordinate;
+import org.osgeo.proj4j.metrics.Metrics;
 import org.osgeo.proj4j.util.ProjectionMath;
 
 public class Eckert4Projection extends Projection {
@@ -47,6 +48,7 @@ public class Eckert4Projection extends Projection {
 			if (Math.abs(V) < EPS)
 				break;
 		}
+		Metrics.reportSolve(getName(), i != 0 ? NITER - i + 1 : NITER, NITER, i != 0);
 		if (i == 0) {
 			out.x = C_x * lplam;
 			out.y = lpphi < 0. ? -C_y : C_y;
@@ -21,6 +21,7 @@ package org.osgeo.proj4j.proj;
 
 import org.osgeo.proj4j.ProjCoordinate;
 import org.osgeo.proj4j.ProjectionException;
+import org.osgeo.proj4j.metrics.Metrics;
 import org.osgeo.proj4j.util.ProjectionMath;
 
 public class LandsatProjection extends Projection {
@@ -43,6 +44,7 @@ public class LandsatProjection extends Projection {
 			lpphi = -ProjectionMath.HALFPI;
 		lampp = lpphi >= 0. ? ProjectionMath.HALFPI : PI_HALFPI;
 		tanphi = Math.tan(lpphi);
+		int iterations = 0;
 		for (nn = 0;;) {
 			sav = lampp;
 			lamtp = lplam + p22 * lampp;
@@ -60,6 +62,7 @@ public class LandsatProjection extends Projection {
 					break;
 				sav = lamdp;
 			}
+			iterations += l != 0 ? 51 - l : 50;
 			if (l == 0 || ++nn >= 3 || (lamdp > rlm && lamdp < rlm2))
 				break;
 			if (lamdp <= rlm)
@@ -67,6 +70,7 @@ public class LandsatProjection extends Projection {
 			else if (lamdp >= rlm2)
 				lampp = ProjectionMath.HALFPI;
 		}
+		Metrics.reportSolve(getName(), iterations, 150, l != 0);
 		if (l != 0) {
 			sp = Math.sin(lpphi);
 			phidp = ProjectionMath.asin((one_es * ca * sp - sa * Math.cos(lpphi) * 
@@ -20,6 +20,7 @@ limitations under the License.
 package org.osgeo.proj4j.proj;
 
 import org.osgeo.proj4j.ProjCoordinate;
+import org.osgeo.proj4j.metrics.Metrics;
 
 public class MolleweideProjection extends PseudoCylindricalProjection {
 
@@ -85,6 +86,7 @@ public class MolleweideProjection extends PseudoCylindricalProjection {
 			if (Math.abs(v) < TOLERANCE)
 				break;
 		}
+		Metrics.reportSolve(getName(), i != 0 ? MAX_ITER - i + 1 : MAX_ITER, MAX_ITER, i != 0);
 		if (i == 0)
 			lpphi = (lpphi < 0.) ? -Math.PI/2 : Math.PI/2;
 		else
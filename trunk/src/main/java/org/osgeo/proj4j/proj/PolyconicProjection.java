@@ -21,6 +21,7 @@ package org.osgeo.proj4j.proj;
 
 import org.osgeo.proj4j.ProjCoordinate;
 import org.osgeo.proj4j.ProjectionException;
+import org.osgeo.proj4j.metrics.Metrics;
 import org.osgeo.proj4j.util.ProjectionMath;
 
 public class PolyconicProjection extends Projection {
@@ -88,6 +89,7 @@ public class PolyconicProjection extends Projection {
 						.5 * ( lpphi * lpphi + B) * tp) /
 						((lpphi - xyy) / tp - 1.));
 				} while (Math.abs(dphi) > CONV && --i > 0);
+				Metrics.reportSolve(getName(), i != 0 ? N_ITER - i + 1 : N_ITER, N_ITER, i != 0);
 				if (i == 0) throw new ProjectionException("I");
 				out.x = Math.asin(xyx * Math.tan(lpphi)) / Math.sin(lpphi);
 				out.y = lpphi;
@@ -116,6 +118,7 @@ public class PolyconicProjection extends Projection {
 					if (Math.abs(dPhi) <= ITOL)
 						break;
 				}
+				Metrics.reportSolve(getName(), i != 0 ? I_ITER - i + 1 : I_ITER, I_ITER, i != 0);
 				if (i == 0)
 					throw new ProjectionException("I");
 				c = Math.sin(lpphi);
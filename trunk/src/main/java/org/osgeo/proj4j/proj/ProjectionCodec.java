@@ -0,0 +1,201 @@
+package org.osgeo.proj4j.proj;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.osgeo.proj4j.datum.Ellipsoid;
+import org.osgeo.proj4j.units.Unit;
+import org.osgeo.proj4j.units.Units;
+
+/**
+ * Writes and reads the parameters of an initialized {@link Projection}
+ * in a compact binary form.
+ * The parameters are stored exactly (in radians, as held by the projection),
+ * so a projection read back is identical to the one written,
+ * without needing to parse a PROJ.4 definition.
+ * <p>
+ * The {@link Ellipsoid} of the projection is not written,
+ * since it is normally shared with the datum.
+ * It must be supplied when the projection is read.
+ *
+ * @see org.osgeo.proj4j.CRSDescriptor
+ */
+public final class ProjectionCodec
+{
+  private static final int UNIT_NONE = 0;
+  private static final int UNIT_STANDARD = 1;
+  private static final int UNIT_CUSTOM = 2;
+
+  private static Map<String, Class<? extends Projection>> classCache = new ConcurrentHashMap<String, Class<? extends Projection>>();
+
+  private ProjectionCodec()
+  {
+  }
+
+  /**
+   * Writes the parameters of a projection.
+   *
+   * @param proj the projection to write
+   * @param out the output to write to
+   * @throws IOException if an I/O error occurs
+   */
+  public static void write(Projection proj, DataOutput out)
+  throws IOException
+  {
+    out.writeUTF(proj.getClass().getName());
+    writeString(proj.name, out);
+
+    out.writeDouble(proj.minLatitude);
+    out.writeDouble(proj.minLongitude);
+    out.writeDouble(proj.maxLatitude);
+    out.writeDouble(proj.maxLongitude);
+    out.writeDouble(proj.projectionLatitude);
+    out.writeDouble(proj.projectionLongitude);
+    out.writeDouble(proj.projectionLatitude1);
+    out.writeDouble(proj.projectionLatitude2);
+    out.writeDouble(proj.trueScaleLatitude);
+    out.writeDouble(proj.alpha);
+    out.writeDouble(proj.lonc);
+    out.writeDouble(proj.scaleFactor);
+    out.writeDouble(proj.falseEasting);
+    out.writeDouble(proj.falseNorthing);
+    out.writeDouble(proj.fromMetres);
+    out.writeBoolean(proj.isSouth);
+
+    int utmZone = -1;
+    if (proj instanceof TransverseMercatorProjection)
+      utmZone = ((TransverseMercatorProjection) proj).getUTMZone();
+    out.writeInt(utmZone);
+
+    writeUnit(proj.unit, out);
+  }
+
+  /**
+   * Reads the parameters of a projection written by {@link #write(Projection, DataOutput)},
+   * and creates an initialized projection from them.
+   *
+   * @param in the input to read from
+   * @param ellipsoid the ellipsoid of the projection
+   * @return the initialized projection
+   * @throws IOException if an I/O error occurs or the projection class cannot be created
+   */
+  public static Projection read(DataInput in, Ellipsoid ellipsoid)
+  throws IOException
+  {
+    String className = in.readUTF();
+    Projection proj = createProjection(className);
+    proj.name = readString(in);
+
+    proj.minLatitude = in.readDouble();
+    proj.minLongitude = in.readDouble();
+    proj.maxLatitude = in.readDouble();
+    proj.maxLongitude = in.readDouble();
+    double projectionLatitude = in.readDouble();
+    double projectionLongitude = in.readDouble();
+    proj.projectionLatitude1 = in.readDouble();
+    proj.projectionLatitude2 = in.readDouble();
+    proj.trueScaleLatitude = in.readDouble();
+    proj.alpha = in.readDouble();
+    proj.lonc = in.readDouble();
+    double scaleFactor = in.readDouble();
+    double falseEasting = in.readDouble();
+    double falseNorthing = in.readDouble();
+    proj.fromMetres = in.readDouble();
+    proj.isSouth = in.readBoolean();
+    proj.setEllipsoid(ellipsoid);
+
+    int utmZone = in.readInt();
+    if (utmZone >= 0)
+      // sets the zone parameters, which are then overwritten by the exact ones read
+      ((TransverseMercatorProjection) proj).setUTMZone(utmZone);
+
+    proj.projectionLatitude = projectionLatitude;
+    proj.projectionLongitude = projectionLongitude;
+    proj.scaleFactor = scaleFactor;
+    proj.falseEasting = falseEasting;
+    proj.falseNorthing = falseNorthing;
+    proj.unit = readUnit(in);
+
+    proj.initialize();
+    return proj;
+  }
+
+  private static Projection createProjection(String className)
+  throws IOException
+  {
+    try {
+      // class lookup is expensive, and there are few projection classes
+      Class<? extends Projection> cls = classCache.get(className);
+      if (cls == null) {
+        cls = Class.forName(className).asSubclass(Projection.class);
+        classCache.put(className, cls);
+      }
+      return cls.newInstance();
+    }
+    catch (Exception ex) {
+      throw new IOException("Cannot create projection " + className + ": " + ex);
+    }
+  }
+
+  private static void writeUnit(Unit unit, DataOutput out)
+  throws IOException
+  {
+    if (unit == null) {
+      out.writeByte(UNIT_NONE);
+    }
+    else if (Units.findUnits(unit.name) == unit) {
+      out.writeByte(UNIT_STANDARD);
+      out.writeUTF(unit.name);
+    }
+    else {
+      out.writeByte(UNIT_CUSTOM);
+      writeString(unit.name, out);
+      writeString(unit.plural, out);
+      writeString(unit.abbreviation, out);
+      out.writeDouble(unit.value);
+    }
+  }
+
+  private static Unit readUnit(DataInput in)
+  throws IOException
+  {
+    int type = in.readByte();
+    switch (type) {
+    case UNIT_NONE:
+      return null;
+    case UNIT_STANDARD:
+      return Units.findUnits(in.readUTF());
+    case UNIT_CUSTOM:
+      String name = readString(in);
+      String plural = readString(in);
+      String abbreviation = readString(in);
+      return new Unit(name, plural, abbreviation, in.readDouble());
+    }
+    throw new IOException("Invalid unit type: " + type);
+  }
+
+  /**
+   * Writes a string which may be <tt>null</tt>.
+   */
+  public static void writeString(String s, DataOutput out)
+  throws IOException
+  {
+    out.writeBoolean(s != null);
+    if (s != null)
+      out.writeUTF(s);
+  }
+
+  /**
+   * Reads a string written by {@link #writeString(String, DataOutput)}.
+   */
+  public static String readString(DataInput in)
+  throws IOException
+  {
+    if (! in.readBoolean())
+      return null;
+    return in.readUTF();
+  }
+}
@@ -19,8 +19,10 @@ limitations under the License.
  */
 package org.osgeo.proj4j.proj;
 
+import org.osgeo.proj4j.ConvergenceFailureException;
 import org.osgeo.proj4j.ProjCoordinate;
 import org.osgeo.proj4j.ProjectionException;
+import org.osgeo.proj4j.metrics.Metrics;
 import org.osgeo.proj4j.util.ProjectionMath;
 
 public class RobinsonProjection extends PseudoCylindricalProjection {
@@ -76,6 +78,7 @@ public class RobinsonProjection extends PseudoCylindricalProjection {
 	private final static double RC1 = 0.08726646259971647884;
 	private final static double ONEEPS = 1.000001;
 	private final static double EPS = 1e-8;
+	private final static int MAX_ITER = 100;
 	
 	public RobinsonProjection() {
 	}
@@ -127,11 +130,17 @@ public class RobinsonProjection extends PseudoCylindricalProjection {
 			double Tc3 = Y[i+3];
 			t = 5. * (lp.y - Tc0)/(Y[i+1] - Tc0);
 			Tc0 -= lp.y;
-			for (;;) { // Newton-Raphson
+			int iter;
+			for (iter = 1; ; iter++) { // Newton-Raphson
 				t -= t1 = (Tc0 + t * (Tc1 + t * (Tc2 + t * Tc3))) / (Tc1 + t * (Tc2 + Tc2 + t * 3. * Tc3));
 				if (Math.abs(t1) < EPS)
 					break;
+				if (iter == MAX_ITER) {
+					Metrics.reportSolve(getName(), iter, MAX_ITER, false);
+					throw new ConvergenceFailureException("Robinson inverse failed to converge after " + MAX_ITER + " iterations");
+				}
 			}
+			Metrics.reportSolve(getName(), iter, MAX_ITER, true);
 			lp.y = Math.toRadians(5 * i + t);
 			if (y < 0.)
 				lp.y = -lp.y;
@@ -21,6 +21,7 @@ package org.osgeo.proj4j.proj;
 
 import org.osgeo.proj4j.*;
 import org.osgeo.proj4j.ProjectionException;
+import org.osgeo.proj4j.metrics.Metrics;
 import org.osgeo.proj4j.util.ProjectionMath;
 
 public class StereographicAzimuthalProjection extends AzimuthalProjection {
@@ -239,9 +240,11 @@ public class StereographicAzimuthalProjection extends AzimuthalProjection {
 					if (mode == SOUTH_POLE)
 						lp.y = -lp.y;
 					lp.x = (x == 0. && y == 0.) ? 0. : Math.atan2(x, y);
+					Metrics.reportSolve(getName(), 8 - i, 8, true);
 					return lp;
 				}
 			}
+			Metrics.reportSolve(getName(), 8, 8, false);
 			throw new ConvergenceFailureException("Iteration didn't converge");
 		}
 		return lp;
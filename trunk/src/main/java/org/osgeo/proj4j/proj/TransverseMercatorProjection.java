@@ -116,6 +116,15 @@ public class TransverseMercatorProjection extends CylindricalProjection {
 		initialize();
 	}
 
+  /**
+   * Gets the UTM zone of this projection.
+   *
+   * @return the UTM zone, or -1 if this is not a UTM projection
+   */
+  public int getUTMZone() {
+    return utmZone;
+  }
+
 	public ProjCoordinate project(double lplam, double lpphi, ProjCoordinate xy) {
 		if (spherical) {
 			double cosphi = Math.cos(lpphi);
@@ -1,16 +1,25 @@
 package org.osgeo.proj4j.util;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.osgeo.proj4j.*;
+import org.osgeo.proj4j.metrics.Metrics;
+import org.osgeo.proj4j.metrics.MetricsListener;
 
-public class CRSCache 
+/**
+ * Caches {@link CoordinateReferenceSystem}s by name.
+ * The cache is shared by all instances of this class,
+ * and is safe for use by multiple threads.
+ *
+ * @see CRSFactory#warmUp(String[], int, boolean)
+ */
+public class CRSCache
 {
-  private static Map<String, CoordinateReferenceSystem> projCache = new HashMap<String, CoordinateReferenceSystem>();
+  private static ConcurrentMap<String, CoordinateReferenceSystem> projCache = new ConcurrentHashMap<String, CoordinateReferenceSystem>();
   private static CRSFactory crsFactory = new CRSFactory();
 
 // TODO: provide limit on number of items in cache (LRU)
-  
+
   public CRSCache() {
     super();
   }
@@ -18,12 +27,53 @@ public class CRSCache
   public CoordinateReferenceSystem createFromName(String name)
   throws UnsupportedParameterException, InvalidValueException, UnknownAuthorityCodeException
   {
+    MetricsListener listener = Metrics.getListener();
     CoordinateReferenceSystem proj = (CoordinateReferenceSystem) projCache.get(name);
+    if (listener != null)
+      listener.cacheLookup(name, proj != null);
     if (proj == null) {
+      long start = listener == null ? 0 : System.nanoTime();
       proj = crsFactory.createFromName(name);
-      projCache.put(name, proj);
+      if (listener != null)
+        listener.cacheLoaded(name, System.nanoTime() - start);
+      // if another thread created the same CRS concurrently, all threads use the first one
+      CoordinateReferenceSystem existing = projCache.putIfAbsent(name, proj);
+      if (existing != null)
+        proj = existing;
     }
     return proj;
   }
 
+  /**
+   * Adds a coordinate system to the cache,
+   * replacing any existing entry with the same name.
+   *
+   * @param name the name the CRS is looked up by
+   * @param crs the coordinate system to cache
+   */
+  public void put(String name, CoordinateReferenceSystem crs)
+  {
+    projCache.put(name, crs);
+  }
+
+  /**
+   * Tests whether a coordinate system with the given name is cached.
+   *
+   * @param name the CRS name
+   * @return true if the CRS is in the cache
+   */
+  public boolean contains(String name)
+  {
+    return projCache.containsKey(name);
+  }
+
+  /**
+   * Gets the number of coordinate systems in the cache.
+   *
+   * @return the size of the cache
+   */
+  public int size()
+  {
+    return projCache.size();
+  }
 }
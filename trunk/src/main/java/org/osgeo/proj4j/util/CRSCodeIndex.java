@@ -0,0 +1,563 @@
+package org.osgeo.proj4j.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.osgeo.proj4j.CoordinateReferenceSystem;
+import org.osgeo.proj4j.Registry;
+import org.osgeo.proj4j.UnknownAuthorityCodeException;
+import org.osgeo.proj4j.datum.Datum;
+import org.osgeo.proj4j.datum.Ellipsoid;
+import org.osgeo.proj4j.io.Proj4FileReader;
+import org.osgeo.proj4j.parser.Proj4Keyword;
+import org.osgeo.proj4j.units.Angle;
+
+/**
+ * An index which finds the authority codes
+ * (such as <tt>EPSG:27700</tt>) of the coordinate systems
+ * which match a set of PROJ.4 parameters.
+ * <p>
+ * Definitions are indexed by a canonical form of their parameters,
+ * in which:
+ * <ul>
+ * <li>parameters are order-independent
+ * <li>no-op parameters such as <tt>+no_defs</tt> and <tt>+title</tt> are ignored
+ * <li>parameters with default values (e.g. <tt>+x_0=0</tt>, <tt>+units=m</tt>) are ignored
+ * <li>numeric values are compared numerically,
+ * with angles in DMS format converted to decimal degrees
+ * <li>named ellipsoids (including those implied by a <tt>+datum</tt>) 
+ * are replaced by their <i>a</i> and <i>es</i> values,
+ * so that <tt>+ellps=GRS80</tt> matches <tt>+a=6378137 +rf=298.257222101</tt>
+ * <li>named datums with a parameter shift to WGS84 are replaced by their
+ * ellipsoid and <tt>+towgs84</tt> values,
+ * so that <tt>+datum=WGS84</tt> matches <tt>+ellps=WGS84 +towgs84=0,0,0</tt>.
+ * Datums defined by a grid shift (such as <tt>NAD27</tt>) are matched by name only.
+ * <li><tt>+proj=utm +zone=N</tt> is expanded to the equivalent Transverse Mercator parameters
+ * </ul>
+ * Numeric values match if they are equal within a relative tolerance.
+ * Lookups are performed by hashing the canonical form,
+ * with values quantized so that only the few index buckets
+ * within tolerance of the query need to be probed.
+ * The cost of a lookup is thus independent of the size of the catalogs.
+ * <p>
+ * Once built an index is safe for concurrent lookups.
+ */
+public class CRSCodeIndex
+{
+  /**
+   * The authority catalogs indexed by {@link #createDefault()}.
+   */
+  public static final String[] CATALOG_AUTHORITIES = { "EPSG", "ESRI", "NAD83", "NAD27", "WORLD" };
+
+  /**
+   * The default relative tolerance used to compare numeric values.
+   */
+  public static final double DEFAULT_TOLERANCE = 1.0e-9;
+
+  /**
+   * The size of the buckets into which numeric values are quantized.
+   */
+  private static final double QUANTUM = 0.01;
+
+  /**
+   * If a query would need to probe more buckets than this,
+   * all entries with the same parameter names are scanned instead.
+   */
+  private static final int MAX_PROBES = 64;
+
+  private static final Set<String> IGNORED_KEYS = new HashSet<String>();
+  private static final Set<String> NUMERIC_KEYS = new HashSet<String>();
+  private static final Set<String> ANGLE_KEYS = new HashSet<String>();
+  private static final Map<String, Double> DEFAULT_VALUES = new HashMap<String, Double>();
+
+  static {
+    IGNORED_KEYS.add(Proj4Keyword.title);
+    IGNORED_KEYS.add(Proj4Keyword.no_defs);
+    IGNORED_KEYS.add(Proj4Keyword.wktext);
+
+    String[] numeric = {
+        Proj4Keyword.a, Proj4Keyword.b, Proj4Keyword.f, Proj4Keyword.rf, Proj4Keyword.es, Proj4Keyword.R,
+        Proj4Keyword.alpha, Proj4Keyword.lonc, Proj4Keyword.k_0,
+        Proj4Keyword.x_0, Proj4Keyword.y_0, Proj4Keyword.to_meter, Proj4Keyword.zone };
+    for (int i = 0; i < numeric.length; i++) {
+      NUMERIC_KEYS.add(numeric[i]);
+    }
+    String[] angles = {
+        Proj4Keyword.lat_0, Proj4Keyword.lat_1, Proj4Keyword.lat_2,
+        Proj4Keyword.lat_ts, Proj4Keyword.lon_0 };
+    for (int i = 0; i < angles.length; i++) {
+      NUMERIC_KEYS.add(angles[i]);
+      ANGLE_KEYS.add(angles[i]);
+    }
+
+    DEFAULT_VALUES.put(Proj4Keyword.x_0, Double.valueOf(0));
+    DEFAULT_VALUES.put(Proj4Keyword.y_0, Double.valueOf(0));
+    DEFAULT_VALUES.put(Proj4Keyword.lat_0, Double.valueOf(0));
+    DEFAULT_VALUES.put(Proj4Keyword.lon_0, Double.valueOf(0));
+    DEFAULT_VALUES.put(Proj4Keyword.k_0, Double.valueOf(1));
+    DEFAULT_VALUES.put(Proj4Keyword.to_meter, Double.valueOf(1));
+  }
+
+  private static CRSCodeIndex defaultIndex = null;
+
+  /**
+   * Gets an index of all the catalogs supplied with the library.
+   * The index is built on first use and shared thereafter.
+   *
+   * @return the shared default index
+   */
+  public static synchronized CRSCodeIndex createDefault()
+  {
+    if (defaultIndex == null) {
+      CRSCodeIndex index = new CRSCodeIndex();
+      for (int i = 0; i < CATALOG_AUTHORITIES.length; i++) {
+        index.addAuthority(CATALOG_AUTHORITIES[i]);
+      }
+      defaultIndex = index;
+    }
+    return defaultIndex;
+  }
+
+  private Registry registry = new Registry();
+  private double tolerance = DEFAULT_TOLERANCE;
+  private int entryCount = 0;
+
+  // canonical parameters with numbers quantized -> entries
+  private Map<String, List<Entry>> quantizedIndex = new HashMap<String, List<Entry>>();
+  // parameter names and non-numeric values -> entries
+  private Map<String, List<Entry>> signatureIndex = new HashMap<String, List<Entry>>();
+
+  /**
+   * Creates an empty index.
+   */
+  public CRSCodeIndex()
+  {
+  }
+
+  /**
+   * Sets the relative tolerance used to compare numeric values.
+   * Two values <i>u</i> and <i>v</i> match if
+   * <i>|u - v| &lt;= tolerance * max(1, |u|, |v|)</i>.
+   * This should be set before any definitions are added.
+   *
+   * @param tolerance the relative tolerance
+   */
+  public void setTolerance(double tolerance)
+  {
+    this.tolerance = tolerance;
+  }
+
+  /**
+   * Gets the number of definitions in the index.
+   *
+   * @return the number of indexed definitions
+   */
+  public int size()
+  {
+    return entryCount;
+  }
+
+  /**
+   * Adds all the definitions in the catalog file of an authority.
+   * Definitions are named "<tt>authority:code</tt>".
+   *
+   * @param authority the authority name (e.g. <tt>EPSG</tt>)
+   * @throws UnknownAuthorityCodeException if the authority has no catalog
+   */
+  public void addAuthority(String authority)
+  {
+    Map<String, String[]> defs = new Proj4FileReader().getAllNamedParameters(authority);
+    for (Map.Entry<String, String[]> def : defs.entrySet()) {
+      add(def.getKey(), def.getValue());
+    }
+  }
+
+  /**
+   * Adds a definition to the index.
+   * Definitions which cannot be canonicalized are ignored.
+   *
+   * @param name the name to report for the definition
+   * @param params the PROJ.4 parameters of the definition
+   */
+  public void add(String name, String[] params)
+  {
+    Canonical canon = canonicalize(params);
+    if (canon == null)
+      return;
+    Entry entry = new Entry(name, entryCount++, canon.values);
+    addTo(signatureIndex, canon.signature, entry);
+    addTo(quantizedIndex, quantizedKey(canon.signature, canon.values, null), entry);
+  }
+
+  /**
+   * Finds the names of the indexed coordinate systems
+   * which match a PROJ.4 parameter string.
+   *
+   * @param paramStr a PROJ.4 parameter string
+   * @return the names of the matching definitions, in the order they were added (possibly empty)
+   */
+  public List<String> findCodes(String paramStr)
+  {
+    return findCodes(paramStr.trim().split("\\s+"));
+  }
+
+  /**
+   * Finds the names of the indexed coordinate systems
+   * which match the parameters of a {@link CoordinateReferenceSystem}.
+   *
+   * @param crs a coordinate system
+   * @return the names of the matching definitions, in the order they were added (possibly empty)
+   */
+  public List<String> findCodes(CoordinateReferenceSystem crs)
+  {
+    String[] params = crs.getParameters();
+    if (params == null)
+      return new ArrayList<String>();
+    return findCodes(params);
+  }
+
+  /**
+   * Finds the names of the indexed coordinate systems
+   * which match an array of PROJ.4 parameters.
+   *
+   * @param params an array of PROJ.4 parameters
+   * @return the names of the matching definitions, in the order they were added (possibly empty)
+   */
+  public List<String> findCodes(String[] params)
+  {
+    List<String> names = new ArrayList<String>();
+    Canonical canon = canonicalize(params);
+    if (canon == null)
+      return names;
+
+    List<Entry> candidates = probe(canon);
+    List<Entry> matches = new ArrayList<Entry>();
+    for (Entry entry : candidates) {
+      if (isMatch(canon.values, entry.values))
+        matches.add(entry);
+    }
+    Collections.sort(matches, ENTRY_ORDER);
+    for (Entry entry : matches) {
+      names.add(entry.name);
+    }
+    return names;
+  }
+
+  /**
+   * Collects the entries in all buckets whose quantized values
+   * are within tolerance of the query values.
+   */
+  private List<Entry> probe(Canonical canon)
+  {
+    int n = canon.values.length;
+    long[] lo = new long[n];
+    long[] hi = new long[n];
+    int probeCount = 1;
+    for (int i = 0; i < n; i++) {
+      double v = canon.values[i];
+      double tol = tolerance * Math.max(1.0, Math.abs(v));
+      lo[i] = quantize(v - tol);
+      hi[i] = quantize(v + tol);
+      probeCount *= (int) (hi[i] - lo[i] + 1);
+      if (probeCount > MAX_PROBES) {
+        List<Entry> bucket = signatureIndex.get(canon.signature);
+        return bucket == null ? new ArrayList<Entry>() : bucket;
+      }
+    }
+
+    List<Entry> candidates = new ArrayList<Entry>();
+    long[] q = lo.clone();
+    while (true) {
+      List<Entry> bucket = quantizedIndex.get(quantizedKey(canon.signature, null, q));
+      if (bucket != null)
+        candidates.addAll(bucket);
+      // advance to the next combination of buckets
+      int i = 0;
+      while (i < n && q[i] == hi[i]) {
+        q[i] = lo[i];
+        i++;
+      }
+      if (i == n)
+        break;
+      q[i]++;
+    }
+    return candidates;
+  }
+
+  private boolean isMatch(double[] query, double[] values)
+  {
+    for (int i = 0; i < query.length; i++) {
+      double u = query[i];
+      double v = values[i];
+      double scale = Math.max(1.0, Math.max(Math.abs(u), Math.abs(v)));
+      if (Math.abs(u - v) > tolerance * scale)
+        return false;
+    }
+    return true;
+  }
+
+  private static long quantize(double v)
+  {
+    return (long) Math.floor(v / QUANTUM);
+  }
+
+  private static String quantizedKey(String signature, double[] values, long[] quantized)
+  {
+    StringBuffer buf = new StringBuffer(signature);
+    int n = values != null ? values.length : quantized.length;
+    for (int i = 0; i < n; i++) {
+      buf.append('|');
+      buf.append(values != null ? quantize(values[i]) : quantized[i]);
+    }
+    return buf.toString();
+  }
+
+  private static void addTo(Map<String, List<Entry>> index, String key, Entry entry)
+  {
+    List<Entry> bucket = index.get(key);
+    if (bucket == null) {
+      bucket = new ArrayList<Entry>(1);
+      index.put(key, bucket);
+    }
+    bucket.add(entry);
+  }
+
+  /**
+   * Computes the canonical form of a set of PROJ.4 parameters.
+   *
+   * @return the canonical form, or null if the parameters are malformed
+   */
+  private Canonical canonicalize(String[] args)
+  {
+    Map<String, String> params = new TreeMap<String, String>();
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (arg.startsWith("+"))
+        arg = arg.substring(1);
+      if (arg.length() == 0)
+        continue;
+      int index = arg.indexOf('=');
+      String key = index < 0 ? arg : arg.substring(0, index);
+      String value = index < 0 ? null : arg.substring(index + 1);
+      if (IGNORED_KEYS.contains(key))
+        continue;
+      if (key.equals(Proj4Keyword.k))
+        key = Proj4Keyword.k_0;
+      params.put(key, value);
+    }
+
+    Map<String, Double> numbers = new TreeMap<String, Double>();
+    Map<String, String> names = new TreeMap<String, String>();
+    try {
+      for (Map.Entry<String, String> param : params.entrySet()) {
+        String key = param.getKey();
+        String value = param.getValue();
+        if (value != null && ANGLE_KEYS.contains(key))
+          numbers.put(key, Double.valueOf(Angle.parse(value)));
+        else if (value != null && NUMERIC_KEYS.contains(key))
+          numbers.put(key, Double.valueOf(Double.parseDouble(value)));
+        else if (key.equals(Proj4Keyword.towgs84) && value != null)
+          addToWGS84(value, numbers);
+        else
+          names.put(key, value);
+      }
+    }
+    catch (NumberFormatException ex) {
+      return null;
+    }
+
+    expandUTM(names, numbers);
+    expandEllipsoid(names, numbers);
+    expandDatum(names, numbers);
+
+    if ("m".equals(names.get(Proj4Keyword.units)))
+      names.remove(Proj4Keyword.units);
+    for (Map.Entry<String, Double> def : DEFAULT_VALUES.entrySet()) {
+      Double value = numbers.get(def.getKey());
+      if (value != null && value.doubleValue() == (def.getValue()).doubleValue())
+        numbers.remove(def.getKey());
+    }
+
+    StringBuffer sig = new StringBuffer();
+    for (Map.Entry<String, String> name : names.entrySet()) {
+      sig.append('+').append(name.getKey());
+      if (name.getValue() != null)
+        sig.append('=').append(name.getValue());
+      sig.append(' ');
+    }
+    double[] values = new double[numbers.size()];
+    int i = 0;
+    for (Map.Entry<String, Double> number : numbers.entrySet()) {
+      sig.append('+').append(number.getKey()).append("=# ");
+      values[i++] = (number.getValue()).doubleValue();
+    }
+    return new Canonical(sig.toString(), values);
+  }
+
+  private static void addToWGS84(String value, Map<String, Double> numbers)
+  {
+    String[] numStr = value.split(",");
+    double[] param = new double[numStr.length];
+    for (int i = 0; i < numStr.length; i++) {
+      param[i] = Double.parseDouble(numStr[i]);
+    }
+    addToWGS84(param, numbers);
+  }
+
+  private static void addToWGS84(double[] param, Map<String, Double> numbers)
+  {
+    int n = param.length;
+    // a 7-parameter transform with no rotation or scaling is a 3-parameter transform
+    if (n == 7 && param[3] == 0.0 && param[4] == 0.0 && param[5] == 0.0 && param[6] == 0.0)
+      n = 3;
+    for (int i = 0; i < n; i++) {
+      numbers.put(Proj4Keyword.towgs84 + "[" + i + "]", Double.valueOf(param[i]));
+    }
+  }
+
+  /**
+   * Replaces a UTM zone by the equivalent Transverse Mercator parameters.
+   */
+  private static void expandUTM(Map<String, String> names, Map<String, Double> numbers)
+  {
+    Double zone = numbers.get(Proj4Keyword.zone);
+    if (! "utm".equals(names.get(Proj4Keyword.proj)) || zone == null)
+      return;
+    boolean isSouth = names.containsKey(Proj4Keyword.south);
+    names.put(Proj4Keyword.proj, "tmerc");
+    names.remove(Proj4Keyword.south);
+    numbers.remove(Proj4Keyword.zone);
+    numbers.put(Proj4Keyword.lon_0, Double.valueOf(zone.intValue() * 6 - 183));
+    numbers.put(Proj4Keyword.lat_0, Double.valueOf(0));
+    numbers.put(Proj4Keyword.k_0, Double.valueOf(0.9996));
+    numbers.put(Proj4Keyword.x_0, Double.valueOf(500000));
+    numbers.put(Proj4Keyword.y_0, Double.valueOf(isSouth ? 10000000 : 0));
+  }
+
+  /**
+   * Replaces the ellipsoid specification by its <i>a</i> and <i>es</i> values.
+   * Explicit parameters take precedence over a named ellipsoid.
+   */
+  private void expandEllipsoid(Map<String, String> names, Map<String, Double> numbers)
+  {
+    double a = Double.NaN;
+    double es = Double.NaN;
+    Ellipsoid ellps = null;
+    String ellpsName = names.get(Proj4Keyword.ellps);
+    if (ellpsName != null) {
+      ellps = registry.getEllipsoid(ellpsName);
+      if (ellps == null)
+        return;
+    }
+    else if (names.get(Proj4Keyword.datum) != null) {
+      Datum datum = registry.getDatum(names.get(Proj4Keyword.datum));
+      if (datum != null)
+        ellps = datum.getEllipsoid();
+    }
+    if (ellps != null) {
+      a = ellps.equatorRadius;
+      es = ellps.eccentricity2;
+    }
+
+    Double R = numbers.remove(Proj4Keyword.R);
+    Double aParam = numbers.remove(Proj4Keyword.a);
+    Double esParam = numbers.remove(Proj4Keyword.es);
+    Double rfParam = numbers.remove(Proj4Keyword.rf);
+    Double fParam = numbers.remove(Proj4Keyword.f);
+    Double bParam = numbers.remove(Proj4Keyword.b);
+    if (R != null) {
+      a = R.doubleValue();
+      es = 0;
+    }
+    if (aParam != null)
+      a = aParam.doubleValue();
+    if (esParam != null)
+      es = esParam.doubleValue();
+    if (rfParam != null)
+      es = flatteningToES(1.0 / rfParam.doubleValue());
+    if (fParam != null)
+      es = flatteningToES(fParam.doubleValue());
+    if (bParam != null) {
+      double b = bParam.doubleValue();
+      es = 1.0 - (b * b) / (a * a);
+    }
+
+    if (Double.isNaN(a) || Double.isNaN(es))
+      return;
+    names.remove(Proj4Keyword.ellps);
+    numbers.put(Proj4Keyword.a, Double.valueOf(a));
+    // scale es so that it is compared with a useful precision
+    numbers.put(Proj4Keyword.es, Double.valueOf(es * 1.0e6));
+  }
+
+  /**
+   * Replaces a named datum by its shift to WGS84,
+   * unless an explicit <tt>+towgs84</tt> is given.
+   * The ellipsoid of the datum has already been expanded.
+   */
+  private void expandDatum(Map<String, String> names, Map<String, Double> numbers)
+  {
+    String datumName = names.get(Proj4Keyword.datum);
+    if (datumName == null)
+      return;
+    Datum datum = registry.getDatum(datumName);
+    if (datum == null)
+      return;
+    // grid shift datums have an identity parameter transform,
+    // which is only correct for datums on an ellipsoid equivalent to WGS84
+    Ellipsoid ellps = datum.getEllipsoid();
+    if (! datum.hasTransformToWGS84()
+        && (ellps.equatorRadius != Ellipsoid.WGS84.equatorRadius
+            || Math.abs(ellps.eccentricity2 - Ellipsoid.WGS84.eccentricity2) > Datum.ELLIPSOID_E2_TOLERANCE))
+      return;
+    names.remove(Proj4Keyword.datum);
+    if (numbers.containsKey(Proj4Keyword.towgs84 + "[0]"))
+      return;
+    addToWGS84(datum.getTransformToWGS84(), numbers);
+  }
+
+  private static double flatteningToES(double f)
+  {
+    return f * (2.0 - f);
+  }
+
+  private static final Comparator<Entry> ENTRY_ORDER = new Comparator<Entry>() {
+    public int compare(Entry e1, Entry e2)
+    {
+      return e1.ordinal < e2.ordinal ? -1 : (e1.ordinal > e2.ordinal ? 1 : 0);
+    }
+  };
+
+  private static class Canonical
+  {
+    String signature;
+    double[] values;
+
+    Canonical(String signature, double[] values)
+    {
+      this.signature = signature;
+      this.values = values;
+    }
+  }
+
+  private static class Entry
+  {
+    String name;
+    int ordinal;
+    double[] values;
+
+    Entry(String name, int ordinal, double[] values)
+    {
+      this.name = name;
+      this.ordinal = ordinal;
+      this.values = values;
+    }
+  }
+}
@@ -0,0 +1,260 @@
+package org.osgeo.proj4j.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.osgeo.proj4j.*;
+import org.osgeo.proj4j.io.Proj4FileReader;
+import org.osgeo.proj4j.proj.Projection;
+
+/**
+ * Creates a set of {@link CoordinateReferenceSystem}s in parallel
+ * and stores them in the {@link CRSCache},
+ * so that the parsing and class-loading costs are paid
+ * before the coordinate systems are first used.
+ * Optionally a short burst of transformations is run
+ * for each distinct projection type,
+ * so that the projection code is compiled by the JIT.
+ *
+ * @see CRSFactory#warmUp(String[], int, boolean)
+ */
+public class CRSWarmUp
+{
+  /**
+   * The number of points projected and inverse-projected
+   * for each projection type.
+   */
+  public static final int TRANSFORM_BURST_SIZE = 2000;
+
+  private static final CoordinateTransformFactory ctFactory = new CoordinateTransformFactory();
+
+  private CRSFactory crsFactory;
+  private CRSCache crsCache = new CRSCache();
+  private int threadCount;
+  private boolean isTransformExercised = false;
+
+  /**
+   * Creates a new warm-up process.
+   *
+   * @param crsFactory the factory used to create the coordinate systems
+   * @param threadCount the number of threads to use (if &lt;= 0, the number of available processors is used)
+   */
+  public CRSWarmUp(CRSFactory crsFactory, int threadCount)
+  {
+    this.crsFactory = crsFactory;
+    if (threadCount <= 0)
+      threadCount = Runtime.getRuntime().availableProcessors();
+    this.threadCount = threadCount;
+  }
+
+  /**
+   * Sets whether a burst of transformations is run
+   * for each projection type after the coordinate systems are created.
+   *
+   * @param isTransformExercised true if projections should be exercised
+   */
+  public void setTransformExercised(boolean isTransformExercised)
+  {
+    this.isTransformExercised = isTransformExercised;
+  }
+
+  /**
+   * Creates and caches the coordinate systems with the given names.
+   *
+   * @param names the names of the CRSs (e.g. <tt>EPSG:4326</tt>)
+   * @return a report of the warm-up
+   */
+  public CRSWarmUpReport warmUp(String[] names)
+  {
+    // read the file of each authority once, rather than scanning it for each name
+    Proj4FileReader reader = new Proj4FileReader();
+    Map<String, Map<String, String[]>> catalogs = new HashMap<String, Map<String, String[]>>();
+    Map<String, String[]> defs = new LinkedHashMap<String, String[]>();
+    for (int i = 0; i < names.length; i++) {
+      String[] params = null;
+      int p = names[i].indexOf(':');
+      if (p >= 0) {
+        String authority = names[i].substring(0, p).toLowerCase();
+        if (! catalogs.containsKey(authority))
+          catalogs.put(authority, readCatalog(reader, authority));
+        Map<String, String[]> catalog = catalogs.get(authority);
+        if (catalog != null)
+          params = catalog.get(names[i].substring(p + 1));
+      }
+      // names which are not found are created by name, so that the failure is reported
+      defs.put(names[i], params);
+    }
+    return warmUp(defs);
+  }
+
+  /**
+   * Creates and caches coordinate systems from their PROJ.4 parameters.
+   * If the parameters for a name are <tt>null</tt>
+   * the CRS is created from the name instead.
+   *
+   * @param defs a map of CRS names to PROJ.4 parameters
+   * @return a report of the warm-up
+   */
+  public CRSWarmUpReport warmUp(Map<String, String[]> defs)
+  {
+    long startTime = System.nanoTime();
+    CRSWarmUpReport report = new CRSWarmUpReport();
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      List<Future<CreateTask>> creates = new ArrayList<Future<CreateTask>>();
+      for (Map.Entry<String, String[]> def : defs.entrySet()) {
+        creates.add(executor.submit(new CreateTask(def.getKey(), def.getValue())));
+      }
+
+      // pick one CRS for each projection type
+      Map<String, CoordinateReferenceSystem> exemplars = new LinkedHashMap<String, CoordinateReferenceSystem>();
+      for (Future<CreateTask> future : creates) {
+        CreateTask task = waitFor(future);
+        report.addCreate(task.name, task.nanos, task.failure);
+        if (task.crs != null) {
+          crsCache.put(task.name, task.crs);
+          String projName = task.crs.getProjection().getName();
+          if (! exemplars.containsKey(projName))
+            exemplars.put(projName, task.crs);
+        }
+      }
+
+      if (isTransformExercised) {
+        List<Future<BurstTask>> bursts = new ArrayList<Future<BurstTask>>();
+        for (Map.Entry<String, CoordinateReferenceSystem> exemplar : exemplars.entrySet()) {
+          bursts.add(executor.submit(new BurstTask(exemplar.getKey(), exemplar.getValue())));
+        }
+        for (Future<BurstTask> future : bursts) {
+          BurstTask task = waitFor(future);
+          report.addProjection(task.projName, task.nanos);
+        }
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+    report.setElapsedNanos(System.nanoTime() - startTime);
+    return report;
+  }
+
+  private static Map<String, String[]> readCatalog(Proj4FileReader reader, String authority)
+  {
+    try {
+      return reader.readAllParametersFromFile(authority);
+    }
+    catch (IOException ex) {
+      return null;
+    }
+    catch (IllegalStateException ex) {
+      // the authority has no file
+      return null;
+    }
+  }
+
+  private static <T> T waitFor(Future<T> future)
+  {
+    try {
+      return future.get();
+    }
+    catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Warm-up interrupted");
+    }
+    catch (ExecutionException ex) {
+      // tasks catch their own exceptions, so this indicates an Error
+      throw new IllegalStateException("Warm-up failed: " + ex.getCause());
+    }
+  }
+
+  private class CreateTask implements Callable<CreateTask>
+  {
+    String name;
+    String[] params;
+    CoordinateReferenceSystem crs = null;
+    Throwable failure = null;
+    long nanos = 0;
+
+    CreateTask(String name, String[] params)
+    {
+      this.name = name;
+      this.params = params;
+    }
+
+    public CreateTask call()
+    {
+      long start = System.nanoTime();
+      try {
+        if (params == null)
+          crs = crsFactory.createFromName(name);
+        else
+          crs = crsFactory.createFromParameters(name, params);
+      }
+      catch (RuntimeException ex) {
+        failure = ex;
+      }
+      nanos = System.nanoTime() - start;
+      return this;
+    }
+  }
+
+  private static class BurstTask implements Callable<BurstTask>
+  {
+    String projName;
+    CoordinateReferenceSystem crs;
+    long nanos = 0;
+
+    BurstTask(String projName, CoordinateReferenceSystem crs)
+    {
+      this.projName = projName;
+      this.crs = crs;
+    }
+
+    public BurstTask call()
+    {
+      long start = System.nanoTime();
+      try {
+        runBurst();
+      }
+      catch (RuntimeException ex) {
+        // a projection which cannot be exercised is not a warm-up failure
+      }
+      nanos = System.nanoTime() - start;
+      return this;
+    }
+
+    private void runBurst()
+    {
+      CoordinateReferenceSystem geoCRS = crs.createGeographic();
+      CoordinateTransform forward = ctFactory.createTransform(geoCRS, crs);
+      CoordinateTransform inverse = ctFactory.createTransform(crs, geoCRS);
+      Projection proj = crs.getProjection();
+      double lon0 = proj.getProjectionLongitudeDegrees();
+      double lat0 = proj.getProjectionLatitudeDegrees();
+
+      ProjCoordinate p = new ProjCoordinate();
+      ProjCoordinate p2 = new ProjCoordinate();
+      ProjCoordinate p3 = new ProjCoordinate();
+      for (int i = 0; i < TRANSFORM_BURST_SIZE; i++) {
+        // small grid around the projection origin, which is within the domain of most projections
+        p.x = lon0 + ((i % 10) - 5) * 0.1;
+        p.y = Math.max(-85, Math.min(85, lat0 + (((i / 10) % 10) - 5) * 0.1));
+        try {
+          forward.transform(p, p2);
+          inverse.transform(p2, p3);
+        }
+        catch (Proj4jException ex) {
+          // some points may be outside the domain of the projection
+        }
+      }
+    }
+  }
+}
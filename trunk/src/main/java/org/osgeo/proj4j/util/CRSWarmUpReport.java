@@ -0,0 +1,141 @@
+package org.osgeo.proj4j.util;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reports the outcome of warming up a set of
+ * {@link org.osgeo.proj4j.CoordinateReferenceSystem}s.
+ * Records the time taken to create each CRS,
+ * the failures encountered,
+ * and the time spent exercising each projection type.
+ *
+ * @see CRSWarmUp
+ */
+public class CRSWarmUpReport
+{
+  private List<String> names = new ArrayList<String>();
+  private Map<String, Long> createNanos = new HashMap<String, Long>();
+  private Map<String, Throwable> failures = new LinkedHashMap<String, Throwable>();
+  private Map<String, Long> projectionNanos = new LinkedHashMap<String, Long>();
+  private long elapsedNanos = 0;
+
+  CRSWarmUpReport()
+  {
+  }
+
+  void addCreate(String name, long nanos, Throwable failure)
+  {
+    names.add(name);
+    createNanos.put(name, Long.valueOf(nanos));
+    if (failure != null)
+      failures.put(name, failure);
+  }
+
+  void addProjection(String projName, long nanos)
+  {
+    projectionNanos.put(projName, Long.valueOf(nanos));
+  }
+
+  void setElapsedNanos(long elapsedNanos)
+  {
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /**
+   * Gets the names of the coordinate systems processed,
+   * in the order they were requested.
+   *
+   * @return the CRS names
+   */
+  public List<String> getNames()
+  {
+    return names;
+  }
+
+  /**
+   * Gets the time taken to create a coordinate system.
+   *
+   * @param name the CRS name
+   * @return the creation time in nanoseconds, or -1 if the CRS was not processed
+   */
+  public long getCreateNanos(String name)
+  {
+    Long nanos = createNanos.get(name);
+    if (nanos == null) return -1;
+    return nanos.longValue();
+  }
+
+  /**
+   * Gets the failures which occurred,
+   * keyed by CRS name.
+   *
+   * @return a map of CRS names to the exception thrown while creating them
+   */
+  public Map<String, Throwable> getFailures()
+  {
+    return failures;
+  }
+
+  public int getFailureCount()
+  {
+    return failures.size();
+  }
+
+  public int getLoadedCount()
+  {
+    return names.size() - failures.size();
+  }
+
+  /**
+   * Gets the time spent running the transform burst for each projection type,
+   * keyed by projection name.
+   * The map is empty if transforms were not exercised.
+   *
+   * @return a map of projection names to burst times in nanoseconds
+   */
+  public Map<String, Long> getProjectionNanos()
+  {
+    return projectionNanos;
+  }
+
+  /**
+   * Gets the wall-clock time taken by the entire warm-up.
+   *
+   * @return the elapsed time in nanoseconds
+   */
+  public long getElapsedNanos()
+  {
+    return elapsedNanos;
+  }
+
+  /**
+   * Prints the per-CRS timings and failures.
+   *
+   * @param os the stream to print to
+   */
+  public void print(PrintStream os)
+  {
+    for (String name : names) {
+      Throwable failure = failures.get(name);
+      os.println(name + "\t" + toMillis(getCreateNanos(name)) + " ms"
+          + (failure == null ? "" : "\tFAILED: " + failure));
+    }
+    for (String projName : projectionNanos.keySet()) {
+      os.println("proj=" + projName + "\t"
+          + toMillis(projectionNanos.get(projName).longValue()) + " ms");
+    }
+    os.println("Loaded: " + getLoadedCount()
+        + ",  Failures: " + getFailureCount()
+        + ",  Time: " + toMillis(elapsedNanos) + " ms");
+  }
+
+  private static double toMillis(long nanos)
+  {
+    return nanos / 1000000.0;
+  }
+}
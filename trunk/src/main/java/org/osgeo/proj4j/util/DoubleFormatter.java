@@ -0,0 +1,449 @@
+package org.osgeo.proj4j.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.CharBuffer;
+
+/**
+ * Formats <tt>double</tt> values as decimal text quickly,
+ * without using {@link java.text.DecimalFormat} or creating intermediate objects.
+ * <p>
+ * Values are written in plain (non-exponential) notation,
+ * using the shortest sequence of digits which parses back to the same value
+ * (computed with the Schubfach algorithm of R. Giulietti).
+ * Optionally, the number of decimal places can be limited
+ * (rounding half-even, as {@link java.text.DecimalFormat} does),
+ * or fixed at an exact number of places
+ * (rounding half-up, as {@link java.util.Formatter} does).
+ * <tt>NaN</tt> and infinite values are written as
+ * <tt>NaN</tt>, <tt>Infinity</tt> and <tt>-Infinity</tt>.
+ * <p>
+ * Text can be appended to a {@link StringBuilder} or {@link CharBuffer},
+ * or written as ASCII into a <tt>byte</tt> array.
+ * A formatter reuses an internal buffer, so it is not thread-safe;
+ * each thread should use its own instance.
+ */
+public class DoubleFormatter
+{
+  private static final int P = 53;
+  private static final int Q_MIN = -1074;
+  private static final long C_MIN = 1L << (P - 1);
+  private static final int C_TINY = 3;
+  private static final int K_MIN = -324;
+  private static final int K_MAX = 292;
+  private static final long MASK_63 = (1L << 63) - 1;
+
+  private static final long[] POW10 = new long[19];
+
+  /**
+   * The 126-bit approximations of powers of ten used by Schubfach,
+   * as pairs of 63-bit halves
+   */
+  private static final long[] G = new long[2 * (K_MAX - K_MIN + 1)];
+
+  static {
+    POW10[0] = 1;
+    for (int i = 1; i < POW10.length; i++) {
+      POW10[i] = 10 * POW10[i - 1];
+    }
+    // g = floor(10^-k * 2^-r) + 1, where 2^125 <= 10^-k * 2^-r < 2^126
+    BigInteger ten = BigInteger.valueOf(10);
+    for (int k = K_MIN; k <= K_MAX; k++) {
+      int r = flog2pow10(-k) - 125;
+      BigInteger g;
+      if (k <= 0) {
+        BigInteger pow = ten.pow(-k);
+        g = r >= 0 ? pow.shiftRight(r) : pow.shiftLeft(-r);
+      }
+      else {
+        g = BigInteger.ONE.shiftLeft(-r).divide(ten.pow(k));
+      }
+      g = g.add(BigInteger.ONE);
+      int i = 2 * (k - K_MIN);
+      G[i] = g.shiftRight(63).longValue();
+      G[i + 1] = g.longValue() & MASK_63;
+    }
+  }
+
+  private int maxDecimals;
+  private boolean isFixed;
+
+  private char[] buf = new char[32];
+
+  // the decimal value computed for the last number: (-1)^isNegative * digits * 10^exp
+  private long digits;
+  private int exp;
+  private boolean isNegative;
+
+  /**
+   * Creates a formatter which writes the shortest decimal representation of values.
+   */
+  public DoubleFormatter()
+  {
+    this(-1, false);
+  }
+
+  /**
+   * Creates a formatter which writes values with a limited number of decimal places.
+   *
+   * @param decimals the maximum (or exact) number of decimal places
+   * @param isFixed true if exactly <tt>decimals</tt> places are always written,
+   * false if trailing zeros are removed
+   */
+  public DoubleFormatter(int decimals, boolean isFixed)
+  {
+    this.maxDecimals = decimals;
+    this.isFixed = isFixed && decimals >= 0;
+  }
+
+  /**
+   * Formats a value as a String.
+   *
+   * @param d the value to format
+   * @return the formatted value
+   */
+  public String format(double d)
+  {
+    int len = fill(d);
+    return new String(buf, 0, len);
+  }
+
+  /**
+   * Appends the text of a value to a {@link StringBuilder}.
+   *
+   * @param sb the builder to append to
+   * @param d the value to format
+   * @return the builder
+   */
+  public StringBuilder append(StringBuilder sb, double d)
+  {
+    int len = fill(d);
+    return sb.append(buf, 0, len);
+  }
+
+  /**
+   * Writes the text of a value into a {@link CharBuffer} at its current position.
+   *
+   * @param cb the buffer to write to
+   * @param d the value to format
+   * @return the buffer
+   * @throws java.nio.BufferOverflowException if there is not enough space in the buffer
+   */
+  public CharBuffer append(CharBuffer cb, double d)
+  {
+    int len = fill(d);
+    return cb.put(buf, 0, len);
+  }
+
+  /**
+   * Writes the text of a value as ASCII characters into a <tt>byte</tt> array.
+   *
+   * @param dest the array to write to
+   * @param pos the index to start writing at
+   * @param d the value to format
+   * @return the index after the last character written
+   * @throws ArrayIndexOutOfBoundsException if there is not enough space in the array
+   */
+  public int write(byte[] dest, int pos, double d)
+  {
+    int len = fill(d);
+    if (pos + len > dest.length)
+      throw new ArrayIndexOutOfBoundsException(pos + len);
+    for (int i = 0; i < len; i++) {
+      dest[pos + i] = (byte) buf[i];
+    }
+    return pos + len;
+  }
+
+  /**
+   * Formats a value into the internal buffer.
+   *
+   * @return the length of the text
+   */
+  private int fill(double d)
+  {
+    if (Double.isNaN(d))
+      return writeString("NaN");
+    if (Double.isInfinite(d))
+      return writeString(d > 0 ? "Infinity" : "-Infinity");
+    toDecimal(d);
+    if (maxDecimals >= 0 && -exp > maxDecimals)
+      round(d, maxDecimals);
+    if (! isFixed)
+      removeTrailingZeros();
+    return writePlain();
+  }
+
+  private int writeString(String s)
+  {
+    s.getChars(0, s.length(), buf, 0);
+    return s.length();
+  }
+
+  /**
+   * Rounds the decimal value to a given number of decimal places,
+   * half-up for fixed places and half-even otherwise.
+   */
+  private void round(double d, int decimals)
+  {
+    int cut = -exp - decimals;
+    int nDigits = digitCount(digits);
+    if (cut > nDigits) {
+      digits = 0;
+    }
+    else {
+      long pow = POW10[cut];
+      long q = digits / pow;
+      long rem2 = 2 * (digits - q * pow);
+      if (rem2 > pow || rem2 == pow && (isFixed || roundsUpAtTie(d, q)))
+        q++;
+      digits = q;
+    }
+    exp = -decimals;
+  }
+
+  /**
+   * Determines how a value whose shortest digits are exactly halfway
+   * between two rounded values is rounded half-even.
+   * As in {@link java.text.DecimalFormat}, the exact binary value decides,
+   * unless it is also exactly halfway.
+   */
+  private boolean roundsUpAtTie(double d, long q)
+  {
+    int cmp = new BigDecimal(Math.abs(d)).compareTo(BigDecimal.valueOf(digits, -exp));
+    if (cmp != 0)
+      return cmp > 0;
+    return (q & 0x1) != 0;
+  }
+
+  private void removeTrailingZeros()
+  {
+    if (digits == 0) {
+      exp = 0;
+      return;
+    }
+    while (exp < 0 && digits % 10 == 0) {
+      digits /= 10;
+      exp++;
+    }
+  }
+
+  /**
+   * Writes the decimal value in plain notation into the internal buffer.
+   */
+  private int writePlain()
+  {
+    int pos = 0;
+    int nDigits = digits == 0 ? 1 : digitCount(digits);
+    int fracDigits = exp < 0 ? -exp : 0;
+    int intDigits = nDigits - fracDigits;
+    // decimal places written (including padding)
+    int places = fracDigits;
+    if (isFixed)
+      places = maxDecimals;
+    else if (places == 0 && maxDecimals != 0)
+      places = 1;
+
+    ensureCapacity(2 + Math.max(intDigits + Math.max(exp, 0), 1) + places);
+    if (isNegative)
+      buf[pos++] = '-';
+
+    if (intDigits <= 0) {
+      buf[pos++] = '0';
+    }
+    else {
+      // the integer part of the digits, followed by any zeros given by the exponent
+      long intPart = fracDigits == 0 ? digits : digits / POW10[fracDigits];
+      pos = writeDigits(intPart, intDigits, pos);
+      for (int i = 0; i < exp; i++) {
+        buf[pos++] = '0';
+      }
+    }
+    if (places == 0)
+      return pos;
+
+    buf[pos++] = '.';
+    int written = 0;
+    if (fracDigits > 0) {
+      // zeros between the decimal point and the first digit
+      for (int i = intDigits; i < 0; i++) {
+        buf[pos++] = '0';
+      }
+      long fracPart = intDigits <= 0 ? digits : digits % POW10[fracDigits];
+      pos = writeDigits(fracPart, Math.min(fracDigits, nDigits), pos);
+      written = fracDigits;
+    }
+    for (int i = written; i < places; i++) {
+      buf[pos++] = '0';
+    }
+    return pos;
+  }
+
+  /**
+   * Writes a number with exactly <tt>n</tt> digits (padded with leading zeros).
+   */
+  private int writeDigits(long value, int n, int pos)
+  {
+    int end = pos + n;
+    for (int i = end - 1; i >= pos; i--) {
+      long q = value / 10;
+      buf[i] = (char) ('0' + (int) (value - 10 * q));
+      value = q;
+    }
+    return end;
+  }
+
+  private void ensureCapacity(int len)
+  {
+    if (len > buf.length) {
+      char[] newBuf = new char[Math.max(len, 2 * buf.length)];
+      System.arraycopy(buf, 0, newBuf, 0, buf.length);
+      buf = newBuf;
+    }
+  }
+
+  private static int digitCount(long value)
+  {
+    // estimate from the bit length, which is exact or one too small
+    int n = flog10pow2(64 - Long.numberOfLeadingZeros(value));
+    if (n < POW10.length && value >= POW10[n])
+      n++;
+    return Math.max(n, 1);
+  }
+
+  //------------------------------------------------------------------
+  // Schubfach: computes the shortest decimal which rounds to a double
+
+  private void toDecimal(double v)
+  {
+    long bits = Double.doubleToRawLongBits(v);
+    long t = bits & ((1L << (P - 1)) - 1);
+    int bq = (int) (bits >>> (P - 1)) & 0x7FF;
+    isNegative = bits < 0;
+    if (bq != 0) {
+      // normal value
+      int mq = -Q_MIN + 1 - bq;
+      long c = C_MIN | t;
+      if (0 < mq && mq < P) {
+        // the value may be an integer
+        long f = c >> mq;
+        if (f << mq == c) {
+          digits = f;
+          exp = 0;
+          return;
+        }
+      }
+      toDecimal(-mq, c, 0);
+      return;
+    }
+    if (t != 0) {
+      // subnormal value
+      if (t < C_TINY)
+        toDecimal(Q_MIN, 10 * t, -1);
+      else
+        toDecimal(Q_MIN, t, 0);
+      return;
+    }
+    digits = 0;
+    exp = 0;
+  }
+
+  private void toDecimal(int q, long c, int dk)
+  {
+    int out = (int) c & 0x1;
+    long cb = c << 2;
+    long cbr = cb + 2;
+    long cbl;
+    int k;
+    if (c != C_MIN || q == Q_MIN) {
+      cbl = cb - 2;
+      k = flog10pow2(q);
+    }
+    else {
+      cbl = cb - 1;
+      k = flog10threeQuartersPow2(q);
+    }
+    int h = q + flog2pow10(-k) + 2;
+
+    int gi = 2 * (k - K_MIN);
+    long g1 = G[gi];
+    long g0 = G[gi + 1];
+
+    long vb = rop(g1, g0, cb << h);
+    long vbl = rop(g1, g0, cbl << h);
+    long vbr = rop(g1, g0, cbr << h);
+
+    long s = vb >> 2;
+    if (s >= 100) {
+      // try a decimal with one digit fewer
+      long sp10 = 10 * multiplyHigh(s, 115292150460684698L << 4);
+      long tp10 = sp10 + 10;
+      boolean upin = vbl + out <= sp10 << 2;
+      boolean wpin = (tp10 << 2) + out <= vbr;
+      if (upin != wpin) {
+        setDecimal(upin ? sp10 : tp10, k);
+        return;
+      }
+    }
+    long t = s + 1;
+    boolean uin = vbl + out <= s << 2;
+    boolean win = (t << 2) + out <= vbr;
+    if (uin != win) {
+      setDecimal(uin ? s : t, k + dk);
+      return;
+    }
+    long cmp = vb - (s + t << 1);
+    setDecimal(cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k + dk);
+  }
+
+  private void setDecimal(long f, int e)
+  {
+    digits = f;
+    exp = e;
+  }
+
+  private static long rop(long g1, long g0, long cp)
+  {
+    long x1 = multiplyHigh(g0, cp);
+    long y0 = g1 * cp;
+    long y1 = multiplyHigh(g1, cp);
+    long z = (y0 >>> 1) + x1;
+    long vbp = y1 + (z >>> 63);
+    return vbp | (z & MASK_63) + MASK_63 >>> 63;
+  }
+
+  /**
+   * Computes the high 64 bits of the 128-bit product of two longs.
+   */
+  private static long multiplyHigh(long x, long y)
+  {
+    long x1 = x >> 32;
+    long x2 = x & 0xFFFFFFFFL;
+    long y1 = y >> 32;
+    long y2 = y & 0xFFFFFFFFL;
+    long z2 = x2 * y2;
+    long t = x1 * y2 + (z2 >>> 32);
+    long z1 = t & 0xFFFFFFFFL;
+    long z0 = t >> 32;
+    z1 += x2 * y1;
+    return x1 * y1 + z0 + (z1 >> 32);
+  }
+
+  /** floor(log10(2^e)) */
+  private static int flog10pow2(int e)
+  {
+    return (int) (e * 661971961083L >> 41);
+  }
+
+  /** floor(log10(3/4 * 2^e)) */
+  private static int flog10threeQuartersPow2(int e)
+  {
+    return (int) (e * 661971961083L + -274743187321L >> 41);
+  }
+
+  /** floor(log2(10^e)) */
+  private static int flog2pow10(int e)
+  {
+    return (int) (e * 913124641741L >> 38);
+  }
+}
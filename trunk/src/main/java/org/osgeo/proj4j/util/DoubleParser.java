@@ -0,0 +1,169 @@
+package org.osgeo.proj4j.util;
+
+/**
+ * Parses decimal numbers directly from character sequences,
+ * without creating intermediate {@link String}s.
+ * <p>
+ * Numbers with at most 15 significant digits and a small decimal exponent
+ * (which covers almost all coordinate and parameter values)
+ * are converted using exact floating-point arithmetic,
+ * which gives the correctly rounded result.
+ * All other inputs are handed to {@link Double#parseDouble(String)},
+ * so the result is always identical to that method.
+ */
+public class DoubleParser
+{
+  private static final int MAX_FAST_DIGITS = 15;
+
+  /**
+   * Powers of ten which are exactly representable as doubles
+   */
+  private static final double[] POW10 = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+    1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+    1e21, 1e22
+  };
+
+  // longer numbers in character sequences are not copied to a buffer
+  private static final int MAX_BUFFER_LENGTH = 64;
+
+  private static final ThreadLocal<char[]> buffers = new ThreadLocal<char[]>() {
+    protected char[] initialValue() {
+      return new char[MAX_BUFFER_LENGTH];
+    }
+  };
+
+  private DoubleParser()
+  {
+  }
+
+  /**
+   * Parses a number from a range of a character sequence.
+   * The characters are copied to a buffer owned by the current thread,
+   * so no objects are created unless the number is unusually long.
+   *
+   * @param s the characters to parse
+   * @param start the index of the first character of the number
+   * @param end the index after the last character of the number
+   * @return the value of the number
+   * @throws NumberFormatException if the characters are not a valid number
+   */
+  public static double parse(CharSequence s, int start, int end)
+  {
+    int len = end - start;
+    if (len > MAX_BUFFER_LENGTH)
+      return Double.parseDouble(s.subSequence(start, end).toString());
+    char[] buf = buffers.get();
+    for (int i = 0; i < len; i++) {
+      buf[i] = s.charAt(start + i);
+    }
+    return parse(buf, 0, len);
+  }
+
+  /**
+   * Parses a number from a range of a character array.
+   *
+   * @param s the characters to parse
+   * @param start the index of the first character of the number
+   * @param end the index after the last character of the number
+   * @return the value of the number
+   * @throws NumberFormatException if the characters are not a valid number
+   */
+  public static double parse(char[] s, int start, int end)
+  {
+    int i = start;
+    boolean isNegative = false;
+    if (i < end) {
+      char c = s[i];
+      if (c == '-' || c == '+') {
+        isNegative = c == '-';
+        i++;
+      }
+    }
+    long mant = 0;
+    int digits = 0;
+    int exp10 = 0;
+    int digitStart = i;
+    while (i < end) {
+      int d = s[i] - '0';
+      if (d < 0 || d > 9) break;
+      mant = mant * 10 + d;
+      if (mant != 0) digits++;
+      i++;
+    }
+    boolean hasDigits = i > digitStart;
+    if (i < end && s[i] == '.') {
+      i++;
+      int fracStart = i;
+      while (i < end) {
+        int d = s[i] - '0';
+        if (d < 0 || d > 9) break;
+        mant = mant * 10 + d;
+        if (mant != 0) digits++;
+        exp10--;
+        i++;
+      }
+      hasDigits |= i > fracStart;
+    }
+    if (hasDigits && i < end) {
+      char c = s[i];
+      if (c == 'e' || c == 'E') {
+        i++;
+        boolean isExpNegative = false;
+        if (i < end) {
+          c = s[i];
+          if (c == '-' || c == '+') {
+            isExpNegative = c == '-';
+            i++;
+          }
+        }
+        int expStart = i;
+        int exp = 0;
+        while (i < end) {
+          int d = s[i] - '0';
+          if (d < 0 || d > 9) break;
+          // huge exponents are left to the slow path
+          if (exp < 10000)
+            exp = exp * 10 + d;
+          i++;
+        }
+        if (i == expStart)
+          hasDigits = false;
+        exp10 += isExpNegative ? -exp : exp;
+      }
+    }
+    double value = Double.NaN;
+    if (hasDigits && digits <= MAX_FAST_DIGITS && i == end)
+      value = fastValue(isNegative, mant, exp10);
+    if (Double.isNaN(value))
+      return Double.parseDouble(new String(s, start, end - start));
+    return value;
+  }
+
+  /**
+   * Computes the value of a number from its decimal mantissa and exponent,
+   * if this can be done exactly.
+   *
+   * @return the value, or NaN if it cannot be computed exactly
+   */
+  private static double fastValue(boolean isNegative, long mant, int exp10)
+  {
+    double value;
+    if (mant == 0) {
+      value = 0.0;
+    }
+    else if (exp10 == 0) {
+      value = (double) mant;
+    }
+    else if (exp10 > 0 && exp10 < POW10.length) {
+      value = (double) mant * POW10[exp10];
+    }
+    else if (exp10 < 0 && -exp10 < POW10.length) {
+      value = (double) mant / POW10[-exp10];
+    }
+    else {
+      return Double.NaN;
+    }
+    return isNegative ? -value : value;
+  }
+}
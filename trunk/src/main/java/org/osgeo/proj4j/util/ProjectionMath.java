@@ -17,6 +17,7 @@ limitations under the License.
 package org.osgeo.proj4j.util;
 
 import org.osgeo.proj4j.*;
+import org.osgeo.proj4j.metrics.Metrics;
 
 
 
@@ -350,6 +351,7 @@ public class ProjectionMath {
 			dphi = ProjectionMath.HALFPI - 2. * Math.atan(ts * Math.pow((1. - con) / (1. + con), eccnth)) - phi;
 			phi += dphi;
 		} while (Math.abs(dphi) > 1e-10 && --i != 0);
+		Metrics.reportSolve("phi2", i > 0 ? N_ITER - i + 1 : N_ITER, N_ITER, i > 0);
 		if (i <= 0)
 			throw new ConvergenceFailureException("Computation of phi2 failed to converage after " + N_ITER + " iterations");
 		return phi;
@@ -394,9 +396,12 @@ public class ProjectionMath {
 			s = Math.sin(phi);
 			t = 1. - es * s * s;
 			phi -= t = (mlfn(phi, s, Math.cos(phi), en) - arg) * (t * Math.sqrt(t)) * k;
-			if (Math.abs(t) < 1e-11)
+			if (Math.abs(t) < 1e-11) {
+				Metrics.reportSolve("inv_mlfn", MAX_ITER - i + 1, MAX_ITER, true);
 				return phi;
+			}
 		}
+		Metrics.reportSolve("inv_mlfn", MAX_ITER, MAX_ITER, false);
 		return phi;
 	}
 
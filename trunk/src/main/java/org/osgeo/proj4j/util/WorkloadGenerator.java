@@ -0,0 +1,378 @@
+package org.osgeo.proj4j.util;
+
+import java.util.Random;
+
+import org.osgeo.proj4j.CoordinateReferenceSystem;
+import org.osgeo.proj4j.ProjCoordinate;
+import org.osgeo.proj4j.proj.Projection;
+
+/**
+ * Generates reproducible sets of geographic points
+ * lying within the valid domain of a {@link Projection},
+ * for use as benchmark and test workloads.
+ * <p>
+ * The domain is given by the minimum and maximum latitude and longitude
+ * of the projection, the longitude limits being relative
+ * to the projection longitude.
+ * By default points for which the forward projection fails
+ * or is not finite are rejected, so every generated point can be projected.
+ * <p>
+ * Points are returned as longitude/latitude pairs in degrees,
+ * interleaved in a single array,
+ * in the layout used by {@link org.osgeo.proj4j.BatchCoordinateTransform}.
+ * The same seed, distribution and point count always give the same points.
+ */
+public class WorkloadGenerator
+{
+  /**
+   * The distributions of points which can be generated.
+   */
+  public enum Distribution {
+    /**
+     * Points distributed uniformly by area over the whole domain.
+     */
+    UNIFORM,
+    /**
+     * Points clustered around a number of centres, like the data of urban areas.
+     * Centres are chosen with Zipf-like weights,
+     * so a few clusters hold most of the points.
+     */
+    CLUSTERED,
+    /**
+     * Points lying within {@link WorkloadGenerator#POLAR_BAND_DEGREES}
+     * of the northern or southern latitude limit of the domain.
+     */
+    POLAR,
+    /**
+     * Points lying within {@link WorkloadGenerator#SEAM_BAND_DEGREES}
+     * either side of the antimeridian,
+     * or of the longitude limits of the domain if it does not contain the antimeridian.
+     */
+    ANTIMERIDIAN,
+    /**
+     * Sequential points along a number of tracks,
+     * like the fixes of a GPS receiver, each a few metres from the last.
+     */
+    TRACK
+  }
+
+  /**
+   * The width of the band of latitude in which polar points lie.
+   */
+  public static final double POLAR_BAND_DEGREES = 10.0;
+
+  /**
+   * The half-width of the band of longitude in which antimeridian points lie.
+   */
+  public static final double SEAM_BAND_DEGREES = 1.0;
+
+  /**
+   * The number of cluster centres of clustered points.
+   */
+  public static final int CLUSTER_COUNT = 16;
+
+  /**
+   * The standard deviation of the distance of clustered points from their centre.
+   */
+  public static final double CLUSTER_RADIUS_DEGREES = 0.05;
+
+  /**
+   * The number of points in each track.
+   */
+  public static final int TRACK_LENGTH = 1000;
+
+  /**
+   * The mean distance between successive points of a track (about 10 metres).
+   */
+  public static final double TRACK_STEP_DEGREES = 1e-4;
+
+  // the standard deviation of the change of heading between track points
+  private static final double TRACK_TURN = Math.toRadians(3);
+
+  // the number of attempts to generate a valid point before giving up
+  private static final int MAX_TRIES = 10000;
+
+  // keeps points off the poles, where many projections are singular
+  private static final double POLE_MARGIN = 1e-6;
+
+  private static final double TWO_PI = 2 * Math.PI;
+
+  private Projection proj;
+  private long seed;
+  private boolean isValidOnly = true;
+
+  // the domain, in radians, with longitudes relative to the projection longitude
+  private double lon0;
+  private double minLon;
+  private double maxLon;
+  private double minLat;
+  private double maxLat;
+
+  private ProjCoordinate p = new ProjCoordinate();
+  private ProjCoordinate q = new ProjCoordinate();
+
+  /**
+   * Creates a generator for the domain of the projection of a CRS.
+   *
+   * @param crs the coordinate reference system
+   * @param seed the seed of the random number generator
+   */
+  public WorkloadGenerator(CoordinateReferenceSystem crs, long seed)
+  {
+    this(crs.getProjection(), seed);
+  }
+
+  /**
+   * Creates a generator for the domain of a projection.
+   *
+   * @param proj an initialized projection
+   * @param seed the seed of the random number generator
+   */
+  public WorkloadGenerator(Projection proj, long seed)
+  {
+    this.proj = proj;
+    this.seed = seed;
+    lon0 = proj.getProjectionLongitude();
+    minLon = Math.max(proj.getMinLongitude(), -Math.PI);
+    maxLon = Math.min(proj.getMaxLongitude(), Math.PI);
+    minLat = Math.max(proj.getMinLatitude(), -ProjectionMath.HALFPI + POLE_MARGIN);
+    maxLat = Math.min(proj.getMaxLatitude(), ProjectionMath.HALFPI - POLE_MARGIN);
+    if (minLon > maxLon || minLat > maxLat)
+      throw new IllegalArgumentException("Projection has an empty domain: " + proj);
+  }
+
+  /**
+   * Sets whether points which the projection cannot project are rejected.
+   * This is enabled by default.
+   *
+   * @param isValidOnly true if only points with a finite projection are generated
+   */
+  public void setValidOnly(boolean isValidOnly)
+  {
+    this.isValidOnly = isValidOnly;
+  }
+
+  /**
+   * Gets the projection whose domain points are generated in.
+   */
+  public Projection getProjection()
+  {
+    return proj;
+  }
+
+  /**
+   * Generates a set of points.
+   *
+   * @param distribution the distribution of the points
+   * @param count the number of points
+   * @return the longitude and latitude of each point in degrees, interleaved
+   * @throws IllegalStateException if too few valid points can be found in the domain
+   */
+  public double[] generate(Distribution distribution, int count)
+  {
+    double[] coords = new double[2 * count];
+    generate(distribution, coords, 0, count);
+    return coords;
+  }
+
+  /**
+   * Generates a set of points into an array.
+   *
+   * @param distribution the distribution of the points
+   * @param coords the array to store the interleaved longitudes and latitudes (in degrees) in
+   * @param offset the index in the array of the first longitude
+   * @param count the number of points
+   * @throws IllegalStateException if too few valid points can be found in the domain
+   */
+  public void generate(Distribution distribution, double[] coords, int offset, int count)
+  {
+    // each distribution has its own sequence, independent of the order of calls
+    Random random = new Random(seed * 31 + distribution.ordinal());
+    switch (distribution) {
+    case UNIFORM:
+      for (int i = 0; i < count; i++) {
+        uniform(random, coords, offset + 2 * i);
+      }
+      break;
+    case CLUSTERED:
+      clustered(random, coords, offset, count);
+      break;
+    case POLAR:
+      for (int i = 0; i < count; i++) {
+        polar(random, coords, offset + 2 * i);
+      }
+      break;
+    case ANTIMERIDIAN:
+      for (int i = 0; i < count; i++) {
+        antimeridian(random, coords, offset + 2 * i);
+      }
+      break;
+    case TRACK:
+      track(random, coords, offset, count);
+      break;
+    }
+  }
+
+  private void uniform(Random random, double[] coords, int k)
+  {
+    for (int tries = 0; tries < MAX_TRIES; tries++) {
+      if (accept(uniformLon(random), uniformLat(random, minLat, maxLat), coords, k))
+        return;
+    }
+    throw tooFewPoints(Distribution.UNIFORM);
+  }
+
+  private void clustered(Random random, double[] coords, int offset, int count)
+  {
+    double[] centres = new double[2 * CLUSTER_COUNT];
+    double[] weights = new double[CLUSTER_COUNT];
+    double totalWeight = 0;
+    for (int c = 0; c < CLUSTER_COUNT; c++) {
+      uniform(random, centres, 2 * c);
+      totalWeight += 1.0 / (c + 1);
+      weights[c] = totalWeight;
+    }
+    double radius = Math.toRadians(CLUSTER_RADIUS_DEGREES);
+    for (int i = 0; i < count; i++) {
+      double w = random.nextDouble() * totalWeight;
+      int c = 0;
+      while (c < CLUSTER_COUNT - 1 && weights[c] < w)
+        c++;
+      double lon = Math.toRadians(centres[2 * c]) - lon0;
+      double lat = Math.toRadians(centres[2 * c + 1]);
+      int tries = 0;
+      while (! accept(
+          normalize(lon + random.nextGaussian() * radius / Math.cos(lat)),
+          lat + random.nextGaussian() * radius, coords, offset + 2 * i)) {
+        if (++tries >= MAX_TRIES)
+          throw tooFewPoints(Distribution.CLUSTERED);
+      }
+    }
+  }
+
+  private void polar(Random random, double[] coords, int k)
+  {
+    double band = Math.toRadians(POLAR_BAND_DEGREES);
+    for (int tries = 0; tries < MAX_TRIES; tries++) {
+      double lat = random.nextBoolean()
+        ? uniformLat(random, Math.max(minLat, maxLat - band), maxLat)
+        : uniformLat(random, minLat, Math.min(maxLat, minLat + band));
+      if (accept(uniformLon(random), lat, coords, k))
+        return;
+    }
+    throw tooFewPoints(Distribution.POLAR);
+  }
+
+  private void antimeridian(Random random, double[] coords, int k)
+  {
+    double band = Math.toRadians(SEAM_BAND_DEGREES);
+    boolean isFullCircle = maxLon - minLon >= TWO_PI - 1e-9;
+    double seam = normalize(Math.PI - lon0);
+    boolean hasSeam = isFullCircle || (seam >= minLon && seam <= maxLon);
+    for (int tries = 0; tries < MAX_TRIES; tries++) {
+      double lon;
+      if (hasSeam)
+        lon = normalize(seam + (2 * random.nextDouble() - 1) * band);
+      else if (random.nextBoolean())
+        lon = minLon + random.nextDouble() * band;
+      else
+        lon = maxLon - random.nextDouble() * band;
+      if (accept(lon, uniformLat(random, minLat, maxLat), coords, k))
+        return;
+    }
+    throw tooFewPoints(Distribution.ANTIMERIDIAN);
+  }
+
+  private void track(Random random, double[] coords, int offset, int count)
+  {
+    double step = Math.toRadians(TRACK_STEP_DEGREES);
+    double lon = 0;
+    double lat = 0;
+    double heading = 0;
+    for (int i = 0; i < count; i++) {
+      int k = offset + 2 * i;
+      if (i % TRACK_LENGTH == 0) {
+        // start a new track
+        uniform(random, coords, k);
+        lon = Math.toRadians(coords[k]) - lon0;
+        lat = Math.toRadians(coords[k + 1]);
+        heading = random.nextDouble() * TWO_PI;
+        continue;
+      }
+      int tries = 0;
+      while (true) {
+        heading += random.nextGaussian() * TRACK_TURN;
+        double d = step * (0.5 + random.nextDouble());
+        double nextLat = lat + d * Math.cos(heading);
+        double nextLon = normalize(lon + d * Math.sin(heading) / Math.cos(lat));
+        if (accept(nextLon, nextLat, coords, k)) {
+          lon = nextLon;
+          lat = nextLat;
+          break;
+        }
+        // turn back from the edge of the domain
+        heading += Math.PI;
+        if (++tries >= MAX_TRIES)
+          throw tooFewPoints(Distribution.TRACK);
+      }
+    }
+  }
+
+  private double uniformLon(Random random)
+  {
+    return minLon + random.nextDouble() * (maxLon - minLon);
+  }
+
+  /**
+   * Chooses a latitude so that points are uniform by area on the sphere.
+   */
+  private static double uniformLat(Random random, double lat1, double lat2)
+  {
+    double s1 = Math.sin(lat1);
+    double s2 = Math.sin(lat2);
+    return Math.asin(s1 + random.nextDouble() * (s2 - s1));
+  }
+
+  /**
+   * Tests whether a point (in radians, relative to the projection longitude)
+   * lies in the domain, and if so stores it in degrees.
+   */
+  private boolean accept(double lon, double lat, double[] coords, int k)
+  {
+    if (lat < minLat || lat > maxLat || lon < minLon || lon > maxLon)
+      return false;
+    double lonDeg = Math.toDegrees(normalize(lon + lon0));
+    double latDeg = Math.toDegrees(lat);
+    if (isValidOnly) {
+      p.x = lonDeg;
+      p.y = latDeg;
+      try {
+        proj.project(p, q);
+      }
+      catch (RuntimeException ex) {
+        return false;
+      }
+      if (Double.isNaN(q.x) || Double.isNaN(q.y)
+          || Double.isInfinite(q.x) || Double.isInfinite(q.y))
+        return false;
+    }
+    coords[k] = lonDeg;
+    coords[k + 1] = latDeg;
+    return true;
+  }
+
+  private static double normalize(double lon)
+  {
+    while (lon > Math.PI)
+      lon -= TWO_PI;
+    while (lon < -Math.PI)
+      lon += TWO_PI;
+    return lon;
+  }
+
+  private IllegalStateException tooFewPoints(Distribution distribution)
+  {
+    return new IllegalStateException("Cannot generate " + distribution
+        + " points in the domain of projection " + proj);
+  }
+}
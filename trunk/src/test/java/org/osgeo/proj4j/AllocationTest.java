@@ -0,0 +1,418 @@
+package org.osgeo.proj4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+import org.osgeo.proj4j.datum.Ellipsoid;
+import org.osgeo.proj4j.io.CSVRecordParser;
+import org.osgeo.proj4j.io.GeoJSONTransform;
+import org.osgeo.proj4j.metrics.Metrics;
+import org.osgeo.proj4j.metrics.TransformMetrics;
+import org.osgeo.proj4j.proj.Projection;
+
+/**
+ * Tests that transforming points does not allocate memory
+ * once the transform has been set up and has warmed up.
+ * The memory allocated by the test thread is measured
+ * around large numbers of transforms of points which are in the domain
+ * of the transform (transforms which fail allocate an exception).
+ * <p>
+ * The measurement requires the HotSpot <tt>com.sun.management.ThreadMXBean</tt>;
+ * on JVMs without it the tests pass without checking anything.
+ */
+public class AllocationTest extends TestCase
+{
+  public static void main(String args[]) {
+    TestRunner.run(AllocationTest.class);
+  }
+
+  static final int POINT_COUNT = 256;
+  static final int ROUND_SIZE = 8 * 1024;
+  static final int WARMUP_ROUNDS = 2;
+  // a round may see one-off allocations by the JVM (e.g. when code is compiled)
+  static final int MEASURE_ROUNDS = 5;
+
+  static final Registry registry = new Registry();
+  static CRSFactory csFactory = new CRSFactory();
+
+  static final String[][] TRANSFORM_PAIRS = {
+    { "EPSG:4326", "EPSG:3857" },
+    { "EPSG:4326", "EPSG:32633" },
+    { "EPSG:4326", "EPSG:3035" },
+    { "EPSG:4326", "EPSG:2154" },
+    { "EPSG:4326", "EPSG:31467" },
+    { "EPSG:4326", "EPSG:29903" },
+    { "EPSG:3395", "EPSG:4326" },
+    { "EPSG:31467", "EPSG:3857" },
+    { "EPSG:4267", "EPSG:26717" },
+  };
+
+  private static com.sun.management.ThreadMXBean threadBean;
+
+  public AllocationTest(String name) {
+    super(name);
+  }
+
+  protected void setUp()
+  {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      threadBean = (com.sun.management.ThreadMXBean) bean;
+      if (! threadBean.isThreadAllocatedMemorySupported())
+        threadBean = null;
+      else if (! threadBean.isThreadAllocatedMemoryEnabled())
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+    }
+  }
+
+  protected void tearDown()
+  {
+    Metrics.setListener(null);
+  }
+
+  public void testProjections()
+  {
+    if (threadBean == null)
+      return;
+    List<String> failures = new ArrayList<String>();
+    String[] names = registry.getProjectionNames();
+    for (int i = 0; i < names.length; i++) {
+      checkProjection(names[i], Ellipsoid.SPHERE, failures);
+      checkProjection(names[i], Ellipsoid.WGS84, failures);
+    }
+    assertTrue("Projections allocating memory: " + failures, failures.isEmpty());
+  }
+
+  public void testTransforms()
+  {
+    if (threadBean == null)
+      return;
+    List<String> failures = new ArrayList<String>();
+    for (int i = 0; i < TRANSFORM_PAIRS.length; i++) {
+      checkTransform(TRANSFORM_PAIRS[i][0], TRANSFORM_PAIRS[i][1], failures);
+    }
+    assertTrue("Transforms allocating memory: " + failures, failures.isEmpty());
+  }
+
+  public void testTransformsWithMetrics()
+  {
+    if (threadBean == null)
+      return;
+    Metrics.setListener(new TransformMetrics());
+    List<String> failures = new ArrayList<String>();
+    for (int i = 0; i < TRANSFORM_PAIRS.length; i++) {
+      checkTransform(TRANSFORM_PAIRS[i][0], TRANSFORM_PAIRS[i][1], failures);
+    }
+    assertTrue("Transforms allocating memory with metrics enabled: " + failures, failures.isEmpty());
+  }
+
+  public void testCSVRecordParser()
+  {
+    if (threadBean == null)
+      return;
+    double[] pts = createRoundedPoints(csFactory.createFromName("EPSG:4326"), csFactory.createFromName("EPSG:3857"));
+    StringBuilder sb = new StringBuilder();
+    final int[] starts = new int[POINT_COUNT];
+    final int[] ends = new int[POINT_COUNT];
+    for (int i = 0; i < POINT_COUNT; i++) {
+      starts[i] = sb.length();
+      sb.append("p").append(i).append(',').append(pts[2 * i]).append(',').append(pts[2 * i + 1]);
+      ends[i] = sb.length();
+      sb.append('\n');
+    }
+    final char[] chars = sb.toString().toCharArray();
+    final CSVRecordParser parser = new CSVRecordParser();
+    final ProjCoordinate p = new ProjCoordinate();
+    List<String> failures = new ArrayList<String>();
+    check("CSVRecordParser.getDouble", new Workload() {
+      public void run(int n)
+      {
+        for (int i = 0; i < n; i++) {
+          int k = i & (POINT_COUNT - 1);
+          parser.parse(chars, starts[k], ends[k]);
+          p.x = parser.getDouble(1);
+          p.y = parser.getDouble(2);
+        }
+      }
+    }, failures);
+    assertTrue("CSV parsing allocating memory: " + failures, failures.isEmpty());
+  }
+
+  public void testGeoJSONTransform()
+  {
+    if (threadBean == null)
+      return;
+    CoordinateReferenceSystem srcCRS = csFactory.createFromName("EPSG:4326");
+    CoordinateReferenceSystem tgtCRS = csFactory.createFromName("EPSG:3857");
+    double[] pts = createRoundedPoints(srcCRS, tgtCRS);
+    StringBuilder sb = new StringBuilder("{\"type\": \"LineString\", \"coordinates\": [");
+    for (int i = 0; i < POINT_COUNT; i++) {
+      if (i > 0) sb.append(", ");
+      sb.append('[').append(pts[2 * i]).append(", ").append(pts[2 * i + 1]).append(']');
+    }
+    sb.append("]}");
+    final ByteArrayInputStream in = new ByteArrayInputStream(sb.toString().getBytes());
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final GeoJSONTransform geoJSON = new GeoJSONTransform(srcCRS, tgtCRS);
+    List<String> failures = new ArrayList<String>();
+    check("GeoJSONTransform", new Workload() {
+      public void run(int n)
+      {
+        for (int i = 0; i < n; i += POINT_COUNT) {
+          in.reset();
+          out.reset();
+          try {
+            geoJSON.transform(in, out);
+          }
+          catch (IOException ex) {
+            throw new IllegalStateException(ex.getMessage());
+          }
+        }
+      }
+    }, failures);
+    assertTrue("GeoJSON transform allocating memory: " + failures, failures.isEmpty());
+  }
+
+  private void checkProjection(String name, Ellipsoid ellipsoid, List<String> failures)
+  {
+    final Projection proj = createProjection(name, ellipsoid);
+    if (proj == null)
+      return;
+    final double[][] pts = createPoints(proj);
+    if (pts == null)
+      return;
+    String label = name + " (" + ellipsoid.getShortName() + ")";
+    final ProjCoordinate src = new ProjCoordinate();
+    final ProjCoordinate dst = new ProjCoordinate();
+    check(label, new Workload() {
+      public void run(int n)
+      {
+        for (int i = 0; i < n; i++) {
+          int k = i & (POINT_COUNT - 1);
+          src.x = pts[0][k];
+          src.y = pts[1][k];
+          proj.projectRadians(src, dst);
+        }
+      }
+    }, failures);
+    if (! proj.hasInverse())
+      return;
+    check(label + " inverse", new Workload() {
+      public void run(int n)
+      {
+        for (int i = 0; i < n; i++) {
+          int k = i & (POINT_COUNT - 1);
+          src.x = pts[2][k];
+          src.y = pts[3][k];
+          proj.inverseProjectRadians(src, dst);
+        }
+      }
+    }, failures);
+  }
+
+  private void checkTransform(String srcName, String tgtName, List<String> failures)
+  {
+    CoordinateReferenceSystem srcCRS = csFactory.createFromName(srcName);
+    CoordinateReferenceSystem tgtCRS = csFactory.createFromName(tgtName);
+    final double[] pts = createPoints(srcCRS, tgtCRS);
+    String label = srcName + " -> " + tgtName;
+
+    final CoordinateTransform trans = new BasicCoordinateTransform(srcCRS, tgtCRS);
+    final ProjCoordinate src = new ProjCoordinate();
+    final ProjCoordinate dst = new ProjCoordinate();
+    check(label, new Workload() {
+      public void run(int n)
+      {
+        for (int i = 0; i < n; i++) {
+          int k = 2 * (i & (POINT_COUNT - 1));
+          src.x = pts[k];
+          src.y = pts[k + 1];
+          trans.transform(src, dst);
+        }
+      }
+    }, failures);
+
+    final BatchCoordinateTransform batch = new BatchCoordinateTransform(trans);
+    final double[] out = new double[pts.length];
+    check(label + " batch", new Workload() {
+      public void run(int n)
+      {
+        for (int i = 0; i < n; i += POINT_COUNT) {
+          batch.transform(pts, 0, out, 0, POINT_COUNT, 2);
+        }
+      }
+    }, failures);
+
+    if (tgtCRS.getProjection() instanceof org.osgeo.proj4j.proj.MercatorProjection) {
+      final TileCoordinateTransform tile = new TileCoordinateTransform(trans);
+      tile.setTile(0, 0, 0);
+      final int[] tileOut = new int[pts.length];
+      check(label + " tile", new Workload() {
+        public void run(int n)
+        {
+          for (int i = 0; i < n; i += POINT_COUNT) {
+            tile.transformToTile(pts, 0, POINT_COUNT, 2, tileOut, 0);
+          }
+        }
+      }, failures);
+    }
+  }
+
+  interface Workload
+  {
+    void run(int n);
+  }
+
+  /**
+   * Runs a workload until it is warmed up,
+   * and records a failure unless some round of it allocates no memory.
+   */
+  private static void check(String label, Workload workload, List<String> failures)
+  {
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      workload.run(ROUND_SIZE);
+    }
+    long id = Thread.currentThread().getId();
+    // the measurement itself may allocate
+    long overhead = -threadBean.getThreadAllocatedBytes(id) + threadBean.getThreadAllocatedBytes(id);
+    long minBytes = Long.MAX_VALUE;
+    for (int i = 0; i < MEASURE_ROUNDS && minBytes > 0; i++) {
+      long start = threadBean.getThreadAllocatedBytes(id);
+      workload.run(ROUND_SIZE);
+      long bytes = threadBean.getThreadAllocatedBytes(id) - start - overhead;
+      minBytes = Math.min(minBytes, bytes);
+    }
+    if (minBytes > 0)
+      failures.add(label + ": " + ((double) minBytes / ROUND_SIZE) + " bytes/point");
+  }
+
+  /**
+   * Creates and initializes a projection from the registry,
+   * with the parameters required by some of the projections.
+   *
+   * @return the projection, or null if it cannot be created
+   */
+  private static Projection createProjection(String name, Ellipsoid ellipsoid)
+  {
+    try {
+      Projection proj = registry.getProjection(name);
+      if (proj == null)
+        return null;
+      proj.setEllipsoid(ellipsoid);
+      proj.setProjectionLatitude1Degrees(30);
+      proj.setProjectionLatitude2Degrees(60);
+      proj.setAlphaDegrees(30);
+      proj.setLonCDegrees(0);
+      proj.initialize();
+      return proj;
+    }
+    catch (RuntimeException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * Creates points within 20 degrees of the origin of a projection,
+   * which it can project (and inverse-project) to finite values.
+   *
+   * @return the longitudes, latitudes, X and Y ordinates of the points,
+   * or null if too few points are in the domain of the projection
+   */
+  private static double[][] createPoints(Projection proj)
+  {
+    double range = Math.toRadians(20);
+    double maxLat = Math.min(proj.getMaxLatitude(), Math.toRadians(85));
+    double lon0 = proj.getProjectionLongitude();
+    double lat0 = Math.max(-maxLat + range, Math.min(maxLat - range, proj.getProjectionLatitude()));
+    double[][] pts = new double[4][POINT_COUNT];
+    ProjCoordinate src = new ProjCoordinate();
+    ProjCoordinate dst = new ProjCoordinate();
+    ProjCoordinate inv = new ProjCoordinate();
+    Random random = new Random(42);
+    int n = 0;
+    for (int tries = 0; n < POINT_COUNT; tries++) {
+      if (tries > 100 * POINT_COUNT)
+        return null;
+      src.x = lon0 + (2 * random.nextDouble() - 1) * range;
+      src.y = lat0 + (2 * random.nextDouble() - 1) * range;
+      if (Math.abs(src.y) > maxLat)
+        continue;
+      try {
+        proj.projectRadians(src, dst);
+        if (proj.hasInverse())
+          proj.inverseProjectRadians(dst, inv);
+      }
+      catch (RuntimeException ex) {
+        continue;
+      }
+      if (! isFinite(dst) || (proj.hasInverse() && ! isFinite(inv)))
+        continue;
+      pts[0][n] = src.x;
+      pts[1][n] = src.y;
+      pts[2][n] = dst.x;
+      pts[3][n] = dst.y;
+      n++;
+    }
+    return pts;
+  }
+
+  /**
+   * Creates points in the source CRS of a transform
+   * around the centre of the area of use of the target CRS.
+   *
+   * @return the X and Y ordinates of the points
+   */
+  private static double[] createPoints(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS)
+  {
+    CoordinateReferenceSystem tgtGeo = tgtCRS.createGeographic();
+    ProjCoordinate centre = new ProjCoordinate(10.0, 50.0);
+    if (tgtCRS.getProjection().getProjectionLongitude() != 0) {
+      centre.x = tgtCRS.getProjection().getProjectionLongitudeDegrees();
+      centre.y = Math.max(-60, Math.min(60, tgtCRS.getProjection().getProjectionLatitudeDegrees()));
+    }
+    CoordinateTransform toSrc = new BasicCoordinateTransform(tgtGeo, srcCRS);
+    double[] pts = new double[2 * POINT_COUNT];
+    ProjCoordinate geo = new ProjCoordinate();
+    ProjCoordinate p = new ProjCoordinate();
+    Random random = new Random(42);
+    for (int i = 0; i < POINT_COUNT; i++) {
+      geo.x = centre.x + (2 * random.nextDouble() - 1) * 2;
+      geo.y = centre.y + (2 * random.nextDouble() - 1) * 2;
+      toSrc.transform(geo, p);
+      pts[2 * i] = p.x;
+      pts[2 * i + 1] = p.y;
+    }
+    return pts;
+  }
+
+  /**
+   * Creates points as for {@link #createPoints(CoordinateReferenceSystem, CoordinateReferenceSystem)},
+   * rounded to 7 decimal places as in typical input files
+   * (numbers with more significant digits are parsed by {@link Double#parseDouble(String)}).
+   *
+   * @return the X and Y ordinates of the points
+   */
+  private static double[] createRoundedPoints(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS)
+  {
+    double[] pts = createPoints(srcCRS, tgtCRS);
+    for (int i = 0; i < pts.length; i++) {
+      pts[i] = Math.round(pts[i] * 1e7) / 1e7;
+    }
+    return pts;
+  }
+
+  private static boolean isFinite(ProjCoordinate p)
+  {
+    return ! (Double.isNaN(p.x) || Double.isNaN(p.y)
+        || Double.isInfinite(p.x) || Double.isInfinite(p.y));
+  }
+}
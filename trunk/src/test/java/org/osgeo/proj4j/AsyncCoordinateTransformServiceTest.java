@@ -0,0 +1,235 @@
+package org.osgeo.proj4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+public class AsyncCoordinateTransformServiceTest extends TestCase
+{
+  public static void main(String args[]) {
+    TestRunner.run(AsyncCoordinateTransformServiceTest.class);
+  }
+
+  public AsyncCoordinateTransformServiceTest(String name) { super(name); }
+
+  private static final CRSFactory csFactory = new CRSFactory();
+  private static final CoordinateTransformFactory ctFactory = new CoordinateTransformFactory();
+
+  private static final CoordinateReferenceSystem WGS84 = csFactory.createFromName("epsg:4326");
+  private static final CoordinateReferenceSystem MERCATOR = csFactory.createFromName("epsg:3857");
+  private static final CoordinateReferenceSystem UTM33 = csFactory.createFromName("epsg:32633");
+
+  public void testConcurrentRequests()
+    throws Exception
+  {
+    final AsyncCoordinateTransformService service
+      = new AsyncCoordinateTransformService(2, 256, 1, TimeUnit.MILLISECONDS);
+    final int threadCount = 16;
+    final int requestsPerThread = 200;
+    final AtomicInteger errors = new AtomicInteger();
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < threadCount; t++) {
+      final int seed = t;
+      Thread thread = new Thread() {
+        public void run()
+        {
+          try {
+            for (int r = 0; r < requestsPerThread; r++) {
+              CoordinateReferenceSystem tgtCRS = r % 2 == 0 ? MERCATOR : UTM33;
+              double[] coords = points(seed * requestsPerThread + r, 1 + r % 4);
+              double[] expected = transform(WGS84, tgtCRS, coords);
+              double[] result = service.submit(WGS84, tgtCRS, coords).get(10, TimeUnit.SECONDS);
+              assertSame(coords, result);
+              for (int i = 0; i < coords.length; i++) {
+                if (Double.doubleToLongBits(expected[i]) != Double.doubleToLongBits(result[i]))
+                  errors.incrementAndGet();
+              }
+            }
+          }
+          catch (Throwable ex) {
+            ex.printStackTrace();
+            errors.incrementAndGet();
+          }
+        }
+      };
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    service.shutdown();
+    assertTrue(service.awaitTermination(10, TimeUnit.SECONDS));
+    assertEquals(0, errors.get());
+    assertEquals(threadCount * requestsPerThread, service.getRequestCount());
+    assertTrue(service.getBatchCount() < service.getRequestCount());
+  }
+
+  public void testBatchSize()
+    throws Exception
+  {
+    // with a long delay, requests are only transformed when a batch is full
+    AsyncCoordinateTransformService service
+      = new AsyncCoordinateTransformService(1, 4, 1, TimeUnit.HOURS);
+    AsyncCoordinateTransformService.TransformFuture f1 = service.submit(WGS84, MERCATOR, points(1, 2));
+    Thread.sleep(50);
+    assertFalse(f1.isDone());
+    AsyncCoordinateTransformService.TransformFuture f2 = service.submit(WGS84, MERCATOR, points(2, 2));
+    f1.get(10, TimeUnit.SECONDS);
+    f2.get(10, TimeUnit.SECONDS);
+    assertEquals(1, service.getBatchCount());
+    service.shutdown();
+  }
+
+  public void testPairsByDefinition()
+    throws Exception
+  {
+    // requests for equal CRSs are batched together, even if the instances differ
+    AsyncCoordinateTransformService service
+      = new AsyncCoordinateTransformService(1, 4, 1, TimeUnit.HOURS);
+    CoordinateReferenceSystem mercator2 = csFactory.createFromName("epsg:3857");
+    assertNotSame(MERCATOR, mercator2);
+    AsyncCoordinateTransformService.TransformFuture f1 = service.submit(WGS84, MERCATOR, points(1, 2));
+    AsyncCoordinateTransformService.TransformFuture f2 = service.submit(
+        csFactory.createFromName("epsg:4326"), mercator2, points(2, 2));
+    f1.get(10, TimeUnit.SECONDS);
+    f2.get(10, TimeUnit.SECONDS);
+    assertEquals(1, service.getBatchCount());
+    service.shutdown();
+  }
+
+  public void testBatchDelay()
+    throws Exception
+  {
+    AsyncCoordinateTransformService service
+      = new AsyncCoordinateTransformService(1, 1000, 20, TimeUnit.MILLISECONDS);
+    double[] coords = points(3, 1);
+    double[] expected = transform(WGS84, MERCATOR, coords);
+    double[] result = service.submit(WGS84, MERCATOR, coords).get(10, TimeUnit.SECONDS);
+    assertEquals(expected[0], result[0], 0);
+    assertEquals(expected[1], result[1], 0);
+    service.shutdown();
+  }
+
+  public void testFailedPoints()
+    throws Exception
+  {
+    CoordinateReferenceSystem stere = csFactory.createFromParameters("stere",
+        "+proj=stere +lat_0=0 +lon_0=0 +a=6371000 +b=6371000");
+    AsyncCoordinateTransformService service = new AsyncCoordinateTransformService();
+    // the antipode of the origin cannot be projected
+    double[] coords = { 10, 10, 0, 180, 0 };
+    AsyncCoordinateTransformService.TransformFuture future
+      = service.submit(WGS84, stere, coords, 2, 2, null);
+    future.get(10, TimeUnit.SECONDS);
+    assertEquals(1, future.getFailureCount());
+    assertFalse(Double.isNaN(coords[0]));
+    assertTrue(Double.isNaN(coords[2]));
+    // ordinates past the points are not touched
+    assertEquals(0.0, coords[4], 0);
+    service.shutdown();
+  }
+
+  public void testDimension()
+    throws Exception
+  {
+    AsyncCoordinateTransformService service = new AsyncCoordinateTransformService();
+    double[] coords = { 10, 45, 100, -20, 30, 200 };
+    double[] expected = transform(WGS84, MERCATOR, new double[] { 10, 45, -20, 30 });
+    service.submit(WGS84, MERCATOR, coords, 2, 3, null).get(10, TimeUnit.SECONDS);
+    assertEquals(expected[0], coords[0], 0);
+    assertEquals(expected[1], coords[1], 0);
+    assertEquals(100.0, coords[2], 0);
+    assertEquals(expected[2], coords[3], 0);
+    assertEquals(expected[3], coords[4], 0);
+    assertEquals(200.0, coords[5], 0);
+    service.shutdown();
+  }
+
+  public void testCallback()
+    throws Exception
+  {
+    AsyncCoordinateTransformService service = new AsyncCoordinateTransformService();
+    final CountDownLatch done = new CountDownLatch(1);
+    final int[] failCount = { -1 };
+    service.submit(WGS84, MERCATOR, points(4, 3), 3, 2, new AsyncCoordinateTransformService.Callback() {
+      public void completed(double[] coords, int count)
+      {
+        failCount[0] = count;
+        done.countDown();
+      }
+
+      public void failed(Throwable ex)
+      {
+        done.countDown();
+      }
+    });
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(0, failCount[0]);
+    service.shutdown();
+  }
+
+  public void testTransformFailure()
+    throws Exception
+  {
+    // a pair with no transform fails every request
+    CoordinateReferenceSystem noProj = new CoordinateReferenceSystem("none", null, null, null);
+    AsyncCoordinateTransformService service = new AsyncCoordinateTransformService();
+    try {
+      service.submit(noProj, MERCATOR, points(5, 1)).get(10, TimeUnit.SECONDS);
+      fail("Expected ExecutionException");
+    }
+    catch (ExecutionException ex) {
+      // expected
+    }
+    service.shutdown();
+  }
+
+  public void testShutdown()
+    throws Exception
+  {
+    AsyncCoordinateTransformService service
+      = new AsyncCoordinateTransformService(1, 1000, 1, TimeUnit.HOURS);
+    AsyncCoordinateTransformService.TransformFuture future = service.submit(WGS84, MERCATOR, points(6, 2));
+    // waiting requests are transformed on shutdown
+    service.shutdown();
+    future.get(10, TimeUnit.SECONDS);
+    assertTrue(service.awaitTermination(10, TimeUnit.SECONDS));
+    try {
+      service.submit(WGS84, MERCATOR, points(7, 1));
+      fail("Expected IllegalStateException");
+    }
+    catch (IllegalStateException ex) {
+      // expected
+    }
+  }
+
+  private static double[] points(int seed, int count)
+  {
+    double[] coords = new double[2 * count];
+    for (int i = 0; i < count; i++) {
+      coords[2 * i] = 5 + (seed * 7 + i * 3) % 20;
+      coords[2 * i + 1] = 30 + (seed * 11 + i * 5) % 30;
+    }
+    return coords;
+  }
+
+  private static double[] transform(CoordinateReferenceSystem srcCRS, CoordinateReferenceSystem tgtCRS, double[] coords)
+  {
+    CoordinateTransform trans = ctFactory.createTransform(srcCRS, tgtCRS);
+    double[] result = new double[coords.length];
+    ProjCoordinate p = new ProjCoordinate();
+    for (int i = 0; i < coords.length; i += 2) {
+      trans.transform(new ProjCoordinate(coords[i], coords[i + 1]), p);
+      result[i] = p.x;
+      result[i + 1] = p.y;
+    }
+    return result;
+  }
+}
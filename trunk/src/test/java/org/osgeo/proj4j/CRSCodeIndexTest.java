@@ -0,0 +1,87 @@
+package org.osgeo.proj4j;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+import org.osgeo.proj4j.util.CRSCodeIndex;
+
+/**
+ * Tests finding authority codes from PROJ.4 parameters using {@link CRSCodeIndex}.
+ */
+public class CRSCodeIndexTest extends TestCase
+{
+  public static void main(String args[]) {
+    TestRunner.run(CRSCodeIndexTest.class);
+  }
+
+  public CRSCodeIndexTest(String name) { super(name); }
+
+  static CRSCodeIndex index = CRSCodeIndex.createDefault();
+  
+  public void testExact()
+  {
+    checkFound("+proj=utm +zone=33 +datum=WGS84 +units=m +no_defs", "EPSG:32633");
+    checkFound("+proj=utm +zone=33 +datum=WGS84 +units=m +no_defs", "ESRI:32633");
+  }
+  
+  public void testReordered()
+  {
+    checkFound("+datum=NAD83 +lon_0=-126 +lat_0=45 +lat_2=58.5 +lat_1=50 +proj=aea +x_0=1000000", "EPSG:3005");
+  }
+  
+  public void testEquivalentForms()
+  {
+    // DMS angle
+    checkFound("+proj=aea +lat_1=50 +lat_2=58d30 +lat_0=45 +lon_0=-126 +x_0=1000000 +y_0=0 +datum=NAD83", "EPSG:3005");
+    // expanded UTM zone
+    checkFound("+proj=tmerc +k_0=0.9996 +lon_0=15 +x_0=500000 +datum=WGS84", "EPSG:32633");
+    // explicit ellipsoid
+    checkFound("+proj=tmerc +lat_0=49 +lon_0=-2 +k=0.999601 +x_0=400000 +y_0=-100000 +a=6377563.396 +b=6356256.910", "ESRI:27700");
+    // datum expanded to its ellipsoid and shift
+    checkFound("+proj=utm +zone=33 +ellps=WGS84 +towgs84=0,0,0", "EPSG:32633");
+    checkFound("+proj=utm +zone=33 +ellps=WGS84 +towgs84=0,0,0,0,0,0,0", "EPSG:32633");
+  }
+  
+  public void testGridShiftDatum()
+  {
+    // a grid shift datum is not equivalent to an identity parameter shift
+    checkNotFound("+proj=utm +zone=15 +ellps=clrk66 +towgs84=0,0,0", "EPSG:26715");
+    checkFound("+proj=utm +zone=15 +datum=NAD27", "EPSG:26715");
+  }
+  
+  public void testTolerance()
+  {
+    checkFound("+proj=aea +lat_1=50.0000000001 +lat_2=58.5 +lat_0=45 +lon_0=-126 +x_0=1000000.0001 +datum=NAD83", "EPSG:3005");
+    checkNotFound("+proj=aea +lat_1=50.001 +lat_2=58.5 +lat_0=45 +lon_0=-126 +x_0=1000000 +datum=NAD83", "EPSG:3005");
+  }
+  
+  public void testCRS()
+  {
+    CoordinateReferenceSystem crs = new CRSFactory().createFromName("EPSG:27700");
+    checkFound(index.findCodes(crs), "EPSG:27700");
+  }
+  
+  public void testNotFound()
+  {
+    assertTrue(index.findCodes("+proj=merc +lon_0=12.345 +datum=WGS84").isEmpty());
+    assertTrue(index.findCodes("+proj=tmerc +lat_0=xyz").isEmpty());
+  }
+  
+  void checkFound(String paramStr, String code)
+  {
+    checkFound(index.findCodes(paramStr), code);
+  }
+  
+  void checkFound(List<String> codes, String code)
+  {
+    assertTrue(code + " not in " + codes, codes.contains(code));
+  }
+  
+  void checkNotFound(String paramStr, String code)
+  {
+    List<String> codes = index.findCodes(paramStr);
+    assertFalse(code + " found in " + codes, codes.contains(code));
+  }
+}
@@ -0,0 +1,155 @@
+package org.osgeo.proj4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Iterator;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+import org.osgeo.proj4j.io.Proj4FileReader;
+
+/**
+ * Tests that coordinate systems and transforms
+ * survive serialization via {@link CRSDescriptor}.
+ */
+public class CRSDescriptorTest extends TestCase
+{
+  public static void main(String args[]) {
+    TestRunner.run(CRSDescriptorTest.class);
+  }
+
+  static CRSFactory csFactory = new CRSFactory();
+  static CoordinateTransformFactory ctFactory = new CoordinateTransformFactory();
+
+  public CRSDescriptorTest(String name) {
+    super(name);
+  }
+
+  public void testInterning()
+    throws Exception
+  {
+    CoordinateReferenceSystem crs = csFactory.createFromName("EPSG:27700");
+    byte[] bytes = serialize(crs);
+    CoordinateReferenceSystem crs1 = (CoordinateReferenceSystem) deserialize(bytes);
+    CoordinateReferenceSystem crs2 = (CoordinateReferenceSystem) deserialize(bytes);
+    assertTrue(crs1 != crs);
+    assertTrue(crs1 == crs2);
+    assertEquals(crs.getName(), crs1.getName());
+    assertEquals(crs.getParameterString(), crs1.getParameterString());
+  }
+
+  public void testInternedReleased()
+    throws Exception
+  {
+    CRSDescriptor desc = new CRSDescriptor(csFactory.createFromName("EPSG:3005"));
+    CoordinateReferenceSystem crs = desc.getCRS();
+    int count = CRSDescriptor.getInternedCount();
+    assertTrue(crs == new CRSDescriptor(desc.toByteArray()).getCRS());
+    // an unused coordinate system is not held by the intern table
+    crs = null;
+    for (int i = 0; i < 20 && CRSDescriptor.getInternedCount() >= count; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertTrue(CRSDescriptor.getInternedCount() < count);
+  }
+
+  public void testStandardDatumShared()
+    throws Exception
+  {
+    CoordinateReferenceSystem crs = csFactory.createFromName("EPSG:4326");
+    CoordinateReferenceSystem crs1 = (CoordinateReferenceSystem) deserialize(serialize(crs));
+    assertTrue(crs.getDatum() == crs1.getDatum());
+  }
+
+  public void testTransform()
+    throws Exception
+  {
+    CoordinateTransform trans = ctFactory.createTransform(
+        csFactory.createFromName("EPSG:4326"),
+        csFactory.createFromName("EPSG:27700"));
+    CoordinateTransform trans1 = (CoordinateTransform) deserialize(serialize(trans));
+    checkSame("EPSG:27700", trans, trans1, 0.899167, 51.357216);
+  }
+
+  public void testCatalogRoundTrip()
+    throws Exception
+  {
+    CRSDescriptor.setInterning(false);
+    try {
+      Map<String, String[]> defs = new Proj4FileReader().readAllParametersFromFile("epsg");
+      int count = 0;
+      for (Iterator<Map.Entry<String, String[]>> it = defs.entrySet().iterator(); it.hasNext(); ) {
+        Map.Entry<String, String[]> def = it.next();
+        String code = "EPSG:" + def.getKey();
+        CoordinateReferenceSystem crs;
+        try {
+          crs = csFactory.createFromParameters(code, def.getValue());
+        }
+        catch (RuntimeException ex) {
+          continue;
+        }
+        CoordinateReferenceSystem crs1 = new CRSDescriptor(
+            new CRSDescriptor(crs).toByteArray()).getCRS();
+        CoordinateReferenceSystem geo = crs.createGeographic();
+        checkSame(code,
+            ctFactory.createTransform(geo, crs),
+            ctFactory.createTransform(geo, crs1),
+            crs.getProjection().getProjectionLongitudeDegrees() + 0.1,
+            crs.getProjection().getProjectionLatitudeDegrees() + 0.1);
+        count++;
+      }
+      assertTrue(count > 1000);
+    }
+    finally {
+      CRSDescriptor.setInterning(true);
+    }
+  }
+
+  private void checkSame(String code, CoordinateTransform trans, CoordinateTransform trans1, double x, double y)
+  {
+    ProjCoordinate p = new ProjCoordinate(x, y);
+    ProjCoordinate out = new ProjCoordinate();
+    ProjCoordinate out1 = new ProjCoordinate();
+    RuntimeException failure = null;
+    try {
+      trans.transform(p, out);
+    }
+    catch (RuntimeException ex) {
+      failure = ex;
+    }
+    try {
+      trans1.transform(p, out1);
+      assertNull(code + " should fail", failure);
+    }
+    catch (RuntimeException ex) {
+      assertNotNull(code + " should not fail", failure);
+      return;
+    }
+    // results must be bitwise identical (including NaN for unprojectable points)
+    assertEquals(code, new Double(out.x), new Double(out1.x));
+    assertEquals(code, new Double(out.y), new Double(out1.y));
+  }
+
+  private static byte[] serialize(Object obj)
+    throws IOException
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(obj);
+    out.close();
+    return bytes.toByteArray();
+  }
+
+  private static Object deserialize(byte[] bytes)
+    throws IOException, ClassNotFoundException
+  {
+    ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+    return in.readObject();
+  }
+}
@@ -0,0 +1,103 @@
+package org.osgeo.proj4j;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+public class TileCoordinateTransformTest extends TestCase
+{
+  public static void main(String args[]) {
+    TestRunner.run(TileCoordinateTransformTest.class);
+  }
+
+  static CRSFactory csFactory = new CRSFactory();
+
+  static CoordinateReferenceSystem src = csFactory.createFromName("EPSG:4326").createGeographic();
+  static CoordinateReferenceSystem tgt = csFactory.createFromName("EPSG:3857");
+
+  public TileCoordinateTransformTest(String name) {
+    super(name);
+  }
+
+  public void testQuantize()
+  {
+    TileCoordinateTransform trans = new TileCoordinateTransform(src, tgt);
+    // the tile containing Greenwich at zoom 10
+    trans.setTile(10, 512, 340);
+    double[] pts = { 0.0, 51.4778, 0.1, 51.4, 0.5, 95.0 };
+    int[] tile = new int[6];
+    assertEquals(2, trans.transformToTile(pts, 0, 3, 2, tile, 0));
+    assertEquals(1, trans.getFailCount());
+    assertEquals(0, tile[0]);
+    assertEquals(expectedY(51.4778, 10, 340), tile[1]);
+    assertEquals(1165, tile[2]);
+    assertEquals(expectedY(51.4, 10, 340), tile[3]);
+  }
+
+  public void testDeltaEncoding()
+  {
+    TileCoordinateTransform identity = new TileCoordinateTransform(tgt, tgt);
+    identity.setExtent(256);
+    identity.setBounds(0, 0, 256, 256);
+    identity.setDeltaEncoded(true);
+    identity.setDropDuplicates(true);
+
+    // points in tile units, with Y up; the second point is a duplicate after rounding
+    double[] pts = { 3, 250, 3.2, 249.9, 5, 245, 1, 246 };
+    int[] tile = new int[8];
+    assertEquals(3, identity.transformToTile(pts, 0, 4, 2, tile, 0));
+    // deltas (3,6), (2,5), (-4,-1) zig-zag encoded
+    assertEquals(6, tile[0]);
+    assertEquals(12, tile[1]);
+    assertEquals(4, tile[2]);
+    assertEquals(10, tile[3]);
+    assertEquals(7, tile[4]);
+    assertEquals(1, tile[5]);
+
+    // the cursor carries over to the next part
+    double[] part = { 1, 246, 2, 246 };
+    assertEquals(2, identity.transformToTile(part, 0, 2, 2, tile, 0));
+    assertEquals(0, tile[0]);
+    assertEquals(0, tile[1]);
+    assertEquals(2, tile[2]);
+    assertEquals(0, tile[3]);
+    assertEquals(2, identity.getCursorX());
+
+    identity.resetCursor();
+    assertEquals(1, identity.transformToTile(part, 0, 1, 2, tile, 0));
+    assertEquals(2, tile[0]);
+    assertEquals(20, tile[1]);
+  }
+
+  public void testDimension()
+  {
+    TileCoordinateTransform trans = new TileCoordinateTransform(tgt, tgt);
+    trans.setExtent(100);
+    trans.setBounds(0, 0, 100, 100);
+    double[] pts = { 10, 20, 99, 30, 40, 99 };
+    int[] tile = new int[4];
+    assertEquals(2, trans.transformToTile(pts, 0, 2, 3, tile, 0));
+    assertEquals(10, tile[0]);
+    assertEquals(80, tile[1]);
+    assertEquals(30, tile[2]);
+    assertEquals(60, tile[3]);
+  }
+
+  public void testExtentAfterBounds()
+  {
+    TileCoordinateTransform trans = new TileCoordinateTransform(tgt, tgt);
+    trans.setBounds(0, 0, 100, 100);
+    trans.setExtent(200);
+    double[] pts = { 10, 20 };
+    int[] tile = new int[2];
+    assertEquals(1, trans.transformToTile(pts, 0, 1, 2, tile, 0));
+    assertEquals(20, tile[0]);
+    assertEquals(160, tile[1]);
+  }
+
+  private static int expectedY(double lat, int z, int tileY)
+  {
+    double y = Math.log(Math.tan(Math.PI / 4 + Math.toRadians(lat) / 2)) / (2 * Math.PI);
+    double worldY = (0.5 - y) * (1 << z);
+    return (int) Math.floor((worldY - tileY) * TileCoordinateTransform.DEFAULT_EXTENT + 0.5);
+  }
+}
@@ -0,0 +1,68 @@
+package org.osgeo.proj4j;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+import org.osgeo.proj4j.util.CRSCache;
+import org.osgeo.proj4j.util.CRSWarmUpReport;
+
+/**
+ * Tests preloading coordinate systems via {@link CRSFactory#warmUp(String[], int, boolean)}.
+ */
+public class WarmUpTest extends TestCase
+{
+  public static void main(String args[]) {
+    TestRunner.run(WarmUpTest.class);
+  }
+
+  public WarmUpTest(String name) { super(name); }
+
+  public void testWarmUpNames()
+  {
+    CRSFactory csFactory = new CRSFactory();
+    CRSWarmUpReport report = csFactory.warmUp(
+        new String[] { "EPSG:4326", "EPSG:27700", "EPSG:3005", "EPSG:999999" }, 2, true);
+    
+    assertEquals(4, report.getNames().size());
+    assertEquals(3, report.getLoadedCount());
+    assertEquals(1, report.getFailureCount());
+    assertTrue(report.getFailures().containsKey("EPSG:999999"));
+    assertTrue(report.getCreateNanos("EPSG:27700") > 0);
+    // longlat, tmerc, aea
+    assertEquals(3, report.getProjectionNanos().size());
+    
+    assertTrue(new CRSCache().contains("EPSG:27700"));
+  }
+  
+  public void testWarmUpMixedAuthorities()
+  {
+    CRSWarmUpReport report = new CRSFactory().warmUp(
+        new String[] { "nad83:2001", "EPSG:3857", "esri:102003", "nosuchauthority:1", "EPSG:2154" }, 1, false);
+    
+    assertEquals(5, report.getNames().size());
+    assertEquals(4, report.getLoadedCount());
+    assertTrue(report.getFailures().containsKey("nosuchauthority:1"));
+    assertTrue(new CRSCache().contains("esri:102003"));
+  }
+  
+  public void testWarmUpAuthority()
+  {
+    CRSFactory csFactory = new CRSFactory();
+    CRSWarmUpReport report = csFactory.warmUpAuthority("nad83", 0, false);
+    
+    assertTrue(report.getLoadedCount() > 100);
+    assertTrue(new CRSCache().contains("nad83:2001"));
+    assertTrue(report.getProjectionNanos().isEmpty());
+  }
+  
+  public void testWarmUpUnknownAuthority()
+  {
+    try {
+      new CRSFactory().warmUpAuthority("nosuchauthority", 1, false);
+      fail("Expected UnknownAuthorityCodeException");
+    }
+    catch (UnknownAuthorityCodeException ex) {
+      // expected
+    }
+  }
+}
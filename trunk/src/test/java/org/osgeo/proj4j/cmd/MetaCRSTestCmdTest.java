@@ -0,0 +1,92 @@
+package org.osgeo.proj4j.cmd;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.net.URISyntaxException;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+public class MetaCRSTestCmdTest extends TestCase
+{
+  public static void main(String args[]) {
+    TestRunner.run(MetaCRSTestCmdTest.class);
+  }
+
+  public MetaCRSTestCmdTest(String name) {
+    super(name);
+  }
+
+  public void testParallelMatchesSerial()
+    throws Exception
+  {
+    String filename = getFile("/PROJ4_SPCS_EPSG_nad83.csv");
+    StringWriter serialCSV = new StringWriter();
+    MetaCRSTestCmd serial = run(filename, 1, new MetaCRSTestReport(serialCSV, true));
+    StringWriter parallelCSV = new StringWriter();
+    MetaCRSTestCmd parallel = run(filename, 4, new MetaCRSTestReport(parallelCSV, true));
+
+    assertTrue(serial.getCount() > 200);
+    assertEquals(serial.getCount(), parallel.getCount());
+    assertEquals(serial.getFailCount(), parallel.getFailCount());
+    assertEquals(serial.getErrorCount(), parallel.getErrorCount());
+
+    // tests are reported in file order, whatever the thread count
+    String[] serialLines = serialCSV.toString().split("\n");
+    String[] parallelLines = parallelCSV.toString().split("\n");
+    assertEquals(serialLines.length, parallelLines.length);
+    for (int i = 1; i < serialLines.length; i++) {
+      assertEquals(statusColumns(serialLines[i]), statusColumns(parallelLines[i]));
+    }
+    assertTrue(serialLines[0].startsWith("record,file,line,name,source,target,status"));
+    assertTrue(serialLines[1].startsWith("test,"));
+    assertTrue(serialLines[serialLines.length - 1].startsWith("pair,"));
+  }
+
+  public void testJSONReport()
+    throws Exception
+  {
+    String filename = getFile("/PROJ4_SPCS_EPSG_nad83.csv");
+    StringWriter json = new StringWriter();
+    MetaCRSTestCmd cmd = run(filename, 2, new MetaCRSTestReport(json, false));
+    String report = json.toString();
+    assertTrue(report.startsWith("{\n\"tests\": [\n  {\"file\": "));
+    assertTrue(report.indexOf("\"pairs\": [") > 0);
+    assertTrue(report.indexOf("\"summary\": {\"tests\": " + cmd.getCount() + ",") > 0);
+    assertTrue(report.endsWith("}\n}\n"));
+  }
+
+  /**
+   * Gets the columns of a report line which do not depend on timing.
+   */
+  private static String statusColumns(String line)
+  {
+    String[] cols = line.split(",", -1);
+    StringBuffer buf = new StringBuffer();
+    for (int i = 0; i < 10; i++) {
+      buf.append(cols[i]).append(',');
+    }
+    return buf.toString();
+  }
+
+  private static MetaCRSTestCmd run(String filename, int threadCount, MetaCRSTestReport report)
+    throws IOException
+  {
+    MetaCRSTestCmd cmd = new MetaCRSTestCmd();
+    cmd.setThreadCount(threadCount);
+    cmd.setReport(report);
+    cmd.setOutput(new PrintStream(new ByteArrayOutputStream()));
+    cmd.execute(filename);
+    report.close(threadCount, 0);
+    return cmd;
+  }
+
+  private String getFile(String name)
+    throws URISyntaxException
+  {
+    return new File(getClass().getResource(name).toURI()).getPath();
+  }
+}
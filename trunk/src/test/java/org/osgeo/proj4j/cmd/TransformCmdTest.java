@@ -0,0 +1,96 @@
+package org.osgeo.proj4j.cmd;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+import org.osgeo.proj4j.*;
+
+public class TransformCmdTest extends TestCase
+{
+  public static void main(String args[]) {
+    TestRunner.run(TransformCmdTest.class);
+  }
+
+  static CRSFactory csFactory = new CRSFactory();
+
+  public TransformCmdTest(String name) {
+    super(name);
+  }
+
+  public void testLines()
+    throws IOException
+  {
+    TransformCmd cmd = new TransformCmd(
+        csFactory.createFromName("EPSG:4326"), csFactory.createFromName("EPSG:3857"));
+    String out = run(cmd, "# comment\n"
+        + "0.899167 51.357216 10\n"
+        + "lon,lat,name\n"
+        + "0.899167,51.357216,Canterbury\n"
+        + "  -1.5\t53.0\n"
+        + "\n");
+    String[] lines = out.split("\n", -1);
+    assertEquals("# comment", lines[0]);
+    assertEquals("100094.813 6684726.009 10", lines[1]);
+    assertEquals("lon,lat,name", lines[2]);
+    assertEquals("100094.813,6684726.009,Canterbury", lines[3]);
+    assertEquals("  -166979.236\t6982997.920", lines[4]);
+    assertEquals("", lines[5]);
+    assertEquals(3, cmd.getPointCount());
+    assertEquals(0, cmd.getFailCount());
+  }
+
+  public void testFailure()
+    throws IOException
+  {
+    TransformCmd cmd = new TransformCmd(
+        csFactory.createFromName("EPSG:4326"), csFactory.createFromName("EPSG:3857"));
+    String out = run(cmd, "0 95\n");
+    assertEquals("* *\n", out);
+    assertEquals(1, cmd.getFailCount());
+  }
+
+  public void testInvalidCRS()
+  {
+    checkInvalidArgs(new String[] { "EPSG:4326", "EPSG:999999" });
+    checkInvalidArgs(new String[] { "+proj=longlat", "+pm=greenwich", "+to", "+proj=merc" });
+  }
+
+  private void checkInvalidArgs(String[] args)
+  {
+    try {
+      new TransformCmd().parseArgs(args);
+      fail("Expected IllegalArgumentException");
+    }
+    catch (IllegalArgumentException ex) {
+      // expected - the usage is printed
+    }
+  }
+
+  public void testParallelOrder()
+    throws IOException
+  {
+    StringBuffer input = new StringBuffer();
+    for (int i = 0; i < 10000; i++) {
+      input.append((i % 360) - 180 + 0.5).append(' ').append((i % 170) - 85 + 0.25).append(" ").append(i).append('\n');
+    }
+    CoordinateReferenceSystem src = csFactory.createFromName("EPSG:4326");
+    CoordinateReferenceSystem tgt = csFactory.createFromName("EPSG:3857");
+    TransformCmd serial = new TransformCmd(src, tgt);
+    TransformCmd parallel = new TransformCmd(src, tgt);
+    parallel.setThreadCount(4);
+    parallel.setBatchSize(100);
+    assertEquals(run(serial, input.toString()), run(parallel, input.toString()));
+  }
+
+  private static String run(TransformCmd cmd, String input)
+    throws IOException
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    cmd.transform(new StringReader(input), out);
+    return new String(out.toByteArray(), "UTF-8");
+  }
+}
@@ -0,0 +1,117 @@
+package org.osgeo.proj4j.cmd;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+import org.osgeo.proj4j.*;
+import org.osgeo.proj4j.io.RecordingCoordinateTransform;
+import org.osgeo.proj4j.io.TransformLogWriter;
+
+public class TransformReplayCmdTest extends TestCase
+{
+  public static void main(String args[]) {
+    TestRunner.run(TransformReplayCmdTest.class);
+  }
+
+  static CRSFactory csFactory = new CRSFactory();
+
+  public TransformReplayCmdTest(String name) {
+    super(name);
+  }
+
+  public void testReplay()
+    throws IOException
+  {
+    File file = record();
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      TransformReplayCmd cmd = new TransformReplayCmd();
+      cmd.setOutput(new PrintStream(bytes));
+      cmd.setBenchmarkIterations(2);
+      cmd.execute(file.getPath());
+      assertEquals(201, cmd.getCount());
+      assertEquals(0, cmd.getDifferenceCount());
+      String output = bytes.toString();
+      assertTrue(output.indexOf("EPSG:4326 -> EPSG:3857: points: 100,  differences: 0") >= 0);
+      assertTrue(output.indexOf("Points: 201,  Differences: 0") >= 0);
+      assertTrue(output.indexOf("All points in recorded order: ") >= 0);
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  public void testDifferences()
+    throws IOException
+  {
+    File file = record();
+    try {
+      // change the low bit of the recorded Y output of the last point to Mercator,
+      // which precedes the record of the failed transform
+      RandomAccessFile raf = new RandomAccessFile(file, "rw");
+      long pos = raf.length() - failureRecordLength() - 1;
+      raf.seek(pos);
+      int b = raf.read();
+      raf.seek(pos);
+      raf.write(b ^ 1);
+      raf.close();
+
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      TransformReplayCmd cmd = new TransformReplayCmd();
+      cmd.setOutput(new PrintStream(bytes));
+      cmd.execute(file.getPath());
+      assertEquals(1, cmd.getDifferenceCount());
+      assertTrue(bytes.toString().indexOf("EPSG:4326 -> EPSG:3857: point 199 ") >= 0);
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * Records transforms between two pairs of CRSs, followed by a failed transform.
+   */
+  private static File record()
+    throws IOException
+  {
+    CoordinateReferenceSystem geo = csFactory.createFromName("EPSG:4326");
+    CoordinateReferenceSystem merc = csFactory.createFromName("EPSG:3857");
+    CoordinateReferenceSystem utm = csFactory.createFromName("EPSG:32633");
+    CoordinateReferenceSystem stere = csFactory.createFromParameters(null, "+proj=stere +lat_0=0 +lon_0=0 +a=6371000 +b=6371000");
+    File file = File.createTempFile("proj4j", ".log");
+    TransformLogWriter log = new TransformLogWriter(new FileOutputStream(file));
+    CoordinateTransform toMerc = new RecordingCoordinateTransform(new BasicCoordinateTransform(geo, merc), log);
+    CoordinateTransform toUTM = new RecordingCoordinateTransform(new BasicCoordinateTransform(geo, utm), log);
+    CoordinateTransform toStere = new RecordingCoordinateTransform(new BasicCoordinateTransform(geo, stere), log);
+    ProjCoordinate p = new ProjCoordinate();
+    for (int i = 0; i < 100; i++) {
+      toUTM.transform(new ProjCoordinate(15.0 + i * 0.01, 45.0), p);
+      toMerc.transform(new ProjCoordinate(-180.0 + i * 3.6, 45.0), p);
+    }
+    try {
+      // the antipode of the centre of a stereographic projection
+      toStere.transform(new ProjCoordinate(180.0, 0.0), p);
+    }
+    catch (Proj4jException ex) {
+      // recorded as a failure
+    }
+    log.close();
+    return file;
+  }
+
+  /**
+   * Gets the length of the record of a failed 2D transform.
+   */
+  private static int failureRecordLength()
+  {
+    // type, pair id, X and Y
+    return 1 + 1 + 16;
+  }
+}
@@ -0,0 +1,105 @@
+package org.osgeo.proj4j.io;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+public class CSVRecordParserTest extends TestCase
+{
+  public static void main(String args[]) {
+    TestRunner.run(CSVRecordParserTest.class);
+  }
+
+  public CSVRecordParserTest(String name) {
+    super(name);
+  }
+
+  public void testParseString()
+  {
+    checkParse("a,b,c", new String[] { "a", "b", "c" });
+    checkParse(" a , b", new String[] { "a ", "b" });
+    checkParse("a,,c", new String[] { "a", "", "c" });
+    checkParse("\"a,b\" , c", new String[] { "a,b", "c" });
+    checkParse("\"say \"\"hi\"\"\",x", new String[] { "say \"hi\"", "x" });
+    checkParse("a, ", new String[] { "a", null });
+    checkParse("ab\"c", new String[] { "ab\"c" });
+  }
+
+  public void testStrictMode()
+  {
+    CSVRecordParser parser = new CSVRecordParser();
+    parser.setStrictMode(true);
+    try {
+      parser.parse("ab\"c");
+      fail("Expected IllegalArgumentException");
+    }
+    catch (IllegalArgumentException ex) {
+      // expected
+    }
+  }
+
+  public void testFieldLocations()
+  {
+    char[] buf = "xx12.5,\"ab\",,-3e2yy".toCharArray();
+    CSVRecordParser parser = new CSVRecordParser();
+    assertEquals(4, parser.parse(buf, 2, buf.length - 2));
+    assertEquals(2, parser.getFieldStart(0));
+    assertEquals(4, parser.getFieldLength(0));
+    assertEquals(8, parser.getFieldStart(1));
+    assertEquals(2, parser.getFieldLength(1));
+    assertEquals(0, parser.getFieldLength(2));
+    assertEquals(12.5, parser.getDouble(0), 0.0);
+    assertEquals("ab", parser.getString(1));
+    assertTrue(Double.isNaN(parser.getDouble(2)));
+    assertEquals(-300.0, parser.getDouble(3), 0.0);
+  }
+
+  public void testCharBuffer()
+  {
+    CSVRecordParser parser = new CSVRecordParser();
+    CharBuffer buf = CharBuffer.wrap("skip 1.25,\"q\"\"\",7".toCharArray());
+    buf.position(5);
+    assertEquals(3, parser.parse(buf));
+    assertEquals(0, parser.getFieldStart(0));
+    assertEquals(1.25, parser.getDouble(0), 0.0);
+    assertEquals("q\"", parser.getString(1));
+    assertEquals(5, buf.position());
+
+    // buffers without an accessible array are also supported
+    assertEquals(3, parser.parse(CharBuffer.wrap("1.25,\"q\"\"\",7")));
+    assertEquals(7.0, parser.getDouble(2), 0.0);
+    assertEquals("q\"", parser.getString(1));
+  }
+
+  public void testDoubleMatchesParseDouble()
+  {
+    String[] nums = { "0", "-0.0", "1e22", "1e23", "123456789012345678", "0.1", "-45.123456789",
+        "4.9e-324", "1.7976931348623157E308", " 2.5 ", "+7.", ".5" };
+    CSVRecordParser parser = new CSVRecordParser();
+    for (int i = 0; i < nums.length; i++) {
+      char[] buf = (nums[i] + ",x").toCharArray();
+      parser.parse(buf, 0, buf.length);
+      assertEquals(nums[i], new Double(Double.parseDouble(nums[i])), new Double(parser.getDouble(0)));
+    }
+  }
+
+  public void testManyFields()
+  {
+    StringBuffer record = new StringBuffer();
+    for (int i = 0; i < 100; i++) {
+      record.append(i).append(',');
+    }
+    char[] buf = record.toString().toCharArray();
+    CSVRecordParser parser = new CSVRecordParser();
+    assertEquals(100, parser.parse(buf, 0, buf.length));
+    assertEquals(99.0, parser.getDouble(99), 0.0);
+  }
+
+  private static void checkParse(String record, String[] expected)
+  {
+    String[] actual = new CSVRecordParser().parse(record);
+    assertEquals(Arrays.asList(expected), Arrays.asList(actual));
+  }
+}
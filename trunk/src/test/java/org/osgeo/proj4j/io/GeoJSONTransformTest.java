@@ -0,0 +1,95 @@
+package org.osgeo.proj4j.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+import org.osgeo.proj4j.*;
+
+public class GeoJSONTransformTest extends TestCase
+{
+  public static void main(String args[]) {
+    TestRunner.run(GeoJSONTransformTest.class);
+  }
+
+  static CRSFactory csFactory = new CRSFactory();
+
+  static CoordinateReferenceSystem src = csFactory.createFromName("EPSG:4326").createGeographic();
+  static CoordinateReferenceSystem tgt = csFactory.createFromName("EPSG:3857");
+
+  public GeoJSONTransformTest(String name) {
+    super(name);
+  }
+
+  public void testFeatureCollection()
+    throws IOException
+  {
+    String input = "{\"type\": \"FeatureCollection\", \"bbox\": [-1.5, 51.3, 0.9, 53.0],\n"
+      + " \"features\": [\n"
+      + "  {\"type\": \"Feature\", \"geometry\": {\"type\": \"Point\", \"coordinates\": [0.899167, 51.357216]},\n"
+      + "   \"properties\": {\"name\": \"a \\\"coordinates\\\" b\", \"coordinates\": [1, 2]}},\n"
+      + "  {\"type\": \"Feature\", \"properties\": null, \"geometry\": {\"coordinates\" :\n"
+      + "     [ [-1.5,53.0,12.5], [0.899167 , 51.357216, -3e2] ], \"type\": \"LineString\"}}\n"
+      + " ]}\n";
+    String expected = "{\"type\": \"FeatureCollection\", \"bbox\": [-1.5, 51.3, 0.9, 53.0],\n"
+      + " \"features\": [\n"
+      + "  {\"type\": \"Feature\", \"geometry\": {\"type\": \"Point\", \"coordinates\": [100094.813, 6684726.009]},\n"
+      + "   \"properties\": {\"name\": \"a \\\"coordinates\\\" b\", \"coordinates\": [1, 2]}},\n"
+      + "  {\"type\": \"Feature\", \"properties\": null, \"geometry\": {\"coordinates\" :\n"
+      + "     [ [-166979.236,6982997.92,12.5], [100094.813 , 6684726.009, -3e2] ], \"type\": \"LineString\"}}\n"
+      + " ]}\n";
+    // the batch size is smaller than the number of positions in the line
+    GeoJSONTransform trans = new GeoJSONTransform(src, tgt);
+    trans.setDecimals(3);
+    trans.setBatchSize(1);
+    assertEquals(expected, transform(trans, input));
+    assertEquals(3, trans.getPointCount());
+    assertEquals(0, trans.getFailCount());
+  }
+
+  public void testNestedArrays()
+    throws IOException
+  {
+    String input = "{\"type\":\"MultiPolygon\",\"coordinates\":[[[[0,0],[1,0],[1,1],[0,0]]],[[[2,2],[3,2],[2,3],[2,2]]]]}";
+    GeoJSONTransform trans = new GeoJSONTransform(src, tgt);
+    trans.setDecimals(0);
+    trans.setBatchSize(3);
+    String output = transform(trans, input);
+    assertEquals(8, trans.getPointCount());
+    // values which round to zero keep their sign
+    assertEquals("{\"type\":\"MultiPolygon\",\"coordinates\":[[[[0,-0],[111319,-0],[111319,111325],[0,-0]]],"
+        + "[[[222639,222684],[333958,222684],[222639,334111],[222639,222684]]]]}", output);
+  }
+
+  public void testFailure()
+    throws IOException
+  {
+    GeoJSONTransform trans = new GeoJSONTransform(src, tgt);
+    trans.setDecimals(3);
+    String output = transform(trans, "{\"coordinates\":[[0.5,95],[0.899167,51.357216]]}");
+    assertEquals("{\"coordinates\":[[null,null],[100094.813,6684726.009]]}", output);
+    assertEquals(1, trans.getFailCount());
+  }
+
+  public void testMalformed()
+  {
+    try {
+      transform(new GeoJSONTransform(src, tgt), "{\"coordinates\":[[1],[2,3]]}");
+      fail("Expected IOException");
+    }
+    catch (IOException ex) {
+      // expected
+    }
+  }
+
+  private static String transform(GeoJSONTransform trans, String input)
+    throws IOException
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    trans.transform(new ByteArrayInputStream(input.getBytes("UTF-8")), out);
+    return new String(out.toByteArray(), "UTF-8");
+  }
+}
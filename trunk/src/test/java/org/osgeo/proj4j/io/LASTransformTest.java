@@ -0,0 +1,149 @@
+package org.osgeo.proj4j.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+import org.osgeo.proj4j.*;
+
+public class LASTransformTest extends TestCase
+{
+  public static void main(String args[]) {
+    TestRunner.run(LASTransformTest.class);
+  }
+
+  static CRSFactory csFactory = new CRSFactory();
+
+  static CoordinateReferenceSystem src = csFactory.createFromName("EPSG:4326").createGeographic();
+  static CoordinateReferenceSystem tgt = csFactory.createFromName("EPSG:3857");
+
+  // the last point is outside the projection domain
+  static final double[] POINTS = { 0.899167, 51.357216, -1.5, 53.0, 0.5, 95.0 };
+  static final double TX0 = 100094.813, TY0 = 6684726.009;
+  static final double TX1 = -166979.236, TY1 = 6982997.920;
+
+  public LASTransformTest(String name) {
+    super(name);
+  }
+
+  public void testFormat1()
+    throws IOException
+  {
+    File input = writeLAS(2, 227, 1, 28);
+    File output = File.createTempFile("proj4j", ".las");
+    try {
+      LASTransform trans = new LASTransform(src, tgt);
+      trans.setChunkSize(28);
+      trans.setThreadCount(2);
+      assertEquals(1, trans.transform(input, output));
+      assertEquals(3, trans.getPointCount());
+      ByteBuffer las = read(output);
+      checkPoints(las, 227, 28);
+      // withheld flag in the classification byte
+      assertEquals(0, las.get(227 + 15) & 0x80);
+      assertEquals(0x80, las.get(227 + 2 * 28 + 15) & 0x80);
+    }
+    finally {
+      input.delete();
+      output.delete();
+    }
+  }
+
+  public void testFormat6InPlace()
+    throws IOException
+  {
+    File file = writeLAS(4, 375, 6, 30);
+    try {
+      LASTransform trans = new LASTransform(src, tgt);
+      trans.setScale(0.01);
+      trans.setOffset(0, 6000000);
+      assertEquals(1, trans.transform(file));
+      assertEquals(3, trans.getPointCount());
+      ByteBuffer las = read(file);
+      assertEquals(0.01, las.getDouble(131), 0.0);
+      assertEquals(6000000.0, las.getDouble(163), 0.0);
+      checkPoints(las, 375, 30);
+      // withheld flag in the classification flags
+      assertEquals(0x04, las.get(375 + 2 * 30 + 15) & 0x04);
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  private static void checkPoints(ByteBuffer las, int pointOffset, int recordLength)
+  {
+    double scaleX = las.getDouble(131), scaleY = las.getDouble(139);
+    double offsetX = las.getDouble(155), offsetY = las.getDouble(163);
+    int pos = pointOffset;
+    assertEquals(TX0, las.getInt(pos) * scaleX + offsetX, 0.01);
+    assertEquals(TY0, las.getInt(pos + 4) * scaleY + offsetY, 0.01);
+    assertEquals(120, las.getInt(pos + 8));
+    pos += recordLength;
+    assertEquals(TX1, las.getInt(pos) * scaleX + offsetX, 0.01);
+    assertEquals(TY1, las.getInt(pos + 4) * scaleY + offsetY, 0.01);
+    // bounds: max x, min x, max y, min y
+    assertEquals(TX0, las.getDouble(179), 0.01);
+    assertEquals(TX1, las.getDouble(187), 0.01);
+    assertEquals(TY1, las.getDouble(195), 0.01);
+    assertEquals(TY0, las.getDouble(203), 0.01);
+    // Z bounds are unchanged
+    assertEquals(12.0, las.getDouble(211), 0.0);
+  }
+
+  private static File writeLAS(int minorVersion, int headerSize, int format, int recordLength)
+    throws IOException
+  {
+    int n = POINTS.length / 2;
+    ByteBuffer buf = ByteBuffer.allocate(headerSize + n * recordLength).order(ByteOrder.LITTLE_ENDIAN);
+    buf.put(new byte[] { 'L', 'A', 'S', 'F' });
+    buf.put(24, (byte) 1).put(25, (byte) minorVersion);
+    buf.putShort(94, (short) headerSize);
+    buf.putInt(96, headerSize);
+    buf.put(104, (byte) format);
+    buf.putShort(105, (short) recordLength);
+    if (minorVersion < 4)
+      buf.putInt(107, n);
+    else
+      buf.putLong(247, n);
+    double scale = 1e-7;
+    buf.putDouble(131, scale).putDouble(139, scale).putDouble(147, 0.1);
+    buf.putDouble(179, 0.9).putDouble(187, -1.5).putDouble(195, 53.0).putDouble(203, 51.3);
+    buf.putDouble(211, 12.0).putDouble(219, 12.0);
+    for (int i = 0; i < n; i++) {
+      int pos = headerSize + i * recordLength;
+      buf.putInt(pos, (int) Math.round(POINTS[2 * i] / scale));
+      buf.putInt(pos + 4, (int) Math.round(POINTS[2 * i + 1] / scale));
+      buf.putInt(pos + 8, 120);
+    }
+    File file = File.createTempFile("proj4j", ".las");
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(buf.array());
+    }
+    finally {
+      out.close();
+    }
+    return file;
+  }
+
+  private static ByteBuffer read(File file)
+    throws IOException
+  {
+    RandomAccessFile in = new RandomAccessFile(file, "r");
+    try {
+      byte[] bytes = new byte[(int) in.length()];
+      in.readFully(bytes);
+      return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    finally {
+      in.close();
+    }
+  }
+}
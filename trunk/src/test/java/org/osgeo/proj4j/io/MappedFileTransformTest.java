@@ -0,0 +1,149 @@
+package org.osgeo.proj4j.io;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+import org.osgeo.proj4j.*;
+
+public class MappedFileTransformTest extends TestCase
+{
+  public static void main(String args[]) {
+    TestRunner.run(MappedFileTransformTest.class);
+  }
+
+  static CRSFactory csFactory = new CRSFactory();
+
+  static CoordinateReferenceSystem src = csFactory.createFromName("EPSG:4326").createGeographic();
+  static CoordinateReferenceSystem tgt = csFactory.createFromName("EPSG:3857");
+
+  public MappedFileTransformTest(String name) {
+    super(name);
+  }
+
+  public void testDouble()
+    throws IOException
+  {
+    double[] pts = points(10000, 3);
+    File input = write(pts, false);
+    File output = File.createTempFile("proj4j", ".bin");
+    try {
+      MappedFileTransform fileTrans = new MappedFileTransform(src, tgt);
+      fileTrans.setDimension(3);
+      fileTrans.setChunkSize(8192);
+      fileTrans.setThreadCount(3);
+      assertEquals(1, fileTrans.transform(input, output));
+      assertEquals(10000, fileTrans.getPointCount());
+
+      double[] result = read(output, pts.length, false);
+      BasicCoordinateTransform trans = new BasicCoordinateTransform(src, tgt);
+      ProjCoordinate p = new ProjCoordinate();
+      for (int i = 1; i < pts.length / 3; i++) {
+        trans.transform(new ProjCoordinate(pts[3 * i], pts[3 * i + 1]), p);
+        assertEquals(p.x, result[3 * i], 0.0);
+        assertEquals(p.y, result[3 * i + 1], 0.0);
+        assertEquals(pts[3 * i + 2], result[3 * i + 2], 0.0);
+      }
+      // the first point is outside the projection domain
+      assertTrue(Double.isNaN(result[1]));
+      assertEquals(pts[2], result[2], 0.0);
+    }
+    finally {
+      input.delete();
+      output.delete();
+    }
+  }
+
+  public void testFloatInPlace()
+    throws IOException
+  {
+    double[] pts = points(1000, 2);
+    File file = write(pts, true);
+    try {
+      MappedFileTransform fileTrans = new MappedFileTransform(src, tgt);
+      fileTrans.setFloat(true);
+      fileTrans.transform(file);
+      double[] result = read(file, pts.length, true);
+      BasicCoordinateTransform trans = new BasicCoordinateTransform(src, tgt);
+      ProjCoordinate p = new ProjCoordinate();
+      for (int i = 1; i < pts.length / 2; i++) {
+        trans.transform(new ProjCoordinate((float) pts[2 * i], (float) pts[2 * i + 1]), p);
+        assertEquals((float) p.x, (float) result[2 * i], 0.0f);
+        assertEquals((float) p.y, (float) result[2 * i + 1], 0.0f);
+      }
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  public void testPartialPoint()
+    throws IOException
+  {
+    File file = write(new double[] { 1, 2, 3 }, false);
+    try {
+      new MappedFileTransform(src, tgt).transform(file);
+      fail("Expected IOException");
+    }
+    catch (IOException ex) {
+      // expected
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  private static double[] points(int count, int dim)
+  {
+    double[] pts = new double[count * dim];
+    for (int i = 0; i < count; i++) {
+      pts[dim * i] = (i % 360) - 180 + 0.5;
+      pts[dim * i + 1] = i == 0 ? 95 : (i % 170) - 85 + 0.25;
+      for (int d = 2; d < dim; d++) {
+        pts[dim * i + d] = i;
+      }
+    }
+    return pts;
+  }
+
+  private static File write(double[] values, boolean isFloat)
+    throws IOException
+  {
+    File file = File.createTempFile("proj4j", ".bin");
+    ByteBuffer buf = ByteBuffer.allocate(values.length * (isFloat ? 4 : 8)).order(ByteOrder.LITTLE_ENDIAN);
+    for (int i = 0; i < values.length; i++) {
+      if (isFloat)
+        buf.putFloat((float) values[i]);
+      else
+        buf.putDouble(values[i]);
+    }
+    DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+    out.write(buf.array());
+    out.close();
+    return file;
+  }
+
+  private static double[] read(File file, int count, boolean isFloat)
+    throws IOException
+  {
+    byte[] bytes = new byte[count * (isFloat ? 4 : 8)];
+    DataInputStream in = new DataInputStream(new FileInputStream(file));
+    in.readFully(bytes);
+    assertEquals(-1, in.read());
+    in.close();
+    ByteBuffer buf = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    double[] values = new double[count];
+    for (int i = 0; i < count; i++) {
+      values[i] = isFloat ? buf.getFloat() : buf.getDouble();
+    }
+    return values;
+  }
+}
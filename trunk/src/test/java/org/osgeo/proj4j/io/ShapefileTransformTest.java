@@ -0,0 +1,187 @@
+package org.osgeo.proj4j.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+import org.osgeo.proj4j.*;
+
+public class ShapefileTransformTest extends TestCase
+{
+  public static void main(String args[]) {
+    TestRunner.run(ShapefileTransformTest.class);
+  }
+
+  static CRSFactory csFactory = new CRSFactory();
+
+  static CoordinateReferenceSystem src = csFactory.createFromName("EPSG:4326").createGeographic();
+  static CoordinateReferenceSystem tgt = csFactory.createFromName("EPSG:3857");
+
+  static final double X0 = 0.899167, Y0 = 51.357216;
+  static final double X1 = -1.5, Y1 = 53.0;
+  static final double TX0 = 100094.813, TY0 = 6684726.009;
+  static final double TX1 = -166979.236, TY1 = 6982997.920;
+
+  // the content of a PolyLineZ record with two parts: [P0, P1] and [P1]
+  static final int POLYLINE_LENGTH = 44 + 8 + 3 * 16 + 16 + 3 * 8 + 16 + 3 * 8;
+  static final int POLYLINE_POS = 100 + 8;
+  static final int POINT_POS = POLYLINE_POS + POLYLINE_LENGTH + 8;
+
+  public ShapefileTransformTest(String name) {
+    super(name);
+  }
+
+  public void testTransform()
+    throws IOException
+  {
+    File input = writeShapefile();
+    File output = File.createTempFile("proj4j", ".shp");
+    try {
+      ShapefileTransform trans = new ShapefileTransform(src, tgt);
+      trans.setThreadCount(2);
+      // each record is in a separate chunk
+      trans.setChunkSize(1);
+      assertEquals(0, trans.transform(input, output));
+      assertEquals(3, trans.getRecordCount());
+      assertEquals(4, trans.getPointCount());
+
+      ByteBuffer shp = read(output);
+      // record bounds
+      checkXY(shp, POLYLINE_POS + 4, TX1, TY0);
+      checkXY(shp, POLYLINE_POS + 20, TX0, TY1);
+      int pointsPos = POLYLINE_POS + 44 + 8;
+      checkXY(shp, pointsPos, TX0, TY0);
+      checkXY(shp, pointsPos + 16, TX1, TY1);
+      checkXY(shp, pointsPos + 32, TX1, TY1);
+      // Z values are unchanged
+      assertEquals(20.0, shp.getDouble(pointsPos + 48 + 16 + 8), 0.0);
+      checkXY(shp, POINT_POS + 4, TX0, TY0);
+
+      // file bounds
+      checkXY(shp, 36, TX1, TY0);
+      checkXY(shp, 52, TX0, TY1);
+      ByteBuffer shx = read(new File(output.getPath().replaceAll("shp$", "shx")));
+      checkXY(shx, 36, TX1, TY0);
+      checkXY(shx, 52, TX0, TY1);
+    }
+    finally {
+      delete(input);
+      delete(output);
+    }
+  }
+
+  public void testInPlaceWithoutIndex()
+    throws IOException
+  {
+    File file = writeShapefile();
+    try {
+      new File(file.getPath().replaceAll("shp$", "shx")).delete();
+      ShapefileTransform trans = new ShapefileTransform(src, tgt);
+      trans.transform(file);
+      assertEquals(3, trans.getRecordCount());
+      ByteBuffer shp = read(file);
+      checkXY(shp, POINT_POS + 4, TX0, TY0);
+      checkXY(shp, 52, TX0, TY1);
+    }
+    finally {
+      delete(file);
+    }
+  }
+
+  /**
+   * Writes a Shapefile with a PolyLineZ record, a Point record and a Null record.
+   */
+  private static File writeShapefile()
+    throws IOException
+  {
+    int pointLength = 20;
+    int nullLength = 4;
+    int size = 100 + 8 + POLYLINE_LENGTH + 8 + pointLength + 8 + nullLength;
+    ByteBuffer shp = ByteBuffer.allocate(size);
+    ByteBuffer shx = ByteBuffer.allocate(100 + 3 * 8);
+    writeHeader(shp, size);
+    writeHeader(shx, shx.capacity());
+
+    int offset = 100;
+    offset = writeRecordHeader(shp, shx, 1, offset, POLYLINE_LENGTH);
+    shp.putInt(13).putDouble(X1).putDouble(Y0).putDouble(X0).putDouble(Y1);
+    shp.putInt(2).putInt(3).putInt(0).putInt(2);
+    shp.putDouble(X0).putDouble(Y0).putDouble(X1).putDouble(Y1).putDouble(X1).putDouble(Y1);
+    shp.putDouble(10).putDouble(30).putDouble(10).putDouble(20).putDouble(30);
+    shp.putDouble(0).putDouble(0).putDouble(0).putDouble(0).putDouble(0);
+
+    offset = writeRecordHeader(shp, shx, 2, offset, pointLength);
+    shp.putInt(1).putDouble(X0).putDouble(Y0);
+
+    offset = writeRecordHeader(shp, shx, 3, offset, nullLength);
+    shp.putInt(0);
+
+    File file = File.createTempFile("proj4j", ".shp");
+    write(shp, file);
+    write(shx, new File(file.getPath().replaceAll("shp$", "shx")));
+    return file;
+  }
+
+  private static void writeHeader(ByteBuffer buf, int size)
+  {
+    buf.order(ByteOrder.BIG_ENDIAN);
+    buf.putInt(9994);
+    buf.position(24);
+    buf.putInt(size / 2);
+    buf.order(ByteOrder.LITTLE_ENDIAN);
+    buf.putInt(1000).putInt(13);
+    buf.putDouble(X1).putDouble(Y0).putDouble(X0).putDouble(Y1);
+    buf.position(100);
+  }
+
+  private static int writeRecordHeader(ByteBuffer shp, ByteBuffer shx, int number, int offset, int length)
+  {
+    shp.order(ByteOrder.BIG_ENDIAN).putInt(number).putInt(length / 2).order(ByteOrder.LITTLE_ENDIAN);
+    shx.order(ByteOrder.BIG_ENDIAN).putInt(offset / 2).putInt(length / 2);
+    return offset + 8 + length;
+  }
+
+  private static void write(ByteBuffer buf, File file)
+    throws IOException
+  {
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(buf.array());
+    }
+    finally {
+      out.close();
+    }
+  }
+
+  private static ByteBuffer read(File file)
+    throws IOException
+  {
+    RandomAccessFile in = new RandomAccessFile(file, "r");
+    try {
+      byte[] bytes = new byte[(int) in.length()];
+      in.readFully(bytes);
+      return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    finally {
+      in.close();
+    }
+  }
+
+  private static void delete(File shp)
+  {
+    shp.delete();
+    new File(shp.getPath().replaceAll("shp$", "shx")).delete();
+  }
+
+  private static void checkXY(ByteBuffer buf, int pos, double x, double y)
+  {
+    assertEquals(x, buf.getDouble(pos), 0.001);
+    assertEquals(y, buf.getDouble(pos + 8), 0.001);
+  }
+}
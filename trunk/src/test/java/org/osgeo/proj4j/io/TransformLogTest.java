@@ -0,0 +1,164 @@
+package org.osgeo.proj4j.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+import org.osgeo.proj4j.*;
+
+public class TransformLogTest extends TestCase
+{
+  public static void main(String args[]) {
+    TestRunner.run(TransformLogTest.class);
+  }
+
+  static CRSFactory csFactory = new CRSFactory();
+
+  static CoordinateReferenceSystem geo = csFactory.createFromName("EPSG:4326");
+  static CoordinateReferenceSystem merc = csFactory.createFromName("EPSG:3857");
+  static CoordinateReferenceSystem stere = csFactory.createFromParameters(null, "+proj=stere +lat_0=0 +lon_0=0 +a=6371000 +b=6371000");
+
+  public TransformLogTest(String name) {
+    super(name);
+  }
+
+  public void testRoundTrip()
+    throws IOException
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    TransformLogWriter log = new TransformLogWriter(bytes);
+    CoordinateTransform trans = new RecordingCoordinateTransform(new BasicCoordinateTransform(geo, merc), log);
+    // a CRS without PROJ.4 parameters
+    CoordinateTransform toGeo = new RecordingCoordinateTransform(
+        new BasicCoordinateTransform(merc, merc.createGeographic()), log);
+    CoordinateTransform toStere = new RecordingCoordinateTransform(new BasicCoordinateTransform(geo, stere), log);
+
+    ProjCoordinate p = new ProjCoordinate();
+    trans.transform(new ProjCoordinate(-1.5, 53.0), p);
+    ProjCoordinate expected = new ProjCoordinate(p.x, p.y, p.z);
+    // transform in place
+    toGeo.transform(p, p);
+    try {
+      // the antipode of the centre of a stereographic projection
+      toStere.transform(new ProjCoordinate(180.0, 0.0, 10.0), new ProjCoordinate());
+      fail();
+    }
+    catch (Proj4jException ex) {
+      // expected
+    }
+    log.close();
+    assertEquals(3, log.getPointCount());
+
+    TransformLogReader reader = new TransformLogReader(new ByteArrayInputStream(bytes.toByteArray()));
+    ProjCoordinate src = new ProjCoordinate();
+    ProjCoordinate tgt = new ProjCoordinate();
+
+    assertTrue(reader.next());
+    assertEquals(0, reader.getPairId());
+    assertEquals("EPSG:4326", reader.getSourceCRS(0).getName());
+    assertEquals("EPSG:3857", reader.getTargetCRS(0).getName());
+    assertEquals(geo.getParameterString(), reader.getSourceCRS(0).getParameterString());
+    reader.getInput(src);
+    assertEquals(-1.5, src.x, 0.0);
+    assertEquals(53.0, src.y, 0.0);
+    assertTrue(Double.isNaN(src.z));
+    assertTrue(reader.hasOutput());
+    assertTrue(reader.getOutput(tgt).equals(expected));
+
+    assertTrue(reader.next());
+    assertEquals(1, reader.getPairId());
+    assertEquals(merc.createGeographic().getName(), reader.getTargetCRS(1).getName());
+    assertTrue(reader.getInput(src).equals(expected));
+    assertFalse(reader.isFailed());
+
+    assertTrue(reader.next());
+    assertEquals(2, reader.getPairId());
+    assertTrue(reader.isFailed());
+    assertFalse(reader.hasOutput());
+    assertEquals(10.0, reader.getInput(src).z, 0.0);
+
+    assertFalse(reader.next());
+    assertEquals(3, reader.getPairCount());
+  }
+
+  public void testSampling()
+    throws IOException
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    TransformLogWriter log = new TransformLogWriter(bytes);
+    BasicCoordinateTransform basic = new BasicCoordinateTransform(geo, merc);
+    RecordingCoordinateTransform trans = new RecordingCoordinateTransform(basic, log);
+    trans.setSampleInterval(10);
+    trans.setOutputRecorded(false);
+    // the pair is only written once
+    new RecordingCoordinateTransform(basic, log);
+    ProjCoordinate p = new ProjCoordinate();
+    for (int i = 0; i < 25; i++) {
+      trans.transform(new ProjCoordinate(i, 45.0), p);
+    }
+    log.close();
+    assertEquals(3, log.getPointCount());
+
+    TransformLogReader reader = new TransformLogReader(new ByteArrayInputStream(bytes.toByteArray()));
+    ProjCoordinate src = new ProjCoordinate();
+    for (int i = 0; i < 3; i++) {
+      assertTrue(reader.next());
+      assertEquals(10.0 * i, reader.getInput(src).x, 0.0);
+      assertFalse(reader.hasOutput());
+    }
+    assertFalse(reader.next());
+    assertEquals(1, reader.getPairCount());
+  }
+
+  public void testPairsByDefinition()
+    throws IOException
+  {
+    TransformLogWriter log = new TransformLogWriter(new ByteArrayOutputStream());
+    int id = log.addPair(geo, merc);
+    // separately created CRSs with the same definitions share a pair
+    assertEquals(id, log.addPair(csFactory.createFromName("EPSG:4326"), csFactory.createFromName("EPSG:3857")));
+    assertEquals(id + 1, log.addPair(merc, geo));
+    // CRSs without parameters are compared by content
+    assertEquals(id + 2, log.addPair(merc, merc.createGeographic()));
+    assertEquals(id + 2, log.addPair(merc, merc.createGeographic()));
+    assertEquals(id + 3, log.addPair(merc, stere.createGeographic()));
+    log.close();
+  }
+
+  public void testWriteFailure()
+    throws IOException
+  {
+    OutputStream broken = new OutputStream() {
+      int count = 0;
+      public void write(int b)
+        throws IOException
+      {
+        if (++count > 1000)
+          throw new IOException("Disk full");
+      }
+    };
+    RecordingCoordinateTransform trans = new RecordingCoordinateTransform(
+        new BasicCoordinateTransform(geo, merc), new TransformLogWriter(broken));
+    ProjCoordinate p = new ProjCoordinate();
+    for (int i = 0; i < 10000; i++) {
+      trans.transform(new ProjCoordinate(0.0, 45.0), p);
+    }
+    assertEquals(5621521.486192066, p.y, 1e-6);
+    assertNotNull(trans.getIOException());
+  }
+
+  public void testInvalidLog()
+  {
+    try {
+      new TransformLogReader(new ByteArrayInputStream("P4J".getBytes()));
+      fail();
+    }
+    catch (IOException ex) {
+      // expected
+    }
+  }
+}
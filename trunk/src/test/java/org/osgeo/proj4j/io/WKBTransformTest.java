@@ -0,0 +1,125 @@
+package org.osgeo.proj4j.io;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+import org.osgeo.proj4j.*;
+
+public class WKBTransformTest extends TestCase
+{
+  public static void main(String args[]) {
+    TestRunner.run(WKBTransformTest.class);
+  }
+
+  static CRSFactory csFactory = new CRSFactory();
+
+  static CoordinateReferenceSystem src = csFactory.createFromName("EPSG:4326").createGeographic();
+  static CoordinateReferenceSystem tgt = csFactory.createFromName("EPSG:3857");
+
+  static final double X0 = 0.899167, Y0 = 51.357216;
+  static final double X1 = -1.5, Y1 = 53.0;
+  static final double TX0 = 100094.813, TY0 = 6684726.009;
+  static final double TX1 = -166979.236, TY1 = 6982997.920;
+
+  public WKBTransformTest(String name) {
+    super(name);
+  }
+
+  public void testPoint()
+  {
+    ByteBuffer buf = ByteBuffer.allocate(21).order(ByteOrder.LITTLE_ENDIAN);
+    buf.put((byte) 1).putInt(1).putDouble(X0).putDouble(Y0);
+    buf.flip();
+    WKBTransform trans = new WKBTransform(src, tgt);
+    assertEquals(0, trans.transform(buf));
+    assertEquals(21, buf.position());
+    checkXY(buf, 5, TX0, TY0);
+    assertEquals(ByteOrder.LITTLE_ENDIAN, buf.order());
+  }
+
+  public void testLineStringZBigEndian()
+  {
+    // ISO LineString Z
+    ByteBuffer buf = ByteBuffer.allocate(9 + 2 * 24);
+    buf.put((byte) 0).putInt(1002).putInt(2);
+    buf.putDouble(X0).putDouble(Y0).putDouble(12.5);
+    buf.putDouble(X1).putDouble(Y1).putDouble(-3.0);
+    buf.flip();
+    WKBTransform trans = new WKBTransform(src, tgt);
+    trans.setBatchSize(1);
+    assertEquals(0, trans.transform(buf));
+    assertEquals(2, trans.getPointCount());
+    checkXY(buf, 9, TX0, TY0);
+    assertEquals(12.5, buf.getDouble(9 + 16), 0.0);
+    checkXY(buf, 9 + 24, TX1, TY1);
+    assertEquals(-3.0, buf.getDouble(9 + 24 + 16), 0.0);
+  }
+
+  public void testEWKBPolygonSRID()
+  {
+    // EWKB Polygon M with SRID, one ring of 4 points
+    ByteBuffer buf = ByteBuffer.allocate(13 + 4 + 4 * 24).order(ByteOrder.LITTLE_ENDIAN);
+    buf.put((byte) 1).putInt(0x40000000 | 0x20000000 | 3).putInt(4326);
+    buf.putInt(1).putInt(4);
+    double[] pts = { X0, Y0, X1, Y1, X1, Y0, X0, Y0 };
+    for (int i = 0; i < 4; i++) {
+      buf.putDouble(pts[2 * i]).putDouble(pts[2 * i + 1]).putDouble(i);
+    }
+    buf.flip();
+    WKBTransform trans = new WKBTransform(src, tgt);
+    trans.setSRID(3857);
+    trans.transform(buf.array());
+    assertEquals(3857, buf.getInt(5));
+    checkXY(buf, 17, TX0, TY0);
+    checkXY(buf, 17 + 24, TX1, TY1);
+    checkXY(buf, 17 + 72, TX0, TY0);
+    assertEquals(3.0, buf.getDouble(17 + 72 + 16), 0.0);
+  }
+
+  public void testCollectionMixedOrder()
+  {
+    // GeometryCollection (BE) of a MultiPoint (LE) with an empty point and a failing point,
+    // followed by a second geometry in the same buffer
+    ByteBuffer buf = ByteBuffer.allocate(9 + 9 + 3 * 21 + 21);
+    buf.order(ByteOrder.BIG_ENDIAN).put((byte) 0).putInt(7).putInt(1);
+    buf.order(ByteOrder.LITTLE_ENDIAN).put((byte) 1).putInt(4).putInt(3);
+    buf.put((byte) 1).putInt(1).putDouble(X1).putDouble(Y1);
+    buf.put((byte) 1).putInt(1).putDouble(Double.NaN).putDouble(Double.NaN);
+    buf.put((byte) 1).putInt(1).putDouble(0.5).putDouble(95.0);
+    buf.order(ByteOrder.BIG_ENDIAN).put((byte) 0).putInt(1).putDouble(X0).putDouble(Y0);
+    buf.flip();
+    WKBTransform trans = new WKBTransform(src, tgt);
+    assertEquals(1, trans.transform(buf));
+    assertEquals(3, trans.getPointCount());
+    assertEquals(ByteOrder.BIG_ENDIAN, buf.order());
+    buf.order(ByteOrder.LITTLE_ENDIAN);
+    checkXY(buf, 18 + 5, TX1, TY1);
+    assertTrue(Double.isNaN(buf.getDouble(18 + 21 + 5)));
+    assertTrue(Double.isNaN(buf.getDouble(18 + 42 + 5)));
+    buf.order(ByteOrder.BIG_ENDIAN);
+    checkXY(buf, 18 + 63 + 5, TX0, TY0);
+  }
+
+  public void testInvalid()
+  {
+    ByteBuffer buf = ByteBuffer.allocate(13);
+    buf.put((byte) 0).putInt(2).putInt(3);
+    buf.flip();
+    try {
+      new WKBTransform(src, tgt).transform(buf);
+      fail("Expected IllegalArgumentException");
+    }
+    catch (IllegalArgumentException ex) {
+      // expected
+    }
+  }
+
+  private static void checkXY(ByteBuffer buf, int pos, double x, double y)
+  {
+    assertEquals(x, buf.getDouble(pos), 0.001);
+    assertEquals(y, buf.getDouble(pos + 8), 0.001);
+  }
+}
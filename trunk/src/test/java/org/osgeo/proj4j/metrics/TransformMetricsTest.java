@@ -0,0 +1,164 @@
+package org.osgeo.proj4j.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+import org.osgeo.proj4j.*;
+import org.osgeo.proj4j.io.Proj4FileReader;
+import org.osgeo.proj4j.util.CRSCache;
+
+public class TransformMetricsTest extends TestCase
+{
+  public static void main(String args[]) {
+    TestRunner.run(TransformMetricsTest.class);
+  }
+
+  static CRSFactory csFactory = new CRSFactory();
+
+  static CoordinateReferenceSystem src = csFactory.createFromName("EPSG:4326").createGeographic();
+  static CoordinateReferenceSystem tgt = csFactory.createFromName("EPSG:3857");
+  static CoordinateReferenceSystem stere = csFactory.createFromParameters(null, "+proj=stere +lat_0=0 +lon_0=0 +a=6371000 +b=6371000");
+
+  private TransformMetrics metrics;
+
+  public TransformMetricsTest(String name) {
+    super(name);
+  }
+
+  protected void setUp()
+  {
+    metrics = new TransformMetrics();
+    Metrics.setListener(metrics);
+  }
+
+  protected void tearDown()
+  {
+    Metrics.setListener(null);
+  }
+
+  public void testTransforms()
+  {
+    CoordinateTransform trans = new BasicCoordinateTransform(src, tgt);
+    ProjCoordinate p = new ProjCoordinate();
+    trans.transform(new ProjCoordinate(-1.5, 53.0), p);
+    trans.transform(new ProjCoordinate(0.899167, 51.357216), p);
+    try {
+      // the antipode of the centre of a stereographic projection
+      new BasicCoordinateTransform(src, stere).transform(new ProjCoordinate(180.0, 0.0), p);
+      fail();
+    }
+    catch (Proj4jException ex) {
+      // expected
+    }
+    assertEquals(2, metrics.getTransformCount());
+    assertEquals(1, metrics.getTransformFailureCount());
+    Map<String, Histogram> latencies = metrics.getTransformLatencies();
+    assertEquals(1, latencies.size());
+    assertEquals(2, latencies.get(src.getName() + " -> " + tgt.getName()).getCount());
+    assertEquals(new Long(1), metrics.getExceptionCountsByType().get("ProjectionException"));
+
+    BatchCoordinateTransform batch = new BatchCoordinateTransform(src, tgt);
+    double[] pts = { -1.5, 53.0, 0.5, 95.0, 0.899167, 51.357216 };
+    assertEquals(1, batch.transform(pts, 3));
+    assertEquals(1, metrics.getBatchCount());
+    assertEquals(1, metrics.getBatchFailureCount());
+    assertEquals(3, metrics.getBatchSizeHistogram().getSum());
+    // the point outside the domain gives NaN rather than an exception
+    assertEquals(5, metrics.getTransformCount());
+
+    metrics.reset();
+    assertEquals(0, metrics.getTransformCount());
+  }
+
+  public void testPairsByName()
+  {
+    // separately created CRSs with the same names are counted together
+    ProjCoordinate p = new ProjCoordinate();
+    for (int i = 0; i < 3; i++) {
+      CoordinateReferenceSystem tgtCopy = new CRSFactory().createFromParameters(tgt.getName(), tgt.getParameters());
+      new BasicCoordinateTransform(src, tgtCopy).transform(new ProjCoordinate(-1.5, 53.0), p);
+    }
+    Map<String, Histogram> latencies = metrics.getTransformLatencies();
+    assertEquals(1, latencies.size());
+    assertEquals(3, latencies.get(src.getName() + " -> " + tgt.getName()).getCount());
+  }
+
+  public void testCacheAndCatalog()
+  {
+    CRSCache cache = new CRSCache();
+    // a CRS which no other test caches
+    cache.createFromName("EPSG:2154");
+    cache.createFromName("EPSG:2154");
+    assertEquals(1, metrics.getCacheHitCount());
+    assertEquals(1, metrics.getCacheMissCount());
+    assertEquals(1, metrics.getCacheLoadCount());
+    assertEquals(1, metrics.getCatalogLookupCount());
+    assertEquals(1, metrics.getCRSCreationCount());
+
+    new Proj4FileReader().getParameters("EPSG:999999");
+    assertEquals(2, metrics.getCatalogLookupCount());
+    assertEquals(1, metrics.getCatalogLookupMissCount());
+    assertEquals(1, metrics.getCatalogLookups().length);
+  }
+
+  public void testIterativeSolves()
+  {
+    CoordinateReferenceSystem moll = csFactory.createFromParameters(null, "+proj=moll +lon_0=0 +a=6371000 +b=6371000");
+    CoordinateReferenceSystem merc = csFactory.createFromName("EPSG:3395");
+    ProjCoordinate p = new ProjCoordinate();
+    new BasicCoordinateTransform(src, moll).transform(new ProjCoordinate(10.0, 45.0), p);
+    new BasicCoordinateTransform(merc, src).transform(new ProjCoordinate(100000.0, 6000000.0), p);
+
+    Map<String, Histogram> solves = metrics.getIterationHistograms();
+    Histogram h = solves.get("moll");
+    assertEquals(1, h.getCount());
+    assertTrue(h.getMax() > 0);
+    assertEquals(1, solves.get("phi2").getCount());
+    assertTrue(metrics.getIterationLimitCounts().isEmpty());
+    assertEquals(0, metrics.getConvergenceFailureCount());
+
+    metrics.iterativeSolve("test", 15, 15, false);
+    assertEquals(new Long(1), metrics.getIterationLimitCounts().get("test"));
+    assertEquals(1, metrics.getConvergenceFailureCount());
+  }
+
+  public void testMBean()
+    throws Exception
+  {
+    metrics.registerMBean();
+    try {
+      new BasicCoordinateTransform(src, tgt).transform(new ProjCoordinate(-1.5, 53.0), new ProjCoordinate());
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(TransformMetrics.OBJECT_NAME);
+      assertEquals(new Long(1), server.getAttribute(name, "TransformCount"));
+      String[] pairs = (String[]) server.getAttribute(name, "TransformPairs");
+      assertEquals(1, pairs.length);
+      assertTrue(pairs[0].startsWith(src.getName() + " -> " + tgt.getName() + ": count=1"));
+    }
+    finally {
+      metrics.unregisterMBean();
+    }
+  }
+
+  public void testHistogram()
+  {
+    Histogram h = new Histogram();
+    for (int i = 1; i <= 100; i++) {
+      h.record(i);
+    }
+    assertEquals(100, h.getCount());
+    assertEquals(50.5, h.getMean(), 0.0);
+    assertEquals(100, h.getMax());
+    // 50 lies in the bucket from 32 to 63
+    assertEquals(63, h.getQuantile(0.5));
+    assertEquals(100, h.getQuantile(0.99));
+    assertEquals(1, h.getBucketCount(1));
+    assertEquals(2, h.getBucketCount(2));
+  }
+}
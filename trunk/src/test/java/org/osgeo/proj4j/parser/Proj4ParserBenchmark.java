@@ -0,0 +1,102 @@
+package org.osgeo.proj4j.parser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.osgeo.proj4j.Registry;
+import org.osgeo.proj4j.io.Proj4FileReader;
+
+/**
+ * Times parsing every definition in the EPSG catalog,
+ * from parameter arrays, from parameter strings,
+ * and from parameter strings which have been parsed before
+ * (for as many definitions as fit in the parser's memo cache).
+ * <p>
+ * Usage: <tt>Proj4ParserBenchmark [rounds]</tt>
+ */
+public class Proj4ParserBenchmark 
+{
+  public static void main(String args[]) 
+  throws IOException
+  {
+    int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+    new Proj4ParserBenchmark().run(rounds);
+  }
+
+  private Proj4Parser parser = new Proj4Parser(new Registry());
+  private List<String> codes = new ArrayList<String>();
+  private List<String[]> arrays = new ArrayList<String[]>();
+  private List<String> strings = new ArrayList<String>();
+
+  public Proj4ParserBenchmark()
+  throws IOException
+  {
+    Map<String, String[]> defs = new Proj4FileReader().readAllParametersFromFile("epsg");
+    for (Iterator<Map.Entry<String, String[]>> it = defs.entrySet().iterator(); it.hasNext(); ) {
+      Map.Entry<String, String[]> def = it.next();
+      String[] params = def.getValue();
+      try {
+        parser.parse(null, params);
+      }
+      catch (RuntimeException ex) {
+        // skip definitions which can't be created
+        continue;
+      }
+      StringBuffer buf = new StringBuffer();
+      for (int i = 0; i < params.length; i++) {
+        if (i > 0) buf.append(' ');
+        buf.append(params[i]);
+      }
+      codes.add(def.getKey());
+      arrays.add(params);
+      strings.add(buf.toString());
+    }
+  }
+
+  private static final int MEMO_COUNT = 500;
+
+  public void run(int rounds)
+  {
+    int count = codes.size();
+    System.out.println("Parsing " + count + " EPSG definitions");
+    for (int r = 0; r < rounds; r++) {
+      long arrayNanos = timeArrays();
+      Proj4Parser.clearCache();
+      long coldNanos = timeStrings(count);
+      // first pass fills the memo cache
+      Proj4Parser.clearCache();
+      timeStrings(MEMO_COUNT);
+      long memoNanos = timeStrings(MEMO_COUNT);
+      System.out.println("Round " + (r + 1) 
+          + ":  array " + perParse(arrayNanos, count) 
+          + "  string " + perParse(coldNanos, count) 
+          + "  memoized " + perParse(memoNanos, MEMO_COUNT));
+    }
+  }
+
+  private long timeArrays()
+  {
+    long start = System.nanoTime();
+    for (int i = 0; i < arrays.size(); i++) {
+      parser.parse(codes.get(i), arrays.get(i));
+    }
+    return System.nanoTime() - start;
+  }
+
+  private long timeStrings(int count)
+  {
+    long start = System.nanoTime();
+    for (int i = 0; i < count; i++) {
+      parser.parse(codes.get(i), strings.get(i));
+    }
+    return System.nanoTime() - start;
+  }
+
+  private static String perParse(long nanos, int count)
+  {
+    return (nanos / count / 100) / 10.0 + " us";
+  }
+}
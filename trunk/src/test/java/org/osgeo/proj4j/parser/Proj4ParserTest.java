@@ -0,0 +1,151 @@
+package org.osgeo.proj4j.parser;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+import org.osgeo.proj4j.*;
+import org.osgeo.proj4j.io.Proj4FileReader;
+import org.osgeo.proj4j.proj.Projection;
+import org.osgeo.proj4j.util.DoubleParser;
+
+/**
+ * Tests that the single-pass parameter string parser
+ * gives the same results as parsing a parameter array.
+ */
+public class Proj4ParserTest extends TestCase
+{
+  public static void main(String args[]) {
+    TestRunner.run(Proj4ParserTest.class);
+  }
+
+  public Proj4ParserTest(String name) {
+    super(name);
+  }
+
+  public void testDoubleParser()
+  {
+    String[] nums = {
+        "0", "-0", "1", "+1", "-1.5", "0.9996", "500000", "-10000000", 
+        "6378137", "298.257223563", "0.00669438002290", "1e-5", "2.5E10",
+        "123456789012345678901234567890", "0.1234567890123456789", 
+        "1e400", "4.9e-324", ".5", "5."
+    };
+    for (int i = 0; i < nums.length; i++) {
+      checkDouble(nums[i]);
+    }
+    java.util.Random rand = new java.util.Random(42);
+    for (int i = 0; i < 10000; i++) {
+      double d = (rand.nextDouble() - 0.5) * Math.pow(10, rand.nextInt(20) - 10);
+      checkDouble(Double.toString(d));
+      checkDouble(Double.toString(Math.round(d * 1000) / 1000.0));
+    }
+  }
+
+  private void checkDouble(String s)
+  {
+    String padded = "x=" + s + " ";
+    assertEquals(s, Double.parseDouble(s), DoubleParser.parse(padded, 2, padded.length() - 1), 0.0);
+    assertEquals(s, Double.parseDouble(s), DoubleParser.parse(padded.toCharArray(), 2, padded.length() - 1), 0.0);
+  }
+
+  public void testBadNumber()
+  {
+    try {
+      DoubleParser.parse("1.2.3", 0, 5);
+      fail("Expected NumberFormatException");
+    }
+    catch (NumberFormatException ex) {
+      // expected
+    }
+  }
+
+  public void testDMSAngle()
+  {
+    CRSFactory factory = new CRSFactory();
+    CoordinateReferenceSystem crs = factory.createFromParameters(null, 
+        "+proj=tmerc +lat_0=49d30'N +lon_0=2W +k=0.9996 +x_0=400000 +ellps=airy");
+    assertEquals(49.5, crs.getProjection().getProjectionLatitudeDegrees(), 1e-12);
+    assertEquals(-2.0, crs.getProjection().getProjectionLongitudeDegrees(), 1e-12);
+  }
+
+  public void testUnsupportedParameter()
+  {
+    CRSFactory factory = new CRSFactory();
+    try {
+      factory.createFromParameters(null, "+proj=longlat +pm=greenwich");
+      fail("Expected UnsupportedParameterException");
+    }
+    catch (UnsupportedParameterException ex) {
+      // expected
+    }
+  }
+
+  public void testArgsNotShared()
+  {
+    Proj4Parser parser = new Proj4Parser(new Registry());
+    String paramStr = "+proj=utm +zone=33 +datum=WGS84";
+    CoordinateReferenceSystem crs1 = parser.parse("a", paramStr);
+    // the second parse uses the cached parameter table
+    CoordinateReferenceSystem crs2 = parser.parse("b", paramStr);
+    crs1.getParameters()[0] = "+proj=merc";
+    assertEquals("+proj=utm", crs2.getParameters()[0]);
+
+    String[] args = { "+proj=utm", "+zone=33", "+datum=WGS84" };
+    CoordinateReferenceSystem crs3 = parser.parse("c", args);
+    args[0] = "+proj=merc";
+    assertEquals("+proj=utm", crs3.getParameters()[0]);
+  }
+
+  public void testStringMatchesArray()
+    throws IOException
+  {
+    Registry registry = new Registry();
+    Proj4Parser parser = new Proj4Parser(registry);
+    Map<String, String[]> defs = new Proj4FileReader().readAllParametersFromFile("epsg");
+    int count = 0;
+    for (Iterator<Map.Entry<String, String[]>> it = defs.entrySet().iterator(); it.hasNext(); ) {
+      Map.Entry<String, String[]> def = it.next();
+      String[] args = def.getValue();
+      StringBuffer paramStr = new StringBuffer();
+      for (int i = 0; i < args.length; i++) {
+        if (i > 0) paramStr.append(' ');
+        paramStr.append(args[i]);
+      }
+      CoordinateReferenceSystem fromArray;
+      try {
+        fromArray = parser.parse(def.getKey(), args);
+      }
+      catch (RuntimeException ex) {
+        // definitions which can't be created are checked elsewhere
+        continue;
+      }
+      CoordinateReferenceSystem fromString = parser.parse(def.getKey(), paramStr.toString());
+      checkSame(def.getKey(), fromArray, fromString);
+      count++;
+    }
+    assertTrue(count > 1000);
+  }
+
+  private void checkSame(String code, CoordinateReferenceSystem crs1, CoordinateReferenceSystem crs2)
+  {
+    Projection p1 = crs1.getProjection();
+    Projection p2 = crs2.getProjection();
+    assertEquals(code, p1.getClass(), p2.getClass());
+    assertEquals(code, p1.getProjectionLatitude(), p2.getProjectionLatitude(), 0.0);
+    assertEquals(code, p1.getProjectionLongitude(), p2.getProjectionLongitude(), 0.0);
+    assertEquals(code, p1.getProjectionLatitude1(), p2.getProjectionLatitude1(), 0.0);
+    assertEquals(code, p1.getProjectionLatitude2(), p2.getProjectionLatitude2(), 0.0);
+    assertEquals(code, p1.getTrueScaleLatitude(), p2.getTrueScaleLatitude(), 0.0);
+    assertEquals(code, p1.getFalseEasting(), p2.getFalseEasting(), 0.0);
+    assertEquals(code, p1.getFalseNorthing(), p2.getFalseNorthing(), 0.0);
+    assertEquals(code, p1.getScaleFactor(), p2.getScaleFactor(), 0.0);
+    assertEquals(code, p1.getFromMetres(), p2.getFromMetres(), 0.0);
+    assertEquals(code, p1.getEllipsoid().getA(), p2.getEllipsoid().getA(), 0.0);
+    assertEquals(code, p1.getEllipsoid().getEccentricitySquared(), p2.getEllipsoid().getEccentricitySquared(), 0.0);
+    assertTrue(code, crs1.getDatum().isEqual(crs2.getDatum()));
+  }
+}
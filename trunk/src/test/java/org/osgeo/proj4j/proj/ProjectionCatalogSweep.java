@@ -0,0 +1,426 @@
+package org.osgeo.proj4j.proj;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.osgeo.proj4j.CRSFactory;
+import org.osgeo.proj4j.CoordinateReferenceSystem;
+import org.osgeo.proj4j.io.Proj4FileReader;
+
+/**
+ * Sweeps every coordinate system in one or more authority catalogs
+ * (by default <tt>nad/epsg</tt> and <tt>nad/esri</tt>),
+ * using a {@link ProjectionGridRoundTripper} to measure
+ * the round-trip error and the forward and inverse transform times
+ * over a grid around the origin of each projection.
+ * CRSs are swept in parallel.
+ * <p>
+ * The report ranks the least accurate and the slowest CRSs,
+ * which shows where fixes and optimizations pay off most,
+ * and can be written in full as CSV.
+ * Since threads compete for the processor, times are best compared
+ * between runs with the same number of threads.
+ * <p>
+ * Usage:
+ * <pre>
+ *   ProjectionCatalogSweep [-threads &lt;n&gt;] [-grid &lt;n&gt;] [-iterations &lt;n&gt;]
+ *       [-top &lt;n&gt;] [-csv &lt;file&gt;] [-inaccurate &lt;file&gt;] { &lt;authority&gt; }
+ * </pre>
+ * The <tt>-inaccurate</tt> option writes the names of the inaccurate CRSs,
+ * in the format of the list of known inaccurate CRSs
+ * checked by {@link ProjectionCatalogSweepTest}.
+ */
+public class ProjectionCatalogSweep
+{
+  public static void main(String args[])
+    throws IOException
+  {
+    ProjectionCatalogSweep sweep = new ProjectionCatalogSweep();
+    List<String> authorities = new ArrayList<String>();
+    int top = 20;
+    String csvFilename = null;
+    String inaccurateFilename = null;
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (arg.equalsIgnoreCase("-threads"))
+        sweep.setThreadCount(Integer.parseInt(args[++i]));
+      else if (arg.equalsIgnoreCase("-grid"))
+        sweep.setGridSize(Integer.parseInt(args[++i]));
+      else if (arg.equalsIgnoreCase("-iterations"))
+        sweep.setIterations(Integer.parseInt(args[++i]));
+      else if (arg.equalsIgnoreCase("-top"))
+        top = Integer.parseInt(args[++i]);
+      else if (arg.equalsIgnoreCase("-csv"))
+        csvFilename = args[++i];
+      else if (arg.equalsIgnoreCase("-inaccurate"))
+        inaccurateFilename = args[++i];
+      else
+        authorities.add(arg);
+    }
+    if (authorities.isEmpty())
+      authorities.add(null);
+    for (String authority : authorities) {
+      if (authority == null)
+        sweep.runDefault();
+      else
+        sweep.run(authority);
+    }
+    sweep.printReport(System.out, top);
+    if (csvFilename != null) {
+      PrintStream csv = new PrintStream(new FileOutputStream(csvFilename));
+      sweep.writeCSV(csv);
+      csv.close();
+    }
+    if (inaccurateFilename != null) {
+      PrintStream list = new PrintStream(new FileOutputStream(inaccurateFilename));
+      for (Result result : sweep.getResults()) {
+        if (result.isCreated() && ! result.isAccurate())
+          list.println(result.getName());
+      }
+      list.close();
+    }
+  }
+
+  /**
+   * The catalogs swept by {@link #runDefault()}.
+   */
+  public static final String[] DEFAULT_AUTHORITIES = { "EPSG", "ESRI" };
+
+  /**
+   * The round-trip tolerance in degrees.
+   */
+  public static final double TOLERANCE = 0.00001;
+
+  private static final CRSFactory csFactory = new CRSFactory();
+
+  private int threadCount = Runtime.getRuntime().availableProcessors();
+  private int gridSize = 8;
+  private int iterations = 10;
+  private List<Result> results = new ArrayList<Result>();
+
+  public ProjectionCatalogSweep()
+  {
+  }
+
+  public void setThreadCount(int threadCount)
+  {
+    this.threadCount = threadCount;
+  }
+
+  /**
+   * Sets the number of grid cells along each side of the grid of points.
+   */
+  public void setGridSize(int gridSize)
+  {
+    this.gridSize = gridSize;
+  }
+
+  /**
+   * Sets the number of times the grid is transformed when timing a CRS.
+   * The fastest time is reported.
+   */
+  public void setIterations(int iterations)
+  {
+    this.iterations = iterations;
+  }
+
+  /**
+   * Gets the results of every CRS swept so far, in catalog order.
+   */
+  public List<Result> getResults()
+  {
+    return results;
+  }
+
+  /**
+   * Sweeps the default catalogs.
+   */
+  public void runDefault()
+  {
+    for (int i = 0; i < DEFAULT_AUTHORITIES.length; i++) {
+      run(DEFAULT_AUTHORITIES[i]);
+    }
+  }
+
+  /**
+   * Sweeps every CRS in an authority catalog.
+   *
+   * @param authority the authority name (e.g. <tt>EPSG</tt>)
+   */
+  public void run(String authority)
+  {
+    Map<String, String[]> defs;
+    try {
+      defs = new Proj4FileReader().readAllParametersFromFile(authority.toLowerCase());
+    }
+    catch (IOException ex) {
+      throw new IllegalArgumentException("Cannot read authority " + authority + ": " + ex.getMessage());
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      List<Future<Result>> futures = new ArrayList<Future<Result>>();
+      for (Map.Entry<String, String[]> def : defs.entrySet()) {
+        String name = authority.toUpperCase() + ":" + def.getKey();
+        futures.add(executor.submit(new MeasureTask(new Result(name), def.getValue())));
+      }
+      List<Result> measured = new ArrayList<Result>();
+      for (Future<Result> future : futures) {
+        measured.add(waitFor(future));
+      }
+
+      // timing follows measuring, so that the projection code has been compiled by the JIT
+      futures.clear();
+      for (Result result : measured) {
+        if (result.tripper != null)
+          futures.add(executor.submit(new TimeTask(result)));
+      }
+      for (Future<Result> future : futures) {
+        waitFor(future).tripper = null;
+      }
+      results.addAll(measured);
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  private static Result waitFor(Future<Result> future)
+  {
+    try {
+      return future.get();
+    }
+    catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Sweep interrupted");
+    }
+    catch (ExecutionException ex) {
+      // tasks catch their own exceptions, so this indicates an Error
+      throw new IllegalStateException("Sweep failed: " + ex.getCause());
+    }
+  }
+
+  /**
+   * Gets the CRSs whose round-trip error exceeds {@link #TOLERANCE},
+   * or which have points which fail to transform,
+   * least accurate first.
+   */
+  public List<Result> getInaccurate()
+  {
+    List<Result> inaccurate = new ArrayList<Result>();
+    for (Result result : results) {
+      if (result.isCreated() && ! result.isAccurate())
+        inaccurate.add(result);
+    }
+    Collections.sort(inaccurate, new Comparator<Result>() {
+      public int compare(Result r1, Result r2)
+      {
+        int comp = compareError(r2.maxError, r1.maxError);
+        if (comp != 0) return comp;
+        return r2.failureCount - r1.failureCount;
+      }
+    });
+    return inaccurate;
+  }
+
+  // orders NaN errors above all others
+  private static int compareError(double e1, double e2)
+  {
+    if (Double.isNaN(e1)) return Double.isNaN(e2) ? 0 : 1;
+    if (Double.isNaN(e2)) return -1;
+    return Double.compare(e1, e2);
+  }
+
+  /**
+   * Gets the CRSs which could be timed, slowest first
+   * (by the sum of the forward and inverse times).
+   */
+  public List<Result> getSlowest()
+  {
+    List<Result> timed = new ArrayList<Result>();
+    for (Result result : results) {
+      if (result.isTimed())
+        timed.add(result);
+    }
+    Collections.sort(timed, new Comparator<Result>() {
+      public int compare(Result r1, Result r2)
+      {
+        return Double.compare(r2.getTotalNanos(), r1.getTotalNanos());
+      }
+    });
+    return timed;
+  }
+
+  /**
+   * Prints a summary, and rankings of the least accurate and slowest CRSs.
+   *
+   * @param out the stream to print to
+   * @param top the number of CRSs in each ranking
+   */
+  public void printReport(PrintStream out, int top)
+  {
+    int createFailures = 0;
+    for (Result result : results) {
+      if (! result.isCreated())
+        createFailures++;
+    }
+    List<Result> inaccurate = getInaccurate();
+    List<Result> slowest = getSlowest();
+    out.println("CRSs: " + results.size()
+        + ",  Not created: " + createFailures
+        + ",  Inaccurate (tolerance " + TOLERANCE + "): " + inaccurate.size()
+        + ",  Timed: " + slowest.size());
+
+    out.println();
+    out.println("Least accurate:");
+    for (int i = 0; i < top && i < inaccurate.size(); i++) {
+      Result result = inaccurate.get(i);
+      out.println("  " + result.name + " (" + result.projName + ")  max error: " + result.maxError
+          + (result.failureCount > 0 ? ",  failed points: " + result.failureCount : ""));
+    }
+
+    out.println();
+    out.println("Slowest (ns/point forward + inverse):");
+    for (int i = 0; i < top && i < slowest.size(); i++) {
+      Result result = slowest.get(i);
+      out.println("  " + result.name + " (" + result.projName + ")  "
+          + round(result.forwardNanos) + " + " + round(result.inverseNanos));
+    }
+  }
+
+  /**
+   * Writes the result of every CRS in CSV format.
+   *
+   * @param out the stream to write to
+   */
+  public void writeCSV(PrintStream out)
+  {
+    out.println("name,projection,maxError,failedPoints,forwardNanos,inverseNanos,error");
+    for (Result result : results) {
+      out.println(result.name + ","
+          + (result.isCreated() ? result.projName : "") + ","
+          + (result.isCreated() ? String.valueOf(result.maxError) : "") + ","
+          + (result.isCreated() ? String.valueOf(result.failureCount) : "") + ","
+          + (result.isTimed() ? String.valueOf(round(result.forwardNanos)) : "") + ","
+          + (result.isTimed() ? String.valueOf(round(result.inverseNanos)) : "") + ","
+          + (result.createError == null ? "" : "\"" + result.createError.replace("\"", "\"\"") + "\""));
+    }
+  }
+
+  private static double round(double nanos)
+  {
+    return Math.round(10 * nanos) / 10.0;
+  }
+
+  /**
+   * The result of sweeping a single CRS.
+   */
+  public static class Result
+  {
+    String name;
+    String projName;
+    String createError = null;
+    double maxError = Double.NaN;
+    int failureCount = 0;
+    double forwardNanos = Double.NaN;
+    double inverseNanos = Double.NaN;
+    // held between measuring and timing
+    ProjectionGridRoundTripper tripper = null;
+
+    Result(String name)
+    {
+      this.name = name;
+    }
+
+    public String getName() { return name; }
+
+    public String getProjectionName() { return projName; }
+
+    /**
+     * Tests whether the CRS could be created.
+     */
+    public boolean isCreated() { return createError == null; }
+
+    /**
+     * Gets the maximum round-trip error in degrees (NaN if a round trip gave NaN).
+     */
+    public double getMaxError() { return maxError; }
+
+    /**
+     * Gets the number of grid points which failed to transform.
+     */
+    public int getFailureCount() { return failureCount; }
+
+    public boolean isAccurate()
+    {
+      return maxError <= TOLERANCE && failureCount == 0;
+    }
+
+    public boolean isTimed() { return ! Double.isNaN(forwardNanos); }
+
+    public double getForwardNanos() { return forwardNanos; }
+
+    public double getInverseNanos() { return inverseNanos; }
+
+    public double getTotalNanos() { return forwardNanos + inverseNanos; }
+  }
+
+  private class MeasureTask implements Callable<Result>
+  {
+    Result result;
+    String[] params;
+
+    MeasureTask(Result result, String[] params)
+    {
+      this.result = result;
+      this.params = params;
+    }
+
+    public Result call()
+    {
+      try {
+        CoordinateReferenceSystem crs = csFactory.createFromParameters(result.name, params);
+        result.projName = crs.getProjection().getName();
+        result.tripper = new ProjectionGridRoundTripper(crs);
+      }
+      catch (RuntimeException ex) {
+        result.createError = String.valueOf(ex.getMessage());
+        return result;
+      }
+      result.tripper.setGridSize(gridSize);
+      result.maxError = result.tripper.measureGrid();
+      result.failureCount = result.tripper.getFailureCount();
+      return result;
+    }
+  }
+
+  private class TimeTask implements Callable<Result>
+  {
+    Result result;
+
+    TimeTask(Result result)
+    {
+      this.result = result;
+    }
+
+    public Result call()
+    {
+      double[] nanos = result.tripper.timeGrid(iterations);
+      if (nanos != null) {
+        result.forwardNanos = nanos[0];
+        result.inverseNanos = nanos[1];
+      }
+      return result;
+    }
+  }
+}
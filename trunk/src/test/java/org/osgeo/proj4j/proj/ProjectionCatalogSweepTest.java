@@ -0,0 +1,87 @@
+package org.osgeo.proj4j.proj;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+/**
+ * Sweeps the EPSG and ESRI catalogs, and checks that no CRS
+ * outside the list of known inaccurate CRSs fails to round-trip.
+ * This is the acceptance test for changes which trade accuracy for speed.
+ */
+public class ProjectionCatalogSweepTest extends TestCase
+{
+  static final String KNOWN_INACCURATE = "/catalog-sweep-inaccurate.txt";
+
+  public static void main(String args[]) {
+    TestRunner.run(ProjectionCatalogSweepTest.class);
+  }
+
+  public ProjectionCatalogSweepTest(String name) { super(name); }
+
+  public void testCatalogs()
+    throws IOException
+  {
+    ProjectionCatalogSweep sweep = new ProjectionCatalogSweep();
+    // times are not checked
+    sweep.setIterations(1);
+    sweep.runDefault();
+    assertTrue(sweep.getResults().size() > 7000);
+
+    Set<String> known = readKnownInaccurate();
+    List<String> regressions = new ArrayList<String>();
+    for (ProjectionCatalogSweep.Result result : sweep.getInaccurate()) {
+      if (! known.remove(result.getName()))
+        regressions.add(result.getName() + " (max error " + result.getMaxError()
+            + ", failed points " + result.getFailureCount() + ")");
+    }
+    if (! known.isEmpty())
+      System.out.println("Now accurate (can be removed from " + KNOWN_INACCURATE + "): " + known);
+    assertTrue("Inaccurate: " + regressions, regressions.isEmpty());
+  }
+
+  public void testRankings()
+  {
+    ProjectionCatalogSweep sweep = new ProjectionCatalogSweep();
+    sweep.setThreadCount(2);
+    sweep.run("esri");
+    List<ProjectionCatalogSweep.Result> inaccurate = sweep.getInaccurate();
+    for (int i = 1; i < inaccurate.size(); i++) {
+      double e1 = inaccurate.get(i - 1).getMaxError();
+      double e2 = inaccurate.get(i).getMaxError();
+      assertTrue(Double.isNaN(e1) || ! (e2 > e1));
+    }
+    List<ProjectionCatalogSweep.Result> slowest = sweep.getSlowest();
+    assertFalse(slowest.isEmpty());
+    for (int i = 1; i < slowest.size(); i++) {
+      assertTrue(slowest.get(i).getTotalNanos() <= slowest.get(i - 1).getTotalNanos());
+    }
+  }
+
+  private Set<String> readKnownInaccurate()
+    throws IOException
+  {
+    Set<String> names = new HashSet<String>();
+    BufferedReader reader = new BufferedReader(new InputStreamReader(
+        getClass().getResourceAsStream(KNOWN_INACCURATE), "UTF-8"));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (line.length() > 0 && ! line.startsWith("#"))
+          names.add(line);
+      }
+    }
+    finally {
+      reader.close();
+    }
+    return names;
+  }
+}
@@ -6,6 +6,7 @@ import org.osgeo.proj4j.CoordinateTransform;
 import org.osgeo.proj4j.CoordinateTransformFactory;
 import org.osgeo.proj4j.ProjCoordinate;
 import org.osgeo.proj4j.util.ProjectionUtil;
+import org.osgeo.proj4j.util.WorkloadGenerator;
 
 public class ProjectionGridRoundTripper 
 {
@@ -21,6 +22,7 @@ public class ProjectionGridRoundTripper
 	private int gridSize = 4;
 	private boolean debug = false;
 	private int transformCount = 0;
+	private int failureCount = 0;
 	private double[] gridExtent;
 	
 	public ProjectionGridRoundTripper(CoordinateReferenceSystem cs)
@@ -44,37 +46,182 @@ public class ProjectionGridRoundTripper
 	{
 		return gridExtent;
 	}
+	
+	public void setGridSize(int gridSize)
+	{
+		this.gridSize = gridSize;
+	}
+	
 	public boolean runGrid(double tolerance)
 	{
-		boolean isWithinTolerance = true;
-		
+		double[] coords = gridPoints();
+    ProjCoordinate p = new ProjCoordinate();
+		for (int i = 0; i < coords.length; i += 2) {
+			p.x = coords[i];
+			p.y = coords[i + 1];
+			boolean isWithinTol = roundTrip(p, tolerance);
+			if (! isWithinTol)
+				return false;
+		}
+		return true;
+	}
+	
+  /**
+   * Round-trips every point of the grid, without stopping at the first error.
+   * Points which fail to transform are counted rather than measured.
+   *
+   * @return the maximum round-trip error in degrees (NaN if a round trip gave NaN)
+   * @see #getFailureCount()
+   */
+  public double measureGrid()
+  {
+    double[] coords = clampedGridPoints();
+    ProjCoordinate p = new ProjCoordinate();
+    double maxError = 0;
+    for (int i = 0; i < coords.length; i += 2) {
+      p.x = coords[i];
+      p.y = coords[i + 1];
+      double error;
+      try {
+        error = roundTripError(p);
+      }
+      catch (RuntimeException ex) {
+        failureCount++;
+        continue;
+      }
+      if (Double.isNaN(error))
+        return Double.NaN;
+      maxError = Math.max(maxError, error);
+    }
+    return maxError;
+  }
+
+  /**
+   * Gets the number of points which failed to transform in {@link #measureGrid()}.
+   */
+  public int getFailureCount()
+  {
+    return failureCount;
+  }
+
+  /**
+   * Times the forward and inverse transforms of the grid points.
+   * Points which fail to transform are not timed.
+   * The grid is transformed the given number of times,
+   * and the fastest time is taken.
+   *
+   * @param iterations the number of times to transform the grid
+   * @return the forward and inverse times in nanoseconds per point,
+   * or null if no point can be transformed
+   */
+  public double[] timeGrid(int iterations)
+  {
+    double[] coords = clampedGridPoints();
+    int n = coords.length / 2;
+    ProjCoordinate[] geo = new ProjCoordinate[n];
+    ProjCoordinate[] proj = new ProjCoordinate[n];
+    int count = 0;
+    for (int i = 0; i < n; i++) {
+      ProjCoordinate p = new ProjCoordinate(coords[2 * i], coords[2 * i + 1]);
+      ProjCoordinate q = new ProjCoordinate();
+      try {
+        transForward.transform(p, q);
+        transInverse.transform(q, p3);
+      }
+      catch (RuntimeException ex) {
+        continue;
+      }
+      geo[count] = p;
+      proj[count] = q;
+      count++;
+    }
+    if (count == 0)
+      return null;
+
+    long forwardNanos = Long.MAX_VALUE;
+    long inverseNanos = Long.MAX_VALUE;
+    for (int iter = 0; iter < iterations; iter++) {
+      long start = System.nanoTime();
+      for (int i = 0; i < count; i++) {
+        transForward.transform(geo[i], p2);
+      }
+      long mid = System.nanoTime();
+      for (int i = 0; i < count; i++) {
+        transInverse.transform(proj[i], p3);
+      }
+      long end = System.nanoTime();
+      forwardNanos = Math.min(forwardNanos, mid - start);
+      inverseNanos = Math.min(inverseNanos, end - mid);
+    }
+    return new double[] { (double) forwardNanos / count, (double) inverseNanos / count };
+  }
+
+  /**
+   * Computes the points of the grid over the extent of the projection,
+   * as interleaved longitudes and latitudes in degrees.
+   */
+  private double[] gridPoints()
+  {
 		gridExtent = gridExtent(cs.getProjection());
 		double minx = gridExtent[0];
 		double miny = gridExtent[1];
 		double maxx = gridExtent[2];
 		double maxy = gridExtent[3];
 		
-    ProjCoordinate p = new ProjCoordinate();
+		double[] coords = new double[2 * (gridSize + 1) * (gridSize + 1)];
+		int k = 0;
 		double dx = (maxx - minx) / gridSize;
 		double dy = (maxy - miny) / gridSize;
 		for (int ix = 0; ix <= gridSize; ix++) {
 			for (int iy = 0; iy <= gridSize; iy++) {
-				 p.x = ix == gridSize ?
+				 coords[k++] = ix == gridSize ?
 					 		maxx
 					 		: minx + ix * dx;
 
-				 p.y = iy == gridSize ?
+				 coords[k++] = iy == gridSize ?
 						 	maxy
 					 		: miny + iy * dy;
-					 		
-				 boolean isWithinTol = roundTrip(p, tolerance);
-				 if (! isWithinTol)
-					 return false;
 			}
 		}
-		return true;
-	}
-	
+		return coords;
+  }
+
+  /**
+   * Computes the points of the grid as for {@link #gridPoints()},
+   * with the latitudes clamped to the range -90 to 90
+   * (the extent of a polar projection extends past the pole).
+   */
+  private double[] clampedGridPoints()
+  {
+    double[] coords = gridPoints();
+    for (int i = 1; i < coords.length; i += 2) {
+      coords[i] = Math.max(-90, Math.min(90, coords[i]));
+    }
+    return coords;
+  }
+
+  /**
+   * Round-trips a set of points generated over the domain of the projection.
+   *
+   * @param distribution the distribution of the points
+   * @param count the number of points
+   * @param tolerance the tolerance in degrees
+   * @return true if every point is within tolerance
+   */
+  public boolean runWorkload(WorkloadGenerator.Distribution distribution, int count, double tolerance)
+  {
+    WorkloadGenerator generator = new WorkloadGenerator(cs, 42);
+    double[] coords = generator.generate(distribution, count);
+    ProjCoordinate p = new ProjCoordinate();
+    for (int i = 0; i < count; i++) {
+      p.x = coords[2 * i];
+      p.y = coords[2 * i + 1];
+      if (! roundTrip(p, tolerance))
+        return false;
+    }
+    return true;
+  }
+
   ProjCoordinate p2 = new ProjCoordinate();
   ProjCoordinate p3 = new ProjCoordinate();
 
@@ -99,6 +246,27 @@ public class ProjectionGridRoundTripper
     
 		return isInTol;
 	}
+
+  /**
+   * Transforms a point forward and back, and returns the error in degrees
+   * of latitude (with the longitude error scaled by the cosine of the latitude,
+   * so that the undefined longitude of a pole does not count as an error).
+   */
+  private double roundTripError(ProjCoordinate p)
+  {
+    transformCount++;
+
+    transForward.transform(p, p2);
+    transInverse.transform(p2, p3);
+
+    double dx = Math.abs(p3.x - p.x);
+    if (dx > 180)
+      dx = 360 - dx;
+    dx *= Math.cos(Math.toRadians(p.y));
+    double dy = Math.abs(p3.y - p.y);
+    // a NaN error is returned as NaN
+    return dx > dy || Double.isNaN(dx) ? dx : dy;
+  }
 	
 	public static double[] gridExtent(Projection proj)
 	{
@@ -5,6 +5,7 @@ import junit.textui.TestRunner;
 
 import org.osgeo.proj4j.CRSFactory;
 import org.osgeo.proj4j.CoordinateReferenceSystem;
+import org.osgeo.proj4j.util.WorkloadGenerator;
 
 /**
  * Tests accuracy and correctness of projecting and reprojecting a grid of geographic coordinates.
@@ -37,6 +38,25 @@ public class ProjectionGridTest extends TestCase
     runEPSG(2265);
   }
   
+  /**
+   * Round-trips synthetic workloads over the whole domain of each projection,
+   * rather than a small grid around its origin.
+   */
+  public void testWorkloads()
+  {
+    // Transverse Mercator is excluded, since its domain
+    // is wider than the area in which it is accurate
+    String[] codes = { "epsg:4326", "epsg:3857", "epsg:3395", "epsg:3035", "epsg:2154", "epsg:3005" };
+    WorkloadGenerator.Distribution[] distributions = WorkloadGenerator.Distribution.values();
+    CRSFactory csFactory = new CRSFactory();
+    for (int i = 0; i < codes.length; i++) {
+      ProjectionGridRoundTripper tripper = new ProjectionGridRoundTripper(csFactory.createFromName(codes[i]));
+      for (int j = 0; j < distributions.length; j++) {
+        assertTrue(codes[i] + " " + distributions[j], tripper.runWorkload(distributions[j], 1000, TOLERANCE));
+      }
+    }
+  }
+
   void runEPSG(int codeStart, int codeEnd)
   {
   	for (int i = codeStart; i <= codeEnd; i++) {
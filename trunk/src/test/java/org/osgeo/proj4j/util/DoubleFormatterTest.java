@@ -0,0 +1,108 @@
+package org.osgeo.proj4j.util;
+
+import java.nio.CharBuffer;
+import java.text.DecimalFormat;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+import org.osgeo.proj4j.ProjCoordinate;
+
+public class DoubleFormatterTest extends TestCase
+{
+  public static void main(String args[]) {
+    TestRunner.run(DoubleFormatterTest.class);
+  }
+
+  public DoubleFormatterTest(String name) {
+    super(name);
+  }
+
+  public void testShortest()
+  {
+    DoubleFormatter format = new DoubleFormatter();
+    assertEquals("0.0", format.format(0.0));
+    assertEquals("-0.0", format.format(-0.0));
+    assertEquals("1.0", format.format(1.0));
+    assertEquals("0.1", format.format(0.1));
+    assertEquals("-123.456", format.format(-123.456));
+    assertEquals("0.00001", format.format(1e-5));
+    assertEquals("100000000000000000000.0", format.format(1e20));
+    assertEquals("100000000000000000000000.0", format.format(1e23));
+    assertEquals("NaN", format.format(Double.NaN));
+    assertEquals("-Infinity", format.format(Double.NEGATIVE_INFINITY));
+  }
+
+  public void testShortestRoundTrip()
+  {
+    DoubleFormatter format = new DoubleFormatter();
+    Random random = new Random(13);
+    for (int i = 0; i < 100000; i++) {
+      double d = Double.longBitsToDouble(random.nextLong());
+      if (Double.isNaN(d) || Double.isInfinite(d))
+        continue;
+      String s = format.format(d);
+      assertEquals(s, Double.doubleToLongBits(d), Double.doubleToLongBits(Double.parseDouble(s)));
+      // never longer than the digits of Double.toString
+      assertTrue(s, significantDigits(s) <= significantDigits(Double.toString(d)));
+    }
+  }
+
+  public void testFixed()
+  {
+    checkFixed("0.000", 0.0, 3);
+    checkFixed("-1.500", -1.5, 3);
+    checkFixed("0.050", 0.04999999, 3);
+    checkFixed("10000000.00", 1e7, 2);
+    checkFixed("12", 12.3, 0);
+    checkFixed("3", 2.5, 0);
+    checkFixed("0.13", 0.125, 2);
+    checkFixed("100000000000000000000.0", 1e20, 1);
+    checkFixed("1000.00", 999.999, 2);
+  }
+
+  public void testMaxDecimalsMatchesDecimalFormat()
+  {
+    DecimalFormat decimalFormat = new DecimalFormat(ProjCoordinate.DECIMAL_FORMAT_PATTERN);
+    DoubleFormatter format = new DoubleFormatter(16, false);
+    Random random = new Random(17);
+    for (int i = 0; i < 100000; i++) {
+      // coordinate-sized values, for which Double.toString is always shortest
+      double d = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(14) - 6);
+      assertEquals(decimalFormat.format(d), format.format(d));
+    }
+  }
+
+  public void testOutputs()
+  {
+    DoubleFormatter format = new DoubleFormatter(2, true);
+    StringBuilder sb = new StringBuilder("x=");
+    format.append(sb, 1.005);
+    assertEquals("x=1.01", sb.toString());
+
+    CharBuffer cb = CharBuffer.allocate(16);
+    format.append(cb, -7.0);
+    cb.flip();
+    assertEquals("-7.00", cb.toString());
+
+    byte[] bytes = new byte[16];
+    int end = format.write(bytes, 3, 42.125);
+    assertEquals(8, end);
+    assertEquals("42.13", new String(bytes, 3, end - 3));
+  }
+
+  private static void checkFixed(String expected, double value, int decimals)
+  {
+    DoubleFormatter format = new DoubleFormatter(decimals, true);
+    assertEquals(expected, format.format(value));
+    StringBuilder sb = new StringBuilder();
+    format.append(sb, value);
+    assertEquals(expected, sb.toString());
+  }
+
+  private static int significantDigits(String s)
+  {
+    return new java.math.BigDecimal(s).stripTrailingZeros().unscaledValue().abs().toString().length();
+  }
+}
@@ -0,0 +1,140 @@
+package org.osgeo.proj4j.util;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import junit.textui.TestRunner;
+
+import org.osgeo.proj4j.CRSFactory;
+import org.osgeo.proj4j.CoordinateReferenceSystem;
+import org.osgeo.proj4j.ProjCoordinate;
+import org.osgeo.proj4j.proj.Projection;
+import org.osgeo.proj4j.util.WorkloadGenerator.Distribution;
+
+public class WorkloadGeneratorTest extends TestCase
+{
+  public static void main(String args[]) {
+    TestRunner.run(WorkloadGeneratorTest.class);
+  }
+
+  public WorkloadGeneratorTest(String name) {
+    super(name);
+  }
+
+  private static final int COUNT = 5000;
+
+  private static final CRSFactory csFactory = new CRSFactory();
+
+  public void testReproducible()
+  {
+    CoordinateReferenceSystem crs = csFactory.createFromName("epsg:3035");
+    WorkloadGenerator gen1 = new WorkloadGenerator(crs, 1);
+    WorkloadGenerator gen2 = new WorkloadGenerator(crs, 1);
+    WorkloadGenerator gen3 = new WorkloadGenerator(crs, 2);
+    Distribution[] distributions = Distribution.values();
+    for (int i = 0; i < distributions.length; i++) {
+      double[] coords = gen1.generate(distributions[i], COUNT);
+      // the order of calls does not matter
+      gen2.generate(distributions[(i + 1) % distributions.length], 10);
+      assertTrue(distributions[i].toString(), Arrays.equals(coords, gen2.generate(distributions[i], COUNT)));
+      assertFalse(distributions[i].toString(), Arrays.equals(coords, gen3.generate(distributions[i], COUNT)));
+    }
+  }
+
+  public void testDomain()
+  {
+    // Transverse Mercator has a longitude domain of 90 degrees either side of the central meridian
+    checkDomain("epsg:32633");
+    checkDomain("epsg:3857");
+    checkDomain("epsg:3035");
+    checkDomain("epsg:4326");
+  }
+
+  private void checkDomain(String code)
+  {
+    CoordinateReferenceSystem crs = csFactory.createFromName(code);
+    Projection proj = crs.getProjection();
+    WorkloadGenerator gen = new WorkloadGenerator(crs, 42);
+    Distribution[] distributions = Distribution.values();
+    ProjCoordinate p = new ProjCoordinate();
+    ProjCoordinate q = new ProjCoordinate();
+    for (int d = 0; d < distributions.length; d++) {
+      double[] coords = gen.generate(distributions[d], COUNT);
+      for (int i = 0; i < COUNT; i++) {
+        p.x = coords[2 * i];
+        p.y = coords[2 * i + 1];
+        String msg = code + " " + distributions[d] + " " + ProjectionUtil.toString(p);
+        assertTrue(msg, p.x >= -180 && p.x <= 180);
+        double lon = p.x - proj.getProjectionLongitudeDegrees();
+        if (lon > 180) lon -= 360;
+        if (lon < -180) lon += 360;
+        assertTrue(msg, lon >= proj.getMinLongitudeDegrees() - 1e-9 && lon <= proj.getMaxLongitudeDegrees() + 1e-9);
+        assertTrue(msg, p.y >= proj.getMinLatitudeDegrees() && p.y <= proj.getMaxLatitudeDegrees());
+        proj.project(p, q);
+        assertFalse(msg, Double.isNaN(q.x) || Double.isNaN(q.y));
+      }
+    }
+  }
+
+  public void testPolar()
+  {
+    double[] coords = new WorkloadGenerator(csFactory.createFromName("epsg:3857"), 42)
+      .generate(Distribution.POLAR, COUNT);
+    int north = 0;
+    for (int i = 0; i < COUNT; i++) {
+      double lat = coords[2 * i + 1];
+      assertTrue(Math.abs(lat) >= 85 - WorkloadGenerator.POLAR_BAND_DEGREES);
+      if (lat > 0)
+        north++;
+    }
+    assertTrue(north > COUNT / 3 && north < 2 * COUNT / 3);
+  }
+
+  public void testAntimeridian()
+  {
+    double[] coords = new WorkloadGenerator(csFactory.createFromName("epsg:4326"), 42)
+      .generate(Distribution.ANTIMERIDIAN, COUNT);
+    for (int i = 0; i < COUNT; i++) {
+      assertTrue(180 - Math.abs(coords[2 * i]) <= WorkloadGenerator.SEAM_BAND_DEGREES);
+    }
+
+    // the domain of UTM zone 33 does not contain the antimeridian, so its edges are used
+    coords = new WorkloadGenerator(csFactory.createFromName("epsg:32633"), 42)
+      .generate(Distribution.ANTIMERIDIAN, COUNT);
+    for (int i = 0; i < COUNT; i++) {
+      double fromEdge = 90 - Math.abs(coords[2 * i] - 15);
+      assertTrue(fromEdge >= -1e-9 && fromEdge <= WorkloadGenerator.SEAM_BAND_DEGREES + 1e-9);
+    }
+  }
+
+  public void testTrack()
+  {
+    double[] coords = new WorkloadGenerator(csFactory.createFromName("epsg:2154"), 42)
+      .generate(Distribution.TRACK, COUNT);
+    for (int i = 1; i < COUNT; i++) {
+      if (i % WorkloadGenerator.TRACK_LENGTH == 0)
+        continue;
+      double dlat = coords[2 * i + 1] - coords[2 * i - 1];
+      double dlon = (coords[2 * i] - coords[2 * i - 2]) * Math.cos(Math.toRadians(coords[2 * i + 1]));
+      double step = Math.sqrt(dlat * dlat + dlon * dlon);
+      assertTrue(step > 0 && step <= 1.5 * WorkloadGenerator.TRACK_STEP_DEGREES + 1e-9);
+    }
+  }
+
+  public void testClustered()
+  {
+    double[] coords = new WorkloadGenerator(csFactory.createFromName("epsg:3857"), 42)
+      .generate(Distribution.CLUSTERED, COUNT);
+    // most points are close to another point
+    int close = 0;
+    for (int i = 1; i < COUNT; i++) {
+      for (int j = 0; j < i; j++) {
+        if (Math.abs(coords[2 * i] - coords[2 * j]) < 1 && Math.abs(coords[2 * i + 1] - coords[2 * j + 1]) < 1) {
+          close++;
+          break;
+        }
+      }
+    }
+    assertTrue(close > 0.9 * COUNT);
+  }
+}